@@ -0,0 +1,158 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * A BenchmarkResult. The throughput and allocation measured for one benchmark at one size.
+ */
+public class BenchmarkResult {
+    /**
+     * Name of the benchmark.
+     */
+    private String name;
+    /**
+     * Size of the data the benchmark worked on.
+     */
+    private int size;
+    /**
+     * Operations per second in each measured iteration.
+     */
+    private ArrayList<Double> opsPerSecond;
+    /**
+     * Number of operations over all measured iterations.
+     */
+    private long operations;
+    /**
+     * Time of all measured iterations, in nanoseconds.
+     */
+    private long nanos;
+    /**
+     * Bytes allocated over all measured iterations.
+     */
+    private long bytes;
+
+    /**
+     * Constructs a new BenchmarkResult.
+     *
+     * @param name         Name of the benchmark.
+     * @param size         Size of the data the benchmark worked on.
+     * @param opsPerSecond Operations per second in each measured iteration.
+     * @param operations   Number of operations over all measured iterations.
+     * @param nanos        Time of all measured iterations, in nanoseconds.
+     * @param bytes        Bytes allocated over all measured iterations.
+     */
+    BenchmarkResult(String name, int size, ArrayList<Double> opsPerSecond, long operations, long nanos, long bytes) {
+        this.name = name;
+        this.size = size;
+        this.opsPerSecond = opsPerSecond;
+        this.operations = operations;
+        this.nanos = nanos;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Returns the name of the benchmark.
+     *
+     * @return The name of the benchmark.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the size of the data the benchmark worked on.
+     *
+     * @return The size of the data.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the mean throughput over the measured iterations.
+     *
+     * @return The mean number of operations per second.
+     */
+    public double getOpsPerSecond() {
+        double sum = 0;
+        for (double value : opsPerSecond) {
+            sum += value;
+        }
+        return opsPerSecond.isEmpty() ? 0 : sum / opsPerSecond.size();
+    }
+
+    /**
+     * Returns the standard deviation of the throughput over the measured iterations.
+     *
+     * @return The standard deviation of the operations per second.
+     */
+    public double getOpsPerSecondDeviation() {
+        if (opsPerSecond.size() < 2) {
+            return 0;
+        }
+        double mean = getOpsPerSecond();
+        double sum = 0;
+        for (double value : opsPerSecond) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (opsPerSecond.size() - 1));
+    }
+
+    /**
+     * Returns the mean time of an operation.
+     *
+     * @return The mean time of an operation, in nanoseconds.
+     */
+    public double getNanosPerOperation() {
+        return operations == 0 ? 0 : (double) nanos / operations;
+    }
+
+    /**
+     * Returns the mean number of bytes allocated by an operation, like gc.alloc.rate.norm in JMH.
+     *
+     * @return The mean number of bytes allocated per operation.
+     */
+    public double getBytesPerOperation() {
+        return operations == 0 ? 0 : (double) bytes / operations;
+    }
+
+    /**
+     * Returns the rate at which the operations allocated memory, like gc.alloc.rate in JMH.
+     *
+     * @return The allocation rate, in megabytes per second.
+     */
+    public double getAllocationRate() {
+        return nanos == 0 ? 0 : bytes / 1e6 / (nanos / 1e9);
+    }
+
+    /**
+     * Returns the header of the table that toString forms a row of.
+     *
+     * @return The header of the results table.
+     */
+    public static String header() {
+        return String.format("%-40s %9s %16s %10s %14s %12s %12s", "Benchmark", "Size", "ops/s", "+-",
+                "ns/op", "B/op", "MB/s alloc");
+    }
+
+    /**
+     * Returns this BenchmarkResult as a row of the results table.
+     *
+     * @return This BenchmarkResult as a row of the results table.
+     */
+    public String toString() {
+        return String.format("%-40s %9d %16.1f %10.1f %14.1f %12.1f %12.1f", name, size, getOpsPerSecond(),
+                getOpsPerSecondDeviation(), getNanosPerOperation(), getBytesPerOperation(), getAllocationRate());
+    }
+
+    /**
+     * Returns this BenchmarkResult as a line of comma separated values, in the order of the table columns.
+     *
+     * @return This BenchmarkResult as comma separated values.
+     */
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f", name, size, getOpsPerSecond(),
+                getOpsPerSecondDeviation(), getNanosPerOperation(), getBytesPerOperation(), getAllocationRate());
+    }
+}
@@ -0,0 +1,128 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * A BenchmarkRunner. Measures the throughput and allocation of an operation the way a JMH benchmark with "-prof gc"
+ * would: the operation is run repeatedly for a number of timed warmup iterations, whose results are discarded, and
+ * then for a number of timed measured iterations. The bytes allocated by the benchmarking thread are counted with
+ * the JVM's per-thread allocation counter.
+ */
+public class BenchmarkRunner {
+    /**
+     * Shortest time (in nanoseconds) between two reads of the clock, so reading it does not skew fast operations.
+     */
+    private static final long BATCH_NANOS = 1000000;
+
+    /**
+     * Number of iterations run before measuring.
+     */
+    private int warmupIterations;
+    /**
+     * Number of measured iterations.
+     */
+    private int measuredIterations;
+    /**
+     * Length of each iteration, in nanoseconds.
+     */
+    private long iterationNanos;
+    /**
+     * Receives the result of every operation, so the JIT compiler cannot remove the work that computed it.
+     */
+    private volatile Object sink;
+
+    /**
+     * Constructs a new BenchmarkRunner.
+     *
+     * @param warmupIterations   Number of iterations to run before measuring.
+     * @param measuredIterations Number of measured iterations.
+     * @param iterationMillis    Length of each iteration, in milliseconds.
+     */
+    public BenchmarkRunner(int warmupIterations, int measuredIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationNanos = iterationMillis * 1000000;
+    }
+
+    /**
+     * Measures an operation.
+     *
+     * @param name      Name of the benchmark.
+     * @param size      Size of the data the operation works on, such as the number of ImageFiles in the catalog.
+     * @param operation The operation to measure.
+     * @return The measured throughput and allocation.
+     * @throws Exception If the operation failed.
+     */
+    public BenchmarkResult run(String name, int size, Operation operation) throws Exception {
+        int batch = 1;
+        long invocation = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            long end = System.nanoTime() + iterationNanos;
+            long now = System.nanoTime();
+            while (now < end) {
+                long batchStart = now;
+                for (int j = 0; j < batch; j++) {
+                    sink = operation.run((int) (invocation++ & Integer.MAX_VALUE));
+                }
+                now = System.nanoTime();
+                if (now - batchStart < BATCH_NANOS && batch < (1 << 30)) {
+                    batch *= 2;
+                }
+            }
+        }
+
+        ArrayList<Double> opsPerSecond = new ArrayList<>();
+        long totalOperations = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < measuredIterations; i++) {
+            long operations = 0;
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long end = start + iterationNanos;
+            long now = start;
+            while (now < end) {
+                for (int j = 0; j < batch; j++) {
+                    sink = operation.run((int) (invocation++ & Integer.MAX_VALUE));
+                }
+                operations += batch;
+                now = System.nanoTime();
+            }
+            long bytes = allocatedBytes() - bytesBefore;
+            opsPerSecond.add(operations * 1e9 / (now - start));
+            totalOperations += operations;
+            totalNanos += now - start;
+            totalBytes += bytes;
+        }
+        return new BenchmarkResult(name, size, opsPerSecond, totalOperations, totalNanos, totalBytes);
+    }
+
+    /**
+     * Returns the number of bytes allocated by the calling thread so far.
+     *
+     * @return The number of allocated bytes, or 0 if the JVM does not count them.
+     */
+    public static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * An operation to benchmark.
+     */
+    public interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @param invocation Number of this run, counting from 0, so runs can cycle through their inputs. Never negative:
+         *                   after Integer.MAX_VALUE it wraps around to 0.
+         * @return The result of the operation.
+         * @throws Exception If the operation failed.
+         */
+        Object run(int invocation) throws Exception;
+    }
+}
@@ -0,0 +1,47 @@
+package benchmark;
+
+import image.ImageManager;
+import tag.TagManager;
+
+/**
+ * A Catalog. The ImageManager and TagManager whose contents a CatalogStorage saves and loads together.
+ */
+public class Catalog {
+    /**
+     * The ImageManager of this Catalog.
+     */
+    private ImageManager imageManager;
+    /**
+     * The TagManager of this Catalog.
+     */
+    private TagManager tagManager;
+
+    /**
+     * Constructs a new Catalog.
+     *
+     * @param imageManager The ImageManager of the Catalog.
+     * @param tagManager   The TagManager of the Catalog.
+     */
+    public Catalog(ImageManager imageManager, TagManager tagManager) {
+        this.imageManager = imageManager;
+        this.tagManager = tagManager;
+    }
+
+    /**
+     * Returns the ImageManager of this Catalog.
+     *
+     * @return The ImageManager of this Catalog.
+     */
+    public ImageManager getImageManager() {
+        return imageManager;
+    }
+
+    /**
+     * Returns the TagManager of this Catalog.
+     *
+     * @return The TagManager of this Catalog.
+     */
+    public TagManager getTagManager() {
+        return tagManager;
+    }
+}
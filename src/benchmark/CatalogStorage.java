@@ -0,0 +1,36 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A CatalogStorage. A way of saving a Catalog to a directory and loading it back, so that storage backends can be
+ * compared by the same benchmarks.
+ */
+public interface CatalogStorage {
+
+    /**
+     * Returns the name of this CatalogStorage, as shown in benchmark results.
+     *
+     * @return The name of this CatalogStorage.
+     */
+    String getName();
+
+    /**
+     * Saves a Catalog to a directory, replacing any Catalog saved there before.
+     *
+     * @param catalog   Catalog to save.
+     * @param directory Directory to save to.
+     * @throws IOException ..
+     */
+    void save(Catalog catalog, File directory) throws IOException;
+
+    /**
+     * Loads the Catalog saved to a directory.
+     *
+     * @param directory Directory to load from.
+     * @return The loaded Catalog.
+     * @throws IOException ..
+     */
+    Catalog load(File directory) throws IOException;
+}
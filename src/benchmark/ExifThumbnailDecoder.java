@@ -0,0 +1,243 @@
+package benchmark;
+
+import thumbnail.ThumbnailPipeline;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An ExifThumbnailDecoder. Decodes the small thumbnail a camera embeds in the EXIF header of a JPEG file, instead of
+ * the image itself, and scales it like the ThumbnailPipeline. Only JPEG files with an embedded thumbnail can be
+ * decoded.
+ */
+public class ExifThumbnailDecoder implements ThumbnailDecoder {
+    /**
+     * Marker that starts a JPEG file.
+     */
+    private static final int START_OF_IMAGE = 0xD8;
+    /**
+     * Marker of the segment that holds the JFIF header.
+     */
+    private static final int APP0 = 0xE0;
+    /**
+     * Marker of the segment that holds the EXIF header.
+     */
+    private static final int APP1 = 0xE1;
+    /**
+     * Marker of the segment after which the compressed image data follows.
+     */
+    private static final int START_OF_SCAN = 0xDA;
+    /**
+     * Identifier an EXIF header starts with.
+     */
+    private static final byte[] EXIF_IDENTIFIER = {'E', 'x', 'i', 'f', 0, 0};
+    /**
+     * TIFF tag of the offset of the embedded thumbnail.
+     */
+    private static final int THUMBNAIL_OFFSET_TAG = 0x0201;
+    /**
+     * TIFF tag of the length of the embedded thumbnail.
+     */
+    private static final int THUMBNAIL_LENGTH_TAG = 0x0202;
+
+    /**
+     * Returns the name of this ExifThumbnailDecoder, as shown in benchmark results.
+     *
+     * @return The name of this ExifThumbnailDecoder.
+     */
+    @Override
+    public String getName() {
+        return "exif-thumbnail";
+    }
+
+    /**
+     * Returns true if an encoded image is a JPEG file with an embedded thumbnail.
+     *
+     * @param bytes The encoded image.
+     * @return True iff the image has an embedded thumbnail.
+     */
+    @Override
+    public boolean canDecode(byte[] bytes) {
+        return findThumbnail(bytes) != null;
+    }
+
+    /**
+     * Decodes the thumbnail embedded in a JPEG file, scaled to ThumbnailCache.THUMBNAIL_SIZE. The size is ignored, as
+     * the ThumbnailPipeline only makes thumbnails of that size.
+     *
+     * @param bytes The encoded image.
+     * @param size  Largest width and height of the thumbnail, in pixels.
+     * @return The thumbnail.
+     * @throws IOException ..
+     */
+    @Override
+    public Object decode(byte[] bytes, int size) throws IOException {
+        byte[] thumbnail = findThumbnail(bytes);
+        BufferedImage image = thumbnail == null ? null : ImageIO.read(new ByteArrayInputStream(thumbnail));
+        if (image == null) {
+            throw new IOException("No embedded thumbnail");
+        }
+        return ThumbnailPipeline.scaleToThumbnail(image);
+    }
+
+    /**
+     * Returns the thumbnail embedded in the EXIF header of a JPEG file.
+     *
+     * @param jpeg The JPEG file.
+     * @return The embedded JPEG thumbnail, or null if there is none.
+     */
+    public static byte[] findThumbnail(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != START_OF_IMAGE) {
+            return null;
+        }
+        try {
+            int position = 2;
+            while ((jpeg[position] & 0xFF) == 0xFF) {
+                int marker = jpeg[position + 1] & 0xFF;
+                if (marker == START_OF_SCAN) {
+                    return null;
+                }
+                int length = readUnsigned(jpeg, position + 2, 2, false);
+                if (marker == APP1 && startsWith(jpeg, position + 4, EXIF_IDENTIFIER)) {
+                    return findTiffThumbnail(jpeg, position + 4 + EXIF_IDENTIFIER.length);
+                }
+                position += 2 + length;
+            }
+            return null;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // a truncated or malformed header has no usable thumbnail
+            return null;
+        }
+    }
+
+    /**
+     * Returns the thumbnail referred to by the second image file directory of a TIFF structure, as EXIF stores it.
+     *
+     * @param jpeg The JPEG file.
+     * @param tiff Position of the TIFF structure in the JPEG file.
+     * @return The embedded JPEG thumbnail, or null if there is none.
+     */
+    private static byte[] findTiffThumbnail(byte[] jpeg, int tiff) {
+        boolean littleEndian = jpeg[tiff] == 'I';
+        int firstDirectory = readUnsigned(jpeg, tiff + 4, 4, littleEndian);
+        int entries = readUnsigned(jpeg, tiff + firstDirectory, 2, littleEndian);
+        int secondDirectory = readUnsigned(jpeg, tiff + firstDirectory + 2 + 12 * entries, 4, littleEndian);
+        if (secondDirectory == 0) {
+            return null;
+        }
+        entries = readUnsigned(jpeg, tiff + secondDirectory, 2, littleEndian);
+        int offset = -1;
+        int length = -1;
+        for (int i = 0; i < entries; i++) {
+            int entry = tiff + secondDirectory + 2 + 12 * i;
+            int tag = readUnsigned(jpeg, entry, 2, littleEndian);
+            // a SHORT value is stored in the first two bytes of the value field, a LONG value in all four
+            int size = readUnsigned(jpeg, entry + 2, 2, littleEndian) == 3 ? 2 : 4;
+            if (tag == THUMBNAIL_OFFSET_TAG) {
+                offset = readUnsigned(jpeg, entry + 8, size, littleEndian);
+            } else if (tag == THUMBNAIL_LENGTH_TAG) {
+                length = readUnsigned(jpeg, entry + 8, size, littleEndian);
+            }
+        }
+        if (offset < 0 || length <= 0 || tiff + offset + length > jpeg.length) {
+            return null;
+        }
+        return Arrays.copyOfRange(jpeg, tiff + offset, tiff + offset + length);
+    }
+
+    /**
+     * Returns a copy of a JPEG file with a thumbnail embedded in a new EXIF header, after its JFIF header if it has
+     * one. Lets the benchmarks make JPEG files like those of a camera.
+     *
+     * @param jpeg      The JPEG file.
+     * @param thumbnail The JPEG thumbnail to embed.
+     * @return The JPEG file with the embedded thumbnail.
+     */
+    public static byte[] embedThumbnail(byte[] jpeg, byte[] thumbnail) {
+        // a TIFF structure with an empty first image file directory, and a second one that refers to the thumbnail
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+        tiff.write('I');
+        tiff.write('I');
+        writeLittleEndian(tiff, 42, 2);
+        writeLittleEndian(tiff, 8, 4);
+        writeLittleEndian(tiff, 0, 2);
+        writeLittleEndian(tiff, 14, 4);
+        writeLittleEndian(tiff, 2, 2);
+        for (int tag : new int[]{THUMBNAIL_OFFSET_TAG, THUMBNAIL_LENGTH_TAG}) {
+            writeLittleEndian(tiff, tag, 2);
+            writeLittleEndian(tiff, 4, 2);
+            writeLittleEndian(tiff, 1, 4);
+            writeLittleEndian(tiff, tag == THUMBNAIL_OFFSET_TAG ? 44 : thumbnail.length, 4);
+        }
+        writeLittleEndian(tiff, 0, 4);
+        tiff.write(thumbnail, 0, thumbnail.length);
+
+        int insertAt = 2;
+        if ((jpeg[2] & 0xFF) == 0xFF && (jpeg[3] & 0xFF) == APP0) {
+            insertAt += 2 + readUnsigned(jpeg, 4, 2, false);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(jpeg.length + tiff.size() + 10);
+        output.write(jpeg, 0, insertAt);
+        output.write(0xFF);
+        output.write(APP1);
+        int length = 2 + EXIF_IDENTIFIER.length + tiff.size();
+        output.write(length >> 8);
+        output.write(length & 0xFF);
+        output.write(EXIF_IDENTIFIER, 0, EXIF_IDENTIFIER.length);
+        output.write(tiff.toByteArray(), 0, tiff.size());
+        output.write(jpeg, insertAt, jpeg.length - insertAt);
+        return output.toByteArray();
+    }
+
+    /**
+     * Returns an unsigned integer of two or four bytes.
+     *
+     * @param bytes        Bytes to read from.
+     * @param position     Position of the integer.
+     * @param size         Number of bytes of the integer.
+     * @param littleEndian Whether or not the least significant byte comes first.
+     * @return The integer.
+     */
+    private static int readUnsigned(byte[] bytes, int position, int size, boolean littleEndian) {
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            int b = bytes[position + (littleEndian ? size - 1 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /**
+     * Writes an unsigned integer with its least significant byte first.
+     *
+     * @param output Stream to write to.
+     * @param value  The integer.
+     * @param size   Number of bytes to write.
+     */
+    private static void writeLittleEndian(ByteArrayOutputStream output, int value, int size) {
+        for (int i = 0; i < size; i++) {
+            output.write(value >> (8 * i));
+        }
+    }
+
+    /**
+     * Returns true if bytes at a position start with a prefix.
+     *
+     * @param bytes    Bytes to check.
+     * @param position Position to check at.
+     * @param prefix   The prefix.
+     * @return True iff the bytes at the position start with the prefix.
+     */
+    private static boolean startsWith(byte[] bytes, int position, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[position + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import javafx.scene.image.Image;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * An FxImageDecoder. Decodes thumbnails with JavaFx Image, scaled while loading, as an ImageListCell does. Needs the
+ * JavaFx toolkit to be started.
+ */
+public class FxImageDecoder implements ThumbnailDecoder {
+
+    /**
+     * Returns the name of this FxImageDecoder, as shown in benchmark results.
+     *
+     * @return The name of this FxImageDecoder.
+     */
+    @Override
+    public String getName() {
+        return "javafx";
+    }
+
+    /**
+     * Returns true; JavaFx Image reads every format the program displays.
+     *
+     * @param bytes The encoded image.
+     * @return True.
+     */
+    @Override
+    public boolean canDecode(byte[] bytes) {
+        return true;
+    }
+
+    /**
+     * Decodes an encoded image into a thumbnail, requesting half the height for the width like an ImageListCell.
+     *
+     * @param bytes The encoded image.
+     * @param size  Largest width and height of the thumbnail, in pixels.
+     * @return The thumbnail.
+     * @throws IOException ..
+     */
+    @Override
+    public Object decode(byte[] bytes, int size) throws IOException {
+        Image image = new Image(new ByteArrayInputStream(bytes), size, size / 2, true, false);
+        if (image.isError()) {
+            throw new IOException("JavaFx could not decode the image", image.getException());
+        }
+        return image;
+    }
+}
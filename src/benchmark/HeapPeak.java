@@ -0,0 +1,48 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * A HeapPeak. Measures the most heap used while an operation runs, from the peak usage the JVM keeps for each heap
+ * memory pool. The pools peak at different moments, so their sum may overstate the peak a little.
+ */
+public class HeapPeak {
+
+    /**
+     * Forgets the peak usage so far, so the next call of getPeakBytes covers only what runs in between.
+     */
+    public static void reset() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Returns the most heap used since the last reset.
+     *
+     * @return The peak heap usage, in bytes.
+     */
+    public static long getPeakBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Returns the heap used by reachable objects, after a garbage collection.
+     *
+     * @return The used heap, in bytes.
+     */
+    public static long getRetainedBytes() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import thumbnail.ThumbnailPipeline;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * An ImageIODecoder. Decodes images with ImageIO, either every pixel or subsampled while decoding, and scales them to
+ * thumbnails, with the code of the ThumbnailPipeline.
+ */
+public class ImageIODecoder implements ThumbnailDecoder {
+    /**
+     * Whether or not images are subsampled while they are decoded.
+     */
+    private boolean subsampled;
+
+    /**
+     * Constructs a new ImageIODecoder.
+     *
+     * @param subsampled Whether or not to subsample images while decoding them.
+     */
+    public ImageIODecoder(boolean subsampled) {
+        this.subsampled = subsampled;
+    }
+
+    /**
+     * Returns the name of this ImageIODecoder, as shown in benchmark results.
+     *
+     * @return The name of this ImageIODecoder.
+     */
+    @Override
+    public String getName() {
+        return subsampled ? "imageio-subsampled" : "imageio";
+    }
+
+    /**
+     * Returns true; ImageIO reads every format the program displays.
+     *
+     * @param bytes The encoded image.
+     * @return True.
+     */
+    @Override
+    public boolean canDecode(byte[] bytes) {
+        return true;
+    }
+
+    /**
+     * Decodes an encoded image into a thumbnail of ThumbnailCache.THUMBNAIL_SIZE. The size is ignored, as the
+     * ThumbnailPipeline only makes thumbnails of that size.
+     *
+     * @param bytes The encoded image.
+     * @param size  Largest width and height of the thumbnail, in pixels.
+     * @return The thumbnail.
+     * @throws IOException ..
+     */
+    @Override
+    public Object decode(byte[] bytes, int size) throws IOException {
+        BufferedImage image = subsampled ? ThumbnailPipeline.decodeSubsampled(bytes)
+                : ImageIO.read(new ByteArrayInputStream(bytes));
+        if (image == null) {
+            throw new IOException("No image reader");
+        }
+        return ThumbnailPipeline.scaleToThumbnail(image);
+    }
+}
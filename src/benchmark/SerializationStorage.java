@@ -0,0 +1,57 @@
+package benchmark;
+
+import image.ImageManager;
+import tag.TagManager;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A SerializationStorage. Saves and loads a Catalog the way the program does: each manager writes its persistence file
+ * with Java serialization, and is constructed from it again.
+ */
+public class SerializationStorage implements CatalogStorage {
+    /**
+     * Name of the persistence file of the ImageManager.
+     */
+    static final String IMAGES_FILE = "serializedimages.ser";
+    /**
+     * Name of the persistence file of the TagManager.
+     */
+    static final String TAGS_FILE = "serializedtags.ser";
+
+    /**
+     * Returns the name of this CatalogStorage, as shown in benchmark results.
+     *
+     * @return The name of this CatalogStorage.
+     */
+    @Override
+    public String getName() {
+        return "serialization";
+    }
+
+    /**
+     * Saves a Catalog to a directory with ImageManager.saveToFile and TagManager.saveToFile.
+     *
+     * @param catalog   Catalog to save.
+     * @param directory Directory to save to.
+     * @throws IOException ..
+     */
+    @Override
+    public void save(Catalog catalog, File directory) throws IOException {
+        catalog.getImageManager().saveToFile(new File(directory, IMAGES_FILE).getPath());
+        catalog.getTagManager().saveToFile(new File(directory, TAGS_FILE).getPath());
+    }
+
+    /**
+     * Loads the Catalog saved to a directory by constructing both managers from their persistence files.
+     *
+     * @param directory Directory to load from.
+     * @return The loaded Catalog.
+     */
+    @Override
+    public Catalog load(File directory) {
+        return new Catalog(new ImageManager(new File(directory, IMAGES_FILE).getPath()),
+                new TagManager(new File(directory, TAGS_FILE).getPath()));
+    }
+}
@@ -0,0 +1,243 @@
+package benchmark;
+
+import image.ImageFile;
+import overlay.ImageTagOverlay;
+import tag.Tag;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A SyntheticCatalog. Generates a realistic image catalog from a seed, as paths or as tagged ImageFiles: images spread
+ * over directories, named like camera or hand-named files, carrying zero to a few "@tag" tokens. Tag popularity follows
+ * a Zipf distribution, so a few tags are on many images and most tags are on few, as in a real catalog. The same seed
+ * always generates the same catalog.
+ */
+public class SyntheticCatalog {
+    /**
+     * Largest number of images in one directory.
+     */
+    private static final int IMAGES_PER_DIRECTORY = 500;
+    /**
+     * Words tag names are made of.
+     */
+    private static final String[] TAG_WORDS = {"beach", "family", "dog", "cat", "sunset", "mountains", "city",
+            "friends", "birthday", "wedding", "snow", "forest", "lake", "food", "party", "car", "bike", "flowers",
+            "garden", "portrait", "night", "concert", "museum", "bridge", "river", "boat", "train", "holiday",
+            "school", "work", "kids", "grandma", "hiking", "camping", "winter", "summer", "spring", "autumn", "sky",
+            "street"};
+    /**
+     * Patterns image names are made from, filled in with a number.
+     */
+    private static final String[] NAME_PATTERNS = {"IMG_%04d", "DSC%05d", "P%07d", "photo %d", "Screenshot %d",
+            "scan-%06d"};
+    /**
+     * Image file extensions, with the most common first.
+     */
+    private static final String[] EXTENSIONS = {".jpg", ".jpg", ".jpg", ".png", ".png", ".jpeg", ".JPG", ".gif"};
+
+    /**
+     * Generator of every random choice, seeded so catalogs can be generated again.
+     */
+    private Random random;
+    /**
+     * Names of the tags, most popular first.
+     */
+    private String[] tagNames;
+    /**
+     * Cumulative probability of picking each tag.
+     */
+    private double[] tagDistribution;
+
+    /**
+     * Constructs a new SyntheticCatalog.
+     *
+     * @param seed         Seed of the random choices.
+     * @param tagCount     Number of distinct tags.
+     * @param zipfExponent Exponent of the Zipf distribution of tag popularity; larger makes popular tags more popular.
+     */
+    public SyntheticCatalog(long seed, int tagCount, double zipfExponent) {
+        random = new Random(seed);
+        tagNames = new String[tagCount];
+        for (int i = 0; i < tagCount; i++) {
+            String word = TAG_WORDS[i % TAG_WORDS.length];
+            tagNames[i] = i < TAG_WORDS.length ? word : word + (i / TAG_WORDS.length + 1);
+        }
+        tagDistribution = new double[tagCount];
+        double total = 0;
+        for (int i = 0; i < tagCount; i++) {
+            total += 1 / Math.pow(i + 1, zipfExponent);
+            tagDistribution[i] = total;
+        }
+        for (int i = 0; i < tagCount; i++) {
+            tagDistribution[i] /= total;
+        }
+    }
+
+    /**
+     * Returns the names of the tags, most popular first.
+     *
+     * @return The names of the tags.
+     */
+    public ArrayList<String> getTagNames() {
+        return new ArrayList<>(Arrays.asList(tagNames));
+    }
+
+    /**
+     * Returns the paths of a number of images under a root directory. The paths are generated, not created.
+     *
+     * @param root  Root directory of the catalog.
+     * @param count Number of images.
+     * @return The paths of the images, directory by directory.
+     */
+    public ArrayList<File> generatePaths(File root, int count) {
+        ArrayList<File> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            File directory = new File(root, String.format("album-%04d", i / IMAGES_PER_DIRECTORY));
+            files.add(new File(directory, nextName(i)));
+        }
+        return files;
+    }
+
+    /**
+     * Returns the name of a tag, picked by popularity.
+     *
+     * @return The name of the tag.
+     */
+    public String nextTagName() {
+        int index = Arrays.binarySearch(tagDistribution, random.nextDouble());
+        return tagNames[Math.min(tagNames.length - 1, index < 0 ? -index - 1 : index)];
+    }
+
+    /**
+     * Returns a random number from 0 (inclusive) to a bound (exclusive), from the generator of this catalog.
+     *
+     * @param bound Bound of the number.
+     * @return The number.
+     */
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * Returns a catalog of tagged ImageFiles under a root directory, as it would be after a user tagged every image,
+     * renamed some of them more than once, and drew ImageTagOverlays for some of their tags. Each ImageFile is added
+     * to its Tags, which are created in a specified map as needed. No files are created.
+     *
+     * @param root  Root directory of the catalog.
+     * @param count Number of ImageFiles.
+     * @param tags  Tags of the catalog, by name; missing Tags are added.
+     * @return The ImageFiles, directory by directory.
+     */
+    public ArrayList<ImageFile> generateImageFiles(File root, int count, HashMap<String, Tag> tags) {
+        ArrayList<ImageFile> imageFiles = new ArrayList<>(count);
+        IdentityHashMap<Tag, ArrayList<ImageFile>> imagesByTag = new IdentityHashMap<>();
+        for (int i = 0; i < count; i++) {
+            File directory = new File(root, String.format("album-%04d", i / IMAGES_PER_DIRECTORY));
+            String untaggedName = nextUntaggedName(i);
+            ArrayList<String> tagNames = new ArrayList<>(nextTagNames(1 + nextTagCount()));
+
+            // some tags were added and removed again, then the image was tagged one tag at a time
+            ArrayList<String> nameHistory = new ArrayList<>();
+            String name = untaggedName;
+            for (int removed = random.nextInt(3); removed > 0; removed--) {
+                nameHistory.add(name);
+                nameHistory.add(untaggedName + " @" + nextTagName());
+                name = untaggedName;
+            }
+            for (String tagName : tagNames) {
+                nameHistory.add(name);
+                name = name + " @" + tagName;
+            }
+
+            ArrayList<Tag> imageTags = new ArrayList<>();
+            ArrayList<ImageTagOverlay> overlays = new ArrayList<>();
+            for (String tagName : tagNames) {
+                imageTags.add(tags.computeIfAbsent(tagName, Tag::new));
+                for (int overlay = random.nextInt(4) - 1; overlay > 0; overlay--) {
+                    double x = random.nextDouble() * 0.8;
+                    double y = random.nextDouble() * 0.8;
+                    overlays.add(new ImageTagOverlay(x, y, x + 0.05 + random.nextDouble() * 0.15,
+                            y + 0.05 + random.nextDouble() * 0.15, tagName));
+                }
+            }
+
+            ImageFile imageFile = new ImageFile(new File(directory, name + nextExtension()), imageTags, nameHistory,
+                    overlays);
+            for (Tag tag : imageTags) {
+                imagesByTag.computeIfAbsent(tag, key -> new ArrayList<>()).add(imageFile);
+            }
+            imageFiles.add(imageFile);
+        }
+        for (Map.Entry<Tag, ArrayList<ImageFile>> entry : imagesByTag.entrySet()) {
+            entry.getKey().addImagesToTag(entry.getValue());
+        }
+        return imageFiles;
+    }
+
+    /**
+     * Returns the name of an image, unique within the catalog: an untagged name followed by its tags and extension.
+     * About a third of the images are untagged, and few have more than two tags.
+     *
+     * @param number Number of the image in the catalog.
+     * @return The name of the image.
+     */
+    public String nextName(int number) {
+        StringBuilder name = new StringBuilder(nextUntaggedName(number));
+        double tagRoll = random.nextDouble();
+        int tags = tagRoll < 0.35 ? 0 : 1 + nextTagCount();
+        for (String tag : nextTagNames(tags)) {
+            name.append(" @").append(tag);
+        }
+        return name.append(nextExtension()).toString();
+    }
+
+    /**
+     * Returns an untagged image name, unique within the catalog.
+     *
+     * @param number Number of the image in the catalog.
+     * @return The untagged name, without an extension.
+     */
+    private String nextUntaggedName(int number) {
+        return String.format(NAME_PATTERNS[random.nextInt(NAME_PATTERNS.length)], number);
+    }
+
+    /**
+     * Returns the number of tags of a tagged image beyond its first: usually none or one, rarely up to four.
+     *
+     * @return The number of extra tags.
+     */
+    private int nextTagCount() {
+        double tagRoll = random.nextDouble();
+        return tagRoll < 0.55 ? 0 : tagRoll < 0.85 ? 1 : 2 + random.nextInt(3);
+    }
+
+    /**
+     * Returns distinct tag names, picked by popularity.
+     *
+     * @param count Number of picks; fewer names are returned when a popular tag is picked twice.
+     * @return The distinct tag names, in the order they were picked.
+     */
+    private LinkedHashSet<String> nextTagNames(int count) {
+        LinkedHashSet<String> chosen = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            chosen.add(nextTagName());
+        }
+        return chosen;
+    }
+
+    /**
+     * Returns an image file extension, common extensions more often.
+     *
+     * @return The extension, with its dot.
+     */
+    private String nextExtension() {
+        return EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+    }
+}
@@ -0,0 +1,162 @@
+package benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+/**
+ * A SyntheticLibrary. Writes a directory tree of tiny but valid image files, named by a SyntheticCatalog, so scanning,
+ * ingesting and thumbnailing can be measured on real files. Every directory down to a given depth has a given number
+ * of subdirectories and images. The same SyntheticCatalog seed always writes the same tree and the same files.
+ */
+public class SyntheticLibrary {
+    /**
+     * Number of different images each format is written with.
+     */
+    private static final int VARIANTS = 8;
+
+    /**
+     * Names the images.
+     */
+    private SyntheticCatalog catalog;
+    /**
+     * Number of levels of subdirectories below the root.
+     */
+    private int depth;
+    /**
+     * Number of subdirectories of each directory above the deepest level.
+     */
+    private int fanOut;
+    /**
+     * Number of images in each directory.
+     */
+    private int filesPerDirectory;
+    /**
+     * Width and height of the images, in pixels.
+     */
+    private int imageSize;
+    /**
+     * Encoded image variants, by ImageIO format name. Encoded once and written many times, so writing is bound by the
+     * file system rather than by the encoders.
+     */
+    private HashMap<String, byte[][]> encodedImages = new HashMap<>();
+    /**
+     * Number of images written so far.
+     */
+    private int imageCount;
+
+    /**
+     * Constructs a new SyntheticLibrary.
+     *
+     * @param catalog           SyntheticCatalog that names the images.
+     * @param depth             Number of levels of subdirectories below the root.
+     * @param fanOut            Number of subdirectories of each directory above the deepest level.
+     * @param filesPerDirectory Number of images in each directory.
+     * @param imageSize         Width and height of the images, in pixels.
+     */
+    public SyntheticLibrary(SyntheticCatalog catalog, int depth, int fanOut, int filesPerDirectory, int imageSize) {
+        this.catalog = catalog;
+        this.depth = depth;
+        this.fanOut = fanOut;
+        this.filesPerDirectory = filesPerDirectory;
+        this.imageSize = imageSize;
+    }
+
+    /**
+     * Returns the number of images a tree of this SyntheticLibrary holds.
+     *
+     * @return The number of images.
+     */
+    public long getImageCount() {
+        long directories = 0;
+        long level = 1;
+        for (int i = 0; i <= depth; i++) {
+            directories += level;
+            level *= fanOut;
+        }
+        return directories * filesPerDirectory;
+    }
+
+    /**
+     * Writes the tree of images under a root directory, which is created if it does not exist.
+     *
+     * @param root Root directory of the tree.
+     * @return The number of images written.
+     * @throws IOException ..
+     */
+    public int write(File root) throws IOException {
+        imageCount = 0;
+        writeDirectory(root, depth);
+        return imageCount;
+    }
+
+    /**
+     * Writes the images of a directory and then its subdirectories.
+     *
+     * @param directory Directory to write.
+     * @param levels    Number of levels of subdirectories below it.
+     * @throws IOException ..
+     */
+    private void writeDirectory(File directory, int levels) throws IOException {
+        Files.createDirectories(directory.toPath());
+        for (int i = 0; i < filesPerDirectory; i++) {
+            String name = catalog.nextName(imageCount++);
+            byte[][] variants = getEncodedImages(getFormat(name));
+            Files.write(new File(directory, name).toPath(), variants[catalog.nextInt(variants.length)]);
+        }
+        if (levels > 0) {
+            for (int i = 0; i < fanOut; i++) {
+                writeDirectory(new File(directory, String.format("album-%02d", i)), levels - 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the ImageIO format name of an image file name, by its extension.
+     *
+     * @param name Name of the image file.
+     * @return The ImageIO format name.
+     */
+    private static String getFormat(String name) {
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        return extension.equals("jpg") ? "jpeg" : extension;
+    }
+
+    /**
+     * Returns the encoded variants of an image format, encoding them the first time. Each variant is a gradient of its
+     * own colour, so decoded thumbnails differ.
+     *
+     * @param format ImageIO format name.
+     * @return The encoded variants.
+     * @throws IOException ..
+     */
+    private byte[][] getEncodedImages(String format) throws IOException {
+        byte[][] variants = encodedImages.get(format);
+        if (variants == null) {
+            variants = new byte[VARIANTS][];
+            for (int i = 0; i < VARIANTS; i++) {
+                BufferedImage image = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = image.createGraphics();
+                Color color = Color.getHSBColor((float) i / VARIANTS, 0.6f, 0.9f);
+                graphics.setPaint(new GradientPaint(0, 0, color, imageSize, imageSize, color.darker()));
+                graphics.fillRect(0, 0, imageSize, imageSize);
+                graphics.dispose();
+
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                if (!ImageIO.write(image, format, output)) {
+                    throw new IOException("No ImageIO writer for " + format);
+                }
+                variants[i] = output.toByteArray();
+            }
+            encodedImages.put(format, variants);
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,32 @@
+package benchmark;
+
+/**
+ * A ThumbnailDecoder interface. A way of turning an encoded image into a thumbnail, whose speed and memory use can be
+ * compared with the others.
+ */
+public interface ThumbnailDecoder {
+    /**
+     * Returns the name of this ThumbnailDecoder, as shown in benchmark results.
+     *
+     * @return The name of this ThumbnailDecoder.
+     */
+    String getName();
+
+    /**
+     * Returns true if this ThumbnailDecoder can decode an encoded image.
+     *
+     * @param bytes The encoded image.
+     * @return True iff this ThumbnailDecoder can decode the image.
+     */
+    boolean canDecode(byte[] bytes);
+
+    /**
+     * Decodes an encoded image into a thumbnail no larger than a given size.
+     *
+     * @param bytes The encoded image.
+     * @param size  Largest width and height of the thumbnail, in pixels.
+     * @return The thumbnail.
+     * @throws Exception If the image cannot be decoded.
+     */
+    Object decode(byte[] bytes, int size) throws Exception;
+}
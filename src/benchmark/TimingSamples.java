@@ -0,0 +1,66 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * A TimingSamples. Collects the times of repeated runs of an operation that is too slow, or too dependent on the state
+ * it leaves behind, to be run in a loop by a BenchmarkRunner, such as saving a catalog or scanning a cold directory.
+ */
+public class TimingSamples {
+    /**
+     * The collected times, in milliseconds, in the order they were added.
+     */
+    private ArrayList<Double> millis = new ArrayList<>();
+
+    /**
+     * Adds the time from a start time until now.
+     *
+     * @param startNanos Start time, as returned by System.nanoTime().
+     */
+    public void addSince(long startNanos) {
+        millis.add((System.nanoTime() - startNanos) / 1e6);
+    }
+
+    /**
+     * Adds a time.
+     *
+     * @param time Time to add, in milliseconds.
+     */
+    public void add(double time) {
+        millis.add(time);
+    }
+
+    /**
+     * Returns the shortest time.
+     *
+     * @return The shortest time, in milliseconds, or 0 if there are none.
+     */
+    public double getMin() {
+        return millis.isEmpty() ? 0 : Collections.min(millis);
+    }
+
+    /**
+     * Returns the median time.
+     *
+     * @return The median time, in milliseconds, or 0 if there are none.
+     */
+    public double getMedian() {
+        if (millis.isEmpty()) {
+            return 0;
+        }
+        ArrayList<Double> sorted = new ArrayList<>(millis);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    /**
+     * Returns the longest time.
+     *
+     * @return The longest time, in milliseconds, or 0 if there are none.
+     */
+    public double getMax() {
+        return millis.isEmpty() ? 0 : Collections.max(millis);
+    }
+}
@@ -0,0 +1,455 @@
+package dataset;
+
+import image.ImageFile;
+import overlay.ImageTagOverlay;
+import tag.Tag;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An AnnotationExporter. Exports the ImageTagOverlays and tags of a list of ImageFiles as a COCO JSON file or as YOLO
+ * label files, for use as training labels. Images are processed in parallel on a bounded window and written in order,
+ * so memory use does not grow with the number of images or annotations. Image dimensions are read from the image
+ * headers, without decoding pixels.
+ */
+public class AnnotationExporter {
+    /**
+     * Number of images that may be processed ahead of the writer, per worker thread.
+     */
+    private static final int WINDOW_PER_THREAD = 16;
+
+    /**
+     * The ImageFiles to export.
+     */
+    private ArrayList<ImageFile> imageFiles;
+    /**
+     * The category (class) names, in id order.
+     */
+    private ArrayList<String> categories;
+    /**
+     * The id of each category name.
+     */
+    private HashMap<String, Integer> categoryIds = new HashMap<>();
+    /**
+     * Number of threads processing images.
+     */
+    private int threads;
+    /**
+     * Number of images skipped because their dimensions could not be read.
+     */
+    private int skippedImages = 0;
+
+    /**
+     * Constructs an AnnotationExporter for a list of ImageFiles and a list of category names.
+     *
+     * @param imageFiles ImageFiles to export.
+     * @param categories Tag names to export as categories; ids are given in list order. ImageTagOverlays of other tags
+     *                   are not exported.
+     * @param threads    Number of threads processing images.
+     */
+    public AnnotationExporter(ArrayList<ImageFile> imageFiles, ArrayList<String> categories, int threads) {
+        this.imageFiles = imageFiles;
+        this.categories = categories;
+        this.threads = threads;
+        for (int i = 0; i < categories.size(); i++) {
+            categoryIds.put(categories.get(i), i);
+        }
+    }
+
+    /**
+     * Exports the ImageFiles as a COCO JSON file. The images are written as they are processed while their annotations
+     * are spooled to a temporary file next to the output, which is appended once all images are written.
+     *
+     * @param outputFile COCO JSON file to write.
+     * @return The number of annotations written.
+     * @throws IOException          If the file could not be written.
+     * @throws InterruptedException If the export was interrupted.
+     */
+    public long exportCoco(File outputFile) throws IOException, InterruptedException {
+        File absoluteOutputFile = outputFile.getAbsoluteFile();
+        File annotationSpool = File.createTempFile("annotations", ".json.part", absoluteOutputFile.getParentFile());
+        long[] annotationCount = {0};
+        int[] imageCount = {0};
+        try (BufferedWriter out = Files.newBufferedWriter(absoluteOutputFile.toPath(), StandardCharsets.UTF_8)) {
+            out.write("{\"images\":[");
+            // the spool is closed before it is appended to the output
+            try (BufferedWriter annotations = Files.newBufferedWriter(annotationSpool.toPath(),
+                    StandardCharsets.UTF_8)) {
+                runInOrder(this::toCoco, coco -> {
+                    if (coco == null) {
+                        return;
+                    }
+                    imageCount[0]++;
+                    if (imageCount[0] > 1) {
+                        out.write(',');
+                    }
+                    out.write("{\"id\":");
+                    out.write(Integer.toString(coco.imageId));
+                    out.write(coco.image);
+                    for (String annotation : coco.annotations) {
+                        annotationCount[0]++;
+                        if (annotationCount[0] > 1) {
+                            annotations.write(',');
+                        }
+                        annotations.write("{\"id\":");
+                        annotations.write(Long.toString(annotationCount[0]));
+                        annotations.write(annotation);
+                        annotations.write('\n');
+                    }
+                });
+            }
+
+            out.write("],\"annotations\":[");
+            appendFile(annotationSpool, out);
+            out.write("],\"categories\":[");
+            for (int i = 0; i < categories.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write("{\"id\":" + (i + 1) + ",\"name\":" + quote(categories.get(i)) + "}");
+            }
+            out.write("]}\n");
+        } finally {
+            Files.deleteIfExists(annotationSpool.toPath());
+        }
+        return annotationCount[0];
+    }
+
+    /**
+     * Exports the ImageFiles as YOLO label files: one text file per image, named after the image, with a line
+     * "class x_center y_center width height" per annotation in normalized coordinates. Images with the same name in
+     * different directories get their index in the exported list appended to the name of their label file, as
+     * CropExtractor does for crops. Also writes classes.txt with the category names and images.txt listing the exported
+     * images. Label files are written by the worker threads.
+     *
+     * @param labelDirectory Directory to write the label files to.
+     * @return The number of annotations written.
+     * @throws IOException          If the files could not be written, or two label files would have the same name.
+     * @throws InterruptedException If the export was interrupted.
+     */
+    public long exportYolo(File labelDirectory) throws IOException, InterruptedException {
+        String[] labelNames = yoloLabelNames();
+        Files.createDirectories(labelDirectory.toPath());
+        Files.write(new File(labelDirectory, "classes.txt").toPath(), categories, StandardCharsets.UTF_8);
+
+        long[] annotationCount = {0};
+        try (BufferedWriter imageList = Files.newBufferedWriter(new File(labelDirectory, "images.txt").toPath(),
+                StandardCharsets.UTF_8)) {
+            runInOrder((index, imageFile) -> writeYoloLabels(imageFile, new File(labelDirectory, labelNames[index])),
+                    written -> {
+                        if (written != null) {
+                            annotationCount[0] += written.annotations;
+                            imageList.write(written.imageFile.getImageFilePath().getAbsolutePath());
+                            imageList.write('\n');
+                        }
+                    });
+        }
+        return annotationCount[0];
+    }
+
+    /**
+     * Returns the name of the YOLO label file of every ImageFile: the name of the image with its extension replaced by
+     * ".txt". If several images have the same name, or an image is named after classes.txt or images.txt, their index
+     * in the exported list is appended to the name.
+     *
+     * @return The name of the label file of each ImageFile, by index.
+     * @throws IOException If two label files would still have the same name.
+     */
+    private String[] yoloLabelNames() throws IOException {
+        String[] baseNames = new String[imageFiles.size()];
+        HashMap<String, Integer> occurrences = new HashMap<>();
+        occurrences.put("classes", 1);
+        occurrences.put("images", 1);
+        for (int i = 0; i < baseNames.length; i++) {
+            String name = imageFiles.get(i).getImageFilePath().getName();
+            int extension = name.lastIndexOf('.');
+            baseNames[i] = extension > 0 ? name.substring(0, extension) : name;
+            occurrences.merge(baseNames[i], 1, Integer::sum);
+        }
+
+        String[] labelNames = new String[baseNames.length];
+        HashSet<String> used = new HashSet<>();
+        used.add("classes.txt");
+        used.add("images.txt");
+        for (int i = 0; i < baseNames.length; i++) {
+            labelNames[i] = baseNames[i] + (occurrences.get(baseNames[i]) > 1 ? "_" + i : "") + ".txt";
+            if (!used.add(labelNames[i])) {
+                throw new IOException("Two images would have the same label file " + labelNames[i]);
+            }
+        }
+        return labelNames;
+    }
+
+    /**
+     * Returns the number of images skipped by the last export because their dimensions could not be read.
+     *
+     * @return The number of images skipped.
+     */
+    public int getSkippedImages() {
+        return skippedImages;
+    }
+
+    /**
+     * Formats the COCO image and annotation objects of an ImageFile, without the ids given by the writer.
+     *
+     * @param index     Index of the ImageFile in the exported list.
+     * @param imageFile ImageFile to format.
+     * @return The formatted objects, or null if the image could not be read.
+     */
+    private CocoImage toCoco(int index, ImageFile imageFile) {
+        File path = imageFile.getImageFilePath();
+        int[] dimensions = ImageHeader.readDimensions(path);
+        if (dimensions == null) {
+            return null;
+        }
+        int imageId = index + 1;
+        int width = dimensions[0], height = dimensions[1];
+
+        StringBuilder image = new StringBuilder();
+        image.append(",\"file_name\":").append(quote(path.getPath()))
+                .append(",\"width\":").append(width)
+                .append(",\"height\":").append(height)
+                .append(",\"tags\":[");
+        ArrayList<Tag> tags = imageFile.getTagList();
+        for (int i = 0; i < tags.size(); i++) {
+            if (i > 0) {
+                image.append(',');
+            }
+            image.append(quote(tags.get(i).getTagName()));
+        }
+        image.append("]}");
+
+        ArrayList<String> annotations = new ArrayList<>();
+        for (ImageTagOverlay overlay : imageFile.getOverlays()) {
+            Integer categoryId = categoryIds.get(overlay.getTagName());
+            if (categoryId != null) {
+                double x = Math.min(overlay.getX1(), overlay.getX2()) * width;
+                double y = Math.min(overlay.getY1(), overlay.getY2()) * height;
+                double w = Math.abs(overlay.getX2() - overlay.getX1()) * width;
+                double h = Math.abs(overlay.getY2() - overlay.getY1()) * height;
+                StringBuilder annotation = new StringBuilder(128);
+                annotation.append(",\"image_id\":").append(imageId)
+                        .append(",\"category_id\":").append(categoryId + 1)
+                        .append(",\"bbox\":[").append(round(x)).append(',').append(round(y)).append(',')
+                        .append(round(w)).append(',').append(round(h))
+                        .append("],\"area\":").append(round(w * h))
+                        .append(",\"iscrowd\":0}");
+                annotations.add(annotation.toString());
+            }
+        }
+        return new CocoImage(imageId, image.toString(), annotations);
+    }
+
+    /**
+     * Writes the YOLO label file of an ImageFile.
+     *
+     * @param imageFile ImageFile to write the labels of.
+     * @param labelFile Label file to write.
+     * @return The ImageFile and its number of annotations, or null if the image could not be read.
+     * @throws IOException If the label file could not be written.
+     */
+    private YoloLabels writeYoloLabels(ImageFile imageFile, File labelFile) throws IOException {
+        File path = imageFile.getImageFilePath();
+        // YOLO coordinates are normalized, so the header is only read to skip images that cannot be opened
+        if (ImageHeader.readDimensions(path) == null) {
+            return null;
+        }
+
+        int written = 0;
+        StringBuilder labels = new StringBuilder();
+        for (ImageTagOverlay overlay : imageFile.getOverlays()) {
+            Integer categoryId = categoryIds.get(overlay.getTagName());
+            if (categoryId != null) {
+                labels.append(categoryId).append(' ')
+                        .append((float) ((overlay.getX1() + overlay.getX2()) / 2)).append(' ')
+                        .append((float) ((overlay.getY1() + overlay.getY2()) / 2)).append(' ')
+                        .append((float) Math.abs(overlay.getX2() - overlay.getX1())).append(' ')
+                        .append((float) Math.abs(overlay.getY2() - overlay.getY1())).append('\n');
+                written++;
+            }
+        }
+        try (Writer out = Files.newBufferedWriter(labelFile.toPath(), StandardCharsets.UTF_8)) {
+            out.write(labels.toString());
+        }
+        return new YoloLabels(imageFile, written);
+    }
+
+    /**
+     * Processes every ImageFile on the worker threads and passes the results to a writer in list order. At most a
+     * fixed number of results wait for the writer at a time.
+     *
+     * @param work   Work to do for each ImageFile on a worker thread.
+     * @param writer Writer for the results, called on the calling thread.
+     * @param <T>    Type of the results.
+     * @throws IOException          If the work or the writer failed.
+     * @throws InterruptedException If the export was interrupted.
+     */
+    private <T> void runInOrder(ImageWork<T> work, ResultWriter<T> writer) throws IOException, InterruptedException {
+        skippedImages = 0;
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "annotation-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<T>> window = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < imageFiles.size(); i++) {
+                if (window.size() == threads * WINDOW_PER_THREAD) {
+                    writeResult(window.poll(), writer);
+                }
+                int index = i;
+                window.add(workers.submit(() -> work.apply(index, imageFiles.get(index))));
+            }
+            while (!window.isEmpty()) {
+                writeResult(window.poll(), writer);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a result and passes it to a writer.
+     *
+     * @param result Result to wait for.
+     * @param writer Writer for the result.
+     * @param <T>    Type of the result.
+     * @throws IOException          If the work or the writer failed.
+     * @throws InterruptedException If the export was interrupted.
+     */
+    private <T> void writeResult(Future<T> result, ResultWriter<T> writer) throws IOException, InterruptedException {
+        T value;
+        try {
+            value = result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        if (value == null) {
+            skippedImages++;
+        }
+        writer.write(value);
+    }
+
+    /**
+     * Appends the contents of a text file to a writer.
+     *
+     * @param file File to append.
+     * @param out  Writer to append to.
+     * @throws IOException ..
+     */
+    private static void appendFile(File file, Writer out) throws IOException {
+        char[] buffer = new char[64 * 1024];
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Returns a string as a quoted JSON string.
+     *
+     * @param s String to quote.
+     * @return The quoted JSON string.
+     */
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Rounds a pixel value to two decimals.
+     *
+     * @param value Value to round.
+     * @return The rounded value.
+     */
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * Work done for an ImageFile on a worker thread.
+     *
+     * @param <T> Type of the result.
+     */
+    private interface ImageWork<T> {
+        T apply(int index, ImageFile imageFile) throws IOException;
+    }
+
+    /**
+     * Writer for the results of the work done for each ImageFile.
+     *
+     * @param <T> Type of the results.
+     */
+    private interface ResultWriter<T> {
+        void write(T result) throws IOException;
+    }
+
+    /**
+     * The COCO image object and annotation objects of one ImageFile, without their leading ids.
+     */
+    private static class CocoImage {
+        /**
+         * The id of the image.
+         */
+        final int imageId;
+        /**
+         * The image object, after its id.
+         */
+        final String image;
+        /**
+         * The annotation objects, each after its id.
+         */
+        final ArrayList<String> annotations;
+
+        CocoImage(int imageId, String image, ArrayList<String> annotations) {
+            this.imageId = imageId;
+            this.image = image;
+            this.annotations = annotations;
+        }
+    }
+
+    /**
+     * An ImageFile whose YOLO label file was written, and its number of annotations.
+     */
+    private static class YoloLabels {
+        /**
+         * The ImageFile whose labels were written.
+         */
+        final ImageFile imageFile;
+        /**
+         * The number of annotations written.
+         */
+        final int annotations;
+
+        YoloLabels(ImageFile imageFile, int annotations) {
+            this.imageFile = imageFile;
+            this.annotations = annotations;
+        }
+    }
+}
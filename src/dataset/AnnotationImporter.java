@@ -0,0 +1,543 @@
+package dataset;
+
+import image.ImageFile;
+import image.filenamestrategy.FileUntaggedName;
+import overlay.ImageTagOverlay;
+import tag.TagManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * An AnnotationImporter. Reads bounding box annotations made by other tools, as COCO JSON, YOLO label files or CSV,
+ * and collects them as ImageTagOverlays of the ImageFiles they belong to, ready to be added in one transaction with
+ * ImageManager.importOverlays. Annotation files are streamed, and images are found through an index of their paths
+ * and names built once, rather than by searching the ImageFiles for each annotation.
+ */
+public class AnnotationImporter {
+    /**
+     * ImageFiles by absolute path, file name, untagged file name, and both names without extension. Keys shared by
+     * more than one ImageFile are left out, since they cannot tell the images apart.
+     */
+    private HashMap<String, ImageFile> pathIndex = new HashMap<>();
+    /**
+     * The ImageTagOverlays read so far, by the ImageFile they belong to.
+     */
+    private IdentityHashMap<ImageFile, ArrayList<ImageTagOverlay>> overlays = new IdentityHashMap<>();
+    /**
+     * Number of ImageTagOverlays read so far.
+     */
+    private long annotationCount = 0;
+    /**
+     * Names of the images in the annotation files that matched no ImageFile, or more than one.
+     */
+    private ArrayList<String> unresolvedImages = new ArrayList<>();
+    /**
+     * Number of annotations that could not be read or had no usable box.
+     */
+    private long rejectedAnnotations = 0;
+
+    /**
+     * Constructs a new AnnotationImporter that finds images among a list of ImageFiles.
+     *
+     * @param imageFiles ImageFiles the annotations may belong to; normally those an ImageManager manages.
+     */
+    public AnnotationImporter(List<ImageFile> imageFiles) {
+        HashSet<String> ambiguousKeys = new HashSet<>();
+        for (ImageFile imageFile : imageFiles) {
+            File path = imageFile.getImageFilePath();
+            String untaggedName = new FileUntaggedName(true).getName(imageFile);
+            HashSet<String> keys = new HashSet<>(Arrays.asList(path.getAbsolutePath(), path.getName(),
+                    withoutExtension(path.getName()), untaggedName, withoutExtension(untaggedName)));
+            for (String key : keys) {
+                if (ambiguousKeys.contains(key)) {
+                    continue;
+                }
+                ImageFile indexed = pathIndex.putIfAbsent(key, imageFile);
+                // an ImageFile listed twice does not make its own keys ambiguous
+                if (indexed != null && indexed != imageFile) {
+                    pathIndex.remove(key);
+                    ambiguousKeys.add(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a COCO JSON file. Boxes are given in pixels and are normalized by the width and height of their image,
+     * which are taken from the file or, when missing, from the header of the image. Each category becomes a tag. The
+     * file is read twice, so the annotations never need to be held until the images and categories have been read.
+     *
+     * @param cocoFile COCO JSON file to read.
+     * @throws IOException If the file could not be read or is malformed.
+     */
+    public void readCoco(File cocoFile) throws IOException {
+        HashMap<Long, CocoImage> images = new HashMap<>();
+        HashMap<Long, String> categories = new HashMap<>();
+
+        try (JsonStreamReader json = openJson(cocoFile)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String member = json.nextName();
+                if (member.equals("images")) {
+                    readCocoImages(json, images);
+                } else if (member.equals("categories")) {
+                    readCocoCategories(json, categories);
+                } else {
+                    json.skipValue();
+                }
+            }
+        }
+
+        try (JsonStreamReader json = openJson(cocoFile)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (json.nextName().equals("annotations")) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        readCocoAnnotation(json, images, categories);
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads YOLO label files: classes.txt with one class name per line, and for each image a text file named after it
+     * with a line "class x_center y_center width height" per box, in normalized coordinates.
+     *
+     * @param labelDirectory Directory holding classes.txt and the label files.
+     * @throws IOException If classes.txt or a label file could not be read.
+     */
+    public void readYolo(File labelDirectory) throws IOException {
+        ArrayList<String> classes = new ArrayList<>();
+        for (String line : Files.readAllLines(new File(labelDirectory, "classes.txt").toPath(),
+                StandardCharsets.UTF_8)) {
+            classes.add(TagManager.toValidTagName(line));
+        }
+
+        File[] labelFiles = labelDirectory.listFiles((directory, name) -> name.endsWith(".txt")
+                && !name.equals("classes.txt") && !name.equals("images.txt"));
+        if (labelFiles == null) {
+            throw new IOException("Cannot list " + labelDirectory);
+        }
+        for (File labelFile : labelFiles) {
+            String imageName = withoutExtension(labelFile.getName());
+            ImageFile imageFile = resolve(imageName);
+            if (imageFile == null) {
+                continue;
+            }
+            try (BufferedReader in = Files.newBufferedReader(labelFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] fields = line.trim().split("\\s+");
+                    if (fields.length < 5) {
+                        if (!line.trim().isEmpty()) {
+                            rejectedAnnotations++;
+                        }
+                        continue;
+                    }
+                    try {
+                        int classId = Integer.parseInt(fields[0]);
+                        double cx = Double.parseDouble(fields[1]);
+                        double cy = Double.parseDouble(fields[2]);
+                        double w = Double.parseDouble(fields[3]);
+                        double h = Double.parseDouble(fields[4]);
+                        if (classId < 0 || classId >= classes.size()) {
+                            rejectedAnnotations++;
+                        } else {
+                            add(imageFile, cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2, classes.get(classId));
+                        }
+                    } catch (NumberFormatException e) {
+                        rejectedAnnotations++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a CSV file with a line "file,tag,x1,y1,x2,y2" per box, in normalized coordinates. The file may be a path or
+     * a name, and may be quoted. A first line that is not a box, such as a header, is skipped.
+     *
+     * @param csvFile CSV file to read.
+     * @throws IOException If the file could not be read.
+     */
+    public void readCsv(File csvFile) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(csvFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            boolean firstLine = true;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                ArrayList<String> fields = splitCsvLine(line);
+                double[] box = fields.size() < 6 ? null : parseBox(fields.subList(2, 6));
+                if (box == null) {
+                    if (!firstLine) {
+                        rejectedAnnotations++;
+                    }
+                } else {
+                    ImageFile imageFile = resolve(fields.get(0));
+                    if (imageFile != null) {
+                        add(imageFile, box[0], box[1], box[2], box[3], TagManager.toValidTagName(fields.get(1)));
+                    }
+                }
+                firstLine = false;
+            }
+        }
+    }
+
+    /**
+     * Returns the ImageTagOverlays read so far, by the ImageFile they belong to.
+     *
+     * @return The ImageTagOverlays read so far.
+     */
+    public IdentityHashMap<ImageFile, ArrayList<ImageTagOverlay>> getOverlays() {
+        return overlays;
+    }
+
+    /**
+     * Returns the number of ImageTagOverlays read so far.
+     *
+     * @return The number of ImageTagOverlays read so far.
+     */
+    public long getAnnotationCount() {
+        return annotationCount;
+    }
+
+    /**
+     * Returns the names of the images in the annotation files that matched no ImageFile, or more than one.
+     *
+     * @return The names of the images that could not be found.
+     */
+    public ArrayList<String> getUnresolvedImages() {
+        return unresolvedImages;
+    }
+
+    /**
+     * Returns the number of annotations that could not be read or had no usable box.
+     *
+     * @return The number of rejected annotations.
+     */
+    public long getRejectedAnnotations() {
+        return rejectedAnnotations;
+    }
+
+    /**
+     * Reads the images array of a COCO file, resolving each image to an ImageFile.
+     *
+     * @param json   Reader positioned at the images array.
+     * @param images Map to put the images in, by id.
+     * @throws IOException If the array is malformed.
+     */
+    private void readCocoImages(JsonStreamReader json, HashMap<Long, CocoImage> images) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            long id = -1;
+            String fileName = null;
+            int width = 0, height = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                String member = json.nextName();
+                if (member.equals("id") && json.peek() == JsonStreamReader.Token.NUMBER) {
+                    id = (long) json.nextDouble();
+                } else if (member.equals("file_name") && json.peek() == JsonStreamReader.Token.STRING) {
+                    fileName = json.nextString();
+                } else if (member.equals("width") && json.peek() == JsonStreamReader.Token.NUMBER) {
+                    width = (int) json.nextDouble();
+                } else if (member.equals("height") && json.peek() == JsonStreamReader.Token.NUMBER) {
+                    height = (int) json.nextDouble();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            if (fileName != null) {
+                ImageFile imageFile = resolve(fileName);
+                if (imageFile != null) {
+                    images.put(id, new CocoImage(imageFile, width, height));
+                }
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * Reads the categories array of a COCO file.
+     *
+     * @param json       Reader positioned at the categories array.
+     * @param categories Map to put the valid tag names of the categories in, by id.
+     * @throws IOException If the array is malformed.
+     */
+    private void readCocoCategories(JsonStreamReader json, HashMap<Long, String> categories) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            long id = -1;
+            String name = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                String member = json.nextName();
+                if (member.equals("id") && json.peek() == JsonStreamReader.Token.NUMBER) {
+                    id = (long) json.nextDouble();
+                } else if (member.equals("name") && json.peek() == JsonStreamReader.Token.STRING) {
+                    name = json.nextString();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            if (name != null) {
+                categories.put(id, TagManager.toValidTagName(name));
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * Reads one object of the annotations array of a COCO file and adds it as an ImageTagOverlay.
+     *
+     * @param json       Reader positioned at the annotation object.
+     * @param images     The images of the file, by id.
+     * @param categories The valid tag names of the categories of the file, by id.
+     * @throws IOException If the object is malformed.
+     */
+    private void readCocoAnnotation(JsonStreamReader json, HashMap<Long, CocoImage> images,
+                                    HashMap<Long, String> categories) throws IOException {
+        long imageId = -1, categoryId = -1;
+        double[] bbox = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            String member = json.nextName();
+            if (member.equals("image_id") && json.peek() == JsonStreamReader.Token.NUMBER) {
+                imageId = (long) json.nextDouble();
+            } else if (member.equals("category_id") && json.peek() == JsonStreamReader.Token.NUMBER) {
+                categoryId = (long) json.nextDouble();
+            } else if (member.equals("bbox") && json.peek() == JsonStreamReader.Token.BEGIN_ARRAY) {
+                ArrayList<Double> values = new ArrayList<>();
+                boolean numeric = true;
+                json.beginArray();
+                while (json.hasNext()) {
+                    if (json.peek() == JsonStreamReader.Token.NUMBER) {
+                        values.add(json.nextDouble());
+                    } else {
+                        // a box with a value that is not a number is rejected, not the whole file
+                        json.skipValue();
+                        numeric = false;
+                    }
+                }
+                json.endArray();
+                if (numeric && values.size() == 4) {
+                    bbox = new double[]{values.get(0), values.get(1), values.get(2), values.get(3)};
+                }
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        CocoImage image = images.get(imageId);
+        String tagName = categories.get(categoryId);
+        if (image == null) {
+            // the image was not found, and has already been reported
+            return;
+        }
+        if (tagName == null || bbox == null || !image.readDimensions()) {
+            rejectedAnnotations++;
+            return;
+        }
+        add(image.imageFile, bbox[0] / image.width, bbox[1] / image.height, (bbox[0] + bbox[2]) / image.width,
+                (bbox[1] + bbox[3]) / image.height, tagName);
+    }
+
+    /**
+     * Adds a box as an ImageTagOverlay of an ImageFile. Boxes are clipped to the image, and boxes with no area left or
+     * no tag name are rejected.
+     *
+     * @param imageFile ImageFile the box belongs to.
+     * @param x1        Normalized x coordinate of one corner.
+     * @param y1        Normalized y coordinate of one corner.
+     * @param x2        Normalized x coordinate of the opposite corner.
+     * @param y2        Normalized y coordinate of the opposite corner.
+     * @param tagName   Valid name of the tag of the box.
+     */
+    private void add(ImageFile imageFile, double x1, double y1, double x2, double y2, String tagName) {
+        x1 = clip(x1);
+        y1 = clip(y1);
+        x2 = clip(x2);
+        y2 = clip(y2);
+        if (tagName.isEmpty() || x1 == x2 || y1 == y2 || Double.isNaN(x1 + y1 + x2 + y2)) {
+            rejectedAnnotations++;
+            return;
+        }
+        overlays.computeIfAbsent(imageFile, i -> new ArrayList<>()).add(new ImageTagOverlay(x1, y1, x2, y2, tagName));
+        annotationCount++;
+    }
+
+    /**
+     * Returns the ImageFile an image name in an annotation file refers to. The name is tried as a path, then as a file
+     * name; unresolved names are recorded.
+     *
+     * @param imageName Path or name of the image.
+     * @return The ImageFile, or null if the name matches no ImageFile or more than one.
+     */
+    private ImageFile resolve(String imageName) {
+        File path = new File(imageName);
+        ImageFile imageFile = pathIndex.get(path.getAbsolutePath());
+        if (imageFile == null) {
+            imageFile = pathIndex.get(path.getName());
+        }
+        if (imageFile == null) {
+            unresolvedImages.add(imageName);
+        }
+        return imageFile;
+    }
+
+    /**
+     * Opens a JSON file for streaming.
+     *
+     * @param file File to open.
+     * @return A JsonStreamReader reading the file.
+     * @throws IOException If the file could not be opened.
+     */
+    private static JsonStreamReader openJson(File file) throws IOException {
+        return new JsonStreamReader(new InputStreamReader(Files.newInputStream(file.toPath()),
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns four CSV fields parsed as the coordinates of a box.
+     *
+     * @param fields The fields to parse.
+     * @return The coordinates, or null if a field is not a number.
+     */
+    private static double[] parseBox(List<String> fields) {
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(fields.get(i).trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return box;
+    }
+
+    /**
+     * Splits a CSV line into its fields. Fields may be quoted, with doubled quotes inside standing for one quote.
+     *
+     * @param line The line to split.
+     * @return The fields of the line.
+     */
+    private static ArrayList<String> splitCsvLine(String line) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Returns a file name without its extension.
+     *
+     * @param name File name.
+     * @return The file name without its extension.
+     */
+    private static String withoutExtension(String name) {
+        int extension = name.lastIndexOf('.');
+        return extension > 0 ? name.substring(0, extension) : name;
+    }
+
+    /**
+     * Returns a normalized coordinate clipped to the image.
+     *
+     * @param value Normalized coordinate.
+     * @return The coordinate, between 0 and 1.
+     */
+    private static double clip(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    /**
+     * An image listed in a COCO file.
+     */
+    private static class CocoImage {
+        /**
+         * The ImageFile the image resolved to.
+         */
+        private ImageFile imageFile;
+        /**
+         * The width and height of the image in pixels, or 0 if not yet known.
+         */
+        private int width, height;
+        /**
+         * Whether the header of the image was read and could not be.
+         */
+        private boolean unreadable = false;
+
+        /**
+         * Constructs a new CocoImage.
+         *
+         * @param imageFile The ImageFile the image resolved to.
+         * @param width     Width of the image in pixels, or 0 if the file did not give it.
+         * @param height    Height of the image in pixels, or 0 if the file did not give it.
+         */
+        private CocoImage(ImageFile imageFile, int width, int height) {
+            this.imageFile = imageFile;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Makes sure the width and height of the image are known, reading them from its header if the file did not
+         * give them.
+         *
+         * @return True iff the width and height are known.
+         */
+        private boolean readDimensions() {
+            if ((width <= 0 || height <= 0) && !unreadable) {
+                int[] dimensions = ImageHeader.readDimensions(imageFile.getImageFilePath());
+                if (dimensions == null) {
+                    unreadable = true;
+                    return false;
+                }
+                width = dimensions[0];
+                height = dimensions[1];
+            }
+            return !unreadable;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package dataset;
+
+import image.ImageFile;
+import overlay.ImageTagOverlay;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A CropExtractor. Writes every ImageTagOverlay of a list of ImageFiles to its own image file, in a directory named
+ * after its tag. Runs as a two stage pipeline: decode threads open each source image once and decode only the regions
+ * under its ImageTagOverlays, and write threads encode the crops. The stages are joined by a bounded queue, so the
+ * number of crops held in memory does not depend on how many there are.
+ */
+public class CropExtractor {
+    /**
+     * The number of crops that can wait to be written.
+     */
+    private static final int QUEUE_CAPACITY = 64;
+    /**
+     * How often (in milliseconds) progress is reported while the extraction runs.
+     */
+    private static final long REPORT_INTERVAL = 10000;
+    /**
+     * When the ImageTagOverlays of an image cover less than this share of the box around all of them, each region is
+     * decoded separately instead of decoding the whole box once.
+     */
+    private static final double SEPARATE_REGIONS_BELOW = 0.25;
+    /**
+     * Marks the end of the crops in the queue.
+     */
+    private static final Crop END = new Crop(null, null, null);
+
+    /**
+     * The directory crops are written to.
+     */
+    private File outputDirectory;
+    /**
+     * The image format crops are written in.
+     */
+    private String format;
+    /**
+     * Number of decode threads.
+     */
+    private int decodeThreads;
+    /**
+     * Number of write threads.
+     */
+    private int writeThreads;
+    /**
+     * Number of source images decoded, and number that could not be.
+     */
+    private AtomicLong sourcesDone = new AtomicLong(), sourcesFailed = new AtomicLong();
+    /**
+     * Number of crops written, and number that could not be.
+     */
+    private AtomicLong cropsWritten = new AtomicLong(), cropsFailed = new AtomicLong();
+    /**
+     * Number of source pixels decoded.
+     */
+    private AtomicLong pixelsDecoded = new AtomicLong();
+
+    /**
+     * Constructs a new CropExtractor.
+     *
+     * @param outputDirectory Directory to write crops to.
+     * @param format          Image format to write crops in, such as "png".
+     * @param decodeThreads   Number of threads decoding source images.
+     * @param writeThreads    Number of threads encoding and writing crops.
+     */
+    public CropExtractor(File outputDirectory, String format, int decodeThreads, int writeThreads) {
+        this.outputDirectory = outputDirectory;
+        this.format = format;
+        this.decodeThreads = decodeThreads;
+        this.writeThreads = writeThreads;
+    }
+
+    /**
+     * Extracts the crops of every ImageTagOverlay of a list of ImageFiles, and waits for the extraction to finish.
+     * Progress and throughput are reported periodically and when the extraction finishes.
+     *
+     * @param imageFiles ImageFiles to extract the crops of.
+     * @throws InterruptedException ..
+     */
+    public void run(ArrayList<ImageFile> imageFiles) throws InterruptedException {
+        BlockingQueue<Crop> crops = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Iterator<ImageFile> sources = imageFiles.iterator();
+        AtomicInteger nextIndex = new AtomicInteger();
+        AtomicInteger decoding = new AtomicInteger(decodeThreads);
+        AtomicInteger writing = new AtomicInteger(writeThreads);
+
+        ArrayList<Thread> decoders = new ArrayList<>();
+        for (int i = 0; i < decodeThreads; i++) {
+            decoders.add(new Thread(() -> {
+                try {
+                    while (true) {
+                        ImageFile source;
+                        int index;
+                        synchronized (sources) {
+                            if (!sources.hasNext()) {
+                                break;
+                            }
+                            source = sources.next();
+                            index = nextIndex.getAndIncrement();
+                        }
+                        decodeCrops(source, index, crops);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    // also when the thread dies of an Error, so the write threads still end
+                    if (decoding.decrementAndGet() == 0) {
+                        putEnd(crops);
+                    }
+                }
+            }, "crop-decode-" + i));
+        }
+        ArrayList<Thread> threads = new ArrayList<>(decoders);
+        for (int i = 0; i < writeThreads; i++) {
+            threads.add(new Thread(() -> {
+                boolean reachedEnd = false;
+                try {
+                    writeCrops(crops);
+                    reachedEnd = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    // if the last write thread dies before the end, nothing takes crops any more
+                    if (writing.decrementAndGet() == 0 && !reachedEnd) {
+                        abandonCrops(decoders, crops);
+                    }
+                }
+            }, "crop-write-" + i));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(REPORT_INTERVAL);
+                if (thread.isAlive()) {
+                    report(startTime);
+                }
+            }
+        }
+        report(startTime);
+    }
+
+    /**
+     * Stops the decode threads after every write thread died, and discards the crops waiting in the queue, so no decode
+     * thread waits for room that will never be made. The decode threads are interrupted first, so they cannot fill the
+     * queue again once it is cleared.
+     *
+     * @param decoders The decode threads.
+     * @param crops    Queue of crops waiting to be written.
+     */
+    private void abandonCrops(ArrayList<Thread> decoders, BlockingQueue<Crop> crops) {
+        System.out.println("Crop writing stopped: no write thread is left");
+        for (Thread decoder : decoders) {
+            decoder.interrupt();
+        }
+        ArrayList<Crop> abandoned = new ArrayList<>();
+        crops.drainTo(abandoned);
+        for (Crop crop : abandoned) {
+            if (crop != END) {
+                cropsFailed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Puts END on the crop queue, waiting for room even if the current thread is interrupted, so the write threads
+     * always end.
+     *
+     * @param crops Queue to put END on.
+     */
+    private static void putEnd(BlockingQueue<Crop> crops) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                crops.put(END);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prints the progress and throughput of the extraction since a specified start time.
+     *
+     * @param startTime The time (from System.nanoTime) at which the extraction started.
+     */
+    private void report(long startTime) {
+        double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 1e-9);
+        System.out.println(String.format("%.0fs - sources: %d done %d failed - crops: %d written %d failed"
+                        + " - %.1f crops/s %.1f Mpixel/s decoded", seconds, sourcesDone.get(), sourcesFailed.get(),
+                cropsWritten.get(), cropsFailed.get(), cropsWritten.get() / seconds,
+                pixelsDecoded.get() / 1e6 / seconds));
+    }
+
+    /**
+     * Decodes the regions under the ImageTagOverlays of a source image and puts them on the crop queue. The image is
+     * opened once. When its ImageTagOverlays are close together the box around all of them is decoded once and cut up;
+     * when they are spread out each region is decoded on its own.
+     *
+     * @param source ImageFile to decode the crops of.
+     * @param index  Index of the ImageFile in the list being extracted, to keep crop file names unique.
+     * @param crops  Queue to put the crops on.
+     * @throws InterruptedException ..
+     */
+    private void decodeCrops(ImageFile source, int index, BlockingQueue<Crop> crops) throws InterruptedException {
+        ArrayList<ImageTagOverlay> overlays = source.getOverlays();
+        if (overlays.isEmpty()) {
+            return;
+        }
+        String baseName = source.getImageFilePath().getName();
+        int extension = baseName.lastIndexOf('.');
+        baseName = (extension > 0 ? baseName.substring(0, extension) : baseName) + "_" + index;
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.getImageFilePath())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("No image reader for " + source);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, false, true);
+                Rectangle bounds = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+
+                ArrayList<Rectangle> regions = new ArrayList<>();
+                Rectangle union = null;
+                double coveredArea = 0;
+                for (ImageTagOverlay overlay : overlays) {
+                    Rectangle region = toPixels(overlay, bounds);
+                    regions.add(region);
+                    if (!region.isEmpty()) {
+                        union = union == null ? new Rectangle(region) : union.union(region);
+                        coveredArea += (double) region.width * region.height;
+                    }
+                }
+                if (union == null) {
+                    sourcesDone.incrementAndGet();
+                    return;
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                boolean separateRegions = regions.size() > 1
+                        && coveredArea < SEPARATE_REGIONS_BELOW * union.width * union.height;
+                BufferedImage unionImage = null;
+                if (!separateRegions) {
+                    param.setSourceRegion(union);
+                    unionImage = reader.read(0, param);
+                    pixelsDecoded.addAndGet((long) union.width * union.height);
+                }
+
+                for (int i = 0; i < regions.size(); i++) {
+                    Rectangle region = regions.get(i);
+                    if (region.isEmpty()) {
+                        continue;
+                    }
+                    BufferedImage crop;
+                    if (separateRegions) {
+                        param.setSourceRegion(region);
+                        crop = reader.read(0, param);
+                        pixelsDecoded.addAndGet((long) region.width * region.height);
+                    } else {
+                        // copied, so a queued crop does not keep the whole union raster alive
+                        crop = copy(unionImage.getSubimage(region.x - union.x, region.y - union.y, region.width,
+                                region.height));
+                    }
+                    crops.put(new Crop(overlays.get(i).getTagName(), baseName + "_" + i, crop));
+                }
+            } finally {
+                reader.dispose();
+            }
+            sourcesDone.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            sourcesFailed.incrementAndGet();
+            System.out.println("Crop decode failed: " + source + " (" + e + ")");
+        }
+    }
+
+    /**
+     * Returns a copy of an image with a raster of its own, sized to the image.
+     *
+     * @param image Image to copy, such as a sub-image sharing the raster of a larger image.
+     * @return The copy of the image.
+     */
+    private static BufferedImage copy(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        WritableRaster raster = image.copyData(image.getRaster().createCompatibleWritableRaster());
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Takes crops from the queue and writes them until the end of the crops is reached.
+     *
+     * @param crops Queue to take crops from.
+     * @throws InterruptedException ..
+     */
+    private void writeCrops(BlockingQueue<Crop> crops) throws InterruptedException {
+        while (true) {
+            Crop crop = crops.take();
+            if (crop == END) {
+                // leave END in the queue for the other write threads
+                crops.put(END);
+                return;
+            }
+            try {
+                File tagDirectory = new File(outputDirectory, safeFileName(crop.tagName));
+                Files.createDirectories(tagDirectory.toPath());
+                File cropFile = new File(tagDirectory, crop.name + "." + format);
+                if (!ImageIO.write(crop.image, format, cropFile)) {
+                    throw new IOException("No image writer for " + format);
+                }
+                cropsWritten.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                cropsFailed.incrementAndGet();
+                System.out.println("Crop write failed: " + crop.name + " (" + e + ")");
+            }
+        }
+    }
+
+    /**
+     * Returns the pixel region of an image under an ImageTagOverlay, clipped to the image.
+     *
+     * @param overlay ImageTagOverlay to convert.
+     * @param bounds  The bounds of the image, in pixels.
+     * @return The pixel region under the ImageTagOverlay; empty if it lies outside the image.
+     */
+    private static Rectangle toPixels(ImageTagOverlay overlay, Rectangle bounds) {
+        int x1 = (int) Math.floor(Math.min(overlay.getX1(), overlay.getX2()) * bounds.width);
+        int y1 = (int) Math.floor(Math.min(overlay.getY1(), overlay.getY2()) * bounds.height);
+        int x2 = (int) Math.ceil(Math.max(overlay.getX1(), overlay.getX2()) * bounds.width);
+        int y2 = (int) Math.ceil(Math.max(overlay.getY1(), overlay.getY2()) * bounds.height);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1).intersection(bounds);
+    }
+
+    /**
+     * Returns a tag name with every character that is not safe in a file name replaced.
+     *
+     * @param tagName Tag name to make safe.
+     * @return The tag name, safe to use as a file name.
+     */
+    private static String safeFileName(String tagName) {
+        return tagName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * A decoded crop waiting to be written.
+     */
+    private static class Crop {
+        /**
+         * Name of the tag of the ImageTagOverlay the crop was cut from.
+         */
+        private String tagName;
+        /**
+         * File name of the crop, without extension.
+         */
+        private String name;
+        /**
+         * Pixels of the crop.
+         */
+        private BufferedImage image;
+
+        /**
+         * Constructs a new Crop.
+         *
+         * @param tagName Name of the tag of the ImageTagOverlay the crop was cut from.
+         * @param name    File name of the crop, without extension.
+         * @param image   Pixels of the crop.
+         */
+        private Crop(String tagName, String name, BufferedImage image) {
+            this.tagName = tagName;
+            this.name = name;
+            this.image = image;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package dataset;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * An ImageHeader. Reads facts about an image file from its header, without decoding its pixels.
+ */
+public class ImageHeader {
+
+    /**
+     * Returns the width and height of an image file, read from its header.
+     *
+     * @param file Image file to read.
+     * @return The width and height of the image, or null if it could not be read.
+     */
+    public static int[] readDimensions(File file) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package dataset;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A JsonStreamReader. Reads a JSON document one value at a time, so documents far larger than memory can be read
+ * while only the values of interest are kept.
+ */
+class JsonStreamReader implements AutoCloseable {
+    /**
+     * The kinds of value or structure that can come next in the document.
+     */
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, LITERAL, END_DOCUMENT
+    }
+
+    /**
+     * The Reader the document is read from.
+     */
+    private Reader in;
+    /**
+     * Characters read ahead from the Reader.
+     */
+    private char[] buffer = new char[8192];
+    /**
+     * Position of the next unread character in the buffer, and number of characters in it.
+     */
+    private int position = 0, limit = 0;
+    /**
+     * Whether the next string is the name of an object member.
+     */
+    private boolean expectName = false;
+    /**
+     * For each open structure from the outermost, whether it is an object.
+     */
+    private boolean[] inObject = new boolean[64];
+    /**
+     * Number of open structures.
+     */
+    private int depth = 0;
+
+    /**
+     * Constructs a new JsonStreamReader.
+     *
+     * @param in Reader to read the document from. It is read in blocks, so it need not be buffered.
+     */
+    JsonStreamReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Returns the kind of the next token, without consuming it.
+     *
+     * @return The kind of the next token.
+     * @throws IOException If the document could not be read or is malformed.
+     */
+    Token peek() throws IOException {
+        int c = nextNonSeparator();
+        switch (c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                return expectName ? Token.NAME : Token.STRING;
+            case 't':
+            case 'f':
+            case 'n':
+                return Token.LITERAL;
+            default:
+                return Token.NUMBER;
+        }
+    }
+
+    /**
+     * Returns whether the current object or array has another member or element.
+     *
+     * @return True iff there is another member or element.
+     * @throws IOException If the document could not be read or is malformed.
+     */
+    boolean hasNext() throws IOException {
+        Token next = peek();
+        return next != Token.END_OBJECT && next != Token.END_ARRAY && next != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException If the next token is not the start of an object.
+     */
+    void beginObject() throws IOException {
+        expect('{');
+        open(true);
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException If the next token is not the end of an object.
+     */
+    void endObject() throws IOException {
+        expect('}');
+        closeStructure();
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException If the next token is not the start of an array.
+     */
+    void beginArray() throws IOException {
+        expect('[');
+        open(false);
+    }
+
+    /**
+     * Consumes the end of an array.
+     *
+     * @throws IOException If the next token is not the end of an array.
+     */
+    void endArray() throws IOException {
+        expect(']');
+        closeStructure();
+    }
+
+    /**
+     * Consumes the name of an object member and the colon after it.
+     *
+     * @return The name of the member.
+     * @throws IOException If the next token is not a member name.
+     */
+    String nextName() throws IOException {
+        if (peek() != Token.NAME) {
+            throw new IOException("Expected a member name at " + describePosition());
+        }
+        position++;
+        String name = readString();
+        expectName = false;
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Consumes a string value.
+     *
+     * @return The string.
+     * @throws IOException If the next token is not a string.
+     */
+    String nextString() throws IOException {
+        if (peek() != Token.STRING) {
+            throw new IOException("Expected a string at " + describePosition());
+        }
+        position++;
+        String value = readString();
+        valueRead();
+        return value;
+    }
+
+    /**
+     * Consumes a number value.
+     *
+     * @return The number.
+     * @throws IOException If the next token is not a number.
+     */
+    double nextDouble() throws IOException {
+        if (peek() != Token.NUMBER) {
+            throw new IOException("Expected a number at " + describePosition());
+        }
+        String literal = readLiteral();
+        valueRead();
+        try {
+            return Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed number " + literal);
+        }
+    }
+
+    /**
+     * Consumes the next value, including everything nested in it.
+     *
+     * @throws IOException If the document could not be read or is malformed.
+     */
+    void skipValue() throws IOException {
+        int skipDepth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    skipDepth++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    skipDepth++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    skipDepth--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    skipDepth--;
+                    break;
+                case NAME:
+                    nextName();
+                    // a name is always followed by its value
+                    skipDepth++;
+                    skipValue();
+                    skipDepth--;
+                    break;
+                case STRING:
+                    nextString();
+                    break;
+                case NUMBER:
+                case LITERAL:
+                    readLiteral();
+                    valueRead();
+                    break;
+                default:
+                    throw new IOException("Unexpected end of document");
+            }
+        } while (skipDepth > 0);
+    }
+
+    /**
+     * Closes the underlying Reader.
+     *
+     * @throws IOException ..
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Helper method to record that a structure was opened.
+     *
+     * @param isObject Whether the structure is an object.
+     */
+    private void open(boolean isObject) {
+        if (depth == inObject.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(inObject, 0, grown, 0, depth);
+            inObject = grown;
+        }
+        inObject[depth++] = isObject;
+        expectName = isObject;
+    }
+
+    /**
+     * Helper method to record that a structure was closed, which completes a value of the enclosing structure.
+     */
+    private void closeStructure() {
+        depth--;
+        valueRead();
+    }
+
+    /**
+     * Helper method to record that a value was read: inside an object, a member name comes next.
+     */
+    private void valueRead() {
+        expectName = depth > 0 && inObject[depth - 1];
+    }
+
+    /**
+     * Consumes a specified structural character.
+     *
+     * @param expected The character expected next.
+     * @throws IOException If the next character is not the expected one.
+     */
+    private void expect(char expected) throws IOException {
+        if (nextNonSeparator() != expected) {
+            throw new IOException("Expected '" + expected + "' at " + describePosition());
+        }
+        position++;
+    }
+
+    /**
+     * Returns the next character that is not whitespace or a comma, without consuming it.
+     *
+     * @return The next character, or -1 at the end of the document.
+     * @throws IOException ..
+     */
+    private int nextNonSeparator() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[position];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',') {
+                position++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote was consumed, including the closing quote.
+     *
+     * @return The string, with escapes decoded.
+     * @throws IOException If the string is not terminated.
+     */
+    private String readString() throws IOException {
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position == limit && !fill()) {
+                throw new IOException("Unterminated string");
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                return value.toString();
+            } else if (c != '\\') {
+                value.append(c);
+            } else {
+                if (position == limit && !fill()) {
+                    throw new IOException("Unterminated escape");
+                }
+                char escaped = buffer[position++];
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        int codeUnit = 0;
+                        for (int i = 0; i < 4; i++) {
+                            if (position == limit && !fill()) {
+                                throw new IOException("Unterminated escape");
+                            }
+                            int digit = Character.digit(buffer[position++], 16);
+                            if (digit < 0) {
+                                throw new IOException("Malformed unicode escape at " + describePosition());
+                            }
+                            codeUnit = codeUnit * 16 + digit;
+                        }
+                        value.append((char) codeUnit);
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a number or a true, false or null literal.
+     *
+     * @return The characters of the literal.
+     * @throws IOException ..
+     */
+    private String readLiteral() throws IOException {
+        nextNonSeparator();
+        StringBuilder literal = new StringBuilder();
+        while (position < limit || fill()) {
+            char c = buffer[position];
+            if (c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            literal.append(c);
+            position++;
+        }
+        return literal.toString();
+    }
+
+    /**
+     * Refills the buffer from the Reader once all of it has been consumed.
+     *
+     * @return False iff the end of the Reader was reached.
+     * @throws IOException ..
+     */
+    private boolean fill() throws IOException {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit < 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a description of the current position, for error messages.
+     *
+     * @return A description of the current position.
+     */
+    private String describePosition() {
+        return "depth " + depth + " near \"" + new String(buffer, position, Math.min(20, limit - position)) + "\"";
+    }
+}
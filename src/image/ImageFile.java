@@ -4,25 +4,36 @@ import image.filenamestrategy.FileExtension;
 import image.filenamestrategy.FileLocation;
 import image.filenamestrategy.FileName;
 import image.filenamestrategy.FileUntaggedName;
+import metrics.MoveEvent;
+import metrics.RenameEvent;
 import overlay.ImageTagOverlay;
+import overlay.OverlayIndex;
+import overlay.OverlayStore;
 import tag.Tag;
+import utils.CatalogLinks;
 import utils.FileManager;
+import utils.IOTaskService;
 import utils.NameLogger;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Map;
 
 /**
  * An ImageFile. Represents an image file and its associated tags and name history.
  */
 public class ImageFile implements Serializable {
 
+    /**
+     * Version of the serialized form, pinned to that of the first release so saved catalogs keep loading when methods
+     * change.
+     */
+    private static final long serialVersionUID = -3128273360032415857L;
     /**
      * The image file that corresponds to this ImageFile object.
      */
@@ -40,7 +51,91 @@ public class ImageFile implements Serializable {
      */
     private NameLogger nameLogger = NameLogger.getInstance();
 
-    private HashMap<String, ImageTagOverlay> imageTagOverlays = new HashMap<>();
+    /**
+     * The ImageTagOverlays of this ImageFile, any number for each tag.
+     */
+    private OverlayStore imageTagOverlays = new OverlayStore();
+    /**
+     * The latest rename or move of the File of this ImageFile, or null if there is none or it was undone. Lets the
+     * renames and moves queued behind a failed one be skipped.
+     */
+    private transient FileChange lastFileChange;
+
+    /**
+     * A FileChange. A rename or move of the File of an ImageFile, and the state the ImageFile had before it, so the
+     * change can be undone if it fails.
+     */
+    private static class FileChange {
+        /**
+         * The File before the change.
+         */
+        private final File previousFile;
+        /**
+         * The Tags before the change.
+         */
+        private final ArrayList<Tag> previousTags;
+        /**
+         * The length of the name history before the change.
+         */
+        private final int previousHistoryLength;
+        /**
+         * Callback to run after the change was undone, or null.
+         */
+        private final Runnable onReverted;
+        /**
+         * The change submitted before this one, or null if there is none or it has finished.
+         */
+        private FileChange earlier;
+        /**
+         * Whether this change failed or was skipped.
+         */
+        private volatile boolean failed = false;
+        /**
+         * Whether this change was skipped because an earlier change failed.
+         */
+        private volatile boolean skipped = false;
+
+        /**
+         * Constructs a new FileChange.
+         *
+         * @param previousFile          The File before the change.
+         * @param previousTags          The Tags before the change.
+         * @param previousHistoryLength The length of the name history before the change.
+         * @param onReverted            Callback to run after the change was undone, or null.
+         * @param earlier               The change submitted before this one, or null.
+         */
+        private FileChange(File previousFile, ArrayList<Tag> previousTags, int previousHistoryLength,
+                           Runnable onReverted, FileChange earlier) {
+            this.previousFile = previousFile;
+            this.previousTags = previousTags;
+            this.previousHistoryLength = previousHistoryLength;
+            this.onReverted = onReverted;
+            this.earlier = earlier;
+        }
+
+        /**
+         * Runs the file operation of this change on a worker thread, unless the change before it failed. A change
+         * behind a failed one is skipped, since it was computed from a File that does not exist.
+         *
+         * @param operation The file operation.
+         * @throws Exception ..
+         */
+        private void run(IOTaskService.IOTask operation) throws Exception {
+            FileChange before = earlier;
+            earlier = null;
+            if (before != null && before.failed) {
+                skipped = true;
+                failed = true;
+                throw new IOException("Skipped, since an earlier rename or move of the file failed");
+            }
+            try {
+                operation.run();
+            } catch (Exception e) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
 
     /**
      * Constructs an ImageFile object from a specified file.
@@ -51,43 +146,98 @@ public class ImageFile implements Serializable {
         this.imageFile = imageFile;
     }
 
+    /**
+     * Constructs an ImageFile with the state it was saved with, without renaming its file. Lets a catalog be restored
+     * from storage other than the persistence files. The ImageFile is not added to its Tags.
+     *
+     * @param imageFile   ImageFile file
+     * @param tags        Tags of the ImageFile.
+     * @param nameHistory Every name the ImageFile has had, oldest first.
+     * @param overlays    ImageTagOverlays of the ImageFile.
+     */
+    public ImageFile(File imageFile, ArrayList<Tag> tags, ArrayList<String> nameHistory,
+                     ArrayList<ImageTagOverlay> overlays) {
+        this.imageFile = imageFile;
+        this.tagList.addAll(tags);
+        this.nameHistory.addAll(nameHistory);
+        this.imageTagOverlays.addAll(overlays);
+    }
+
+    /**
+     * Returns a copy of this ImageFile with the same File, name history and ImageTagOverlays but no Tags, that shares
+     * no mutable state with it. Lets the catalog be copied on the JavaFx thread and serialized on another.
+     *
+     * @return A copy of this ImageFile without its Tags.
+     */
+    public ImageFile copyWithoutTags() {
+        ImageFile copy = new ImageFile(imageFile);
+        copy.nameHistory.addAll(nameHistory);
+        copy.imageTagOverlays = imageTagOverlays.copy();
+        return copy;
+    }
+
     /**
      * Adds a Tag to this ImageFile
      *
-     * @param tag Tag to add to this image file.
+     * @param tag        Tag to add to this image file.
+     * @param onReverted Callback to run after the change was undone because renaming the file failed, or null.
      */
-    void addTag(Tag tag) {
+    void addTag(Tag tag, Runnable onReverted) {
         if (!this.tagList.contains(tag)) {
+            ArrayList<Tag> previousTags = new ArrayList<>(tagList);
             this.tagList.add(tag);
             String nameWithoutExtension = new FileName(false).getName(this);
-            this.renameImageFile(nameWithoutExtension + " @" + tag.getTagName());
+            this.renameImageFile(nameWithoutExtension + " @" + tag.getTagName(), previousTags, onReverted);
         }
     }
 
     /**
-     * Adds an ImageTagOverlay to this ImageFile for a list of specified tags. Each tag specified will be associated
-     * with the ImageTagOverlay.
+     * Adds ImageTagOverlays to this ImageFile. Each ImageTagOverlay is added for its own tag name, alongside any
+     * ImageTagOverlays already stored for that tag.
      *
-     * @param newOverlay ImageTagOverlay to associate with this ImageFile and the specified tag names.
-     * @param tags       Tag names to be associated with specified ImageTagOverlay.
+     * @param newOverlays ImageTagOverlays to add to this ImageFile.
      */
-    void addOverlayForTags(ImageTagOverlay newOverlay, ArrayList<String> tags) {
-        for (String tagName : tags) {
-            imageTagOverlays.put(tagName, newOverlay);
-        }
+    void addOverlays(ArrayList<ImageTagOverlay> newOverlays) {
+        imageTagOverlays.addAll(newOverlays);
     }
 
     /**
      * Removes all ImageTagOverlays from this ImageFile associated with the specified tags.
      *
      * @param tags Tag names associated with ImageTagOverlays to remove from this ImageFile.
+     * @return The removed ImageTagOverlays.
      */
-    void removeOverlaysForTags(ArrayList<String> tags) {
-        for (String tagName : tags) {
-            if (imageTagOverlays.containsKey(tagName)) {
-                imageTagOverlays.remove(tagName);
-            }
-        }
+    ArrayList<ImageTagOverlay> removeOverlaysForTags(ArrayList<String> tags) {
+        return imageTagOverlays.removeTags(tags);
+    }
+
+    /**
+     * Removes specified ImageTagOverlays from this ImageFile.
+     *
+     * @param overlays ImageTagOverlays to remove from this ImageFile.
+     * @return The removed ImageTagOverlays.
+     */
+    ArrayList<ImageTagOverlay> removeOverlays(ArrayList<ImageTagOverlay> overlays) {
+        return imageTagOverlays.removeAll(overlays);
+    }
+
+    /**
+     * Removes the rectangle of an ImageTagOverlay from this ImageFile, for every tag it is stored for.
+     *
+     * @param overlay ImageTagOverlay whose rectangle to remove from this ImageFile.
+     * @return The removed ImageTagOverlays.
+     */
+    ArrayList<ImageTagOverlay> removeOverlayRectangle(ImageTagOverlay overlay) {
+        return imageTagOverlays.removeRectangle(overlay);
+    }
+
+    /**
+     * Returns every ImageTagOverlay of this ImageFile.
+     *
+     * @return Every ImageTagOverlay of this ImageFile.
+     */
+    public ArrayList<ImageTagOverlay> getOverlays() {
+        return imageTagOverlays.getOverlays();
     }
 
     /**
@@ -97,24 +247,18 @@ public class ImageFile implements Serializable {
      * @return A list of ImageTagOverlays that correspond to the list of specified tag names.
      */
     public ArrayList<ImageTagOverlay> getOverlaysForTags(ArrayList<String> tags) {
-        ArrayList<ImageTagOverlay> overlays = new ArrayList<>();
-
-        for (String tagName : tags) {
-            if (imageTagOverlays.containsKey(tagName)) {
-                overlays.add(imageTagOverlays.get(tagName));
-            }
-        }
-
-        return overlays;
+        return imageTagOverlays.getOverlaysForTags(tags);
     }
 
     /**
      * Adds a list of Tags to this ImageFile
      *
-     * @param tags List of tags to add to this image file.
+     * @param tags       List of tags to add to this image file.
+     * @param onReverted Callback to run after the change was undone because renaming the file failed, or null.
      */
-    void addTags(ArrayList<Tag> tags) {
+    void addTags(ArrayList<Tag> tags, Runnable onReverted) {
 
+        ArrayList<Tag> previousTags = new ArrayList<>(tagList);
         String nameWithoutExtension = new FileName(false).getName(this);
         StringBuilder stringAppendage = new StringBuilder("");
 
@@ -130,7 +274,7 @@ public class ImageFile implements Serializable {
         }
 
         if (renameIsNeeded) {
-            this.renameImageFile(nameWithoutExtension + stringAppendage.toString());
+            this.renameImageFile(nameWithoutExtension + stringAppendage.toString(), previousTags, onReverted);
         }
 
     }
@@ -141,9 +285,20 @@ public class ImageFile implements Serializable {
      * @param tag Tag to remove from this image file.
      */
     public void removeTag(Tag tag) {
+        removeTag(tag, null);
+    }
+
+    /**
+     * Removes specified Tag from this image file.
+     *
+     * @param tag        Tag to remove from this image file.
+     * @param onReverted Callback to run after the change was undone because renaming the file failed, or null.
+     */
+    void removeTag(Tag tag, Runnable onReverted) {
         if (this.tagList.contains(tag)) {
+            ArrayList<Tag> previousTags = new ArrayList<>(tagList);
             this.tagList.remove(tag);
-            renameTagChange();
+            renameTagChange(previousTags, onReverted);
         }
     }
 
@@ -151,14 +306,16 @@ public class ImageFile implements Serializable {
      * Removes a list of specified Tags from this image file.
      *
      * @param tagsToRemove List of Tags to remove from this image file.
+     * @param onReverted   Callback to run after the change was undone because renaming the file failed, or null.
      */
-    void removeTags(ArrayList<Tag> tagsToRemove) {
+    void removeTags(ArrayList<Tag> tagsToRemove, Runnable onReverted) {
+        ArrayList<Tag> previousTags = new ArrayList<>(tagList);
         for (Tag tag : tagsToRemove) {
             if (this.tagList.contains(tag)) {
                 this.tagList.remove(tag);
             }
         }
-        renameTagChange();
+        renameTagChange(previousTags, onReverted);
     }
 
     /**
@@ -166,7 +323,7 @@ public class ImageFile implements Serializable {
      *
      * @return A list of tags associated with this image file.
      */
-    ArrayList<Tag> getTagList() {
+    public ArrayList<Tag> getTagList() {
         return this.tagList;
     }
 
@@ -182,33 +339,100 @@ public class ImageFile implements Serializable {
     /**
      * Reverts the name of this ImageFile to an name it has previously had.
      *
-     * @param oldName Name to revert to.
+     * @param oldName    Name to revert to.
+     * @param onReverted Callback to run after the change was undone because renaming the file failed, or null.
      */
-    void revertToHistoricalName(String oldName) {
+    void revertToHistoricalName(String oldName, Runnable onReverted) {
         String currentName = new FileName(false).getName(this);
         if (nameHistory.contains(oldName) && !currentName.equals(oldName)) {
-            renameImageFile(oldName);
+            renameImageFile(oldName, new ArrayList<>(tagList), onReverted);
         }
     }
 
     /**
-     * Renames the File that this image.ImageFile refers to.
+     * Renames the File that this image.ImageFile refers to. This ImageFile refers to the new name immediately; the file
+     * itself is renamed in the background, after any earlier renames or moves of this ImageFile. If renaming the file
+     * fails, this ImageFile is restored to how it was before the change.
      *
-     * @param new_name The new name of the image.ImageFile file.
+     * @param new_name     The new name of the image.ImageFile file.
+     * @param previousTags The Tags this ImageFile had before the change.
+     * @param onReverted   Callback to run after the change was undone, or null.
      */
-    private void renameImageFile(String new_name) {
+    private void renameImageFile(String new_name, ArrayList<Tag> previousTags, Runnable onReverted) {
 
-        Path source = Paths.get(imageFile.getPath());
+        File source = imageFile;
         String _ext = new FileExtension().getName(this);
+        String oldName = imageFile.getName();
+        File renamed = new File(imageFile.getParent() + "/" + new_name + _ext);
+        String identity = getLogIdentity();
+        FileChange change = new FileChange(source, previousTags, nameHistory.size(), onReverted, lastFileChange);
+
+        nameHistory.add(new FileName(false).getName(this));
+        imageFile = renamed;
+        lastFileChange = change;
+        IOTaskService.getInstance().submit(this, "Rename " + oldName + " to " + renamed.getName(),
+                () -> change.run(() -> {
+                    RenameEvent event = new RenameEvent();
+                    event.begin();
+                    Files.move(source.toPath(), renamed.toPath());
+                    nameLogger.logNameChange(identity, oldName, renamed.getName());
+                    if (event.shouldCommit()) {
+                        event.setPath(source.getPath());
+                        event.setNewName(renamed.getName());
+                        event.commit();
+                    }
+                }), () -> revertFailedFileChange(change));
+    }
+
+    /**
+     * Returns every logged name change of this ImageFile, oldest first, as lines of the name log.
+     *
+     * @return The logged name changes of this ImageFile.
+     */
+    public ArrayList<String> getLoggedNameChanges() {
+        return nameLogger.getNameChangesOf(getLogIdentity());
+    }
+
+    /**
+     * Returns the identity this ImageFile is logged under: its untagged name in its directory, which stays the same
+     * when it is tagged or detagged.
+     *
+     * @return The identity of this ImageFile in the name log.
+     */
+    private String getLogIdentity() {
+        return new File(imageFile.getAbsoluteFile().getParentFile(), getOriginalName()).getPath();
+    }
 
-        try {
-            String oldName = imageFile.getName();
-            nameHistory.add(new FileName(false).getName(this));
-            Files.move(source, source.resolveSibling(new_name + _ext));
-            imageFile = new File(imageFile.getParent() + "/" + new_name + _ext);
-            nameLogger.logNameChange(oldName, imageFile.getName());
-        } catch (IOException e) {
-            System.out.println("Failed to rename image.ImageFile File");
+    /**
+     * Restores this ImageFile to how it was before a rename or move of its File failed: its File, Tags, Tag memberships
+     * and name history. The changes made after the failed one were skipped, so they are undone along with it.
+     *
+     * @param change The failed rename or move.
+     */
+    private void revertFailedFileChange(FileChange change) {
+        if (change.skipped) {
+            // undone along with the change that failed before it
+            return;
+        }
+        imageFile = change.previousFile;
+        while (nameHistory.size() > change.previousHistoryLength) {
+            nameHistory.remove(nameHistory.size() - 1);
+        }
+        for (Tag tag : tagList) {
+            if (!change.previousTags.contains(tag)) {
+                tag.removeImageFromTag(this);
+            }
+        }
+        for (Tag tag : change.previousTags) {
+            if (!tagList.contains(tag)) {
+                tag.addImageToTag(this);
+            }
+        }
+        tagList.clear();
+        tagList.addAll(change.previousTags);
+        lastFileChange = null;
+        if (change.onReverted != null) {
+            change.onReverted.run();
         }
     }
 
@@ -264,8 +488,11 @@ public class ImageFile implements Serializable {
 
     /**
      * Renames the ImageFile after a Tag is changed. Is typically called after a Tag is removed.
+     *
+     * @param previousTags The Tags this ImageFile had before the change.
+     * @param onReverted   Callback to run after the change was undone because renaming the file failed, or null.
      */
-    private void renameTagChange() {
+    private void renameTagChange(ArrayList<Tag> previousTags, Runnable onReverted) {
 
         String untaggedFileName = new FileUntaggedName(false).getName(this);
 
@@ -282,16 +509,100 @@ public class ImageFile implements Serializable {
         }
 
         // rename the image file
-        this.renameImageFile(newFileName.toString());
+        this.renameImageFile(newFileName.toString(), previousTags, onReverted);
+    }
+
+    /**
+     * Adds the ImageTagOverlays of this ImageFile to an OverlayIndex.
+     *
+     * @param index OverlayIndex to add the ImageTagOverlays to.
+     */
+    void addOverlaysTo(OverlayIndex index) {
+        imageTagOverlays.addTo(index, this);
+    }
+
+    /**
+     * Writes this ImageFile to a serialization stream. The Tags are not written as the tagList field, which would
+     * recurse through every ImageFile and Tag linked to this one, but by CatalogLinks.
+     *
+     * @param out Stream to write this ImageFile to.
+     * @throws IOException ..
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("imageFile", imageFile);
+        fields.put("tagList", null);
+        fields.put("nameHistory", nameHistory);
+        fields.put("nameLogger", nameLogger);
+        fields.put("imageTagOverlays", imageTagOverlays);
+        out.writeFields();
+        CatalogLinks.write(out, this);
+    }
+
+    /**
+     * Restores this ImageFile from a serialization stream. Catalogs saved by earlier releases store the Tags in the
+     * tagList field, and the ImageTagOverlays as a map from tag name to ImageTagOverlay, which is converted to an
+     * OverlayStore; newer catalogs store the Tags with CatalogLinks.
+     *
+     * @param in Stream to restore this ImageFile from.
+     * @throws IOException            ..
+     * @throws ClassNotFoundException ..
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        imageFile = (File) fields.get("imageFile", null);
+        tagList = (ArrayList<Tag>) fields.get("tagList", null);
+        boolean linksFollow = tagList == null;
+        if (linksFollow) {
+            tagList = new ArrayList<>();
+        }
+        nameHistory = (ArrayList<String>) fields.get("nameHistory", new ArrayList<String>());
+        nameLogger = (NameLogger) fields.get("nameLogger", NameLogger.getInstance());
+
+        Object overlays = fields.get("imageTagOverlays", null);
+        if (overlays instanceof OverlayStore) {
+            imageTagOverlays = (OverlayStore) overlays;
+        } else {
+            imageTagOverlays = new OverlayStore();
+            if (overlays instanceof Map) {
+                ArrayList<ImageTagOverlay> legacyOverlays = new ArrayList<>();
+                for (Map.Entry<String, ImageTagOverlay> entry : ((Map<String, ImageTagOverlay>) overlays).entrySet()) {
+                    legacyOverlays.add(entry.getValue().forTag(entry.getKey()));
+                }
+                imageTagOverlays.addAll(legacyOverlays);
+            }
+        }
+        if (linksFollow) {
+            CatalogLinks.read(in);
+        }
     }
 
     /**
-     * Moves this ImageFile to a new parent folder.
+     * Moves this ImageFile to a new parent folder. This ImageFile refers to the new location immediately; the file
+     * itself is moved in the background, after any earlier renames or moves of this ImageFile. If moving the file
+     * fails, this ImageFile is restored to how it was before the change.
      *
      * @param fileToMoveTo Folder to move to.
+     * @param onReverted   Callback to run after the change was undone, or null.
      */
-    void moveFileToLocation(File fileToMoveTo) {
-        FileManager.moveFile(imageFile, fileToMoveTo.toString() + "/" + imageFile.getName());
-        imageFile = new File(fileToMoveTo.toString() + "/" + imageFile.getName());
+    void moveFileToLocation(File fileToMoveTo, Runnable onReverted) {
+        File source = imageFile;
+        File moved = new File(fileToMoveTo.toString() + "/" + imageFile.getName());
+        FileChange change = new FileChange(source, new ArrayList<>(tagList), nameHistory.size(), onReverted,
+                lastFileChange);
+        imageFile = moved;
+        lastFileChange = change;
+        IOTaskService.getInstance().submit(this, "Move " + source.getName() + " to " + fileToMoveTo,
+                () -> change.run(() -> {
+                    MoveEvent event = new MoveEvent();
+                    event.begin();
+                    FileManager.moveFile(source, moved.toString());
+                    if (event.shouldCommit()) {
+                        event.setPath(source.getPath());
+                        event.setDestination(moved.getPath());
+                        event.commit();
+                    }
+                }), () -> revertFailedFileChange(change));
     }
 }
@@ -0,0 +1,111 @@
+package image;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.VBox;
+
+/**
+ * An ImageGridTile. How an ImageFile appears in an ImageGridView. Tiles are reused for different ImageFiles as the
+ * ImageGridView is scrolled.
+ */
+public class ImageGridTile extends VBox {
+    /**
+     * The ImageView to display the thumbnail on.
+     */
+    private ImageView imgView = new ImageView();
+    /**
+     * Label showing the name of the ImageFile.
+     */
+    private Label nameLabel = new Label();
+    /**
+     * The ImageFile this tile is currently showing.
+     */
+    private ImageFile item;
+    /**
+     * The index of the ImageFile this tile is currently showing, in its ImageGridView.
+     */
+    private int index = -1;
+    /**
+     * The width and height of this tile.
+     */
+    private double tileSize;
+
+    /**
+     * Constructs a new, empty ImageGridTile.
+     */
+    ImageGridTile() {
+        super(2);
+        setAlignment(Pos.CENTER);
+        imgView.setPreserveRatio(true);
+        getChildren().addAll(imgView, nameLabel);
+    }
+
+    /**
+     * Sets the ImageFile this tile shows.
+     *
+     * @param item      ImageFile to show.
+     * @param index     Index of the ImageFile in its ImageGridView.
+     * @param thumbnail Thumbnail of the ImageFile, or null if it is not found yet.
+     * @param tileSize  Width and height of this tile.
+     */
+    void setItem(ImageFile item, int index, Image thumbnail, double tileSize) {
+        this.item = item;
+        this.index = index;
+        this.tileSize = tileSize;
+        imgView.setImage(thumbnail);
+        imgView.setFitWidth(tileSize);
+        // leave room for the name label under the thumbnail
+        imgView.setFitHeight(tileSize - 20);
+        nameLabel.setMaxWidth(tileSize);
+        nameLabel.setText(item.getOriginalName());
+        setPrefSize(tileSize, tileSize);
+        resize(tileSize, tileSize);
+    }
+
+    /**
+     * Sets the thumbnail this tile shows, once it has been found for the ImageFile it shows.
+     *
+     * @param thumbnail Thumbnail of the ImageFile.
+     */
+    void setThumbnail(Image thumbnail) {
+        imgView.setImage(thumbnail);
+    }
+
+    /**
+     * Sets whether or not this tile is shown as selected.
+     *
+     * @param selected Whether or not this tile is shown as selected.
+     */
+    void setSelected(boolean selected) {
+        setStyle(selected ? "-fx-background-color: lightblue" : "");
+    }
+
+    /**
+     * Returns the ImageFile this tile is currently showing.
+     *
+     * @return The ImageFile this tile is currently showing.
+     */
+    ImageFile getItem() {
+        return item;
+    }
+
+    /**
+     * Returns the index of the ImageFile this tile is currently showing.
+     *
+     * @return The index of the ImageFile this tile is currently showing.
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the width and height of this tile.
+     *
+     * @return The width and height of this tile.
+     */
+    double getTileSize() {
+        return tileSize;
+    }
+}
@@ -0,0 +1,278 @@
+package image;
+
+import javafx.geometry.Orientation;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Rectangle;
+import metrics.ThumbnailDecodeEvent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * An ImageGridView. Displays ImageFiles as a scrollable grid of thumbnails. Only the tiles that are visible exist as
+ * nodes; they are reused as the grid is scrolled, so memory use and frame time do not grow with the number of
+ * ImageFiles. Control-scrolling changes the size of the tiles.
+ */
+public class ImageGridView {
+    /**
+     * The smallest and largest tile sizes.
+     */
+    private static final double MIN_TILE_SIZE = 48, MAX_TILE_SIZE = 256;
+    /**
+     * The gap between two tiles.
+     */
+    private static final double GAP = 6;
+    /**
+     * The ImageFiles in this grid.
+     */
+    private ArrayList<ImageFile> items = new ArrayList<>();
+    /**
+     * The index of the selected ImageFile, or -1 if no ImageFile is selected.
+     */
+    private int selectedIndex = -1;
+    /**
+     * The width and height of a tile.
+     */
+    private double tileSize;
+    /**
+     * The pane the visible tiles are placed on.
+     */
+    private Pane viewport = new Pane();
+    /**
+     * The vertical scroll bar of this grid.
+     */
+    private ScrollBar scrollBar = new ScrollBar();
+    /**
+     * Container for the viewport and scroll bar.
+     */
+    private HBox container = new HBox(viewport, scrollBar);
+    /**
+     * The tile nodes; only as many as fit in the viewport.
+     */
+    private ArrayList<ImageGridTile> tilePool = new ArrayList<>();
+    /**
+     * Recently shown thumbnails, so scrolling back does not decode them again.
+     */
+    private ImageTileCache thumbnails = new ImageTileCache(256);
+    /**
+     * Keys of the thumbnails whose files are being found by the ThumbnailLoader.
+     */
+    private HashSet<String> pendingThumbnails = new HashSet<>();
+    /**
+     * The ImageManagerView that contains this ImageGridView.
+     */
+    private ImageManagerView parentImageManagerView;
+
+    /**
+     * Constructs a new ImageGridView with a specified parent ImageManagerView and tile size.
+     *
+     * @param parent   ImageManagerView parent of this ImageGridView.
+     * @param tileSize The initial width and height of a tile.
+     */
+    public ImageGridView(ImageManagerView parent, double tileSize) {
+        this.parentImageManagerView = parent;
+        this.tileSize = tileSize;
+
+        viewport.setPrefSize(400, 400);
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(viewport.widthProperty());
+        clip.heightProperty().bind(viewport.heightProperty());
+        viewport.setClip(clip);
+
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> layoutTiles());
+        viewport.widthProperty().addListener((observable, oldValue, newValue) -> layoutTiles());
+        viewport.heightProperty().addListener((observable, oldValue, newValue) -> layoutTiles());
+        viewport.addEventHandler(ScrollEvent.SCROLL, this::handleScroll);
+        viewport.addEventHandler(MouseEvent.MOUSE_CLICKED, this::handleClick);
+    }
+
+    /**
+     * Sets a list of ImageFiles that this ImageGridView should display.
+     *
+     * @param imageFiles The list of ImageFiles that this ImageGridView should display.
+     */
+    void setItems(ArrayList<ImageFile> imageFiles) {
+        items = new ArrayList<>(imageFiles);
+        selectedIndex = -1;
+        scrollBar.setValue(0);
+        layoutTiles();
+    }
+
+    /**
+     * Returns the node containing this ImageGridView.
+     *
+     * @return The node containing this ImageGridView.
+     */
+    HBox getView() {
+        return container;
+    }
+
+    /**
+     * Sets the width and height of the tiles in this ImageGridView.
+     *
+     * @param size The width and height of a tile.
+     */
+    void setTileSize(double size) {
+        // keep the first visible row in view
+        int firstVisible = (int) (scrollBar.getValue() / rowHeight()) * columns();
+        tileSize = Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, size));
+        scrollBar.setValue((firstVisible / columns()) * rowHeight());
+        layoutTiles();
+    }
+
+    /**
+     * Places a tile for every visible ImageFile in the viewport, reusing tiles from the pool.
+     */
+    private void layoutTiles() {
+        int columns = columns();
+        double rowHeight = rowHeight();
+        int rows = (items.size() + columns - 1) / columns;
+        double viewportHeight = viewport.getHeight();
+
+        double maxScroll = Math.max(0, rows * rowHeight - viewportHeight);
+        scrollBar.setMax(maxScroll);
+        scrollBar.setVisibleAmount(viewportHeight);
+        scrollBar.setUnitIncrement(rowHeight / 2);
+        scrollBar.setBlockIncrement(viewportHeight);
+        double scroll = Math.min(scrollBar.getValue(), maxScroll);
+
+        int firstRow = (int) (scroll / rowHeight);
+        int visibleRows = (int) Math.ceil(viewportHeight / rowHeight) + 1;
+        int first = firstRow * columns;
+        int last = Math.min(items.size(), (firstRow + visibleRows) * columns);
+
+        while (tilePool.size() < last - first) {
+            ImageGridTile tile = new ImageGridTile();
+            tilePool.add(tile);
+            viewport.getChildren().add(tile);
+        }
+
+        for (int t = 0; t < tilePool.size(); t++) {
+            ImageGridTile tile = tilePool.get(t);
+            int index = first + t;
+            if (index < last) {
+                ImageFile item = items.get(index);
+                if (tile.getItem() != item || tile.getIndex() != index || tile.getTileSize() != tileSize) {
+                    tile.setItem(item, index, getThumbnail(item), tileSize);
+                }
+                tile.setSelected(index == selectedIndex);
+                tile.relocate((index % columns) * (tileSize + GAP), (index / columns) * rowHeight - scroll);
+                tile.setVisible(true);
+            } else {
+                tile.setVisible(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the thumbnail for an ImageFile at the current tile size. Thumbnails are loaded in the background, from
+     * the ThumbnailCache when a pre-generated thumbnail exists, and are set on the tile showing the ImageFile once
+     * their file is found. While a flight recording is running, each load is recorded from the request until the
+     * thumbnail is ready.
+     *
+     * @param item ImageFile to get the thumbnail for.
+     * @return The thumbnail for the ImageFile, or null if its file is still being found.
+     */
+    private Image getThumbnail(ImageFile item) {
+        String key = item.getImageFilePath().getPath() + "@" + (int) tileSize;
+        Image thumbnail = thumbnails.get(key);
+        if (thumbnail == null && pendingThumbnails.add(key)) {
+            double size = tileSize;
+            ThumbnailLoader.getInstance().findSource(item, source -> {
+                pendingThumbnails.remove(key);
+                // tiles scrolled past before their file was found are not loaded
+                Image loading = null;
+                for (ImageGridTile tile : tilePool) {
+                    if (tile.isVisible() && tile.getItem() == item && tile.getTileSize() == size) {
+                        if (loading == null) {
+                            loading = new Image(source.toURI().toString(), size, size, true, false, true);
+                            thumbnails.put(key, loading);
+                            recordDecode(source, loading);
+                        }
+                        tile.setThumbnail(loading);
+                    }
+                }
+            });
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Records a ThumbnailDecodeEvent for a thumbnail loading in the background once it is ready, if thumbnail decodes
+     * are being recorded.
+     *
+     * @param source    File the thumbnail is loaded from.
+     * @param thumbnail The loading thumbnail.
+     */
+    private void recordDecode(File source, Image thumbnail) {
+        ThumbnailDecodeEvent event = new ThumbnailDecodeEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.begin();
+        thumbnail.progressProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue.doubleValue() >= 1 && event.shouldCommit()) {
+                event.setPath(source.getPath());
+                event.setWidth((int) thumbnail.getWidth());
+                event.setHeight((int) thumbnail.getHeight());
+                event.commit();
+            }
+        });
+    }
+
+    /**
+     * Private handler for scrolling the grid, or resizing its tiles when control is held.
+     *
+     * @param e ScrollEvent to handle.
+     */
+    private void handleScroll(ScrollEvent e) {
+        if (e.isControlDown()) {
+            setTileSize(e.getDeltaY() > 0 ? tileSize * 1.25 : tileSize / 1.25);
+        } else {
+            scrollBar.setValue(Math.max(0, Math.min(scrollBar.getMax(), scrollBar.getValue() - e.getDeltaY())));
+        }
+        e.consume();
+    }
+
+    /**
+     * Private handler for clicks in the grid. Selects the clicked ImageFile and sets it as the currently selected
+     * ImageFile in this ImageGridView's parent ImageManagerView.
+     *
+     * @param e MouseEvent to handle.
+     */
+    private void handleClick(MouseEvent e) {
+        int column = (int) (e.getX() / (tileSize + GAP));
+        int row = (int) ((e.getY() + scrollBar.getValue()) / rowHeight());
+        int index = row * columns() + column;
+        if (column < columns() && index < items.size() && index != selectedIndex) {
+            selectedIndex = index;
+            layoutTiles();
+            parentImageManagerView.setSelectedImage(items.get(index));
+        }
+    }
+
+    /**
+     * Returns the number of tile columns that fit in the viewport.
+     *
+     * @return The number of tile columns that fit in the viewport.
+     */
+    private int columns() {
+        return Math.max(1, (int) ((viewport.getWidth() + GAP) / (tileSize + GAP)));
+    }
+
+    /**
+     * Returns the height of a row of tiles, including the gap below it.
+     *
+     * @return The height of a row of tiles.
+     */
+    private double rowHeight() {
+        return tileSize + GAP;
+    }
+}
@@ -26,6 +26,10 @@ public class ImageListCell extends ListCell<ImageFile> {
      * The width of the cell in the list.
      */
     private int cellWidth;
+    /**
+     * The ImageFile whose thumbnail is shown or being loaded, or null if the cell is empty.
+     */
+    private ImageFile shownItem;
 
     /**
      * Constructs an ImageListCell with a specified cell width.
@@ -47,15 +51,25 @@ public class ImageListCell extends ListCell<ImageFile> {
         super.updateItem(item, empty);
         //if no ImageFile, update the cell to show this
         if (item == null || empty) {
+            shownItem = null;
             imgView.setImage(null);
             setGraphic(null);
             setText(null);
         }
         // create a new thumbnail and set image view to show it
         else {
-            Image thumbnailImage = new Image(item.getImageFilePath().toURI().toString(), cellWidth,
-                    cellWidth / 2, true, false);
-            imgView.setImage(thumbnailImage);
+            if (item != shownItem) {
+                shownItem = item;
+                imgView.setImage(null);
+                // prefer the pre-generated thumbnail over decoding the (possibly very large) original image
+                ThumbnailLoader.getInstance().findSource(item, source -> {
+                    // the cell may have been reused for another ImageFile in the meantime
+                    if (shownItem == item) {
+                        imgView.setImage(new Image(source.toURI().toString(), cellWidth, cellWidth / 2, true,
+                                false, true));
+                    }
+                });
+            }
             setGraphic(imgView);
             setText(item.getOriginalName());
         }
@@ -2,10 +2,10 @@ package image;
 
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.FXCollections;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.util.Callback;
+import utils.ObservableListUpdater;
 
 import java.util.ArrayList;
 
@@ -77,15 +77,7 @@ public class ImageListView implements ChangeListener<ImageFile> {
      * @param imageFiles The list of ImageFiles that this ImageListView should display.
      */
     void setItems(ArrayList<ImageFile> imageFiles) {
-        imageFileThumbnailList.getItems().clear();
-        imageFileThumbnailList.setItems(FXCollections.observableArrayList(imageFiles));
-    }
-
-    /**
-     * Removes the ImageFiles that this ImageListView is currently displaying.
-     */
-    void clearList() {
-        imageFileThumbnailList.getItems().clear();
+        ObservableListUpdater.update(imageFileThumbnailList.getItems(), imageFiles);
     }
 
     /**
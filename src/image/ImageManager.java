@@ -2,13 +2,25 @@ package image;
 
 import image.filenamestrategy.FileTags;
 import image.filenamestrategy.FileName;
+import metrics.CatalogLoadEvent;
+import metrics.IngestEvent;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
 import overlay.ImageTagOverlay;
+import overlay.OverlayIndex;
 import tag.Tag;
 import tag.TagManager;
+import utils.CatalogCopy;
+import utils.ChangeEvent;
+import utils.ChangeEventBus;
 import utils.ConfigurationManager;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 
 //**************************************************************************************
 // *    Title: (adapted from) <"Serialize Code" from CSC207 Fall 2017 UofT week 5 notes>
@@ -25,6 +37,24 @@ import java.util.ArrayList;
  * responsible for saving and loading ImageFiles when the program is opened and closed.
  */
 public class ImageManager {
+    /**
+     * Time taken to tag an ImageFile.
+     */
+    private static final LatencyHistogram TAG_LATENCY = MetricsRegistry.getInstance().histogram("image.tag");
+    /**
+     * Time taken to remove tags from an ImageFile.
+     */
+    private static final LatencyHistogram UNTAG_LATENCY = MetricsRegistry.getInstance().histogram("image.untag");
+    /**
+     * Time taken to move an ImageFile.
+     */
+    private static final LatencyHistogram MOVE_LATENCY = MetricsRegistry.getInstance().histogram("image.move");
+    /**
+     * Time taken to add a collection of ImageFiles.
+     */
+    private static final LatencyHistogram ADD_IMAGE_FILES_LATENCY =
+            MetricsRegistry.getInstance().histogram("image.addImageFiles");
+
     /**
      * The list of ImageFiles this manager is currently managing.
      */
@@ -42,9 +72,13 @@ public class ImageManager {
      */
     private ConfigurationManager configManager;
     /**
-     * The View for this ImageManager.
+     * Spatial index of the ImageTagOverlays of every ImageFile this manager knows of.
+     */
+    private OverlayIndex overlayIndex = new OverlayIndex();
+    /**
+     * Whether the persistence file exists but could not be loaded, so it must not be saved over.
      */
-    private ImageManagerView imageManagerView;
+    private boolean loadFailed = false;
 
     /**
      * Constructs an ImageManager from a filepath containing persistence files.
@@ -61,25 +95,109 @@ public class ImageManager {
             } else {
                 file.createNewFile();
             }
-        } catch (ClassNotFoundException | IOException e) {
+        } catch (ClassNotFoundException e) {
+            loadFailed = true;
+            System.out.println("Image Manager failed to initialize");
+        } catch (IOException e) {
             System.out.println("Image Manager failed to initialize");
         }
-
+        rebuildOverlayIndex();
+        MetricsRegistry.getInstance().gauge("image.managed", this, manager -> manager.listOfImageFiles.size());
+        MetricsRegistry.getInstance().gauge("image.tagged", this, manager -> manager.taggedImageFiles.size());
     }
 
     /**
-     * Adds specified overlay to specified ImageFile for a specified list of tag names.
+     * Adds specified overlay to specified ImageFile for a specified list of tag names. Overlays already set for those
+     * tags are kept.
      *
      * @param imageFileToOverlay ImageFile to add overlay to.
      * @param tagNames           Names of tags for which the specified ImageTagOverlay applies.
      * @param overlay            The ImageTagOverlay to be associated with the specified ImageFile / Tag combination.
      */
     public void addOverlayForImageTags(ImageFile imageFileToOverlay, ArrayList<String> tagNames, ImageTagOverlay overlay) {
+        ArrayList<ImageTagOverlay> overlays = new ArrayList<>();
+        for (String tagName : tagNames) {
+            overlays.add(overlay.forTag(tagName));
+        }
+        addOverlays(imageFileToOverlay, overlays);
+    }
+
+    /**
+     * Adds a collection of ImageTagOverlays to a specified ImageFile, each for its own tag name. The persistence files
+     * and views are updated once for the whole collection.
+     *
+     * @param imageFileToOverlay ImageFile to add the ImageTagOverlays to.
+     * @param overlays           ImageTagOverlays to add.
+     */
+    public void addOverlays(ImageFile imageFileToOverlay, ArrayList<ImageTagOverlay> overlays) {
         if (listOfImageFiles.contains(imageFileToOverlay)) {
-            listOfImageFiles.get(listOfImageFiles.indexOf(imageFileToOverlay)).addOverlayForTags(overlay, tagNames);
+            ImageFile managedImageFile = listOfImageFiles.get(listOfImageFiles.indexOf(imageFileToOverlay));
+            managedImageFile.addOverlays(overlays);
+            for (ImageTagOverlay overlay : overlays) {
+                overlayIndex.add(managedImageFile, overlay);
+            }
             configManager.updatePersistenceFiles();
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.OVERLAYS_CHANGED, managedImageFile);
         }
-        imageManagerView.updateTagOverlays();
+    }
+
+    /**
+     * Imports ImageTagOverlays for many ImageFiles as one transaction. Tags that do not exist yet are created, each
+     * ImageFile is renamed at most once to carry all of the tags of its new ImageTagOverlays, and the persistence files
+     * are updated once at the end. The ImageFiles must be ones this manager manages, such as those returned by
+     * getListOfImageFiles, so that no lookup through ImageFile equality is needed.
+     *
+     * @param overlaysByImageFile ImageTagOverlays to add, by the ImageFile they belong to.
+     * @return The number of ImageTagOverlays imported.
+     */
+    public int importOverlays(Map<ImageFile, ArrayList<ImageTagOverlay>> overlaysByImageFile) {
+        Set<ImageFile> tagged = Collections.newSetFromMap(new IdentityHashMap<>());
+        tagged.addAll(taggedImageFiles);
+        Map<Tag, ArrayList<ImageFile>> imagesByTag = new IdentityHashMap<>();
+        int imported = 0;
+
+        configManager.beginBatch();
+        try {
+            for (Map.Entry<ImageFile, ArrayList<ImageTagOverlay>> entry : overlaysByImageFile.entrySet()) {
+                ImageFile imageFile = entry.getKey();
+                ArrayList<ImageTagOverlay> overlays = entry.getValue();
+                if (overlays.isEmpty()) {
+                    continue;
+                }
+
+                ArrayList<String> tagNames = new ArrayList<>();
+                for (ImageTagOverlay overlay : overlays) {
+                    if (!tagNames.contains(overlay.getTagName())) {
+                        tagNames.add(overlay.getTagName());
+                        tagManager.addTag(overlay.getTagName());
+                    }
+                }
+                ArrayList<Tag> tags = tagManager.getTags(tagNames);
+                // one rename for all of the new tags of this image
+                imageFile.addTags(tags, () -> fileChangeReverted(imageFile));
+                for (Tag tag : tags) {
+                    imagesByTag.computeIfAbsent(tag, t -> new ArrayList<>()).add(imageFile);
+                }
+                if (tagged.add(imageFile)) {
+                    taggedImageFiles.add(imageFile);
+                }
+
+                imageFile.addOverlays(overlays);
+                for (ImageTagOverlay overlay : overlays) {
+                    overlayIndex.add(imageFile, overlay);
+                }
+                imported += overlays.size();
+                ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILE_CHANGED, imageFile);
+                ChangeEventBus.getInstance().publish(ChangeEvent.Type.OVERLAYS_CHANGED, imageFile);
+            }
+            for (Map.Entry<Tag, ArrayList<ImageFile>> entry : imagesByTag.entrySet()) {
+                entry.getKey().addImagesToTag(entry.getValue());
+            }
+            configManager.updatePersistenceFiles();
+        } finally {
+            configManager.endBatch();
+        }
+        return imported;
     }
 
     /**
@@ -90,10 +208,96 @@ public class ImageManager {
      */
     void removeOverlaysForImageTags(ImageFile imageFileToRemoveFrom, ArrayList<String> tagNames) {
         if (listOfImageFiles.contains(imageFileToRemoveFrom)) {
-            listOfImageFiles.get(listOfImageFiles.indexOf(imageFileToRemoveFrom)).removeOverlaysForTags(tagNames);
+            ImageFile managedImageFile = listOfImageFiles.get(listOfImageFiles.indexOf(imageFileToRemoveFrom));
+            overlaysRemoved(managedImageFile, managedImageFile.removeOverlaysForTags(tagNames));
+        }
+    }
+
+    /**
+     * Removes the rectangle of a specified ImageTagOverlay from a specified ImageFile, for every tag it is set for.
+     *
+     * @param imageFileToRemoveFrom ImageFile from which to remove the ImageTagOverlay.
+     * @param overlay               ImageTagOverlay to remove.
+     */
+    void removeOverlay(ImageFile imageFileToRemoveFrom, ImageTagOverlay overlay) {
+        if (listOfImageFiles.contains(imageFileToRemoveFrom)) {
+            ImageFile managedImageFile = listOfImageFiles.get(listOfImageFiles.indexOf(imageFileToRemoveFrom));
+            overlaysRemoved(managedImageFile, managedImageFile.removeOverlayRectangle(overlay));
+        }
+    }
+
+    /**
+     * Removes a collection of ImageTagOverlays from a specified ImageFile. The persistence files and views are updated
+     * once for the whole collection.
+     *
+     * @param imageFileToRemoveFrom ImageFile from which to remove the ImageTagOverlays.
+     * @param overlays              ImageTagOverlays to remove.
+     */
+    public void removeOverlays(ImageFile imageFileToRemoveFrom, ArrayList<ImageTagOverlay> overlays) {
+        if (listOfImageFiles.contains(imageFileToRemoveFrom)) {
+            ImageFile managedImageFile = listOfImageFiles.get(listOfImageFiles.indexOf(imageFileToRemoveFrom));
+            overlaysRemoved(managedImageFile, managedImageFile.removeOverlays(overlays));
+        }
+    }
+
+    /**
+     * Helper method to update the overlay index, persistence files and views after ImageTagOverlays were removed from
+     * an ImageFile.
+     *
+     * @param imageFile ImageFile the ImageTagOverlays were removed from.
+     * @param removed   The removed ImageTagOverlays.
+     */
+    private void overlaysRemoved(ImageFile imageFile, ArrayList<ImageTagOverlay> removed) {
+        if (!removed.isEmpty()) {
+            for (ImageTagOverlay overlay : removed) {
+                overlayIndex.remove(imageFile, overlay);
+            }
             configManager.updatePersistenceFiles();
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.OVERLAYS_CHANGED, imageFile);
+        }
+    }
+
+    /**
+     * Returns the ImageFiles that have an ImageTagOverlay for a specified tag intersecting a specified region.
+     *
+     * @param tagName Name of the tag.
+     * @param x1      Normalized x coordinate of one corner of the region.
+     * @param y1      Normalized y coordinate of one corner of the region.
+     * @param x2      Normalized x coordinate of the opposite corner of the region.
+     * @param y2      Normalized y coordinate of the opposite corner of the region.
+     * @return The ImageFiles with an ImageTagOverlay for the tag in the region.
+     */
+    public ArrayList<ImageFile> getImageFilesWithOverlayIn(String tagName, double x1, double y1, double x2,
+                                                           double y2) {
+        return overlayIndex.getImageFilesWithOverlayIn(tagName, x1, y1, x2, y2);
+    }
+
+    /**
+     * Returns the smallest ImageTagOverlay of a specified ImageFile, for one of a list of tag names, under a point.
+     *
+     * @param imageFile ImageFile to look in.
+     * @param tagNames  Names of the tags whose ImageTagOverlays to consider.
+     * @param x         Normalized x coordinate of the point.
+     * @param y         Normalized y coordinate of the point.
+     * @return The ImageTagOverlay under the point, or null if there is none.
+     */
+    public ImageTagOverlay getOverlayAt(ImageFile imageFile, ArrayList<String> tagNames, double x, double y) {
+        return overlayIndex.getOverlayAt(imageFile, tagNames, x, y);
+    }
+
+    /**
+     * Rebuilds the overlay index from the ImageTagOverlays of every tagged and currently managed ImageFile.
+     */
+    private void rebuildOverlayIndex() {
+        overlayIndex.clear();
+        Set<ImageFile> indexed = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayList<ImageFile> imageFiles = new ArrayList<>(taggedImageFiles);
+        imageFiles.addAll(listOfImageFiles);
+        for (ImageFile imageFile : imageFiles) {
+            if (indexed.add(imageFile)) {
+                imageFile.addOverlaysTo(overlayIndex);
+            }
         }
-        imageManagerView.updateTagOverlays();
     }
 
     /**
@@ -177,6 +381,7 @@ public class ImageManager {
     @SuppressWarnings("unused")
     @Deprecated
     void tagImage(ImageFile imgToTag, String tag) {
+        long start = System.nanoTime();
         Tag t = tagManager.getTag(tag);
         ImageFile imageFileToTag = null;
 
@@ -188,7 +393,8 @@ public class ImageManager {
 
         if (t != null && imageFileToTag != null) {
             //1: add tag to image
-            imageFileToTag.addTag(t);
+            ImageFile tagged = imageFileToTag;
+            imageFileToTag.addTag(t, () -> fileChangeReverted(tagged));
             //2 add image to tag
             t.addImageToTag(imageFileToTag);
             //3: add image to list of tagged images, if it hasn't already been tagged
@@ -197,7 +403,9 @@ public class ImageManager {
             }
             // save files
             configManager.updatePersistenceFiles();
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILE_CHANGED, imageFileToTag);
         }
+        TAG_LATENCY.recordSince(start);
     }
 
     /**
@@ -206,7 +414,8 @@ public class ImageManager {
      * @param imgToTag Image file to tag.
      * @param tagNames Tag(s) to add to Image file.
      */
-    void tagImage(ImageFile imgToTag, ArrayList<String> tagNames) {
+    public void tagImage(ImageFile imgToTag, ArrayList<String> tagNames) {
+        long start = System.nanoTime();
         ArrayList<Tag> tagsToAdd = tagManager.getTags(tagNames);
         ImageFile imageFileToTag = null;
 
@@ -217,7 +426,8 @@ public class ImageManager {
         }
 
         if (!tagsToAdd.isEmpty() && imageFileToTag != null) {
-            imageFileToTag.addTags(tagsToAdd);
+            ImageFile tagged = imageFileToTag;
+            imageFileToTag.addTags(tagsToAdd, () -> fileChangeReverted(tagged));
 
             for (Tag tag : tagsToAdd) {
                 tag.addImageToTag(imageFileToTag);
@@ -228,7 +438,9 @@ public class ImageManager {
             }
 
             configManager.updatePersistenceFiles();
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILE_CHANGED, imageFileToTag);
         }
+        TAG_LATENCY.recordSince(start);
     }
 
     /**
@@ -238,6 +450,7 @@ public class ImageManager {
      * @param tagToRemove Tag to remove.
      */
     public void removeTagFromImage(ImageFile imgToDetag, String tagToRemove) {
+        long start = System.nanoTime();
         Tag t = tagManager.getTag(tagToRemove);
 
         ImageFile imageFileToDetag = null;
@@ -250,12 +463,15 @@ public class ImageManager {
             // 1: remove image reference from tag
             t.removeImageFromTag(imageFileToDetag);
             // 2 : remove tag reference from image
-            imageFileToDetag.removeTag(t);
+            ImageFile detagged = imageFileToDetag;
+            imageFileToDetag.removeTag(t, () -> fileChangeReverted(detagged));
             //note: even if an image has no tags associated with it, it is still stored as a tagged image, since it
             //has a tag history.
             // save files
             configManager.updatePersistenceFiles();
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILE_CHANGED, imageFileToDetag);
         }
+        UNTAG_LATENCY.recordSince(start);
     }
 
     /**
@@ -265,6 +481,7 @@ public class ImageManager {
      * @param namesOfTagsToRemove Names of image tags to remove.
      */
     public void removeTagsFromImage(ImageFile imgToDetag, ArrayList<String> namesOfTagsToRemove) {
+        long start = System.nanoTime();
         ArrayList<Tag> tagsToRemove = tagManager.getTags(namesOfTagsToRemove);
 
         ImageFile imageFileToDetag = null;
@@ -278,10 +495,13 @@ public class ImageManager {
                 tag.removeImageFromTag(imageFileToDetag);
             }
 
-            imageFileToDetag.removeTags(tagsToRemove);
+            ImageFile detagged = imageFileToDetag;
+            imageFileToDetag.removeTags(tagsToRemove, () -> fileChangeReverted(detagged));
             configManager.updatePersistenceFiles();
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILE_CHANGED, imageFileToDetag);
         }
 
+        UNTAG_LATENCY.recordSince(start);
     }
 
     /**
@@ -307,11 +527,23 @@ public class ImageManager {
      */
     void setImageToOldName(ImageFile imgToRename, String oldName) {
         if (taggedImageFiles.contains(imgToRename)) {
-            imgToRename.revertToHistoricalName(oldName);
+            imgToRename.revertToHistoricalName(oldName, () -> fileChangeReverted(imgToRename));
             initializeImageTagsFromFileName(imgToRename);
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILE_CHANGED, imgToRename);
         }
     }
 
+    /**
+     * Saves the persistence files and updates the views after a failed rename or move of an ImageFile was undone, so
+     * the saved catalog matches the files on disk again.
+     *
+     * @param imageFile ImageFile whose rename or move was undone.
+     */
+    private void fileChangeReverted(ImageFile imageFile) {
+        configManager.updatePersistenceFiles();
+        ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILE_CHANGED, imageFile);
+    }
+
     /**
      * Initializes all the tags that correspond to an ImageFile's restored name. Adds deleted tags that the reverted
      * ImageFile has back to TagManager. Updates ImageFile's taglist to correspond with its reverted name.
@@ -354,15 +586,26 @@ public class ImageManager {
      * @param imageFilesToAdd List of ImageFiles to add.
      */
     public void addImageFiles(ArrayList<File> imageFilesToAdd) {
+        long start = System.nanoTime();
+        IngestEvent event = new IngestEvent();
+        event.begin();
         this.listOfImageFiles.clear();
-        for (File file : imageFilesToAdd) {
-            ImageFile imageFileToAdd = new ImageFile(file);
-            this.addImage(imageFileToAdd);
+        // the catalog is saved once for the whole directory, not once for every image whose tags are initialized
+        configManager.beginBatch();
+        try {
+            for (File file : imageFilesToAdd) {
+                ImageFile imageFileToAdd = new ImageFile(file);
+                this.addImage(imageFileToAdd);
+            }
+        } finally {
+            configManager.endBatch();
         }
+        rebuildOverlayIndex();
         //update view
-        if (imageManagerView != null) {
-            imageManagerView.setImageFilesToView(this.listOfImageFiles);
-        }
+        ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILES_SET);
+        ADD_IMAGE_FILES_LATENCY.recordSince(start);
+        event.setFileCount(imageFilesToAdd.size());
+        event.commit();
     }
 
     /**
@@ -391,6 +634,36 @@ public class ImageManager {
         output.close();
     }
 
+    /**
+     * Returns a copy of the contents of this ImageManager that would be saved to a serialization file. Lets the
+     * contents be captured on the JavaFx thread and serialized on another.
+     *
+     * @param copy CatalogCopy to copy the ImageFiles with.
+     * @return A copy of the contents of this ImageManager, complete once copy.complete() has been called.
+     */
+    public ArrayList<ImageFile> copyContents(CatalogCopy copy) {
+        ArrayList<ImageFile> contents = new ArrayList<>(taggedImageFiles.size());
+        for (ImageFile imageFile : taggedImageFiles) {
+            contents.add(copy.copyOf(imageFile));
+        }
+        return contents;
+    }
+
+    /**
+     * Returns contents captured with copyContents, serialized as they would be saved to a serialization file.
+     *
+     * @param contents Contents of an ImageManager, as returned by copyContents.
+     * @return The serialized contents.
+     * @throws IOException ..
+     */
+    public static byte[] serializeToBytes(ArrayList<ImageFile> contents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutput output = new ObjectOutputStream(bytes);
+        output.writeObject(contents);
+        output.close();
+        return bytes.toByteArray();
+    }
+
     /**
      * Loads the contents of this ImageManager from a serialization file.
      *
@@ -400,6 +673,8 @@ public class ImageManager {
     @SuppressWarnings("unchecked")
     private void readFromFile(String path) throws ClassNotFoundException {
         // adapted from class notes
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
         try {
             InputStream file = new FileInputStream(path);
             InputStream buffer = new BufferedInputStream(file);
@@ -408,19 +683,31 @@ public class ImageManager {
             taggedImageFiles = (ArrayList<ImageFile>) input.readObject();
             input.close();
 
-        } catch (IOException ex) {
+            if (event.shouldCommit()) {
+                event.setPath(path);
+                event.setBytesRead(new File(path).length());
+                event.setItemCount(taggedImageFiles.size());
+                event.commit();
+            }
+
+        } catch (EOFException | FileNotFoundException ex) {
             System.out.println("ImageManager load .ser file failed -- persistence files many not yet exist " +
                     "for ImageManager");
+        } catch (IOException ex) {
+            // for example an InvalidClassException for a catalog saved by an incompatible release
+            loadFailed = true;
+            System.out.println("ImageManager failed to load " + path + " (" + ex + ") -- it will not be saved over");
         }
     }
 
     /**
-     * Sets the View for this ImageManager (controller)
+     * Returns true iff the persistence file of this ImageManager exists but could not be loaded. Saving would replace
+     * the catalog in it with an empty one, so it must not be saved over.
      *
-     * @param imv ImageManagerView for this ImageManager.
+     * @return True iff the persistence file could not be loaded.
      */
-    void setView(ImageManagerView imv) {
-        this.imageManagerView = imv;
+    public boolean failedToLoad() {
+        return loadFailed;
     }
 
     /**
@@ -430,15 +717,21 @@ public class ImageManager {
      * @param newLocation New location of file.
      */
     void moveImageFile(ImageFile imagefile, File newLocation) {
+        long start = System.nanoTime();
+        ImageFile imageFileToMove = null;
         if (taggedImageFiles.contains(imagefile)) {
-            taggedImageFiles.get(taggedImageFiles.indexOf(imagefile)).moveFileToLocation(newLocation);
-            configManager.updatePersistenceFiles();
-
+            imageFileToMove = taggedImageFiles.get(taggedImageFiles.indexOf(imagefile));
         } else if (listOfImageFiles.contains(imagefile)) {
-            listOfImageFiles.get(listOfImageFiles.indexOf(imagefile)).moveFileToLocation(newLocation);
+            imageFileToMove = listOfImageFiles.get(listOfImageFiles.indexOf(imagefile));
+        }
+
+        if (imageFileToMove != null) {
+            ImageFile moved = imageFileToMove;
+            imageFileToMove.moveFileToLocation(newLocation, () -> fileChangeReverted(moved));
             configManager.updatePersistenceFiles();
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.IMAGE_FILE_CHANGED, imageFileToMove);
         }
-        imageManagerView.updateCurrentlySelectedView();
+        MOVE_LATENCY.recordSince(start);
     }
 
 }
@@ -13,6 +13,12 @@ import overlay.OverlayCanvas;
 import tag.HasTagListView;
 import tag.TagListView;
 import tag.TagManagerView;
+import utils.ChangeEvent;
+import utils.ChangeEventBatch;
+import utils.ChangeEventBus;
+import utils.ChangeEventSubscriber;
+import utils.IOTaskListener;
+import utils.IOTaskService;
 import utils.StringListView;
 import utils.View;
 
@@ -32,11 +38,20 @@ import java.util.ArrayList;
 /**
  * ImageManagerView. The View for an ImageManager.
  */
-public class ImageManagerView extends View implements HasTagListView {
+public class ImageManagerView extends View implements HasTagListView, IOTaskListener, ChangeEventSubscriber {
     /**
      * ImageListView of this ImageManagerView. Displays a list of the currently managed ImageFiles from an ImageManager
      */
     private ImageListView directoryThumbnails = new ImageListView(this, 35);
+    /**
+     * ImageGridView of this ImageManagerView. Displays the same ImageFiles as directoryThumbnails, as a grid of larger
+     * thumbnails. Only one of the two is shown at a time.
+     */
+    private ImageGridView directoryGrid = new ImageGridView(this, 96);
+    /**
+     * Button to switch between showing the managed ImageFiles as a list and as a grid.
+     */
+    private Button toggleGridButton = new Button("Show as Grid");
     /**
      * The currently selected ImageFile in the program View.
      */
@@ -45,6 +60,11 @@ public class ImageManagerView extends View implements HasTagListView {
      * The ImageView for the currently selected ImageFile in the program View.
      */
     private ImageView selectedImageView = new ImageView();
+    /**
+     * The zoomable view for the currently selected ImageFile. Decodes only the visible part of the image, so images of
+     * any size can be displayed. Falls back to selectedImageView for images that cannot be read a region at a time.
+     */
+    private TiledImageView selectedTiledImageView = new TiledImageView(this, 400, 300);
     /**
      * Button to open the containing directory of currently selected ImageFile in the program View.
      */
@@ -104,7 +124,7 @@ public class ImageManagerView extends View implements HasTagListView {
     /**
      * Button to add an ImageTagOverlay for a given Tag/Image selection in the program view.
      */
-    private Button addOverlayButton = new Button("Set Overlay for this Tag/Image Combination");
+    private Button addOverlayButton = new Button("Add Overlay for this Tag/Image Combination");
     /**
      * Button to remove an ImageTagOverlay for a given Tag/Image selection in the program view.
      */
@@ -117,11 +137,11 @@ public class ImageManagerView extends View implements HasTagListView {
      */
     public ImageManagerView(ImageManager imageManager) {
         this.imageManager = imageManager;
-        imageManager.setView(this);
         selectedImageView.setFitWidth(400);
         selectedImageView.setFitHeight(300);
         selectedImageView.setPreserveRatio(true);
         overlayCanvas = new OverlayCanvas(this.imageManager);
+        selectedTiledImageView.listenTo(overlayCanvas.getView());
         setupGridPane();
         setupInputs();
         setupView();
@@ -134,6 +154,8 @@ public class ImageManagerView extends View implements HasTagListView {
         imageFilePathLabelContainer.setPrefWidth(300);
 
         imageTags.setParent(this);
+        IOTaskService.getInstance().addListener(this);
+        ChangeEventBus.getInstance().subscribe(this);
     }
 
     /**
@@ -143,7 +165,6 @@ public class ImageManagerView extends View implements HasTagListView {
      */
     public void setSiblingTagManagerView(TagManagerView tmv) {
         tagManagerView = tmv;
-        tmv.setSiblingImageManagerView(this);
     }
 
     /**
@@ -154,8 +175,9 @@ public class ImageManagerView extends View implements HasTagListView {
     void setImageFilesToView(ArrayList<ImageFile> imageFilesToView) {
         selectedImageFile = null;
         selectedImageView.setImage(null);
-        directoryThumbnails.clearList();
+        selectedTiledImageView.clear();
         directoryThumbnails.setItems(imageFilesToView);
+        directoryGrid.setItems(imageFilesToView);
     }
 
     /**
@@ -167,16 +189,22 @@ public class ImageManagerView extends View implements HasTagListView {
         selectedImageFile = imageFile;
 
         if (hasSelectedImageFile()) {
-            // create a new image  to display
-            Image image = new Image(selectedImageFile.getImageFilePath().toURI().toString());
             // 1. update the image view for this manager
-            selectedImageView.setImage(image);
+            if (selectedTiledImageView.setImageFile(selectedImageFile.getImageFilePath())) {
+                selectedImageView.setImage(null);
+                overlayCanvas.setImageToOverlay(selectedTiledImageView.getCanvas().getWidth(),
+                        selectedTiledImageView.getCanvas().getHeight());
+            } else {
+                // create a new image  to display
+                Image image = new Image(selectedImageFile.getImageFilePath().toURI().toString());
+                selectedImageView.setImage(image);
+                overlayCanvas.setImageToOverlay(selectedImageView);
+            }
             // 2. update the tag list view for the selected image file
             imageTags.setItems(selectedImageFile.getTagList());
             // 3. update the name history for the selected image file
             nameHistoryOfSelectedImageView.setItems(selectedImageFile.getNameHistory());
             imageFilePathLabel.setText(selectedImageFile.getImageFilePath().toString());
-            overlayCanvas.setImageToOverlay(selectedImageView);
             overlayCanvas.setOverlaysForImageAndTags(selectedImageFile, imageTags.getCurrentlySelectedTags());
         }
     }
@@ -188,7 +216,7 @@ public class ImageManagerView extends View implements HasTagListView {
      */
     @Override
     @SuppressWarnings("unused")
-    public void handle(ActionEvent e) {
+    protected void handleAction(ActionEvent e) {
         Object eventSource = e.getSource();
         //event from tagButton
         if (eventSource.equals(addTagButton)) {
@@ -218,6 +246,10 @@ public class ImageManagerView extends View implements HasTagListView {
         else if (eventSource.equals(removeOverlayButton)) {
             handleRemoveOverlayButton();
         }
+        // event from toggleGridButton
+        else if (eventSource.equals(toggleGridButton)) {
+            handleToggleGridButton();
+        }
 
     }
 
@@ -227,7 +259,10 @@ public class ImageManagerView extends View implements HasTagListView {
     private void setupGridPane() {
         // setup positioning
         GridPane.setConstraints(selectedImageView, 1, 0);
+        GridPane.setConstraints(selectedTiledImageView.getCanvas(), 1, 0);
         GridPane.setConstraints(directoryThumbnails.getListView(), 0, 0);
+        GridPane.setConstraints(directoryGrid.getView(), 0, 0);
+        GridPane.setConstraints(toggleGridButton, 0, 7);
         GridPane.setConstraints(imageTagLabel, 0, 3);
         GridPane.setConstraints(openFileButton, 0, 1);
         GridPane.setConstraints(moveFileButton, 0, 2);
@@ -238,17 +273,24 @@ public class ImageManagerView extends View implements HasTagListView {
         GridPane.setConstraints(nameHistoryLabel, 1, 3);
         GridPane.setConstraints(revertToOldNameButton, 1, 5);
         GridPane.setConstraints(imageFilePathLabelContainer, 1, 1);
-        GridPane.setConstraints(overlayCanvas.getCanvas(), 1, 0);
+        GridPane.setConstraints(overlayCanvas.getView(), 1, 0);
         GridPane.setConstraints(addOverlayButton, 1, 2);
         GridPane.setConstraints(removeOverlayButton, 2, 2);
 
         gridPane.setHgap(12);
         gridPane.setVgap(12);
 
+        // the list is shown until the user switches to the grid
+        directoryGrid.getView().setVisible(false);
+        directoryGrid.getView().setManaged(false);
+
         // add to gridPane
         gridPane.getChildren().addAll(
                 directoryThumbnails.getListView(),
+                directoryGrid.getView(),
+                toggleGridButton,
                 selectedImageView,
+                selectedTiledImageView.getCanvas(),
                 imageTagLabel,
                 openFileButton,
                 moveFileButton,
@@ -259,7 +301,7 @@ public class ImageManagerView extends View implements HasTagListView {
                 nameHistoryLabel,
                 revertToOldNameButton,
                 imageFilePathLabelContainer,
-                overlayCanvas.getCanvas(),
+                overlayCanvas.getView(),
                 addOverlayButton,
                 removeOverlayButton
         );
@@ -277,6 +319,7 @@ public class ImageManagerView extends View implements HasTagListView {
         revertToOldNameButton.setOnAction(this);
         addOverlayButton.setOnAction(this);
         removeOverlayButton.setOnAction(this);
+        toggleGridButton.setOnAction(this);
     }
 
     /**
@@ -307,6 +350,50 @@ public class ImageManagerView extends View implements HasTagListView {
         updateTagOverlays();
     }
 
+    /**
+     * Refreshes this ImageManagerView once per pulse from the changes published by the managers. A new set of
+     * ImageFiles replaces everything; otherwise only the currently selected ImageFile and its overlays are refreshed,
+     * and only if they changed.
+     *
+     * @param changes The ChangeEvents published since the last pulse.
+     */
+    @Override
+    public void updateFromChanges(ChangeEventBatch changes) {
+        if (changes.contains(ChangeEvent.Type.IMAGE_FILES_SET)) {
+            setImageFilesToView(imageManager.getListOfImageFiles());
+        } else if (changes.contains(ChangeEvent.Type.IMAGE_FILE_CHANGED, selectedImageFile)
+                || changes.contains(ChangeEvent.Type.TAG_REMOVED)) {
+            updateCurrentlySelectedView();
+        } else if (changes.contains(ChangeEvent.Type.OVERLAYS_CHANGED, selectedImageFile)) {
+            updateTagOverlays();
+        }
+    }
+
+    /**
+     * Refreshes the currently selected ImageFile once all background file operations have finished.
+     *
+     * @param pending  Number of file operations that have not yet finished.
+     * @param finished Number of file operations finished since the last time none were pending.
+     */
+    @Override
+    public void ioTasksChanged(int pending, int finished) {
+        if (pending == 0) {
+            updateCurrentlySelectedView();
+        }
+    }
+
+    /**
+     * Refreshes the currently selected ImageFile when a background file operation fails, since the failed rename or
+     * move of an ImageFile is reverted.
+     *
+     * @param description Description of the file operation that failed.
+     * @param e           The cause of the failure.
+     */
+    @Override
+    public void ioTaskFailed(String description, Exception e) {
+        updateCurrentlySelectedView();
+    }
+
     /**
      * Updates the view that displays tag overlays.
      */
@@ -314,6 +401,15 @@ public class ImageManagerView extends View implements HasTagListView {
         overlayCanvas.setOverlaysForImageAndTags(selectedImageFile, imageTags.getCurrentlySelectedTags());
     }
 
+    /**
+     * Method called from the TiledImageView contained in this object when it is zoomed or panned. Keeps the tag
+     * overlays aligned with the visible part of the image.
+     */
+    void updateOverlayViewport() {
+        double[] viewport = selectedTiledImageView.getNormalizedViewport();
+        overlayCanvas.setViewport(viewport[0], viewport[1], viewport[2], viewport[3]);
+    }
+
     /**
      * Private handler for when the add tag button is pressed.
      */
@@ -321,7 +417,6 @@ public class ImageManagerView extends View implements HasTagListView {
         ArrayList<String> tagsToAdd = tagManagerView.getCurrentlySelectedTags();
         if (!tagsToAdd.isEmpty() && hasSelectedImageFile()) {
             imageManager.tagImage(selectedImageFile, tagsToAdd);
-            updateCurrentlySelectedView();
         }
 
     }
@@ -345,8 +440,6 @@ public class ImageManagerView extends View implements HasTagListView {
         ArrayList<String> tagsToRemove = imageTags.getCurrentlySelectedTags();
         if (hasCurrentlySelectedTags() && hasSelectedImageFile()) {
             imageManager.removeTagsFromImage(selectedImageFile, tagsToRemove);
-            updateCurrentlySelectedView();
-
         }
     }
 
@@ -368,7 +461,6 @@ public class ImageManagerView extends View implements HasTagListView {
         String nameToRevertTo = nameHistoryOfSelectedImageView.getSelected();
         if (hasSelectedImageFile()) {
             imageManager.setImageToOldName(selectedImageFile, nameToRevertTo);
-            updateCurrentlySelectedView();
         }
     }
 
@@ -382,14 +474,29 @@ public class ImageManagerView extends View implements HasTagListView {
     }
 
     /**
-     * Private handler for when the remove overlay button is pressed.
+     * Private handler for when the remove overlay button is pressed. Removes the ImageTagOverlay selected on the
+     * overlay canvas, or the ImageTagOverlays of the selected tags if none is selected.
      */
     private void handleRemoveOverlayButton() {
-        if (hasSelectedImageFile() && hasCurrentlySelectedTags()) {
+        if (hasSelectedImageFile() && overlayCanvas.getSelectedOverlay() != null) {
+            imageManager.removeOverlay(selectedImageFile, overlayCanvas.getSelectedOverlay());
+        } else if (hasSelectedImageFile() && hasCurrentlySelectedTags()) {
             imageManager.removeOverlaysForImageTags(selectedImageFile, imageTags.getCurrentlySelectedTags());
         }
     }
 
+    /**
+     * Private handler for when the toggle grid button is pressed. Switches between the list and grid of ImageFiles.
+     */
+    private void handleToggleGridButton() {
+        boolean showGrid = !directoryGrid.getView().isVisible();
+        directoryGrid.getView().setVisible(showGrid);
+        directoryGrid.getView().setManaged(showGrid);
+        directoryThumbnails.getListView().setVisible(!showGrid);
+        directoryThumbnails.getListView().setManaged(!showGrid);
+        toggleGridButton.setText(showGrid ? "Show as List" : "Show as Grid");
+    }
+
     /**
      * Returns true iff there is a currently selected image in the program view.
      *
@@ -0,0 +1,66 @@
+package image;
+
+import javafx.scene.image.Image;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An ImageTileCache. A least-recently-used cache of decoded images, such as the tiles of a TiledImageView (keyed by
+ * image path, pyramid level and tile position) or the thumbnails of an ImageGridView. Only accessed from the JavaFx
+ * Application Thread.
+ */
+public class ImageTileCache {
+    /**
+     * The decoded tiles in this cache, ordered from least to most recently accessed.
+     */
+    private LinkedHashMap<String, Image> tiles;
+
+    /**
+     * Constructs a new ImageTileCache that holds at most a specified number of tiles.
+     *
+     * @param maxTiles The maximum number of tiles this ImageTileCache holds before evicting the least recently used.
+     */
+    public ImageTileCache(int maxTiles) {
+        // an access ordered LinkedHashMap evicts its eldest (least recently used) entry once it is full
+        tiles = new LinkedHashMap<String, Image>(maxTiles + 1, 1.0f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+                return size() > maxTiles;
+            }
+        };
+    }
+
+    /**
+     * Returns the key of a tile for a specified image path, pyramid level and tile position.
+     *
+     * @param imagePath Path of the image the tile belongs to.
+     * @param level     Pyramid level of the tile (0 is full resolution, each level halves the resolution).
+     * @param column    Column of the tile in its pyramid level.
+     * @param row       Row of the tile in its pyramid level.
+     * @return The key of the specified tile.
+     */
+    static String tileKey(String imagePath, int level, int column, int row) {
+        return imagePath + "#" + level + "/" + column + "/" + row;
+    }
+
+    /**
+     * Returns the tile for a specified key, or null if it is not cached.
+     *
+     * @param key Key of the tile to get.
+     * @return The cached tile, or null if it is not cached.
+     */
+    Image get(String key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * Adds a decoded tile to this ImageTileCache.
+     *
+     * @param key  Key of the tile to add.
+     * @param tile The decoded tile.
+     */
+    void put(String key, Image tile) {
+        tiles.put(key, tile);
+    }
+}
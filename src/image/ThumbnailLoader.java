@@ -0,0 +1,60 @@
+package image;
+
+import javafx.application.Platform;
+import thumbnail.ThumbnailCache;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * A ThumbnailLoader. Finds the file the thumbnail of an ImageFile is shown from: its pre-generated thumbnail in the
+ * ThumbnailCache if there is one, or else the image itself. Naming a cached thumbnail hashes the ImageFile's identity
+ * and reads its size and modification time, and checking for it touches the disk, so this is done on a background
+ * thread instead of on the JavaFx thread for every cell that is shown.
+ */
+class ThumbnailLoader {
+    /**
+     * Singleton instance for global access to a ThumbnailLoader.
+     */
+    private static final ThumbnailLoader instance = new ThumbnailLoader();
+    /**
+     * Single thread that finds the thumbnail files, in the order they were requested.
+     */
+    private ExecutorService finder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "thumbnail-finder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Finds the file the thumbnail of an ImageFile is shown from on the background thread, and passes it to a callback
+     * on the JavaFx thread.
+     *
+     * @param imageFile ImageFile to find the thumbnail file of.
+     * @param callback  Is passed the file to show the thumbnail from, on the JavaFx thread.
+     */
+    void findSource(ImageFile imageFile, Consumer<File> callback) {
+        finder.submit(() -> {
+            File source;
+            try {
+                File thumbnailFile = ThumbnailCache.getInstance().getThumbnailFile(imageFile);
+                source = thumbnailFile.exists() ? thumbnailFile : imageFile.getImageFilePath();
+            } catch (RuntimeException e) {
+                source = imageFile.getImageFilePath();
+            }
+            File found = source;
+            Platform.runLater(() -> callback.accept(found));
+        });
+    }
+
+    /**
+     * Returns the singleton instance of the ThumbnailLoader class.
+     *
+     * @return The singleton instance of the ThumbnailLoader class.
+     */
+    static ThumbnailLoader getInstance() {
+        return instance;
+    }
+}
@@ -0,0 +1,478 @@
+package image;
+
+import javafx.application.Platform;
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A TiledImageView. Displays an image of any size by decoding only the tiles of the image that are visible, at the
+ * resolution they are displayed at. The view can be zoomed with the scroll wheel and panned by dragging with the
+ * secondary mouse button.
+ */
+public class TiledImageView implements EventHandler<MouseEvent> {
+    /**
+     * The width and height (in decoded pixels) of a single tile.
+     */
+    private static final int TILE_SIZE = 256;
+    /**
+     * The largest zoom allowed, in screen pixels per image pixel.
+     */
+    private static final double MAX_SCALE = 8.0;
+    /**
+     * The factor by which a single scroll step zooms in or out.
+     */
+    private static final double ZOOM_STEP = 1.25;
+    /**
+     * Cache of decoded tiles shared by every image shown in this TiledImageView.
+     */
+    private ImageTileCache tileCache = new ImageTileCache(128);
+    /**
+     * Single decoder thread. ImageReaders are not thread safe, so the reader is only ever used on this thread.
+     */
+    private ExecutorService decoder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-tile-decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Keys of the tiles that have been requested from the decoder but have not yet been cached.
+     */
+    private HashSet<String> pendingTiles = new HashSet<>();
+    /**
+     * Canvas upon which the visible tiles are drawn.
+     */
+    private Canvas canvas = new Canvas();
+    /**
+     * The ImageManagerView that contains this TiledImageView.
+     */
+    private ImageManagerView parentImageManagerView;
+    /**
+     * The maximum width of this TiledImageView.
+     */
+    private double fitWidth;
+    /**
+     * The maximum height of this TiledImageView.
+     */
+    private double fitHeight;
+    /**
+     * Reader for the image currently displayed. Null if no image is displayed.
+     */
+    private ImageReader reader;
+    /**
+     * Path of the image currently displayed.
+     */
+    private String imagePath;
+    /**
+     * Incremented every time the displayed image changes, so the decoder can skip tiles of images no longer shown.
+     */
+    private volatile int generation = 0;
+    /**
+     * Full resolution width of the image currently displayed.
+     */
+    private int imageWidth;
+    /**
+     * Full resolution height of the image currently displayed.
+     */
+    private int imageHeight;
+    /**
+     * The coarsest pyramid level of the current image; the level at which the whole image fits in one tile.
+     */
+    private int maxLevel;
+    /**
+     * The current zoom, in screen pixels per image pixel.
+     */
+    private double scale;
+    /**
+     * The zoom at which the whole image fits in this TiledImageView.
+     */
+    private double fitScale;
+    /**
+     * X coordinate (in image pixels) of the image point shown at the left edge of the canvas.
+     */
+    private double viewX;
+    /**
+     * Y coordinate (in image pixels) of the image point shown at the top edge of the canvas.
+     */
+    private double viewY;
+    /**
+     * The last mouse position of a pan, in canvas pixels.
+     */
+    private double lastPanX, lastPanY;
+
+    /**
+     * Constructs a new TiledImageView with a specified parent ImageManagerView and maximum size.
+     *
+     * @param parent    ImageManagerView parent of this TiledImageView.
+     * @param fitWidth  The maximum width of this TiledImageView.
+     * @param fitHeight The maximum height of this TiledImageView.
+     */
+    TiledImageView(ImageManagerView parent, double fitWidth, double fitHeight) {
+        this.parentImageManagerView = parent;
+        this.fitWidth = fitWidth;
+        this.fitHeight = fitHeight;
+    }
+
+    /**
+     * Sets the image file to display. Only the image header is read here; pixels are decoded tile by tile as they
+     * become visible.
+     *
+     * @param file The image file to display.
+     * @return True iff the image can be displayed by this TiledImageView.
+     */
+    boolean setImageFile(File file) {
+        clear();
+        ImageReader newReader = openReader(file);
+        if (newReader == null) {
+            return false;
+        }
+        try {
+            imageWidth = newReader.getWidth(0);
+            imageHeight = newReader.getHeight(0);
+        } catch (IOException e) {
+            closeReader(newReader);
+            return false;
+        }
+
+        reader = newReader;
+        imagePath = file.getPath();
+        maxLevel = 0;
+        while ((TILE_SIZE << maxLevel) < Math.max(imageWidth, imageHeight)) {
+            maxLevel++;
+        }
+        fitScale = Math.min(fitWidth / imageWidth, fitHeight / imageHeight);
+        scale = fitScale;
+        viewX = 0;
+        viewY = 0;
+        canvas.setWidth(Math.floor(imageWidth * fitScale));
+        canvas.setHeight(Math.floor(imageHeight * fitScale));
+        // the single tile of the coarsest level is drawn in place of any tile that is still being decoded
+        requestTile(maxLevel, 0, 0);
+        render();
+        return true;
+    }
+
+    /**
+     * Stops displaying the current image.
+     */
+    void clear() {
+        generation++;
+        pendingTiles.clear();
+        if (reader != null) {
+            // the decoder may still be reading, so the reader is closed on the decoder thread
+            ImageReader oldReader = reader;
+            decoder.submit(() -> closeReader(oldReader));
+            reader = null;
+        }
+        imagePath = null;
+        canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    /**
+     * Returns the JavaFx canvas associated with this TiledImageView.
+     *
+     * @return The JavaFx canvas associated with this TiledImageView.
+     */
+    Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Returns the part of the image that is currently visible, in normalized (0-1) image coordinates.
+     *
+     * @return An array containing the x, y, width and height of the visible part of the image.
+     */
+    double[] getNormalizedViewport() {
+        return new double[]{
+                viewX / imageWidth,
+                viewY / imageHeight,
+                canvas.getWidth() / scale / imageWidth,
+                canvas.getHeight() / scale / imageHeight
+        };
+    }
+
+    /**
+     * Makes this TiledImageView zoom and pan in response to scroll and mouse events on a specified node. Used when
+     * another node (such as an OverlayCanvas) is stacked on top of this TiledImageView.
+     *
+     * @param eventSource Node to listen to for zoom and pan events.
+     */
+    void listenTo(Node eventSource) {
+        eventSource.addEventHandler(ScrollEvent.SCROLL, this::handleScroll);
+        eventSource.addEventHandler(MouseEvent.MOUSE_PRESSED, this);
+        eventSource.addEventHandler(MouseEvent.MOUSE_DRAGGED, this);
+    }
+
+    /**
+     * Handles mouse events used to pan this TiledImageView.
+     *
+     * @param e MouseEvent to handle.
+     */
+    @Override
+    public void handle(MouseEvent e) {
+        if (reader == null || e.getButton() != MouseButton.SECONDARY) {
+            return;
+        }
+        if (e.getEventType().equals(MouseEvent.MOUSE_DRAGGED)) {
+            viewX -= (e.getX() - lastPanX) / scale;
+            viewY -= (e.getY() - lastPanY) / scale;
+            clampView();
+            render();
+            parentImageManagerView.updateOverlayViewport();
+        }
+        lastPanX = e.getX();
+        lastPanY = e.getY();
+    }
+
+    /**
+     * Private handler for zooming in and out around the mouse position.
+     *
+     * @param e ScrollEvent to handle.
+     */
+    private void handleScroll(ScrollEvent e) {
+        if (reader == null || e.getDeltaY() == 0) {
+            return;
+        }
+        // keep the image point under the mouse fixed while zooming
+        double imageX = viewX + e.getX() / scale;
+        double imageY = viewY + e.getY() / scale;
+        double newScale = e.getDeltaY() > 0 ? scale * ZOOM_STEP : scale / ZOOM_STEP;
+        scale = Math.max(fitScale, Math.min(MAX_SCALE, newScale));
+        viewX = imageX - e.getX() / scale;
+        viewY = imageY - e.getY() / scale;
+        clampView();
+        render();
+        parentImageManagerView.updateOverlayViewport();
+        e.consume();
+    }
+
+    /**
+     * Keeps the visible region of the image inside the bounds of the image.
+     */
+    private void clampView() {
+        double visibleWidth = canvas.getWidth() / scale;
+        double visibleHeight = canvas.getHeight() / scale;
+        viewX = Math.max(0, Math.min(viewX, imageWidth - visibleWidth));
+        viewY = Math.max(0, Math.min(viewY, imageHeight - visibleHeight));
+    }
+
+    /**
+     * Draws every visible tile to the canvas. Tiles that are not yet decoded are requested from the decoder, and are
+     * drawn from a coarser cached level in the meantime.
+     */
+    private void render() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (reader == null) {
+            return;
+        }
+
+        // the coarsest level whose tiles still have at least one decoded pixel per screen pixel
+        int level = Math.min(maxLevel, levelForSubsampling(1 / scale));
+        double span = TILE_SIZE << level;
+
+        int firstColumn = (int) (viewX / span);
+        int firstRow = (int) (viewY / span);
+        int lastColumn = (int) (Math.min(imageWidth - 1, viewX + canvas.getWidth() / scale) / span);
+        int lastRow = (int) (Math.min(imageHeight - 1, viewY + canvas.getHeight() / scale) / span);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Image tile = tileCache.get(ImageTileCache.tileKey(imagePath, level, column, row));
+                if (tile != null) {
+                    drawTile(gc, tile, column * span, row * span, span);
+                } else {
+                    requestTile(level, column, row);
+                    drawFromCoarserLevel(gc, level, column * span, row * span, span);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws a region of the image from the first cached tile of a coarser level that covers it.
+     *
+     * @param gc     GraphicsContext to draw to.
+     * @param level  Level of the missing tile.
+     * @param x      X coordinate (in image pixels) of the missing tile.
+     * @param y      Y coordinate (in image pixels) of the missing tile.
+     * @param span   Width and height (in image pixels) of the missing tile.
+     */
+    private void drawFromCoarserLevel(GraphicsContext gc, int level, double x, double y, double span) {
+        for (int coarser = level + 1; coarser <= maxLevel; coarser++) {
+            double coarserSpan = TILE_SIZE << coarser;
+            int column = (int) (x / coarserSpan);
+            int row = (int) (y / coarserSpan);
+            Image tile = tileCache.get(ImageTileCache.tileKey(imagePath, coarser, column, row));
+            if (tile != null) {
+                // the part of the coarser tile (in its own decoded pixels) that covers the missing tile
+                double pixelsPerImagePixel = 1.0 / (1 << coarser);
+                double sourceX = (x - column * coarserSpan) * pixelsPerImagePixel;
+                double sourceY = (y - row * coarserSpan) * pixelsPerImagePixel;
+                double sourceWidth = Math.min(span * pixelsPerImagePixel, tile.getWidth() - sourceX);
+                double sourceHeight = Math.min(span * pixelsPerImagePixel, tile.getHeight() - sourceY);
+                gc.drawImage(tile, sourceX, sourceY, sourceWidth, sourceHeight,
+                        (x - viewX) * scale, (y - viewY) * scale,
+                        sourceWidth / pixelsPerImagePixel * scale, sourceHeight / pixelsPerImagePixel * scale);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Draws a decoded tile at its position in the image.
+     *
+     * @param gc   GraphicsContext to draw to.
+     * @param tile The decoded tile.
+     * @param x    X coordinate (in image pixels) of the tile.
+     * @param y    Y coordinate (in image pixels) of the tile.
+     * @param span Width and height (in image pixels) covered by a full tile of this level.
+     */
+    private void drawTile(GraphicsContext gc, Image tile, double x, double y, double span) {
+        double imagePixelsPerTilePixel = span / TILE_SIZE;
+        gc.drawImage(tile, (x - viewX) * scale, (y - viewY) * scale,
+                tile.getWidth() * imagePixelsPerTilePixel * scale, tile.getHeight() * imagePixelsPerTilePixel * scale);
+    }
+
+    /**
+     * Requests a tile from the decoder thread, unless it has already been requested. The view is re-rendered when the
+     * tile has been decoded.
+     *
+     * @param level  Pyramid level of the tile.
+     * @param column Column of the tile.
+     * @param row    Row of the tile.
+     */
+    private void requestTile(int level, int column, int row) {
+        String key = ImageTileCache.tileKey(imagePath, level, column, row);
+        if (!pendingTiles.add(key)) {
+            return;
+        }
+
+        ImageReader tileReader = reader;
+        int requestGeneration = generation;
+        decoder.submit(() -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            try {
+                Image tile = decodeTile(tileReader, level, column, row);
+                Platform.runLater(() -> {
+                    pendingTiles.remove(key);
+                    tileCache.put(key, tile);
+                    if (requestGeneration == generation) {
+                        render();
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Failed to decode image tile " + key);
+                // the tile is requested again the next time it is rendered
+                Platform.runLater(() -> pendingTiles.remove(key));
+            }
+        });
+    }
+
+    /**
+     * Decodes a single tile, reading only its source region of the image and subsampling it to the tile's level.
+     *
+     * @param tileReader Reader to decode the tile with.
+     * @param level      Pyramid level of the tile.
+     * @param column     Column of the tile.
+     * @param row        Row of the tile.
+     * @return The decoded tile.
+     * @throws IOException ..
+     */
+    private Image decodeTile(ImageReader tileReader, int level, int column, int row) throws IOException {
+        int subsampling = 1 << level;
+        int span = TILE_SIZE * subsampling;
+        int x = column * span;
+        int y = row * span;
+
+        ImageReadParam param = tileReader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, Math.min(span, imageWidth - x), Math.min(span, imageHeight - y)));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        BufferedImage decoded = tileReader.read(0, param);
+
+        int width = decoded.getWidth();
+        int height = decoded.getHeight();
+        int[] pixels = decoded.getRGB(0, 0, width, height, null, 0, width);
+        WritableImage tile = new WritableImage(width, height);
+        tile.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return tile;
+    }
+
+    /**
+     * Returns the largest pyramid level whose subsampling does not exceed a specified factor.
+     *
+     * @param subsampling The largest acceptable subsampling factor.
+     * @return The pyramid level for the specified subsampling factor.
+     */
+    private static int levelForSubsampling(double subsampling) {
+        int level = 0;
+        while ((1 << (level + 1)) <= subsampling) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Opens an ImageReader for a specified file.
+     *
+     * @param file File to open a reader for.
+     * @return A reader positioned on the file, or null if no reader supports the file.
+     */
+    private static ImageReader openReader(File file) {
+        try {
+            ImageInputStream input = ImageIO.createImageInputStream(file);
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                input.close();
+                return null;
+            }
+            ImageReader imageReader = readers.next();
+            imageReader.setInput(input, true, true);
+            return imageReader;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Closes an ImageReader and its input stream.
+     *
+     * @param imageReader ImageReader to close.
+     */
+    private static void closeReader(ImageReader imageReader) {
+        try {
+            Object input = imageReader.getInput();
+            if (input instanceof ImageInputStream) {
+                ((ImageInputStream) input).close();
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to close image reader");
+        }
+        imageReader.dispose();
+    }
+}
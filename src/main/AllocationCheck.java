@@ -0,0 +1,247 @@
+package main;
+
+import benchmark.BenchmarkRunner;
+import benchmark.SyntheticCatalog;
+import benchmark.SyntheticLibrary;
+import image.ImageFile;
+import image.ImageManager;
+import image.filenamestrategy.FileExtension;
+import image.filenamestrategy.FileLocation;
+import image.filenamestrategy.FileName;
+import image.filenamestrategy.FileTags;
+import image.filenamestrategy.FileUntaggedName;
+import tag.Tag;
+import tag.TagManager;
+import utils.ChangeEventBus;
+import utils.ConfigurationManager;
+import utils.FileManager;
+import utils.IOTaskService;
+import utils.NameLogger;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line entry point that checks the Java heap allocated per operation by the controller operations on hot paths
+ * against a budget, so an allocation regression fails a build instead of appearing as GC pauses. Measures tagging and
+ * detagging an image, adding images, looking up Tags and the FileNameStrategies, on a synthetic catalog of a fixed
+ * size, since lookups allocate for every ImageFile they compare. Allocation is counted for the calling thread only;
+ * persistence updates are held back by a ConfigurationManager batch and measured by PersistenceBenchmark instead.
+ * <p>
+ * Prints a table of the measured and budgeted bytes per operation, and exits with status 1 if any operation is over
+ * its budget. Budgets are kept in this class; after an intended change, --update prints a new table of them.
+ * <p>
+ * Usage: AllocationCheck [--iterations n] [--update]
+ */
+public class AllocationCheck {
+    /**
+     * Number of ImageFiles in the catalog the operations run on.
+     */
+    private static final int CATALOG_SIZE = 1000;
+    /**
+     * Headroom given to new budgets over the measured allocation, so they tolerate the noise of JIT compilation.
+     */
+    private static final double BUDGET_HEADROOM = 1.25;
+    /**
+     * Bytes each operation may allocate, by name of the operation.
+     */
+    private static final Map<String, Long> BUDGETS = new LinkedHashMap<>();
+    /**
+     * Last result of an operation, kept so the JIT compiler cannot drop the operation.
+     */
+    private static volatile Object sink;
+
+    static {
+        // lookups compare ImageFiles one by one, and every comparison parses both file names
+        BUDGETS.put("ImageManager.addImageFiles (per image)", 5192704L);
+        BUDGETS.put("ImageManager.tagImage", 14690624L);
+        BUDGETS.put("ImageManager.removeTagsFromImage", 10193792L);
+        BUDGETS.put("TagManager.getTags", 192L);
+        BUDGETS.put("TagManager.addTag (existing tag)", 1792L);
+        BUDGETS.put("FileName.getName", 192L);
+        BUDGETS.put("FileTags.getName", 1536L);
+        BUDGETS.put("FileUntaggedName.getName", 1664L);
+        BUDGETS.put("FileExtension.getName", 192L);
+        BUDGETS.put("FileLocation.getName", 192L);
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        int iterations = 1000;
+        boolean update = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--iterations") && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--update")) {
+                update = true;
+            } else {
+                System.out.println("Usage: AllocationCheck [--iterations n] [--update]");
+                System.exit(1);
+            }
+        }
+
+        // there is no JavaFx thread: deliver changes and run callbacks on the calling thread
+        ChangeEventBus.getInstance().setDeliveryExecutor(Runnable::run);
+        IOTaskService.getInstance().setCallbackExecutor(Runnable::run);
+
+        File directory = Files.createTempDirectory("allocation-check").toFile();
+        // the renames of the check are logged with the rest of its files, not in the name log of the program
+        NameLogger.getInstance().setLogDirectory(new File(directory, "nameLog").getPath());
+        File library = new File(directory, "library");
+        new SyntheticLibrary(new SyntheticCatalog(42, 50, 1.1), 0, 1, CATALOG_SIZE, 8).write(library);
+
+        FileManager fileManager = new FileManager();
+        ImageManager imageManager = new ImageManager(new File(directory, "serializedimages.ser").getPath());
+        TagManager tagManager = new TagManager(new File(directory, "serializedtags.ser").getPath());
+        ConfigurationManager configurationManager = new ConfigurationManager(directory);
+        imageManager.setTagManager(tagManager);
+        fileManager.setImageManager(imageManager);
+        configurationManager.setTagManager(tagManager);
+        configurationManager.setImageManager(imageManager);
+        // the batch is never closed: serializing the catalog after every operation would swamp what is measured
+        configurationManager.beginBatch();
+
+        Map<String, Double> measured = new LinkedHashMap<>();
+        ArrayList<File> files = fileManager.listImageFiles(library, false);
+        imageManager.addImageFiles(files);
+        measured.put("ImageManager.addImageFiles (per image)", measure(3, 1,
+                n -> {
+                    imageManager.addImageFiles(files);
+                    return imageManager;
+                }) / files.size());
+
+        ArrayList<ImageFile> imageFiles = imageManager.getListOfImageFiles();
+        tagManager.addTag("allocationcheck");
+        ArrayList<String> tagNames = new ArrayList<>(Arrays.asList("allocationcheck"));
+        double[] tagging = measureTagging(imageManager, imageFiles, tagNames, iterations);
+        measured.put("ImageManager.tagImage", tagging[0]);
+        measured.put("ImageManager.removeTagsFromImage", tagging[1]);
+
+        ArrayList<String> existingNames = new ArrayList<>();
+        for (Tag tag : tagManager.getTagList()) {
+            if (existingNames.size() < 3) {
+                existingNames.add(tag.getTagName());
+            }
+        }
+        measured.put("TagManager.getTags", measure(iterations, iterations, n -> tagManager.getTags(existingNames)));
+        measured.put("TagManager.addTag (existing tag)", measure(iterations, iterations, n -> {
+            tagManager.addTag(existingNames.get(0));
+            return tagManager;
+        }));
+
+        ImageFile[] sample = imageFiles.toArray(new ImageFile[0]);
+        measured.put("FileName.getName", measure(iterations, iterations,
+                n -> new FileName(false).getName(sample[n % sample.length])));
+        measured.put("FileTags.getName", measure(iterations, iterations,
+                n -> new FileTags(false).getName(sample[n % sample.length])));
+        measured.put("FileUntaggedName.getName", measure(iterations, iterations,
+                n -> new FileUntaggedName(true).getName(sample[n % sample.length])));
+        measured.put("FileExtension.getName", measure(iterations, iterations,
+                n -> new FileExtension().getName(sample[n % sample.length])));
+        measured.put("FileLocation.getName", measure(iterations, iterations,
+                n -> new FileLocation().getName(sample[n % sample.length])));
+
+        // let the renames finish, and their log be written, before the library is deleted
+        IOTaskService.getInstance().awaitIdle(600);
+        NameLogger.getInstance().close();
+        deleteRecursively(directory);
+
+        boolean overBudget = false;
+        System.out.println(String.format("%-42s %14s %14s  %s", "Operation", "B/op", "budget B/op", "status"));
+        for (Map.Entry<String, Double> entry : measured.entrySet()) {
+            long budget = BUDGETS.get(entry.getKey());
+            boolean over = entry.getValue() > budget;
+            overBudget |= over;
+            System.out.println(String.format("%-42s %14.0f %14d  %s", entry.getKey(), entry.getValue(), budget,
+                    over ? "OVER BUDGET" : "ok"));
+        }
+        if (update) {
+            System.out.println("New budgets:");
+            for (Map.Entry<String, Double> entry : measured.entrySet()) {
+                System.out.println(String.format("        BUDGETS.put(\"%s\", %dL);", entry.getKey(),
+                        (long) Math.ceil(Math.max(64, entry.getValue() * BUDGET_HEADROOM) / 64) * 64));
+            }
+        }
+        System.exit(overBudget && !update ? 1 : 0);
+    }
+
+    /**
+     * Runs an operation a number of times to warm it up, and returns the mean bytes it allocates over a number of
+     * further runs.
+     *
+     * @param warmup     Number of runs to warm up.
+     * @param iterations Number of measured runs.
+     * @param operation  The operation.
+     * @return The mean number of bytes allocated per run.
+     * @throws Exception If the operation fails.
+     */
+    private static double measure(int warmup, int iterations, BenchmarkRunner.Operation operation) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            sink = operation.run(i);
+        }
+        long before = BenchmarkRunner.allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            sink = operation.run(warmup + i);
+        }
+        return (double) (BenchmarkRunner.allocatedBytes() - before) / iterations;
+    }
+
+    /**
+     * Tags and detags ImageFiles in turn, warming up first, and returns the mean bytes allocated by tagging and by
+     * detagging.
+     *
+     * @param imageManager ImageManager that manages the ImageFiles.
+     * @param imageFiles   ImageFiles to tag and detag.
+     * @param tagNames     Names of the Tags to add and remove.
+     * @param iterations   Number of measured taggings and detaggings.
+     * @return The mean bytes allocated by tagImage and by removeTagsFromImage.
+     */
+    private static double[] measureTagging(ImageManager imageManager, ArrayList<ImageFile> imageFiles,
+                                           ArrayList<String> tagNames, int iterations) {
+        long tagBytes = 0;
+        long detagBytes = 0;
+        for (int i = 0; i < 2 * iterations; i++) {
+            ImageFile imageFile = imageFiles.get(i % imageFiles.size());
+            long before = BenchmarkRunner.allocatedBytes();
+            imageManager.tagImage(imageFile, tagNames);
+            long tagged = BenchmarkRunner.allocatedBytes();
+            imageManager.removeTagsFromImage(imageFile, tagNames);
+            long detagged = BenchmarkRunner.allocatedBytes();
+            // the first half warms up
+            if (i >= iterations) {
+                tagBytes += tagged - before;
+                detagBytes += detagged - tagged;
+            }
+            if (i % 100 == 99) {
+                // keep the queue of background renames short
+                IOTaskService.getInstance().awaitIdle(600);
+            }
+        }
+        return new double[]{(double) tagBytes / iterations, (double) detagBytes / iterations};
+    }
+
+    /**
+     * Deletes a file, or a directory and everything under it.
+     *
+     * @param file File or directory to delete.
+     * @throws IOException ..
+     */
+    private static void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.delete(file.toPath());
+    }
+
+}
@@ -0,0 +1,60 @@
+package main;
+
+import dataset.AnnotationExporter;
+import image.ImageManager;
+import tag.Tag;
+import tag.TagManager;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Command line entry point that exports the ImageTagOverlays of every tagged ImageFile in the persistence files as a
+ * COCO JSON file or YOLO label files, without starting the JavaFx program. Every tag is a category, in name order.
+ * <p>
+ * Usage: AnnotationExport (--coco file.json | --yolo directory) [--threads n]
+ */
+public class AnnotationExport {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        File cocoFile = null;
+        File yoloDirectory = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--coco")) {
+                cocoFile = new File(args[++i]);
+            } else if (args[i].equals("--yolo")) {
+                yoloDirectory = new File(args[++i]);
+            } else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            }
+        }
+        if ((cocoFile == null) == (yoloDirectory == null)) {
+            System.out.println("Usage: AnnotationExport (--coco file.json | --yolo directory) [--threads n]");
+            System.exit(1);
+        }
+
+        ImageManager imageManager = new ImageManager("serializedimages.ser");
+        TagManager tagManager = new TagManager("serializedtags.ser");
+        ArrayList<String> categories = new ArrayList<>();
+        for (Tag tag : tagManager.getTagList()) {
+            categories.add(tag.getTagName());
+        }
+        Collections.sort(categories);
+
+        AnnotationExporter exporter = new AnnotationExporter(imageManager.getListOfTaggedImages(), categories,
+                threads);
+        long start = System.nanoTime();
+        long annotations = cocoFile != null ? exporter.exportCoco(cocoFile) : exporter.exportYolo(yoloDirectory);
+        System.out.printf("Exported %d annotations of %d images in %.1f s (%d images skipped)%n", annotations,
+                imageManager.getListOfTaggedImages().size() - exporter.getSkippedImages(),
+                (System.nanoTime() - start) / 1e9, exporter.getSkippedImages());
+    }
+
+}
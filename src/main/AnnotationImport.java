@@ -0,0 +1,92 @@
+package main;
+
+import dataset.AnnotationImporter;
+import image.ImageManager;
+import tag.TagManager;
+import utils.ChangeEventBus;
+import utils.ConfigurationManager;
+import utils.FileManager;
+import utils.IOTaskService;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command line entry point that imports bounding box annotations made by other tools as tags and ImageTagOverlays of
+ * the images in a directory, without starting the JavaFx program. Missing tags are created, each image is renamed at
+ * most once, and the persistence files are written once.
+ * <p>
+ * Usage: AnnotationImport imageDirectory (--coco file.json | --yolo directory | --csv file.csv) [--under]
+ */
+public class AnnotationImport {
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        File cocoFile = null;
+        File yoloDirectory = null;
+        File csvFile = null;
+        boolean listAllUnderDirectory = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--coco") && i + 1 < args.length) {
+                cocoFile = new File(args[++i]);
+            } else if (args[i].equals("--yolo") && i + 1 < args.length) {
+                yoloDirectory = new File(args[++i]);
+            } else if (args[i].equals("--csv") && i + 1 < args.length) {
+                csvFile = new File(args[++i]);
+            } else if (args[i].equals("--under")) {
+                listAllUnderDirectory = true;
+            }
+        }
+        int sources = (cocoFile != null ? 1 : 0) + (yoloDirectory != null ? 1 : 0) + (csvFile != null ? 1 : 0);
+        if (args.length == 0 || sources != 1) {
+            System.out.println("Usage: AnnotationImport imageDirectory (--coco file.json | --yolo directory"
+                    + " | --csv file.csv) [--under]");
+            System.exit(1);
+        }
+
+        // there is no JavaFx thread: deliver changes and run callbacks on the calling thread
+        ChangeEventBus.getInstance().setDeliveryExecutor(Runnable::run);
+        IOTaskService.getInstance().setCallbackExecutor(Runnable::run);
+
+        ConfigurationManager configurationManager = new ConfigurationManager();
+        FileManager fileManager = new FileManager();
+        ImageManager imageManager = new ImageManager("serializedimages.ser");
+        TagManager tagManager = new TagManager("serializedtags.ser");
+        imageManager.setTagManager(tagManager);
+        fileManager.setImageManager(imageManager);
+        configurationManager.setTagManager(tagManager);
+        configurationManager.setImageManager(imageManager);
+
+        long start = System.nanoTime();
+        configurationManager.beginBatch();
+        try {
+            imageManager.addImageFiles(fileManager.listImageFiles(new File(args[0]), listAllUnderDirectory));
+
+            AnnotationImporter importer = new AnnotationImporter(imageManager.getListOfImageFiles());
+            if (cocoFile != null) {
+                importer.readCoco(cocoFile);
+            } else if (yoloDirectory != null) {
+                importer.readYolo(yoloDirectory);
+            } else {
+                importer.readCsv(csvFile);
+            }
+            int imported = imageManager.importOverlays(importer.getOverlays());
+
+            System.out.printf("Imported %d annotations of %d images in %.1f s (%d rejected, %d unresolved images)%n",
+                    imported, importer.getOverlays().size(), (System.nanoTime() - start) / 1e9,
+                    importer.getRejectedAnnotations(), importer.getUnresolvedImages().size());
+            for (String unresolved : importer.getUnresolvedImages()) {
+                System.out.println("Unresolved image: " + unresolved);
+            }
+        } finally {
+            configurationManager.endBatch();
+        }
+
+        // let the renames and the save finish before exiting
+        IOTaskService.getInstance().awaitIdle(3600);
+    }
+
+}
@@ -0,0 +1,46 @@
+package main;
+
+import dataset.CropExtractor;
+import image.ImageManager;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+
+/**
+ * Command line entry point that writes the region under every ImageTagOverlay of every tagged ImageFile in the
+ * persistence files to its own image file, without starting the JavaFx program. Crops are written to one directory per
+ * tag.
+ * <p>
+ * Usage: CropExtract outputDirectory [--threads n] [--format png|jpg]
+ */
+public class CropExtract {
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        if (args.length == 0) {
+            System.out.println("Usage: CropExtract outputDirectory [--threads n] [--format png|jpg]");
+            System.exit(1);
+        }
+
+        File outputDirectory = new File(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        String format = "png";
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--format") && i + 1 < args.length) {
+                format = args[++i];
+            }
+        }
+
+        ImageManager imageManager = new ImageManager("serializedimages.ser");
+        System.out.println("Extracting crops of " + imageManager.getListOfTaggedImages().size() + " tagged images to "
+                + outputDirectory);
+        // decoding is bound by the CPU, writing mostly by the disk
+        new CropExtractor(outputDirectory, format, threads, Math.max(2, threads / 2))
+                .run(imageManager.getListOfTaggedImages());
+    }
+
+}
@@ -0,0 +1,75 @@
+package main;
+
+import benchmark.SyntheticCatalog;
+import benchmark.SyntheticLibrary;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command line entry point that writes a synthetic image library for load and scale testing: a directory tree of tiny
+ * but valid PNG, JPEG and GIF files, named with "@tag" tokens whose popularity follows a Zipf distribution. The same
+ * seed and options always write the same library, so scans, ingests and thumbnailing can be measured on the same files
+ * again. Refuses to write into a directory that is not empty.
+ * <p>
+ * Usage: LibraryGenerator root [--depth n] [--fan-out n] [--files n] [--seed n] [--tags n] [--zipf exponent]
+ * [--image-size pixels]
+ */
+public class LibraryGenerator {
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        String usage = "Usage: LibraryGenerator root [--depth n] [--fan-out n] [--files n] [--seed n] [--tags n]"
+                + " [--zipf exponent] [--image-size pixels]";
+        if (args.length == 0) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        File root = new File(args[0]);
+        int depth = 3;
+        int fanOut = 4;
+        int filesPerDirectory = 100;
+        long seed = 42;
+        int tagCount = 200;
+        double zipfExponent = 1.1;
+        int imageSize = 16;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--depth") && i + 1 < args.length) {
+                depth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--fan-out") && i + 1 < args.length) {
+                fanOut = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--files") && i + 1 < args.length) {
+                filesPerDirectory = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--tags") && i + 1 < args.length) {
+                tagCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--zipf") && i + 1 < args.length) {
+                zipfExponent = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--image-size") && i + 1 < args.length) {
+                imageSize = Integer.parseInt(args[++i]);
+            } else {
+                System.out.println(usage);
+                System.exit(1);
+            }
+        }
+
+        String[] existing = root.list();
+        if (existing != null && existing.length > 0) {
+            System.out.println(root + " is not empty; choose a new directory so the library stays reproducible");
+            System.exit(1);
+        }
+
+        SyntheticLibrary library = new SyntheticLibrary(new SyntheticCatalog(seed, tagCount, zipfExponent), depth,
+                fanOut, filesPerDirectory, imageSize);
+        System.out.println("Writing " + library.getImageCount() + " images to " + root);
+        long start = System.nanoTime();
+        int written = library.write(root);
+        System.out.println(String.format("Wrote %d images in %.1f s", written, (System.nanoTime() - start) / 1e9));
+    }
+
+}
@@ -3,12 +3,18 @@ package main;
 
 import image.ImageManager;
 import image.ImageManagerView;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
+import metrics.StartupTimer;
 import tag.TagManager;
 import tag.TagManagerView;
 import utils.*;
 
+import java.io.File;
+import java.io.IOException;
+
 //**************************************************************************************
 // *    Title: (adatped from) <JavaFx Documentation - Hello World, JavaFx Style>
 // *    Author: Gail Chappell
@@ -18,28 +24,54 @@ import utils.*;
 // *
 // ***************************************************************************************/
 
+/**
+ * Entry point of the JavaFx program. Every startup is timed phase by phase, from the start of the JVM until the first
+ * frame is shown, and written to startupReport.txt.
+ * <p>
+ * Usage: Main [--startup-check=maxMillis]
+ * <p>
+ * With --startup-check, the program exits once the first frame is shown, with status 1 if that took longer than
+ * maxMillis since the start of the JVM.
+ */
 public class Main extends Application {
-
+    /**
+     * File the startup report is written to.
+     */
+    private static final String STARTUP_REPORT = "startupReport.txt";
+    /**
+     * Times the startup, from the call of main.
+     */
+    private static StartupTimer startupTimer;
 
     public static void main(String[] args) {
+        startupTimer = new StartupTimer();
         Application.launch(args);
     }
 
     @Override
     @SuppressWarnings("unused")
     public void start(final Stage stage) {
+        if (startupTimer == null) {
+            startupTimer = new StartupTimer();
+        }
+        startupTimer.endPhase("JavaFx launch");
 
         stage.setTitle("ImageTagger Phase2 --- Group 0577");
 
         MainView.createInstance(stage);
         MainView programView = MainView.getInstance();
+        startupTimer.endPhase("MainView");
 
         NameLogger nameLogger = NameLogger.getInstance();
+        startupTimer.endPhase("NameLogger");
 
         ConfigurationManager configurationManager = new ConfigurationManager();
         FileManager fileManager = new FileManager();
+        startupTimer.endPhase("ConfigurationManager");
         ImageManager imageManager = new ImageManager("serializedimages.ser");
+        startupTimer.endPhase("ImageManager (catalog load)");
         TagManager tagManager = new TagManager("serializedtags.ser");
+        startupTimer.endPhase("TagManager (catalog load)");
 
         imageManager.setTagManager(tagManager);
         fileManager.setImageManager(imageManager);
@@ -49,13 +81,74 @@ public class Main extends Application {
 
 
         FileManagerView fileManagerView = new FileManagerView(fileManager);
+        startupTimer.endPhase("FileManagerView");
         ImageManagerView imageManagerView = new ImageManagerView(imageManager);
+        startupTimer.endPhase("ImageManagerView");
         TagManagerView tagManagerView = new TagManagerView(tagManager);
+        startupTimer.endPhase("TagManagerView");
         NameLoggerView nameLoggerView = new NameLoggerView();
+        IOTaskView ioTaskView = new IOTaskView(IOTaskService.getInstance());
+        startupTimer.endPhase("NameLoggerView, IOTaskView");
 
         imageManagerView.setSiblingTagManagerView(tagManagerView);
 
         programView.show();
+        startupTimer.endPhase("show");
+
+        String summary = "Catalog: " + imageManager.getListOfTaggedImages().size() + " tagged images, "
+                + tagManager.getTagList().size() + " tags";
+        String startupCheck = getParameters().getNamed().get("startup-check");
+        // the first pulse after showing the stage renders its first frame
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                startupTimer.endPhase("first frame");
+                reportStartup(summary, startupCheck);
+            }
+        }.start();
+    }
+
+    @Override
+    public void stop() {
+        // let renames, moves and saves still running in the background finish before exiting
+        IOTaskService.getInstance().awaitIdle(30);
+        // then write the name changes they logged
+        NameLogger.getInstance().close();
+    }
+
+    /**
+     * Writes the startup report, and exits if the startup is being checked.
+     *
+     * @param summary      Line describing the loaded catalog.
+     * @param startupCheck Longest allowed time to first frame in milliseconds, or null if the startup is not being
+     *                     checked.
+     */
+    private void reportStartup(String summary, String startupCheck) {
+        double timeToFirstFrame = startupTimer.getTotalMillis();
+        try {
+            startupTimer.writeReport(new File(STARTUP_REPORT), summary);
+        } catch (IOException e) {
+            System.out.println("Failed to write startup report");
+        }
+        System.out.println(String.format("Time to first frame: %.1f ms", timeToFirstFrame));
+
+        if (startupCheck != null) {
+            double limit;
+            try {
+                limit = Double.parseDouble(startupCheck);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid startup check limit: " + startupCheck);
+                System.exit(1);
+                return;
+            }
+            if (timeToFirstFrame > limit) {
+                System.out.println(String.format("Startup check failed: time to first frame %.1f ms exceeds %.1f ms",
+                        timeToFirstFrame, limit));
+                System.exit(1);
+            }
+            Platform.exit();
+        }
     }
 
 
@@ -0,0 +1,183 @@
+package main;
+
+import benchmark.BenchmarkResult;
+import benchmark.BenchmarkRunner;
+import benchmark.SyntheticCatalog;
+import image.ImageFile;
+import image.ImageManager;
+import image.filenamestrategy.FileTags;
+import image.filenamestrategy.FileUntaggedName;
+import tag.Tag;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Command line entry point that benchmarks the model operations every user action goes through: ImageFile equality,
+ * the lookups of ImageManager and Tag, which compare ImageFiles one by one, and the file name strategies that parse
+ * tags out of file names. Lookups are measured on synthetic catalogs of each given size, loaded into an ImageManager
+ * from a persistence file as the program would load them. Prints the throughput and the allocation of every benchmark,
+ * like JMH with "-prof gc".
+ * <p>
+ * Usage: ModelBenchmark [--sizes 1000,10000,100000,1000000] [--warmup n] [--iterations n] [--time ms] [--seed n]
+ * [--csv file]
+ */
+public class ModelBenchmark {
+    /**
+     * Number of distinct ImageFiles looked up, in turn, by the lookup benchmarks.
+     */
+    private static final int QUERY_COUNT = 1024;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        int[] sizes = {1000, 10000, 100000, 1000000};
+        int warmupIterations = 3;
+        int measuredIterations = 5;
+        long iterationMillis = 1000;
+        long seed = 42;
+        File csvFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--sizes") && i + 1 < args.length) {
+                sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (args[i].equals("--warmup") && i + 1 < args.length) {
+                warmupIterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--iterations") && i + 1 < args.length) {
+                measuredIterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--time") && i + 1 < args.length) {
+                iterationMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--csv") && i + 1 < args.length) {
+                csvFile = new File(args[++i]);
+            } else {
+                System.out.println("Usage: ModelBenchmark [--sizes 1000,10000,100000,1000000] [--warmup n]"
+                        + " [--iterations n] [--time ms] [--seed n] [--csv file]");
+                System.exit(1);
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(warmupIterations, measuredIterations, iterationMillis);
+        ArrayList<BenchmarkResult> results = new ArrayList<>();
+        System.out.println(BenchmarkResult.header());
+
+        // equality and parsing do not depend on the size of the catalog
+        File root = new File("catalog").getAbsoluteFile();
+        ArrayList<File> sample = new SyntheticCatalog(seed, 200, 1.1).generatePaths(root, QUERY_COUNT);
+        ImageFile[] first = new ImageFile[QUERY_COUNT];
+        ImageFile[] sameImage = new ImageFile[QUERY_COUNT];
+        ImageFile[] otherImage = new ImageFile[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            first[i] = new ImageFile(sample.get(i));
+            // the same image after it was tagged, as a view may still hold it
+            sameImage[i] = new ImageFile(new File(sample.get(i).getParentFile(),
+                    new FileUntaggedName(false).getName(first[i]) + " @renamed.jpg"));
+            // a neighbour in the same directory, which is what most comparisons in a lookup see
+            otherImage[i] = new ImageFile(sample.get((i + 1) % QUERY_COUNT));
+        }
+        FileTags fileTags = new FileTags(false);
+        FileUntaggedName fileUntaggedName = new FileUntaggedName(true);
+        results.add(print(runner.run("ImageFile.equals (same image)", 1,
+                n -> first[n % QUERY_COUNT].equals(sameImage[n % QUERY_COUNT]))));
+        results.add(print(runner.run("ImageFile.equals (other image)", 1,
+                n -> first[n % QUERY_COUNT].equals(otherImage[n % QUERY_COUNT]))));
+        results.add(print(runner.run("FileTags.getName", 1, n -> fileTags.getName(first[n % QUERY_COUNT]))));
+        results.add(print(runner.run("FileUntaggedName.getName", 1,
+                n -> fileUntaggedName.getName(first[n % QUERY_COUNT]))));
+
+        for (int size : sizes) {
+            SyntheticCatalog catalog = new SyntheticCatalog(seed, 200, 1.1);
+            ArrayList<File> paths = catalog.generatePaths(root, size);
+            ImageManager imageManager = loadImageManager(paths);
+            ArrayList<ImageFile> managed = imageManager.getListOfTaggedImages();
+
+            ImageFile[] hits = new ImageFile[QUERY_COUNT];
+            ImageFile[] misses = new ImageFile[QUERY_COUNT];
+            for (int i = 0; i < QUERY_COUNT; i++) {
+                hits[i] = new ImageFile(paths.get(catalog.nextInt(size)));
+                misses[i] = new ImageFile(new File(paths.get(catalog.nextInt(size)).getParentFile(),
+                        "missing-" + i + ".jpg"));
+            }
+            paths = null;
+
+            results.add(print(runner.run("ImageManager lookup (hit)", size,
+                    n -> imageManager.getImageTagHistory(hits[n % QUERY_COUNT]))));
+            results.add(print(runner.run("ImageManager lookup (miss)", size,
+                    n -> imageManager.getImageTagHistory(misses[n % QUERY_COUNT]))));
+
+            // the most popular tag, holding the ImageFiles whose names carry it
+            String tagName = catalog.getTagNames().get(0);
+            Tag tag = new Tag(tagName);
+            ArrayList<ImageFile> tagged = new ArrayList<>();
+            for (ImageFile imageFile : managed) {
+                if (Arrays.asList(fileTags.getName(imageFile).split("\\s+")).contains(tagName)) {
+                    tagged.add(imageFile);
+                }
+            }
+            tag.addImagesToTag(tagged);
+            if (!tagged.isEmpty()) {
+                ImageFile[] present = new ImageFile[QUERY_COUNT];
+                for (int i = 0; i < QUERY_COUNT; i++) {
+                    present[i] = tagged.get(catalog.nextInt(tagged.size()));
+                }
+                results.add(print(runner.run("Tag.addImageToTag (already tagged)", tagged.size(), n -> {
+                    tag.addImageToTag(present[n % QUERY_COUNT]);
+                    return tag;
+                })));
+            }
+        }
+
+        if (csvFile != null) {
+            try (PrintWriter writer = new PrintWriter(csvFile, "UTF-8")) {
+                writer.println("benchmark,size,opsPerSecond,opsPerSecondDeviation,nanosPerOperation,"
+                        + "bytesPerOperation,allocationRate");
+                for (BenchmarkResult result : results) {
+                    writer.println(result.toCsv());
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints a BenchmarkResult as a row of the results table.
+     *
+     * @param result BenchmarkResult to print.
+     * @return The BenchmarkResult.
+     */
+    private static BenchmarkResult print(BenchmarkResult result) {
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Returns an ImageManager that manages a catalog of tagged ImageFiles, loaded from a persistence file written like
+     * ImageManager.saveToFile writes it. Building the catalog through the ImageManager itself would take time
+     * quadratic in its size.
+     *
+     * @param paths Paths of the ImageFiles in the catalog.
+     * @return The ImageManager.
+     * @throws IOException ..
+     */
+    private static ImageManager loadImageManager(ArrayList<File> paths) throws IOException {
+        File persistenceFile = File.createTempFile("benchmark", ".ser");
+        persistenceFile.deleteOnExit();
+        ArrayList<ImageFile> imageFiles = new ArrayList<>(paths.size());
+        for (File path : paths) {
+            imageFiles.add(new ImageFile(path));
+        }
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(
+                new FileOutputStream(persistenceFile)))) {
+            output.writeObject(imageFiles);
+        }
+        ImageManager imageManager = new ImageManager(persistenceFile.getPath());
+        persistenceFile.delete();
+        return imageManager;
+    }
+
+}
@@ -0,0 +1,217 @@
+package main;
+
+import benchmark.Catalog;
+import benchmark.CatalogStorage;
+import benchmark.HeapPeak;
+import benchmark.SerializationStorage;
+import benchmark.SyntheticCatalog;
+import benchmark.TimingSamples;
+import image.ImageFile;
+import tag.Tag;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Command line entry point that benchmarks saving and loading the catalog as it grows. Catalogs of tagged images, with
+ * name histories and ImageTagOverlays, are generated for each given size and saved and loaded repeatedly through every
+ * CatalogStorage backend. Prints the save and load times, the size of the saved files, the peak heap while saving or
+ * loading, and the heap a loaded catalog retains. The directory should be on a tmpfs, so the disk does not dominate.
+ * <p>
+ * Usage: PersistenceBenchmark [--sizes 10000,100000,1000000] [--directory dir] [--repeats n] [--seed n]
+ * [--backend name]
+ */
+public class PersistenceBenchmark {
+    /**
+     * Every storage backend that can be benchmarked.
+     */
+    private static final CatalogStorage[] BACKENDS = {new SerializationStorage()};
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        run(args);
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command line arguments.
+     * @throws IOException ..
+     */
+    private static void run(String[] args) throws IOException {
+
+        int[] sizes = {10000, 100000, 1000000};
+        File directory = new File(new File("/dev/shm").isDirectory() ? "/dev/shm" : System.getProperty(
+                "java.io.tmpdir"), "imagetagger-benchmark");
+        int repeats = 5;
+        long seed = 42;
+        String backendName = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--sizes") && i + 1 < args.length) {
+                sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (args[i].equals("--directory") && i + 1 < args.length) {
+                directory = new File(args[++i]);
+            } else if (args[i].equals("--repeats") && i + 1 < args.length) {
+                repeats = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--backend") && i + 1 < args.length) {
+                backendName = args[++i];
+            } else {
+                System.out.println("Usage: PersistenceBenchmark [--sizes 10000,100000,1000000] [--directory dir]"
+                        + " [--repeats n] [--seed n] [--backend name]");
+                System.exit(1);
+            }
+        }
+
+        Files.createDirectories(directory.toPath());
+        String fileSystem = Files.getFileStore(directory.toPath()).type();
+        System.out.println("Saving to " + directory + " (" + fileSystem + ")");
+        if (!fileSystem.equals("tmpfs")) {
+            System.out.println("Warning: not a tmpfs, times include the disk");
+        }
+        System.out.println(String.format("%-14s %9s %-5s %10s %10s %10s %10s %11s %13s", "Backend", "Size", "Op",
+                "min ms", "median ms", "max ms", "file MB", "peak heap MB", "retained MB"));
+
+        for (int size : sizes) {
+            // runs on the default stack, as the program does, so a catalog it could not save or load fails here too
+            Catalog catalog;
+            try {
+                catalog = generateCatalog(size, seed, directory);
+            } catch (StackOverflowError e) {
+                System.out.println(String.format("%-14s %9d failed: stack overflow", "generate", size));
+                continue;
+            }
+            for (CatalogStorage backend : BACKENDS) {
+                if (backendName == null || backend.getName().equals(backendName)) {
+                    try {
+                        benchmark(backend, catalog, size, directory, repeats);
+                    } catch (StackOverflowError e) {
+                        System.out.println(String.format("%-14s %9d failed: stack overflow", backend.getName(), size));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Benchmarks saving and loading a Catalog with a CatalogStorage. Each is run once to warm up, and then timed a
+     * number of times.
+     *
+     * @param backend   CatalogStorage to benchmark.
+     * @param catalog   Catalog to save.
+     * @param size      Number of ImageFiles in the Catalog.
+     * @param directory Directory to save to.
+     * @param repeats   Number of timed saves and loads.
+     * @throws IOException ..
+     */
+    private static void benchmark(CatalogStorage backend, Catalog catalog, int size, File directory, int repeats)
+            throws IOException {
+        File backendDirectory = new File(directory, backend.getName());
+        Files.createDirectories(backendDirectory.toPath());
+
+        TimingSamples saves = new TimingSamples();
+        long savePeak = 0;
+        for (int i = 0; i <= repeats; i++) {
+            long before = HeapPeak.getRetainedBytes();
+            HeapPeak.reset();
+            long start = System.nanoTime();
+            backend.save(catalog, backendDirectory);
+            if (i > 0) {
+                saves.addSince(start);
+                savePeak = Math.max(savePeak, HeapPeak.getPeakBytes() - before);
+            }
+        }
+        long fileBytes = 0;
+        for (File file : backendDirectory.listFiles()) {
+            fileBytes += file.length();
+        }
+
+        TimingSamples loads = new TimingSamples();
+        long loadPeak = 0;
+        long retained = 0;
+        Catalog loaded = null;
+        for (int i = 0; i <= repeats; i++) {
+            // let the previously loaded Catalog be collected before measuring
+            loaded = null;
+            long before = HeapPeak.getRetainedBytes();
+            HeapPeak.reset();
+            long start = System.nanoTime();
+            loaded = backend.load(backendDirectory);
+            if (i > 0) {
+                loads.addSince(start);
+                loadPeak = Math.max(loadPeak, HeapPeak.getPeakBytes() - before);
+                retained = HeapPeak.getRetainedBytes() - before;
+            }
+            if (loaded.getImageManager().getListOfTaggedImages().size() != size) {
+                System.out.println("Loaded " + loaded.getImageManager().getListOfTaggedImages().size() + " of "
+                        + size + " images");
+            }
+        }
+
+        System.out.println(String.format("%-14s %9d %-5s %10.1f %10.1f %10.1f %10.1f %11.1f %13s", backend.getName(),
+                size, "save", saves.getMin(), saves.getMedian(), saves.getMax(), fileBytes / 1e6, savePeak / 1e6,
+                ""));
+        System.out.println(String.format("%-14s %9d %-5s %10.1f %10.1f %10.1f %10s %11.1f %13.1f", backend.getName(),
+                size, "load", loads.getMin(), loads.getMedian(), loads.getMax(), "", loadPeak / 1e6,
+                retained / 1e6));
+
+        for (File file : backendDirectory.listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(backendDirectory.toPath());
+    }
+
+    /**
+     * Generates a Catalog of tagged images, with name histories and ImageTagOverlays. The generated contents are
+     * written as persistence files and loaded into the managers, as the program would load them.
+     *
+     * @param size      Number of ImageFiles.
+     * @param seed      Seed of the generated catalog.
+     * @param directory Directory to write the persistence files to while loading them.
+     * @return The generated Catalog.
+     * @throws IOException ..
+     */
+    private static Catalog generateCatalog(int size, long seed, File directory) throws IOException {
+        HashMap<String, Tag> tags = new HashMap<>();
+        ArrayList<ImageFile> imageFiles = new SyntheticCatalog(seed, 200, 1.1).generateImageFiles(
+                new File("catalog").getAbsoluteFile(), size, tags);
+
+        File generatedDirectory = new File(directory, "generated");
+        Files.createDirectories(generatedDirectory.toPath());
+        File imagesFile = new File(generatedDirectory, "serializedimages.ser");
+        File tagsFile = new File(generatedDirectory, "serializedtags.ser");
+        writeObject(imageFiles, imagesFile);
+        writeObject(tags, tagsFile);
+        imageFiles = null;
+        tags = null;
+
+        Catalog catalog = new SerializationStorage().load(generatedDirectory);
+        Files.delete(imagesFile.toPath());
+        Files.delete(tagsFile.toPath());
+        Files.delete(generatedDirectory.toPath());
+        return catalog;
+    }
+
+    /**
+     * Writes an object to a file with Java serialization.
+     *
+     * @param object Object to write.
+     * @param file   File to write to.
+     * @throws IOException ..
+     */
+    private static void writeObject(Object object, File file) throws IOException {
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)))) {
+            output.writeObject(object);
+        }
+    }
+
+}
@@ -0,0 +1,262 @@
+package main;
+
+import benchmark.HeapPeak;
+import benchmark.SyntheticCatalog;
+import benchmark.SyntheticLibrary;
+import benchmark.TimingSamples;
+import image.ImageManager;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import tag.TagManager;
+import utils.ChangeEvent;
+import utils.ChangeEventBus;
+import utils.ConfigurationManager;
+import utils.FileManager;
+import utils.IOTaskService;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Command line entry point that benchmarks opening a directory: FileManager.loadImagesToImageManager, which scans the
+ * directory, adds the image files to an ImageManager and registers the tags in their names, in both the "in" and the
+ * "under" mode. Runs against synthetic libraries of each given size, written once by a SyntheticLibrary and reused
+ * afterwards, with a warm page cache and, when it can be dropped, with a cold one. Prints files per second, the time
+ * of the scan alone, the time until the image list would first be shown, and the peak heap. Loads take the same path
+ * as opening a directory in the FileManagerView, including the save of the persistence files.
+ * <p>
+ * Usage: ScanBenchmark [--sizes 10000,100000,1000000,2000000] [--directory dir] [--repeats n] [--seed n]
+ * [--modes in,under] [--budget seconds]
+ */
+public class ScanBenchmark {
+    /**
+     * Levels of subdirectories of the libraries scanned in the "under" mode.
+     */
+    private static final int DEPTH = 3;
+    /**
+     * Subdirectories of each directory of the libraries scanned in the "under" mode.
+     */
+    private static final int FAN_OUT = 8;
+    /**
+     * Name of the file that marks a library as completely written.
+     */
+    private static final String COMPLETE_MARKER = "library.complete";
+
+    /**
+     * Time at which the image list was first published during the current run, or 0 if it was not yet.
+     */
+    private static volatile long firstResultNanos;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        int[] sizes = {10000, 100000, 1000000, 2000000};
+        File directory = new File(System.getProperty("java.io.tmpdir"), "imagetagger-libraries");
+        int repeats = 3;
+        long seed = 42;
+        String[] modes = {"in", "under"};
+        long budgetSeconds = 600;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--sizes") && i + 1 < args.length) {
+                sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (args[i].equals("--directory") && i + 1 < args.length) {
+                directory = new File(args[++i]);
+            } else if (args[i].equals("--repeats") && i + 1 < args.length) {
+                repeats = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--modes") && i + 1 < args.length) {
+                modes = args[++i].split(",");
+            } else if (args[i].equals("--budget") && i + 1 < args.length) {
+                budgetSeconds = Long.parseLong(args[++i]);
+            } else {
+                System.out.println("Usage: ScanBenchmark [--sizes 10000,100000,1000000,2000000] [--directory dir]"
+                        + " [--repeats n] [--seed n] [--modes in,under] [--budget seconds]");
+                System.exit(1);
+            }
+        }
+
+        // there is no JavaFx thread: deliver changes and run callbacks on the calling thread
+        ChangeEventBus.getInstance().setDeliveryExecutor(Runnable::run);
+        IOTaskService.getInstance().setCallbackExecutor(Runnable::run);
+        ChangeEventBus.getInstance().subscribe(changes -> {
+            if (firstResultNanos == 0 && changes.contains(ChangeEvent.Type.IMAGE_FILES_SET)) {
+                firstResultNanos = System.nanoTime();
+            }
+        });
+
+        boolean coldCache = dropPageCache();
+        if (!coldCache) {
+            System.out.println("Cannot drop the page cache (needs root on Linux): only warm runs are measured");
+        }
+        System.out.println(String.format("%-6s %9s %-5s %12s %10s %10s %10s %12s", "Mode", "Files", "Cache",
+                "files/s", "scan ms", "first ms", "total ms", "peak heap MB"));
+
+        for (String mode : modes) {
+            boolean listAllUnderDirectory = mode.equals("under");
+            for (int size : sizes) {
+                File library = getLibrary(directory, listAllUnderDirectory, size, seed);
+                double slowest = benchmark(mode, library, listAllUnderDirectory, directory, repeats, false);
+                if (coldCache) {
+                    slowest = Math.max(slowest, benchmark(mode, library, listAllUnderDirectory, directory, repeats,
+                            true));
+                }
+                if (slowest > budgetSeconds * 1000.0) {
+                    System.out.println("Skipping larger " + mode + " libraries: a run took over " + budgetSeconds
+                            + " s");
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a library into new managers a number of times, and prints the results as a row of the results table. With
+     * a warm page cache, an untimed load runs first.
+     *
+     * @param mode                  Name of the mode.
+     * @param library               Root directory of the library.
+     * @param listAllUnderDirectory Whether or not to load all image files under the root directory.
+     * @param directory             Directory to keep the persistence files of the managers in.
+     * @param repeats               Number of timed loads.
+     * @param coldCache             Whether or not to drop the page cache before each load.
+     * @return The longest time a load took, in milliseconds.
+     * @throws IOException          ..
+     * @throws InterruptedException ..
+     */
+    private static double benchmark(String mode, File library, boolean listAllUnderDirectory, File directory,
+                                    int repeats, boolean coldCache)
+            throws IOException, InterruptedException {
+        LatencyHistogram scanLatency = MetricsRegistry.getInstance().histogram("files.scan");
+        TimingSamples totals = new TimingSamples();
+        TimingSamples scans = new TimingSamples();
+        TimingSamples firstResults = new TimingSamples();
+        long peak = 0;
+        int files = 0;
+        for (int i = coldCache ? 1 : 0; i <= repeats; i++) {
+            File persistence = new File(directory, "persistence");
+            Files.createDirectories(persistence.toPath());
+            FileManager fileManager = new FileManager();
+            ImageManager imageManager = new ImageManager(new File(persistence, "serializedimages.ser").getPath());
+            TagManager tagManager = new TagManager(new File(persistence, "serializedtags.ser").getPath());
+            ConfigurationManager configurationManager = new ConfigurationManager(persistence);
+            imageManager.setTagManager(tagManager);
+            fileManager.setImageManager(imageManager);
+            configurationManager.setTagManager(tagManager);
+            configurationManager.setImageManager(imageManager);
+
+            if (coldCache) {
+                dropPageCache();
+            }
+            long before = HeapPeak.getRetainedBytes();
+            HeapPeak.reset();
+            scanLatency.reset();
+            firstResultNanos = 0;
+            long start = System.nanoTime();
+            fileManager.loadImagesToImageManager(library, listAllUnderDirectory);
+            if (i > 0) {
+                totals.addSince(start);
+                scans.add(scanLatency.getMaxMicros() / 1000);
+                firstResults.add(firstResultNanos == 0 ? totals.getMax() : (firstResultNanos - start) / 1e6);
+                peak = Math.max(peak, HeapPeak.getPeakBytes() - before);
+            }
+            files = imageManager.getListOfImageFiles().size();
+
+            // let the writes of the persistence files finish before the next load starts from empty ones
+            IOTaskService.getInstance().awaitIdle(3600);
+            for (File file : persistence.listFiles()) {
+                Files.delete(file.toPath());
+            }
+        }
+
+        System.out.println(String.format("%-6s %9d %-5s %12.0f %10.1f %10.1f %10.1f %12.1f", mode, files,
+                coldCache ? "cold" : "warm", files / (totals.getMedian() / 1000), scans.getMedian(),
+                firstResults.getMedian(), totals.getMedian(), peak / 1e6));
+        return totals.getMax();
+    }
+
+    /**
+     * Returns the root directory of a synthetic library of about a specified size, writing it first if it was not
+     * completely written before. Libraries for the "in" mode are a single directory; libraries for the "under" mode
+     * are a tree of directories.
+     *
+     * @param directory             Directory that holds the libraries.
+     * @param listAllUnderDirectory Whether or not the library is a tree of directories.
+     * @param size                  Number of images in the library, rounded up to fill every directory evenly.
+     * @param seed                  Seed of the library.
+     * @return The root directory of the library.
+     * @throws IOException ..
+     */
+    private static File getLibrary(File directory, boolean listAllUnderDirectory, int size, long seed)
+            throws IOException {
+        int depth = listAllUnderDirectory ? DEPTH : 0;
+        int directories = 0;
+        for (int level = 0, count = 1; level <= depth; level++, count *= FAN_OUT) {
+            directories += count;
+        }
+        int filesPerDirectory = (size + directories - 1) / directories;
+        File library = new File(directory, String.format("%s-%d-seed%d", listAllUnderDirectory ? "under" : "in",
+                size, seed));
+        File marker = new File(library, COMPLETE_MARKER);
+        if (!marker.exists()) {
+            if (library.exists()) {
+                System.out.println("Removing incomplete library " + library);
+                deleteRecursively(library);
+            }
+            SyntheticLibrary generator = new SyntheticLibrary(new SyntheticCatalog(seed, 200, 1.1), depth, FAN_OUT,
+                    filesPerDirectory, 16);
+            System.out.println("Writing " + generator.getImageCount() + " images to " + library);
+            generator.write(library);
+            try (Writer writer = new FileWriter(marker)) {
+                writer.write(generator.getImageCount() + "\n");
+            }
+        }
+        return library;
+    }
+
+    /**
+     * Deletes a file, or a directory and everything under it.
+     *
+     * @param file File or directory to delete.
+     * @throws IOException ..
+     */
+    private static void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.delete(file.toPath());
+    }
+
+    /**
+     * Writes all dirty pages to disk and drops the page cache, dentries and inodes of the operating system, so the next
+     * scan reads from the disk. Only possible for root on Linux.
+     *
+     * @return True iff the caches were dropped.
+     * @throws InterruptedException ..
+     */
+    private static boolean dropPageCache() throws InterruptedException {
+        File dropCaches = new File("/proc/sys/vm/drop_caches");
+        if (!dropCaches.canWrite()) {
+            return false;
+        }
+        try {
+            new ProcessBuilder("sync").inheritIO().start().waitFor();
+            try (Writer writer = new FileWriter(dropCaches)) {
+                writer.write("3\n");
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+}
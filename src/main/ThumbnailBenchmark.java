@@ -0,0 +1,290 @@
+package main;
+
+import benchmark.BenchmarkRunner;
+import benchmark.ExifThumbnailDecoder;
+import benchmark.FxImageDecoder;
+import benchmark.ImageIODecoder;
+import benchmark.ThumbnailDecoder;
+import javafx.application.Platform;
+import metrics.LatencyHistogram;
+import thumbnail.ThumbnailCache;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Command line entry point that benchmarks decoding thumbnails, per image format and source resolution, with every
+ * ThumbnailDecoder: JavaFx Image scaled while loading, as an ImageListCell does, ImageIO with and without the
+ * subsampling of the ThumbnailPipeline, and the thumbnail cameras embed in the EXIF header of JPEG files ("jpg-exif").
+ * Each decoder runs on each given number of threads, all decoding the same encoded image from memory, so the disk is
+ * not measured. Prints the throughput, the latency percentiles and the Java heap allocated per decode.
+ * <p>
+ * JavaFx needs a toolkit; without a display, run with -Dglass.platform=Monocle -Dmonocle.platform=Headless
+ * -Dprism.order=sw. When the toolkit cannot be started, the JavaFx decoder is skipped.
+ * <p>
+ * Usage: ThumbnailBenchmark [--formats gif,png,bmp,jpg,jpg-exif] [--resolutions 640x480,1920x1080,4000x3000]
+ * [--threads 1,2,4] [--decoders names] [--warmup ms] [--time ms] [--seed n] [--csv file]
+ */
+public class ThumbnailBenchmark {
+    /**
+     * Width and height of the thumbnails cameras embed in EXIF headers.
+     */
+    private static final int EXIF_THUMBNAIL_WIDTH = 160, EXIF_THUMBNAIL_HEIGHT = 120;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        String[] formats = {"gif", "png", "bmp", "jpg", "jpg-exif"};
+        String[] resolutions = {"640x480", "1920x1080", "4000x3000"};
+        ArrayList<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(Runtime.getRuntime().availableProcessors());
+        ArrayList<String> decoderNames = null;
+        long warmupMillis = 1000;
+        long measuredMillis = 3000;
+        long seed = 42;
+        File csvFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--formats") && i + 1 < args.length) {
+                formats = args[++i].split(",");
+            } else if (args[i].equals("--resolutions") && i + 1 < args.length) {
+                resolutions = args[++i].split(",");
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threadCounts.clear();
+                for (String threads : args[++i].split(",")) {
+                    threadCounts.add(Integer.parseInt(threads));
+                }
+            } else if (args[i].equals("--decoders") && i + 1 < args.length) {
+                decoderNames = new ArrayList<>(Arrays.asList(args[++i].split(",")));
+            } else if (args[i].equals("--warmup") && i + 1 < args.length) {
+                warmupMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--time") && i + 1 < args.length) {
+                measuredMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--csv") && i + 1 < args.length) {
+                csvFile = new File(args[++i]);
+            } else {
+                System.out.println("Usage: ThumbnailBenchmark [--formats gif,png,bmp,jpg,jpg-exif]"
+                        + " [--resolutions 640x480,1920x1080,4000x3000] [--threads 1,2,4] [--decoders names]"
+                        + " [--warmup ms] [--time ms] [--seed n] [--csv file]");
+                System.exit(1);
+            }
+        }
+
+        ArrayList<ThumbnailDecoder> decoders = new ArrayList<>();
+        decoders.add(new ImageIODecoder(false));
+        decoders.add(new ImageIODecoder(true));
+        decoders.add(new ExifThumbnailDecoder());
+        boolean javaFx = (decoderNames == null || decoderNames.contains("javafx")) && startJavaFx();
+        if (javaFx) {
+            decoders.add(new FxImageDecoder());
+        }
+        if (decoderNames != null) {
+            ArrayList<String> selected = decoderNames;
+            decoders.removeIf(decoder -> !selected.contains(decoder.getName()));
+        }
+
+        ArrayList<String> csvLines = new ArrayList<>();
+        System.out.println(String.format("%-18s %-9s %-10s %9s %7s %11s %9s %9s %11s", "Decoder", "Format",
+                "Resolution", "Source KB", "Threads", "decodes/s", "p50 ms", "p99 ms", "KB/decode"));
+        Random random = new Random(seed);
+        for (String resolution : resolutions) {
+            String[] dimensions = resolution.split("x");
+            BufferedImage image = generateImage(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]),
+                    random);
+            for (String format : formats) {
+                byte[] source = encode(image, format);
+                for (ThumbnailDecoder decoder : decoders) {
+                    if (!decoder.canDecode(source)) {
+                        continue;
+                    }
+                    for (int threads : threadCounts) {
+                        String cell = String.format("%-18s %-9s %-10s %9d %7d", decoder.getName(), format,
+                                resolution, source.length / 1024, threads);
+                        double[] result;
+                        try {
+                            result = measure(decoder, source, threads, warmupMillis, measuredMillis);
+                        } catch (Exception e) {
+                            System.out.println(cell + " failed: " + e);
+                            continue;
+                        }
+                        System.out.println(cell + String.format(" %11.1f %9.2f %9.2f %11.1f", result[0], result[1],
+                                result[2], result[3]));
+                        csvLines.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.3f,%.3f,%.3f,%.3f",
+                                decoder.getName(), format, resolution, source.length, threads, result[0], result[1],
+                                result[2], result[3]));
+                    }
+                }
+            }
+        }
+
+        if (csvFile != null) {
+            try (PrintWriter writer = new PrintWriter(csvFile, "UTF-8")) {
+                writer.println("decoder,format,resolution,sourceBytes,threads,decodesPerSecond,p50Millis,p99Millis,"
+                        + "kilobytesPerDecode");
+                for (String line : csvLines) {
+                    writer.println(line);
+                }
+            }
+        }
+        if (javaFx) {
+            Platform.exit();
+        }
+    }
+
+    /**
+     * Decodes an encoded image over and over on a number of threads, first to warm up and then measured. Each thread
+     * decodes at least once in each phase, however slow the decoder.
+     *
+     * @param decoder        ThumbnailDecoder to measure.
+     * @param source         The encoded image.
+     * @param threadCount    Number of threads decoding at once.
+     * @param warmupMillis   Time to decode before measuring, in milliseconds.
+     * @param measuredMillis Time to measure, in milliseconds.
+     * @return The decodes per second, the median and 99th percentile latency in milliseconds, and the kilobytes of Java
+     * heap allocated per decode.
+     * @throws Exception If a decode failed.
+     */
+    private static double[] measure(ThumbnailDecoder decoder, byte[] source, int threadCount, long warmupMillis,
+                                    long measuredMillis) throws Exception {
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong allocatedBytes = new AtomicLong();
+        AtomicLong lastEnd = new AtomicLong();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        long measuredStart = System.nanoTime() + warmupMillis * 1000000;
+        long measuredEnd = measuredStart + measuredMillis * 1000000;
+
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    do {
+                        decoder.decode(source, ThumbnailCache.THUMBNAIL_SIZE);
+                    } while (System.nanoTime() < measuredStart);
+                    long bytesBefore = BenchmarkRunner.allocatedBytes();
+                    long start = System.nanoTime();
+                    do {
+                        decoder.decode(source, ThumbnailCache.THUMBNAIL_SIZE);
+                        long end = System.nanoTime();
+                        latency.record(end - start);
+                        start = end;
+                    } while (start < measuredEnd);
+                    allocatedBytes.addAndGet(BenchmarkRunner.allocatedBytes() - bytesBefore);
+                    lastEnd.accumulateAndGet(start, Math::max);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "decoder-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        long decodes = latency.getCount();
+        return new double[]{decodes / ((lastEnd.get() - measuredStart) / 1e9), latency.getP50Micros() / 1000,
+                latency.getP99Micros() / 1000, allocatedBytes.get() / 1024.0 / decodes};
+    }
+
+    /**
+     * Starts the JavaFx toolkit, so JavaFx Images can be decoded.
+     *
+     * @return True iff the toolkit is running.
+     */
+    private static boolean startJavaFx() {
+        try {
+            Platform.startup(() -> {
+            });
+            return true;
+        } catch (IllegalStateException e) {
+            // already started
+            return true;
+        } catch (RuntimeException | LinkageError e) {
+            System.out.println("Skipping the JavaFx decoder: the toolkit cannot be started (" + e + ")");
+            return false;
+        }
+    }
+
+    /**
+     * Returns an image with roughly the detail of a photo: a gradient, overlapping shapes and some noise.
+     *
+     * @param width  Width of the image.
+     * @param height Height of the image.
+     * @param random Generator of the shapes and the noise.
+     * @return The image.
+     */
+    private static BufferedImage generateImage(int width, int height, Random random) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0x1000000)), width, height,
+                new Color(random.nextInt(0x1000000))));
+        graphics.fillRect(0, 0, width, height);
+        for (int i = 0; i < 300; i++) {
+            graphics.setColor(new Color(random.nextInt(0x1000000) | 0x80000000, true));
+            int size = 1 + random.nextInt(Math.max(1, Math.min(width, height) / 4));
+            graphics.fillOval(random.nextInt(width), random.nextInt(height), size, size);
+        }
+        graphics.dispose();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(9) - 4;
+                int rgb = image.getRGB(x, y);
+                int r = Math.max(0, Math.min(255, (rgb >> 16 & 0xFF) + noise));
+                int g = Math.max(0, Math.min(255, (rgb >> 8 & 0xFF) + noise));
+                int b = Math.max(0, Math.min(255, (rgb & 0xFF) + noise));
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Encodes an image in a format. The "jpg-exif" format is a JPEG file with a thumbnail embedded in its EXIF header,
+     * like the files of a camera.
+     *
+     * @param image  The image.
+     * @param format ImageIO format name, or "jpg-exif".
+     * @return The encoded image.
+     * @throws IOException ..
+     */
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        if (format.equals("jpg-exif")) {
+            BufferedImage thumbnail = new BufferedImage(EXIF_THUMBNAIL_WIDTH, EXIF_THUMBNAIL_HEIGHT,
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = thumbnail.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, EXIF_THUMBNAIL_WIDTH, EXIF_THUMBNAIL_HEIGHT, null);
+            graphics.dispose();
+            return ExifThumbnailDecoder.embedThumbnail(encode(image, "jpg"), encode(thumbnail, "jpg"));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, output)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return output.toByteArray();
+    }
+
+}
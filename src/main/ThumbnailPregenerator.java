@@ -0,0 +1,53 @@
+package main;
+
+import thumbnail.ThumbnailCache;
+import thumbnail.ThumbnailPipeline;
+import utils.FileManager;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Command line entry point that fills the thumbnail cache for a directory of images, without starting the JavaFx
+ * program. Can be stopped at any time; running it again resumes with the images that do not yet have a thumbnail.
+ * <p>
+ * Usage: ThumbnailPregenerator directory [--in] [--threads n] [--cache dir]
+ * <p>
+ * By default all images under the directory are processed; --in processes only the images immediately in it. The
+ * thumbnails are written to the "thumbnails" directory of the working directory, or to the directory given by --cache.
+ */
+public class ThumbnailPregenerator {
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+
+        if (args.length == 0) {
+            System.out.println("Usage: ThumbnailPregenerator directory [--in] [--threads n] [--cache dir]");
+            System.exit(1);
+        }
+
+        File directory = new File(args[0]);
+        boolean listAllUnderDirectory = true;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--in")) {
+                listAllUnderDirectory = false;
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                ThumbnailCache.setDirectory(args[++i]);
+            }
+        }
+
+        if (!directory.isDirectory()) {
+            System.out.println("Not a directory: " + directory);
+            System.exit(1);
+        }
+
+        ArrayList<File> imageFiles = new FileManager().listImageFiles(directory, listAllUnderDirectory);
+        System.out.println("Found " + imageFiles.size() + " images under " + directory);
+
+        new ThumbnailPipeline(ThumbnailCache.getInstance(), threads).run(imageFiles);
+    }
+
+}
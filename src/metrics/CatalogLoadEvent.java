@@ -0,0 +1,60 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A CatalogLoadEvent. Recorded by JDK Flight Recorder when the persistence file of the ImageManager or TagManager is
+ * read.
+ */
+@Name("imagetagger.CatalogLoad")
+@Label("Catalog Load")
+@Category({"ImageTagger", "Catalog"})
+@Description("Read of a persistence file")
+public class CatalogLoadEvent extends Event {
+    /**
+     * Path of the persistence file.
+     */
+    @Label("Path")
+    private String path;
+    /**
+     * Size of the persistence file.
+     */
+    @Label("Bytes Read")
+    private long bytesRead;
+    /**
+     * Number of ImageFiles or Tags loaded.
+     */
+    @Label("Item Count")
+    private int itemCount;
+
+    /**
+     * Sets the path of the persistence file.
+     *
+     * @param path Path of the persistence file.
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Sets the size of the persistence file.
+     *
+     * @param bytesRead Size of the persistence file.
+     */
+    public void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Sets the number of ImageFiles or Tags loaded.
+     *
+     * @param itemCount Number of ImageFiles or Tags loaded.
+     */
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+}
@@ -0,0 +1,48 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A CatalogSaveEvent. Recorded by JDK Flight Recorder when the persistence files of the ImageManager and TagManager are
+ * saved. The event covers both the serialization of the copied contents and the write of the files.
+ */
+@Name("imagetagger.CatalogSave")
+@Label("Catalog Save")
+@Category({"ImageTagger", "Catalog"})
+@Description("Serialization and write of the persistence files")
+public class CatalogSaveEvent extends Event {
+    /**
+     * Number of bytes written to the persistence files.
+     */
+    @Label("Bytes Written")
+    private long bytesWritten;
+    /**
+     * Time taken to serialize the contents before they were written.
+     */
+    @Label("Serialize Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    private long serializeDuration;
+
+    /**
+     * Sets the number of bytes written to the persistence files.
+     *
+     * @param bytesWritten Number of bytes written to the persistence files.
+     */
+    public void setBytesWritten(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+
+    /**
+     * Sets the time taken to serialize the contents before they were written.
+     *
+     * @param serializeDuration Time taken to serialize the contents, in nanoseconds.
+     */
+    public void setSerializeDuration(long serializeDuration) {
+        this.serializeDuration = serializeDuration;
+    }
+}
@@ -0,0 +1,40 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Counter. Counts events, such as files scanned or name changes logged. Counting does not allocate, and threads
+ * counting at once do not contend on a single value.
+ */
+public class Counter implements CounterMBean {
+    /**
+     * The count.
+     */
+    private LongAdder count = new LongAdder();
+
+    /**
+     * Adds one to the count.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds a specified amount to the count.
+     *
+     * @param amount Amount to add.
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     *
+     * @return The current count.
+     */
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,14 @@
+package metrics;
+
+/**
+ * The management interface of a Counter, as published over JMX.
+ */
+public interface CounterMBean {
+
+    /**
+     * Returns the current count.
+     *
+     * @return The current count.
+     */
+    long getCount();
+}
@@ -0,0 +1,75 @@
+package metrics;
+
+import java.lang.ref.WeakReference;
+import java.util.function.ToLongFunction;
+
+/**
+ * A Gauge. Reports a value that is read when it is asked for, such as the number of ImageFiles managed or the number
+ * of entries waiting to be logged. Nothing is recorded while the program runs. The object the value is read from is
+ * only referenced weakly, so a gauge never keeps it alive; once it has been collected the gauge reports 0.
+ */
+public class Gauge implements GaugeMBean {
+    /**
+     * Reads the value, or null if no value has been set up yet.
+     */
+    private volatile Reader<?> reader;
+
+    /**
+     * Sets how the value is read. Replaces any earlier way, so the newest object being measured wins.
+     *
+     * @param owner Object the value is read from. Only referenced weakly.
+     * @param value Reads the value from the object.
+     * @param <T>   Class of the object.
+     */
+    <T> void setSupplier(T owner, ToLongFunction<? super T> value) {
+        reader = new Reader<>(owner, value);
+    }
+
+    /**
+     * Returns the current value.
+     *
+     * @return The current value, or 0 if no value has been set up or the object it is read from has been collected.
+     */
+    @Override
+    public long getValue() {
+        Reader<?> current = reader;
+        return current == null ? 0 : current.read();
+    }
+
+    /**
+     * Reads the value of a Gauge from a weakly referenced object.
+     *
+     * @param <T> Class of the object.
+     */
+    private static class Reader<T> {
+        /**
+         * Object the value is read from.
+         */
+        private WeakReference<T> owner;
+        /**
+         * Reads the value from the object.
+         */
+        private ToLongFunction<? super T> value;
+
+        /**
+         * Constructs a new Reader.
+         *
+         * @param owner Object the value is read from.
+         * @param value Reads the value from the object.
+         */
+        private Reader(T owner, ToLongFunction<? super T> value) {
+            this.owner = new WeakReference<>(owner);
+            this.value = value;
+        }
+
+        /**
+         * Reads the value.
+         *
+         * @return The value, or 0 if the object has been collected.
+         */
+        private long read() {
+            T current = owner.get();
+            return current == null ? 0 : value.applyAsLong(current);
+        }
+    }
+}
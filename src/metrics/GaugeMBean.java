@@ -0,0 +1,14 @@
+package metrics;
+
+/**
+ * The management interface of a Gauge, as published over JMX.
+ */
+public interface GaugeMBean {
+
+    /**
+     * Returns the current value.
+     *
+     * @return The current value.
+     */
+    long getValue();
+}
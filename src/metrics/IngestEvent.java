@@ -0,0 +1,32 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An IngestEvent. Recorded by JDK Flight Recorder when the ImageFiles of a scanned directory are added to the
+ * ImageManager.
+ */
+@Name("imagetagger.Ingest")
+@Label("Image Ingest")
+@Category({"ImageTagger", "Catalog"})
+@Description("Creation of the ImageFiles for a scanned directory")
+public class IngestEvent extends Event {
+    /**
+     * Number of image files added.
+     */
+    @Label("File Count")
+    private int fileCount;
+
+    /**
+     * Sets the number of image files added.
+     *
+     * @param fileCount Number of image files added.
+     */
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+}
@@ -0,0 +1,191 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A LatencyHistogram. Records how long an operation took, such as tagging an image or writing the persistence files.
+ * Times are counted in buckets that double in width, each split in four, so a percentile is known to within a quarter
+ * of its value. Recording a time does not allocate and does not lock.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+    /**
+     * Number of buckets: one per time below 4 nanoseconds, then four per power of two up to Long.MAX_VALUE.
+     */
+    private static final int BUCKET_COUNT = 4 + 62 * 4;
+
+    /**
+     * Number of recorded times per bucket.
+     */
+    private AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    /**
+     * Number of recorded times.
+     */
+    private LongAdder count = new LongAdder();
+    /**
+     * Sum of the recorded times, in nanoseconds.
+     */
+    private LongAdder total = new LongAdder();
+    /**
+     * Longest recorded time, in nanoseconds.
+     */
+    private LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records the time an operation took.
+     *
+     * @param nanos Time the operation took, in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Records the time from a start time until now.
+     *
+     * @param startNanos Start time, as returned by System.nanoTime().
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of recorded times.
+     *
+     * @return The number of recorded times.
+     */
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the mean of the recorded times.
+     *
+     * @return The mean time, in microseconds.
+     */
+    @Override
+    public double getMeanMicros() {
+        long recorded = count.sum();
+        return recorded == 0 ? 0 : total.sum() / 1000.0 / recorded;
+    }
+
+    /**
+     * Returns the longest recorded time.
+     *
+     * @return The longest time, in microseconds.
+     */
+    @Override
+    public double getMaxMicros() {
+        return max.get() / 1000.0;
+    }
+
+    /**
+     * Returns the median of the recorded times.
+     *
+     * @return The median time, in microseconds.
+     */
+    @Override
+    public double getP50Micros() {
+        return getPercentileNanos(50) / 1000.0;
+    }
+
+    /**
+     * Returns the 90th percentile of the recorded times.
+     *
+     * @return The 90th percentile time, in microseconds.
+     */
+    @Override
+    public double getP90Micros() {
+        return getPercentileNanos(90) / 1000.0;
+    }
+
+    /**
+     * Returns the 99th percentile of the recorded times.
+     *
+     * @return The 99th percentile time, in microseconds.
+     */
+    @Override
+    public double getP99Micros() {
+        return getPercentileNanos(99) / 1000.0;
+    }
+
+    /**
+     * Forgets every recorded time. Times recorded while resetting may be partly kept.
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Returns a percentile of the recorded times, as the upper bound of the bucket it falls in, but no more than the
+     * longest recorded time.
+     *
+     * @param percentile Percentile to return, from 0 to 100.
+     * @return The percentile, in nanoseconds, or 0 if no time was recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long recorded = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            recorded += counts[i];
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns the bucket a time is counted in.
+     *
+     * @param nanos Time, in nanoseconds, not negative.
+     * @return Index of the bucket.
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < 4) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int quarter = (int) (nanos >>> (exponent - 2)) & 3;
+        return (exponent - 1) * 4 + quarter;
+    }
+
+    /**
+     * Returns the largest time counted in a bucket.
+     *
+     * @param bucket Index of the bucket.
+     * @return The largest time, in nanoseconds.
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int exponent = bucket / 4 + 1;
+        int quarter = bucket % 4;
+        long lowerBound = (long) (4 + quarter) << (exponent - 2);
+        return lowerBound + (1L << (exponent - 2)) - 1;
+    }
+}
@@ -0,0 +1,54 @@
+package metrics;
+
+/**
+ * The management interface of a LatencyHistogram, as published over JMX. Times are in microseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    /**
+     * Returns the number of recorded times.
+     *
+     * @return The number of recorded times.
+     */
+    long getCount();
+
+    /**
+     * Returns the mean of the recorded times.
+     *
+     * @return The mean time, in microseconds.
+     */
+    double getMeanMicros();
+
+    /**
+     * Returns the longest recorded time.
+     *
+     * @return The longest time, in microseconds.
+     */
+    double getMaxMicros();
+
+    /**
+     * Returns the median of the recorded times.
+     *
+     * @return The median time, in microseconds.
+     */
+    double getP50Micros();
+
+    /**
+     * Returns the 90th percentile of the recorded times.
+     *
+     * @return The 90th percentile time, in microseconds.
+     */
+    double getP90Micros();
+
+    /**
+     * Returns the 99th percentile of the recorded times.
+     *
+     * @return The 99th percentile time, in microseconds.
+     */
+    double getP99Micros();
+
+    /**
+     * Forgets every recorded time.
+     */
+    void reset();
+}
@@ -0,0 +1,164 @@
+package metrics;
+
+/**
+ * A LongTaskDetector. Watches the tasks run on the JavaFx thread, such as event handlers, and when one holds the thread
+ * longer than a threshold, logs a sample of the thread's stack taken while the task is still running, so a stall comes
+ * with its cause. Tasks are watched on one thread at a time, the JavaFx thread. The threshold (in milliseconds) is
+ * read from the system property imagetagger.longTaskMillis.
+ */
+public class LongTaskDetector {
+    /**
+     * Longest time (in milliseconds) a task may run before it is logged, unless set by the system property.
+     */
+    private static final long DEFAULT_THRESHOLD = 200;
+    /**
+     * Number of stack frames logged for a long task.
+     */
+    private static final int STACK_DEPTH = 24;
+    /**
+     * Singleton instance for global access to a LongTaskDetector.
+     */
+    private static final LongTaskDetector instance =
+            new LongTaskDetector(Long.getLong("imagetagger.longTaskMillis", DEFAULT_THRESHOLD));
+
+    /**
+     * Number of tasks that ran longer than the threshold.
+     */
+    private static final Counter LONG_TASKS = MetricsRegistry.getInstance().counter("handler.longTasks");
+
+    /**
+     * Longest time (in nanoseconds) a task may run before it is logged.
+     */
+    private long thresholdNanos;
+    /**
+     * The thread running the current task, or null if no task is running.
+     */
+    private volatile Thread taskThread;
+    /**
+     * Name of the current task.
+     */
+    private volatile String taskName;
+    /**
+     * Time (from System.nanoTime) at which the current task started.
+     */
+    private volatile long taskStart;
+    /**
+     * Whether the current task has already been logged.
+     */
+    private volatile boolean taskLogged;
+    /**
+     * Number of tasks currently started on the task thread; tasks started from within a task are part of it.
+     */
+    private int depth = 0;
+    /**
+     * The thread that watches for long tasks, or null until the first task starts.
+     */
+    private Thread watchdog;
+
+    /**
+     * Constructs a new LongTaskDetector.
+     *
+     * @param thresholdMillis Longest time (in milliseconds) a task may run before it is logged.
+     */
+    public LongTaskDetector(long thresholdMillis) {
+        thresholdNanos = thresholdMillis * 1000000;
+    }
+
+    /**
+     * Returns the singleton instance of the LongTaskDetector class.
+     *
+     * @return The singleton instance of the LongTaskDetector class.
+     */
+    public static LongTaskDetector getInstance() {
+        return instance;
+    }
+
+    /**
+     * Marks the start of a task on the calling thread. Every call must be followed by a call of taskFinished on the
+     * same thread.
+     *
+     * @param name Name of the task, as logged.
+     */
+    public void taskStarted(String name) {
+        if (depth++ > 0) {
+            return;
+        }
+        startWatchdog();
+        taskName = name;
+        taskStart = System.nanoTime();
+        taskLogged = false;
+        taskThread = Thread.currentThread();
+    }
+
+    /**
+     * Marks the end of the task started last on the calling thread. If the task was logged as long, its total time is
+     * logged too.
+     */
+    public void taskFinished() {
+        if (--depth > 0) {
+            return;
+        }
+        taskThread = null;
+        if (taskLogged) {
+            System.out.println(String.format("Long task %s finished after %.1f ms", taskName,
+                    (System.nanoTime() - taskStart) / 1e6));
+        }
+    }
+
+    /**
+     * Starts the watchdog thread, if it is not running yet.
+     */
+    private synchronized void startWatchdog() {
+        if (watchdog == null) {
+            watchdog = new Thread(this::watch, "long-task-detector");
+            watchdog.setDaemon(true);
+            watchdog.start();
+        }
+    }
+
+    /**
+     * Checks the current task a few times per threshold, and logs it once it runs longer than the threshold.
+     */
+    private void watch() {
+        long interval = Math.max(1, thresholdNanos / 4000000);
+        while (true) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            Thread thread = taskThread;
+            long start = taskStart;
+            String name = taskName;
+            if (thread != null && !taskLogged && System.nanoTime() - start > thresholdNanos) {
+                StackTraceElement[] stack = thread.getStackTrace();
+                // the task may have finished while the stack was sampled
+                if (taskThread == thread && taskStart == start) {
+                    taskLogged = true;
+                    LONG_TASKS.increment();
+                    logSample(name, thread, stack, (System.nanoTime() - start) / 1e6);
+                }
+            }
+        }
+    }
+
+    /**
+     * Logs a stack sample of a long task.
+     *
+     * @param name   Name of the task.
+     * @param thread Thread running the task.
+     * @param stack  Stack of the thread, sampled while the task was running.
+     * @param millis Time the task had been running for, in milliseconds.
+     */
+    private void logSample(String name, Thread thread, StackTraceElement[] stack, double millis) {
+        StringBuilder sample = new StringBuilder(String.format("Long task %s has held %s for %.1f ms:",
+                name, thread.getName(), millis));
+        for (int i = 0; i < stack.length && i < STACK_DEPTH; i++) {
+            sample.append("\n    at ").append(stack[i]);
+        }
+        if (stack.length > STACK_DEPTH) {
+            sample.append("\n    ...");
+        }
+        System.out.println(sample);
+    }
+}
@@ -0,0 +1,106 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * A MetricsRegistry. Holds the counters, gauges and latency histograms of the program by name, and publishes each of
+ * them over JMX under the domain "imagetagger", so they can be watched with jconsole while the program runs. Metrics
+ * are looked up once, usually into a static field, and then updated without going through the registry.
+ */
+public class MetricsRegistry {
+    /**
+     * Domain of the names the metrics are published under.
+     */
+    private static final String DOMAIN = "imagetagger";
+    /**
+     * Singleton instance for global access to a MetricsRegistry.
+     */
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    /**
+     * The counters, by name.
+     */
+    private ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    /**
+     * The gauges, by name.
+     */
+    private ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    /**
+     * The latency histograms, by name.
+     */
+    private ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the singleton instance of the MetricsRegistry class.
+     *
+     * @return The singleton instance of the MetricsRegistry class.
+     */
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the counter with a specified name, creating and publishing it if it does not exist yet.
+     *
+     * @param name Name of the counter.
+     * @return The counter.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> register("Counter", key, new Counter()));
+    }
+
+    /**
+     * Returns the gauge with a specified name, creating and publishing it if it does not exist yet, and makes it read
+     * its value from a specified object. The gauge only references the object weakly, so registering a gauge never
+     * keeps the object alive; the function must not capture the object itself.
+     *
+     * @param name  Name of the gauge.
+     * @param owner Object the value is read from. Replaces the object given earlier for the same name.
+     * @param value Reads the value from the object.
+     * @param <T>   Class of the object.
+     * @return The gauge.
+     */
+    public <T> Gauge gauge(String name, T owner, ToLongFunction<? super T> value) {
+        Gauge gauge = gauges.computeIfAbsent(name, key -> register("Gauge", key, new Gauge()));
+        gauge.setSupplier(owner, value);
+        return gauge;
+    }
+
+    /**
+     * Returns the latency histogram with a specified name, creating and publishing it if it does not exist yet.
+     *
+     * @param name Name of the latency histogram.
+     * @return The latency histogram.
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> register("Histogram", key, new LatencyHistogram()));
+    }
+
+    /**
+     * Publishes a metric over JMX. A metric that could not be published can still be used.
+     *
+     * @param type   Type of the metric, as shown in jconsole.
+     * @param name   Name of the metric.
+     * @param metric The metric.
+     * @param <T>    Class of the metric.
+     * @return The metric.
+     */
+    private <T> T register(String type, String name, T metric) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(metric, objectName);
+        } catch (JMException | SecurityException e) {
+            System.out.println("Failed to publish metric " + name);
+        }
+        return metric;
+    }
+}
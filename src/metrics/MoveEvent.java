@@ -0,0 +1,45 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A MoveEvent. Recorded by JDK Flight Recorder when an image file is moved to another directory on disk.
+ */
+@Name("imagetagger.Move")
+@Label("File Move")
+@Category({"ImageTagger", "Files"})
+@Description("Move of an image file to another directory")
+public class MoveEvent extends Event {
+    /**
+     * Path of the image file before the move.
+     */
+    @Label("Path")
+    private String path;
+    /**
+     * Path of the image file after the move.
+     */
+    @Label("Destination")
+    private String destination;
+
+    /**
+     * Sets the path of the image file before the move.
+     *
+     * @param path Path of the image file before the move.
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Sets the path of the image file after the move.
+     *
+     * @param destination Path of the image file after the move.
+     */
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+}
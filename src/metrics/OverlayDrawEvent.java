@@ -0,0 +1,31 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An OverlayDrawEvent. Recorded by JDK Flight Recorder when the ImageTagOverlays of the selected image are redrawn.
+ */
+@Name("imagetagger.OverlayDraw")
+@Label("Overlay Draw")
+@Category({"ImageTagger", "Images"})
+@Description("Redraw of the ImageTagOverlays of the selected image")
+public class OverlayDrawEvent extends Event {
+    /**
+     * Number of ImageTagOverlays drawn.
+     */
+    @Label("Overlay Count")
+    private int overlayCount;
+
+    /**
+     * Sets the number of ImageTagOverlays drawn.
+     *
+     * @param overlayCount Number of ImageTagOverlays drawn.
+     */
+    public void setOverlayCount(int overlayCount) {
+        this.overlayCount = overlayCount;
+    }
+}
@@ -0,0 +1,46 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A RenameEvent. Recorded by JDK Flight Recorder when an image file is renamed on disk, including logging the name
+ * change.
+ */
+@Name("imagetagger.Rename")
+@Label("File Rename")
+@Category({"ImageTagger", "Files"})
+@Description("Rename of an image file on disk")
+public class RenameEvent extends Event {
+    /**
+     * Path of the image file before the rename.
+     */
+    @Label("Path")
+    private String path;
+    /**
+     * Name of the image file after the rename.
+     */
+    @Label("New Name")
+    private String newName;
+
+    /**
+     * Sets the path of the image file before the rename.
+     *
+     * @param path Path of the image file before the rename.
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Sets the name of the image file after the rename.
+     *
+     * @param newName Name of the image file after the rename.
+     */
+    public void setNewName(String newName) {
+        this.newName = newName;
+    }
+}
@@ -0,0 +1,59 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A ScanEvent. Recorded by JDK Flight Recorder when a directory is listed for image files.
+ */
+@Name("imagetagger.Scan")
+@Label("Directory Scan")
+@Category({"ImageTagger", "Files"})
+@Description("Listing of the image files in or under a directory")
+public class ScanEvent extends Event {
+    /**
+     * Path of the scanned directory.
+     */
+    @Label("Directory")
+    private String directory;
+    /**
+     * Whether the directories under the scanned directory were scanned too.
+     */
+    @Label("Recursive")
+    private boolean recursive;
+    /**
+     * Number of image files found.
+     */
+    @Label("File Count")
+    private int fileCount;
+
+    /**
+     * Sets the path of the scanned directory.
+     *
+     * @param directory Path of the scanned directory.
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Sets the whether the directories under the scanned directory were scanned too.
+     *
+     * @param recursive Whether the directories under the scanned directory were scanned too.
+     */
+    public void setRecursive(boolean recursive) {
+        this.recursive = recursive;
+    }
+
+    /**
+     * Sets the number of image files found.
+     *
+     * @param fileCount Number of image files found.
+     */
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+}
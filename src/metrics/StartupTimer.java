@@ -0,0 +1,87 @@
+package metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * A StartupTimer. Times the phases of starting the program, from the start of the JVM until the first frame is shown,
+ * and writes them to a startup report, so it can be seen which phase grows as the catalog grows. The time before the
+ * StartupTimer was constructed is counted as its first phase.
+ */
+public class StartupTimer {
+    /**
+     * Names of the timed phases, in order.
+     */
+    private ArrayList<String> phaseNames = new ArrayList<>();
+    /**
+     * Length of each timed phase, in nanoseconds.
+     */
+    private ArrayList<Long> phaseNanos = new ArrayList<>();
+    /**
+     * Time (from System.nanoTime) at which the current phase started.
+     */
+    private long phaseStart;
+
+    /**
+     * Constructs a new StartupTimer. The time since the JVM started is timed as the phase "JVM startup".
+     */
+    public StartupTimer() {
+        phaseStart = System.nanoTime();
+        phaseNames.add("JVM startup");
+        phaseNanos.add(ManagementFactory.getRuntimeMXBean().getUptime() * 1000000);
+    }
+
+    /**
+     * Ends the current phase, and starts the next one.
+     *
+     * @param name Name of the phase that ended.
+     */
+    public void endPhase(String name) {
+        long now = System.nanoTime();
+        phaseNames.add(name);
+        phaseNanos.add(now - phaseStart);
+        phaseStart = now;
+    }
+
+    /**
+     * Returns the time from the start of the JVM until the end of the last phase.
+     *
+     * @return The total time of the phases, in milliseconds.
+     */
+    public double getTotalMillis() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return total / 1e6;
+    }
+
+    /**
+     * Writes the startup report: the length of each phase and the time since the start of the JVM at its end.
+     *
+     * @param file    File to write the report to.
+     * @param summary Line describing what was started, such as the size of the catalog.
+     * @throws IOException ..
+     */
+    public void writeReport(File file, String summary) throws IOException {
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println("Startup report - " + new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(new Date()));
+            writer.println(summary);
+            writer.println();
+            writer.println(String.format("%-28s %12s %16s", "Phase", "Time (ms)", "Since JVM (ms)"));
+            long total = 0;
+            for (int i = 0; i < phaseNames.size(); i++) {
+                total += phaseNanos.get(i);
+                writer.println(String.format("%-28s %12.1f %16.1f", phaseNames.get(i), phaseNanos.get(i) / 1e6,
+                        total / 1e6));
+            }
+            writer.println();
+            writer.println(String.format("%-28s %12.1f", "Total", total / 1e6));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A ThumbnailDecodeEvent. Recorded by JDK Flight Recorder when an image is decoded to make or show its thumbnail.
+ */
+@Name("imagetagger.ThumbnailDecode")
+@Label("Thumbnail Decode")
+@Category({"ImageTagger", "Images"})
+@Description("Decode of an image for its thumbnail")
+public class ThumbnailDecodeEvent extends Event {
+    /**
+     * Path of the decoded file.
+     */
+    @Label("Path")
+    private String path;
+    /**
+     * Width of the decoded image, in pixels.
+     */
+    @Label("Width")
+    private int width;
+    /**
+     * Height of the decoded image, in pixels.
+     */
+    @Label("Height")
+    private int height;
+
+    /**
+     * Sets the path of the decoded file.
+     *
+     * @param path Path of the decoded file.
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Sets the width of the decoded image, in pixels.
+     *
+     * @param width Width of the decoded image, in pixels.
+     */
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Sets the height of the decoded image, in pixels.
+     *
+     * @param height Height of the decoded image, in pixels.
+     */
+    public void setHeight(int height) {
+        this.height = height;
+    }
+}
@@ -1,13 +1,21 @@
 package overlay;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * A ImageTagOverlay. Represents a visual overlay that can be set for a given Tag / Image combination. A ImageTagOverlay
- * consists of two points which are interpolated by a OverlayCanvas as a rectangle to be displayed over an image.
+ * consists of two points which are interpolated by a OverlayCanvas as a rectangle to be displayed over an image. An
+ * ImageFile stores its ImageTagOverlays in an OverlayStore; ImageTagOverlays are created from it when they are needed,
+ * and are equal when they have the same points (at the stored float precision) and tag name. ImageTagOverlays remain
+ * serializable, since catalogs saved by earlier releases store them as objects of their own.
  */
 public class ImageTagOverlay implements Serializable {
 
+    /**
+     * Version of the serialized form, kept at the value computed for the original class.
+     */
+    private static final long serialVersionUID = -4889465018183255621L;
     /**
      * X coordinate for the first point of this ImageTagOverlay
      */
@@ -24,6 +32,52 @@ public class ImageTagOverlay implements Serializable {
      * Y coordinate for the second point of this ImageTagOverlay
      */
     private double y2;
+    /**
+     * Name of the tag this ImageTagOverlay is for, or null if it is not yet stored for a tag.
+     */
+    private String tagName;
+
+    /**
+     * Constructs an ImageTagOverlay with both points at the origin, for no tag yet.
+     */
+    public ImageTagOverlay() {
+    }
+
+    /**
+     * Constructs an ImageTagOverlay from two normalized points, for a specified tag name.
+     *
+     * @param x1      X coordinate of the first point.
+     * @param y1      Y coordinate of the first point.
+     * @param x2      X coordinate of the second point.
+     * @param y2      Y coordinate of the second point.
+     * @param tagName Name of the tag this ImageTagOverlay is for.
+     */
+    public ImageTagOverlay(double x1, double y1, double x2, double y2, String tagName) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.tagName = tagName;
+    }
+
+    /**
+     * Returns a copy of this ImageTagOverlay for a specified tag name.
+     *
+     * @param tagName Name of the tag the copy is for.
+     * @return A copy of this ImageTagOverlay for the tag name.
+     */
+    public ImageTagOverlay forTag(String tagName) {
+        return new ImageTagOverlay(x1, y1, x2, y2, tagName);
+    }
+
+    /**
+     * Returns the name of the tag this ImageTagOverlay is for.
+     *
+     * @return The name of the tag this ImageTagOverlay is for, or null if it is not yet stored for a tag.
+     */
+    public String getTagName() {
+        return tagName;
+    }
 
     /**
      * Set the first point of this ImageTagOverlay
@@ -48,21 +102,65 @@ public class ImageTagOverlay implements Serializable {
     }
 
     /**
-     * Returns the first point of this ImageTagOverlay
+     * Returns the X coordinate of the first point of this ImageTagOverlay
+     *
+     * @return The X coordinate of the first point of this ImageTagOverlay
+     */
+    public double getX1() {
+        return x1;
+    }
+
+    /**
+     * Returns the Y coordinate of the first point of this ImageTagOverlay
+     *
+     * @return The Y coordinate of the first point of this ImageTagOverlay
+     */
+    public double getY1() {
+        return y1;
+    }
+
+    /**
+     * Returns the X coordinate of the second point of this ImageTagOverlay
+     *
+     * @return The X coordinate of the second point of this ImageTagOverlay
+     */
+    public double getX2() {
+        return x2;
+    }
+
+    /**
+     * Returns the Y coordinate of the second point of this ImageTagOverlay
+     *
+     * @return The Y coordinate of the second point of this ImageTagOverlay
+     */
+    public double getY2() {
+        return y2;
+    }
+
+    /**
+     * Returns true iff another object is an ImageTagOverlay with the same points and tag name.
      *
-     * @return An array containing the X and Y coordinates of the first point of this ImageTagOverlay
+     * @param obj Object to compare to.
+     * @return Whether or not the object is an equal ImageTagOverlay.
      */
-    double[] getPointA() {
-        return new double[]{x1, y1};
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ImageTagOverlay)) {
+            return false;
+        }
+        ImageTagOverlay other = (ImageTagOverlay) obj;
+        return (float) x1 == (float) other.x1 && (float) y1 == (float) other.y1 && (float) x2 == (float) other.x2
+                && (float) y2 == (float) other.y2 && Objects.equals(tagName, other.tagName);
     }
 
     /**
-     * Returns the second point of this ImageTagOverlay
+     * Returns a hash code consistent with equals.
      *
-     * @return An array containing the X and Y coordinates of the second point of this ImageTagOverlay
+     * @return A hash code for this ImageTagOverlay.
      */
-    double[] getPointB() {
-        return new double[]{x2, y2};
+    @Override
+    public int hashCode() {
+        return Objects.hash((float) x1, (float) y1, (float) x2, (float) y2, tagName);
     }
 
 }
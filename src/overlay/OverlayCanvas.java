@@ -2,24 +2,60 @@ package overlay;
 
 import image.ImageFile;
 import image.ImageManager;
+import javafx.animation.AnimationTimer;
 import javafx.event.EventHandler;
 import javafx.geometry.Bounds;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.ImageView;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
+import metrics.OverlayDrawEvent;
 
 import java.util.ArrayList;
 
 /**
- * An OverlayCanvas. Displays ImageTagOverlays on top of images.
+ * An OverlayCanvas. Displays ImageTagOverlays on top of images. The stored ImageTagOverlays are drawn to one canvas
+ * layer and the ImageTagOverlay being created to a second layer on top of it, so dragging out a new ImageTagOverlay
+ * only redraws one rectangle. Repaints are coalesced to at most one per animation frame.
  */
 public class OverlayCanvas implements EventHandler<MouseEvent> {
     /**
-     * Canvas upon which to display ImageTagOverlays
+     * Canvas layer upon which to display the stored ImageTagOverlays.
      */
     private Canvas canvas = new Canvas();
+    /**
+     * Canvas layer upon which to display the ImageTagOverlay currently in creation. Receives the mouse events.
+     */
+    private Canvas creationCanvas = new Canvas();
+    /**
+     * Pane stacking the two canvas layers.
+     */
+    private Pane layers = new Pane(canvas, creationCanvas);
+    /**
+     * Whether or not the stored ImageTagOverlays need to be redrawn on the next animation frame.
+     */
+    private boolean overlaysDirty = false;
+    /**
+     * Whether or not the selected ImageTagOverlay or the one currently in creation needs to be redrawn on the next
+     * animation frame.
+     */
+    private boolean creationDirty = false;
+    /**
+     * Whether or not the repaint timer is waiting for the next animation frame.
+     */
+    private boolean repaintScheduled = false;
+    /**
+     * Timer that redraws the dirty layers on the next animation frame, then stops until another repaint is requested.
+     */
+    private AnimationTimer repaintTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            repaint();
+        }
+    };
     /**
      * The last created ImageTagOverlay for this OverlayCanvas.
      */
@@ -36,6 +72,18 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
      * The ImageTagOverlays currently being displayed by this OverlayCanvas.
      */
     private ArrayList<ImageTagOverlay> tagOverlays = new ArrayList<>();
+    /**
+     * The ImageFile whose ImageTagOverlays are currently being displayed.
+     */
+    private ImageFile displayedImageFile;
+    /**
+     * The tag names whose ImageTagOverlays are currently being displayed.
+     */
+    private ArrayList<String> displayedTags = new ArrayList<>();
+    /**
+     * The displayed ImageTagOverlay the user last clicked on, or null if none is selected.
+     */
+    private ImageTagOverlay selectedOverlay;
     /**
      * Whether or not this OverlayCanvas is currently in the process of creating an ImageTagOverlay.
      */
@@ -44,6 +92,11 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
      * The parent ImageManager of this OverlayCanvas.
      */
     private ImageManager imageManager;
+    /**
+     * The part of the image that is visible under this OverlayCanvas, in normalized (0-1) image coordinates. The whole
+     * image is visible unless the image is zoomed in.
+     */
+    private double viewportX = 0, viewportY = 0, viewportWidth = 1, viewportHeight = 1;
 
     /**
      * Constructs a new OverlayCanvas for a given parent ImageManager.
@@ -51,9 +104,9 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
      * @param im ImageManager for which this OverlayCanvas will be a child.
      */
     public OverlayCanvas(ImageManager im) {
-        canvas.addEventHandler(MouseEvent.MOUSE_PRESSED, this);
-        canvas.addEventHandler(MouseEvent.MOUSE_DRAGGED, this);
-        canvas.addEventHandler(MouseEvent.MOUSE_RELEASED, this);
+        creationCanvas.addEventHandler(MouseEvent.MOUSE_PRESSED, this);
+        creationCanvas.addEventHandler(MouseEvent.MOUSE_DRAGGED, this);
+        creationCanvas.addEventHandler(MouseEvent.MOUSE_RELEASED, this);
         imageManager = im;
     }
 
@@ -66,6 +119,8 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
         currentlySelectedImageFile = null;
         tagsToCreateFor = null;
         creatingOverlay = false;
+        selectedOverlay = null;
+        requestRepaint(false);
     }
 
     /**
@@ -74,12 +129,43 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
      * @param imageView ImageView for which to update this OverlayCanvas.
      */
     public void setImageToOverlay(ImageView imageView) {
-        this.reset();
         Bounds b = imageView.getBoundsInParent();
-        double canvasWidth = b.getWidth();
-        double canvasHeight = b.getHeight();
+        setImageToOverlay(b.getWidth(), b.getHeight());
+    }
+
+    /**
+     * Updates this OverlayCanvas for an image displayed at a specified size.
+     *
+     * @param canvasWidth  Width of the displayed image.
+     * @param canvasHeight Height of the displayed image.
+     */
+    public void setImageToOverlay(double canvasWidth, double canvasHeight) {
+        this.reset();
         canvas.setHeight(canvasHeight);
         canvas.setWidth(canvasWidth);
+        creationCanvas.setHeight(canvasHeight);
+        creationCanvas.setWidth(canvasWidth);
+        viewportX = 0;
+        viewportY = 0;
+        viewportWidth = 1;
+        viewportHeight = 1;
+    }
+
+    /**
+     * Sets the part of the image that is visible under this OverlayCanvas. ImageTagOverlays are always stored relative
+     * to the whole image, and are mapped through the viewport when drawn and created.
+     *
+     * @param x      Normalized x coordinate of the visible part of the image.
+     * @param y      Normalized y coordinate of the visible part of the image.
+     * @param width  Normalized width of the visible part of the image.
+     * @param height Normalized height of the visible part of the image.
+     */
+    public void setViewport(double x, double y, double width, double height) {
+        viewportX = x;
+        viewportY = y;
+        viewportWidth = width;
+        viewportHeight = height;
+        requestRepaint(true);
     }
 
     /**
@@ -91,16 +177,30 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
     public void setOverlaysForImageAndTags(ImageFile imageFile, ArrayList<String> selectedTags) {
         tagOverlays.clear();
         tagOverlays.addAll(imageFile.getOverlaysForTags(selectedTags));
-        drawTagOverlays();
+        displayedImageFile = imageFile;
+        displayedTags = new ArrayList<>(selectedTags);
+        if (!tagOverlays.contains(selectedOverlay)) {
+            selectedOverlay = null;
+        }
+        requestRepaint(true);
+    }
+
+    /**
+     * Returns the JavaFx pane holding the canvas layers of this OverlayCanvas.
+     *
+     * @return The JavaFx pane holding the canvas layers of this OverlayCanvas.
+     */
+    public Pane getView() {
+        return this.layers;
     }
 
     /**
-     * Returns the JavaFx canvas associated with this OverlayCanvas.
+     * Returns the displayed ImageTagOverlay the user last clicked on.
      *
-     * @return The JavaFx canvas associated with this OverlayCanvas.
+     * @return The selected ImageTagOverlay, or null if none is selected.
      */
-    public Canvas getCanvas() {
-        return this.canvas;
+    public ImageTagOverlay getSelectedOverlay() {
+        return selectedOverlay;
     }
 
     /**
@@ -114,58 +214,112 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
         currentlySelectedImageFile = imageFileToCreateFor;
         this.tagsToCreateFor = tagsToCreateFor;
         creatingOverlay = true;
+        selectedOverlay = null;
+        requestRepaint(false);
     }
 
     /**
      * Finishes the process of creating a new ImageTagOverlay.
      */
     private void finishCreateOverlay() {
+        // move the new ImageTagOverlay from the creation layer to the stored layer
+        tagOverlays.add(lastCreated);
         imageManager.addOverlayForImageTags(currentlySelectedImageFile, tagsToCreateFor, lastCreated);
+        lastCreated = null;
         creatingOverlay = false;
+        requestRepaint(true);
     }
 
     /**
-     * Draws a red rectangle to this OverlayCanvas' JavaFx canvas given two specified points.
+     * Draws a rectangle to a canvas layer given two specified points.
      *
+     * @param gc The GraphicsContext of the canvas layer to draw to.
      * @param x1 The x coordinate of the first point (always between 0-1).
      * @param y1 The y coordinate of the first point (always between 0-1).
      * @param x2 The x coordinate of the second point (always between 0-1).
      * @param y2 The y coordinate of the second point (always between 0-1).
      */
-    private void drawRectFromPoints(double x1, double y1, double x2, double y2) {
+    private void drawRectFromPoints(GraphicsContext gc, double x1, double y1, double x2, double y2) {
         // get the full pixel width of the canvas
         double w = canvas.getWidth();
         double h = canvas.getHeight();
 
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-        gc.setStroke(Color.RED);
-        // get the pixel coordinates of a rectangle from the normalized points.
-        double[] x_Points = new double[]{x1 * w, x1 * w, x2 * w, x2 * w};
-        double[] y_Points = new double[]{y1 * h, y2 * h, y2 * h, y1 * h};
+        // get the pixel coordinates of a rectangle from the normalized points, relative to the visible viewport.
+        double px1 = (x1 - viewportX) / viewportWidth * w;
+        double px2 = (x2 - viewportX) / viewportWidth * w;
+        double py1 = (y1 - viewportY) / viewportHeight * h;
+        double py2 = (y2 - viewportY) / viewportHeight * h;
         // draw a rectangle
-        gc.strokePolygon(x_Points, y_Points, 4);
+        gc.strokeRect(Math.min(px1, px2), Math.min(py1, py2), Math.abs(px2 - px1), Math.abs(py2 - py1));
+    }
+
+    /**
+     * Requests a repaint of this OverlayCanvas on the next animation frame. Any number of requests before then cause a
+     * single repaint.
+     *
+     * @param overlaysChanged Whether or not the stored ImageTagOverlays need to be redrawn, rather than only the
+     *                        ImageTagOverlay currently in creation.
+     */
+    private void requestRepaint(boolean overlaysChanged) {
+        if (overlaysChanged) {
+            overlaysDirty = true;
+        }
+        creationDirty = true;
+        if (!repaintScheduled) {
+            repaintScheduled = true;
+            repaintTimer.start();
+        }
+    }
+
+    /**
+     * Redraws the layers of this OverlayCanvas that changed since the last animation frame.
+     */
+    private void repaint() {
+        repaintTimer.stop();
+        repaintScheduled = false;
+        if (overlaysDirty) {
+            overlaysDirty = false;
+            drawTagOverlays();
+        }
+        if (creationDirty) {
+            creationDirty = false;
+            drawOverlayInCreation();
+        }
     }
 
     /**
      * Draws all the ImageTagOverlays currently stored in this OverlayCanvas.
      */
-    @SuppressWarnings("all")
     private void drawTagOverlays() {
-        double w = canvas.getWidth();
-        double h = canvas.getHeight();
-
+        OverlayDrawEvent event = new OverlayDrawEvent();
+        event.begin();
         GraphicsContext gc = canvas.getGraphicsContext2D();
-
-        gc.clearRect(0, 0, w, h);
-
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.setStroke(Color.RED);
         for (int i = 0; i < tagOverlays.size(); i++) {
             ImageTagOverlay t = tagOverlays.get(i);
-            gc.setStroke(Color.RED);
             // draw a rectangle using the (normalized) points stored in the ImageTagOverlay
-            try {
-                drawRectFromPoints(t.getPointA()[0], t.getPointA()[1], t.getPointB()[0], t.getPointB()[1]);
-            } catch (NullPointerException npe) {
-            }
+            drawRectFromPoints(gc, t.getX1(), t.getY1(), t.getX2(), t.getY2());
+        }
+        event.setOverlayCount(tagOverlays.size());
+        event.commit();
+    }
+
+    /**
+     * Draws the selected ImageTagOverlay and the ImageTagOverlay currently in creation, if any.
+     */
+    private void drawOverlayInCreation() {
+        GraphicsContext gc = creationCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, creationCanvas.getWidth(), creationCanvas.getHeight());
+        if (selectedOverlay != null) {
+            gc.setStroke(Color.YELLOW);
+            drawRectFromPoints(gc, selectedOverlay.getX1(), selectedOverlay.getY1(), selectedOverlay.getX2(),
+                    selectedOverlay.getY2());
+        }
+        if (lastCreated != null) {
+            gc.setStroke(Color.RED);
+            drawRectFromPoints(gc, lastCreated.getX1(), lastCreated.getY1(), lastCreated.getX2(),
+                    lastCreated.getY2());
         }
     }
 
@@ -175,7 +329,8 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
      * @param e MouseEvent to handle.
      */
     public void handle(MouseEvent e) {
-        if (creatingOverlay) {
+        // the secondary button is reserved for panning the image underneath this OverlayCanvas
+        if (creatingOverlay && e.getButton() != MouseButton.SECONDARY) {
             if (e.getEventType().equals(MouseEvent.MOUSE_DRAGGED)) {
                 handleMouseDragged(e);
             } else if (e.getEventType().equals(MouseEvent.MOUSE_PRESSED)) {
@@ -183,6 +338,8 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
             } else if (e.getEventType().equals(MouseEvent.MOUSE_RELEASED)) {
                 handleMouseReleased(e);
             }
+        } else if (e.getButton() == MouseButton.PRIMARY && e.getEventType().equals(MouseEvent.MOUSE_PRESSED)) {
+            handleMouseSelect(e);
         }
     }
 
@@ -192,11 +349,9 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
      * @param e MouseEvent to handle.
      */
     private void handleMouseDragged(MouseEvent e) {
-        // get the normalized (0-1) mouse position on this OverlayCanvas
-        double[] normalizedMousePos = getMousePosNormalized(e);
-        //sets the second point of the overlay currently in creation
-        lastCreated.setPointB(normalizedMousePos[0], normalizedMousePos[1]);
-        drawTagOverlays();
+        //sets the second point of the overlay currently in creation to the normalized (0-1) mouse position
+        lastCreated.setPointB(getMouseXNormalized(e), getMouseYNormalized(e));
+        requestRepaint(false);
     }
 
     /**
@@ -205,13 +360,26 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
      * @param e MouseEvent to handle.
      */
     private void handleMousePressed(MouseEvent e) {
-        // get the normalized (0-1,0-1) mouse position on this OverlayCanvas.
-        double[] normalizedMousePos = getMousePosNormalized(e);
         // start the creation of a new ImageTagOverlay
         lastCreated = new ImageTagOverlay();
-        tagOverlays.add(lastCreated);
-        // set the first point of the new ImageTagOverlay
-        lastCreated.setPointA(normalizedMousePos[0], normalizedMousePos[1]);
+        // set both points of the new ImageTagOverlay to the normalized (0-1,0-1) mouse position
+        lastCreated.setPointA(getMouseXNormalized(e), getMouseYNormalized(e));
+        lastCreated.setPointB(getMouseXNormalized(e), getMouseYNormalized(e));
+        requestRepaint(false);
+    }
+
+    /**
+     * Private handler for when the mouse is pressed on the OverlayCanvas while no ImageTagOverlay is being created.
+     * Selects the displayed ImageTagOverlay under the mouse, found through the ImageManager's overlay index.
+     *
+     * @param e MouseEvent to handle.
+     */
+    private void handleMouseSelect(MouseEvent e) {
+        if (displayedImageFile != null) {
+            selectedOverlay = imageManager.getOverlayAt(displayedImageFile, displayedTags, getMouseXNormalized(e),
+                    getMouseYNormalized(e));
+            requestRepaint(false);
+        }
     }
 
     /**
@@ -220,27 +388,33 @@ public class OverlayCanvas implements EventHandler<MouseEvent> {
      * @param e MouseEvent to handle.
      */
     private void handleMouseReleased(MouseEvent e) {
-        // get the normalized (0-1,0-1) mouse  position on this OverlayCanvas
-        double[] normalizedMousePos = getMousePosNormalized(e);
         // set the second point of the ImageTagOverlay currently being created.
-        lastCreated.setPointB(normalizedMousePos[0], normalizedMousePos[1]);
-        drawTagOverlays();
+        lastCreated.setPointB(getMouseXNormalized(e), getMouseYNormalized(e));
         // finish the creation: a released event signals the end of a mouse {click - drag - release} sequence that
         // creates a rectangle on the canvas.
         finishCreateOverlay();
     }
 
     /**
-     * For a given MouseEvent, returns the mouse position on the canvas as a normalized coordinate
-     * value (x : 0-1, y : 0-1).
+     * For a given MouseEvent, returns the x position of the mouse on the image as a normalized (0-1) coordinate,
+     * taking into account the part of the image visible in the viewport.
+     *
+     * @param e The MouseEvent for which to compute the normalized position.
+     * @return The normalized x position of the mouse on the canvas.
+     */
+    private double getMouseXNormalized(MouseEvent e) {
+        return viewportX + e.getX() / canvas.getWidth() * viewportWidth;
+    }
+
+    /**
+     * For a given MouseEvent, returns the y position of the mouse on the image as a normalized (0-1) coordinate,
+     * taking into account the part of the image visible in the viewport.
      *
      * @param e The MouseEvent for which to compute the normalized position.
-     * @return The normalized position of the mouse on the canvas.
+     * @return The normalized y position of the mouse on the canvas.
      */
-    private double[] getMousePosNormalized(MouseEvent e) {
-        double x_normalized = e.getX() / canvas.getWidth();
-        double y_normalized = e.getY() / canvas.getHeight();
-        return new double[]{x_normalized, y_normalized};
+    private double getMouseYNormalized(MouseEvent e) {
+        return viewportY + e.getY() / canvas.getHeight() * viewportHeight;
     }
 
 }
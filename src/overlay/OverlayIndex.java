@@ -0,0 +1,145 @@
+package overlay;
+
+import image.ImageFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * An OverlayIndex. A spatial index of the ImageTagOverlays of every ImageFile in the catalog, kept as one OverlayRTree
+ * per tag name. Answers which ImageFiles have an ImageTagOverlay for a tag in a region, and which ImageTagOverlay is
+ * under a point of an ImageFile, without looking at every ImageTagOverlay.
+ */
+public class OverlayIndex {
+    /**
+     * The OverlayRTree of the ImageTagOverlays of each tag name.
+     */
+    private HashMap<String, OverlayRTree> trees = new HashMap<>();
+    /**
+     * The id of each indexed ImageFile. ImageFiles are kept apart in an OverlayRTree by their id.
+     */
+    private IdentityHashMap<ImageFile, Integer> imageIds = new IdentityHashMap<>();
+
+    /**
+     * Adds an ImageTagOverlay of an ImageFile to this OverlayIndex, under its tag name.
+     *
+     * @param imageFile ImageFile the ImageTagOverlay belongs to.
+     * @param overlay   ImageTagOverlay to add.
+     */
+    public void add(ImageFile imageFile, ImageTagOverlay overlay) {
+        add(imageFile, (float) overlay.getX1(), (float) overlay.getY1(), (float) overlay.getX2(),
+                (float) overlay.getY2(), overlay.getTagName());
+    }
+
+    /**
+     * Adds an ImageTagOverlay of an ImageFile, given by its points as an OverlayStore stores them, to this
+     * OverlayIndex, under its tag name.
+     *
+     * @param imageFile ImageFile the ImageTagOverlay belongs to.
+     * @param x1        X coordinate of the first point of the ImageTagOverlay.
+     * @param y1        Y coordinate of the first point of the ImageTagOverlay.
+     * @param x2        X coordinate of the second point of the ImageTagOverlay.
+     * @param y2        Y coordinate of the second point of the ImageTagOverlay.
+     * @param tagName   Tag name of the ImageTagOverlay.
+     */
+    public void add(ImageFile imageFile, float x1, float y1, float x2, float y2, String tagName) {
+        Integer imageId = imageIds.get(imageFile);
+        if (imageId == null) {
+            imageId = imageIds.size();
+            imageIds.put(imageFile, imageId);
+        }
+        trees.computeIfAbsent(tagName, name -> new OverlayRTree()).insert(imageFile, imageId, x1, y1, x2, y2);
+    }
+
+    /**
+     * Removes every ImageTagOverlay of an ImageFile equal to a specified ImageTagOverlay from this OverlayIndex.
+     *
+     * @param imageFile ImageFile the ImageTagOverlay belongs to.
+     * @param overlay   ImageTagOverlay to remove.
+     */
+    public void remove(ImageFile imageFile, ImageTagOverlay overlay) {
+        Integer imageId = imageIds.get(imageFile);
+        OverlayRTree tree = trees.get(overlay.getTagName());
+        if (imageId != null && tree != null) {
+            while (tree.remove(imageFile, imageId, overlay)) {
+                if (tree.isEmpty()) {
+                    trees.remove(overlay.getTagName());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every ImageTagOverlay from this OverlayIndex.
+     */
+    public void clear() {
+        trees.clear();
+        imageIds.clear();
+    }
+
+    /**
+     * Returns the ImageFiles that have an ImageTagOverlay for a tag name intersecting a region.
+     *
+     * @param tagName Tag name of the ImageTagOverlays.
+     * @param x1      Normalized x coordinate of one corner of the region.
+     * @param y1      Normalized y coordinate of one corner of the region.
+     * @param x2      Normalized x coordinate of the opposite corner of the region.
+     * @param y2      Normalized y coordinate of the opposite corner of the region.
+     * @return The ImageFiles with an ImageTagOverlay for the tag name in the region, each listed once.
+     */
+    public ArrayList<ImageFile> getImageFilesWithOverlayIn(String tagName, double x1, double y1, double x2,
+                                                           double y2) {
+        ArrayList<ImageFile> imageFiles = new ArrayList<>();
+        OverlayRTree tree = trees.get(tagName);
+        if (tree != null) {
+            ArrayList<OverlayRTree.Entry> entries = new ArrayList<>();
+            tree.search(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2), 0, Integer.MAX_VALUE,
+                    entries);
+            Set<ImageFile> found = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (OverlayRTree.Entry entry : entries) {
+                if (found.add(entry.imageFile)) {
+                    imageFiles.add(entry.imageFile);
+                }
+            }
+        }
+        return imageFiles;
+    }
+
+    /**
+     * Returns the ImageTagOverlay of an ImageFile, for one of a list of tag names, that is under a point. When several
+     * are, the smallest is returned, so an ImageTagOverlay inside another can still be picked.
+     *
+     * @param imageFile ImageFile to look in.
+     * @param tagNames  Tag names of the ImageTagOverlays to consider.
+     * @param x         Normalized x coordinate of the point.
+     * @param y         Normalized y coordinate of the point.
+     * @return The smallest ImageTagOverlay under the point, or null if there is none.
+     */
+    public ImageTagOverlay getOverlayAt(ImageFile imageFile, ArrayList<String> tagNames, double x, double y) {
+        Integer imageId = imageIds.get(imageFile);
+        if (imageId == null) {
+            return null;
+        }
+        ArrayList<OverlayRTree.Entry> entries = new ArrayList<>();
+        OverlayRTree.Entry smallest = null;
+        String smallestTagName = null;
+        for (String tagName : tagNames) {
+            OverlayRTree tree = trees.get(tagName);
+            if (tree != null) {
+                entries.clear();
+                tree.search(x, y, x, y, imageId, imageId, entries);
+                for (OverlayRTree.Entry entry : entries) {
+                    if (smallest == null || entry.area() < smallest.area()) {
+                        smallest = entry;
+                        smallestTagName = tagName;
+                    }
+                }
+            }
+        }
+        return smallest == null ? null : smallest.toOverlay(smallestTagName);
+    }
+}
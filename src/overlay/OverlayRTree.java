@@ -0,0 +1,524 @@
+package overlay;
+
+import image.ImageFile;
+
+import java.util.ArrayList;
+
+/**
+ * An OverlayRTree. An R-tree of the ImageTagOverlays of one tag name, over three dimensions: the normalized x and y
+ * coordinates of an ImageTagOverlay and the id of the ImageFile it belongs to. Finds the ImageTagOverlays intersecting
+ * a region, of one ImageFile or of all of them, while only looking at the nodes that can contain them. An entry keeps
+ * the points of its ImageTagOverlay as the floats an OverlayStore holds, rather than an ImageTagOverlay object, so
+ * indexing an ImageTagOverlay costs little more than storing it; ImageTagOverlays are only created for search results.
+ */
+class OverlayRTree {
+    /**
+     * Number of dimensions of the boxes in an OverlayRTree.
+     */
+    private static final int DIMENSIONS = 3;
+    /**
+     * The most and fewest children a node may have. The root may have fewer.
+     */
+    private static final int MAX_ENTRIES = 16, MIN_ENTRIES = 6;
+
+    /**
+     * The root node of this OverlayRTree.
+     */
+    private Node root = new Node(true);
+    /**
+     * Number of entries in this OverlayRTree.
+     */
+    private int size = 0;
+
+    /**
+     * Inserts an ImageTagOverlay of an ImageFile into this OverlayRTree.
+     *
+     * @param imageFile ImageFile the ImageTagOverlay belongs to.
+     * @param imageId   Id of the ImageFile.
+     * @param x1        X coordinate of the first point of the ImageTagOverlay.
+     * @param y1        Y coordinate of the first point of the ImageTagOverlay.
+     * @param x2        X coordinate of the second point of the ImageTagOverlay.
+     * @param y2        Y coordinate of the second point of the ImageTagOverlay.
+     */
+    void insert(ImageFile imageFile, int imageId, float x1, float y1, float x2, float y2) {
+        insert(new Entry(imageFile, imageId, x1, y1, x2, y2));
+        size++;
+    }
+
+    /**
+     * Removes an ImageTagOverlay of an ImageFile, or one equal to it, from this OverlayRTree.
+     *
+     * @param imageFile ImageFile the ImageTagOverlay belongs to.
+     * @param imageId   Id of the ImageFile.
+     * @param overlay   ImageTagOverlay to remove.
+     * @return Whether or not the ImageTagOverlay was in this OverlayRTree.
+     */
+    boolean remove(ImageFile imageFile, int imageId, ImageTagOverlay overlay) {
+        // look through every entry of the ImageFile, in case the ImageTagOverlay moved since it was inserted
+        double[] min = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, imageId};
+        double[] max = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, imageId};
+        ArrayList<Entry> orphans = new ArrayList<>();
+        if (!remove(root, imageFile, overlay, min, max, orphans)) {
+            return false;
+        }
+        size--;
+        while (!root.leaf && root.children.size() == 1) {
+            root = (Node) root.children.get(0);
+        }
+        for (Entry orphan : orphans) {
+            insert(orphan);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the ImageTagOverlays in this OverlayRTree intersecting a region of one or more ImageFiles.
+     *
+     * @param x1       Normalized x coordinate of the left of the region.
+     * @param y1       Normalized y coordinate of the top of the region.
+     * @param x2       Normalized x coordinate of the right of the region.
+     * @param y2       Normalized y coordinate of the bottom of the region.
+     * @param firstId  Id of the first ImageFile to search.
+     * @param lastId   Id of the last ImageFile to search.
+     * @param results  List to add the found entries to.
+     */
+    void search(double x1, double y1, double x2, double y2, int firstId, int lastId, ArrayList<Entry> results) {
+        double[] min = {x1, y1, firstId};
+        double[] max = {x2, y2, lastId};
+        if (size > 0) {
+            search(root, min, max, results);
+        }
+    }
+
+    /**
+     * Returns true iff this OverlayRTree has no entries.
+     *
+     * @return True iff this OverlayRTree has no entries.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Inserts an entry below the root, growing a new root if the root splits.
+     *
+     * @param entry Entry to insert.
+     */
+    private void insert(Entry entry) {
+        Node sibling = insert(root, entry);
+        if (sibling != null) {
+            Node newRoot = new Node(false);
+            newRoot.add(root);
+            newRoot.add(sibling);
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Inserts an entry below a node.
+     *
+     * @param node  Node to insert below.
+     * @param entry Entry to insert.
+     * @return The node split off from the node when it overflows, or null.
+     */
+    private Node insert(Node node, Entry entry) {
+        if (node.leaf) {
+            node.children.add(entry);
+        } else {
+            Node child = chooseSubtree(node, entry);
+            Node split = insert(child, entry);
+            if (split != null) {
+                node.children.add(split);
+            }
+        }
+        if (node.children.size() > MAX_ENTRIES) {
+            return split(node);
+        }
+        node.include(entry);
+        return null;
+    }
+
+    /**
+     * Returns the child of a node whose box grows least by including an entry.
+     *
+     * @param node  Node to choose a child of.
+     * @param entry Entry to include.
+     * @return The child whose box grows least.
+     */
+    private Node chooseSubtree(Node node, Entry entry) {
+        Node best = null;
+        double bestGrowth = Double.POSITIVE_INFINITY;
+        for (Box child : node.children) {
+            double growth = child.growth(entry);
+            if (growth < bestGrowth || (growth == bestGrowth && child.margin() < best.margin())) {
+                best = (Node) child;
+                bestGrowth = growth;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Splits an overflowing node in two using the quadratic split.
+     *
+     * @param node Node to split. Keeps half its children.
+     * @return New node holding the other half of the children.
+     */
+    private Node split(Node node) {
+        ArrayList<Box> remaining = new ArrayList<>(node.children);
+        Node sibling = new Node(node.leaf);
+        node.clear();
+
+        // start each node with the two children that would waste the most space together
+        int seedA = 0, seedB = 1;
+        double mostWaste = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < remaining.size(); i++) {
+            for (int j = i + 1; j < remaining.size(); j++) {
+                Box a = remaining.get(i), b = remaining.get(j);
+                double waste = a.growth(b) - b.margin();
+                if (waste > mostWaste) {
+                    mostWaste = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+        sibling.add(remaining.remove(seedB));
+        node.add(remaining.remove(seedA));
+
+        while (!remaining.isEmpty()) {
+            // keep both nodes at least minimally full
+            if (node.children.size() + remaining.size() == MIN_ENTRIES) {
+                for (Box box : remaining) {
+                    node.add(box);
+                }
+                break;
+            }
+            if (sibling.children.size() + remaining.size() == MIN_ENTRIES) {
+                for (Box box : remaining) {
+                    sibling.add(box);
+                }
+                break;
+            }
+
+            // place the child with the strongest preference for one node next
+            int next = 0;
+            double strongest = -1;
+            for (int i = 0; i < remaining.size(); i++) {
+                double preference = Math.abs(node.growth(remaining.get(i)) - sibling.growth(remaining.get(i)));
+                if (preference > strongest) {
+                    strongest = preference;
+                    next = i;
+                }
+            }
+            Box box = remaining.remove(next);
+            double growthA = node.growth(box), growthB = sibling.growth(box);
+            if (growthA < growthB || (growthA == growthB && node.children.size() <= sibling.children.size())) {
+                node.add(box);
+            } else {
+                sibling.add(box);
+            }
+        }
+        return sibling;
+    }
+
+    /**
+     * Removes an entry below a node. Children left underfull are removed and their entries collected to be inserted
+     * again.
+     *
+     * @param node      Node to remove below.
+     * @param imageFile ImageFile of the entry to remove.
+     * @param overlay   ImageTagOverlay of the entry to remove.
+     * @param min       Low corner of the box the entry is in.
+     * @param max       High corner of the box the entry is in.
+     * @param orphans   List to add the entries of removed children to.
+     * @return Whether or not the entry was found.
+     */
+    private boolean remove(Node node, ImageFile imageFile, ImageTagOverlay overlay, double[] min, double[] max,
+                           ArrayList<Entry> orphans) {
+        for (int i = 0; i < node.children.size(); i++) {
+            Box child = node.children.get(i);
+            if (!child.intersects(min, max)) {
+                continue;
+            }
+            if (node.leaf) {
+                Entry entry = (Entry) child;
+                if (entry.imageFile == imageFile && entry.hasPointsOf(overlay)) {
+                    node.children.remove(i);
+                    node.recomputeBounds();
+                    return true;
+                }
+            } else if (remove((Node) child, imageFile, overlay, min, max, orphans)) {
+                Node childNode = (Node) child;
+                if (childNode.children.size() < MIN_ENTRIES) {
+                    node.children.remove(i);
+                    collectEntries(childNode, orphans);
+                }
+                node.recomputeBounds();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds every entry below a node to a list.
+     *
+     * @param node    Node whose entries to collect.
+     * @param entries List to add the entries to.
+     */
+    private void collectEntries(Node node, ArrayList<Entry> entries) {
+        for (Box child : node.children) {
+            if (node.leaf) {
+                entries.add((Entry) child);
+            } else {
+                collectEntries((Node) child, entries);
+            }
+        }
+    }
+
+    /**
+     * Adds the entries below a node intersecting a box to a list.
+     *
+     * @param node    Node to search below.
+     * @param min     Low corner of the box.
+     * @param max     High corner of the box.
+     * @param results List to add the found entries to.
+     */
+    private void search(Node node, double[] min, double[] max, ArrayList<Entry> results) {
+        for (Box child : node.children) {
+            if (child.intersects(min, max)) {
+                if (node.leaf) {
+                    results.add((Entry) child);
+                } else {
+                    search((Node) child, min, max, results);
+                }
+            }
+        }
+    }
+
+    /**
+     * An axis aligned box in an OverlayRTree.
+     */
+    private abstract static class Box {
+        /**
+         * Returns the low side of this box in a dimension.
+         *
+         * @param d The dimension.
+         * @return The low side of this box in the dimension.
+         */
+        abstract double min(int d);
+
+        /**
+         * Returns the high side of this box in a dimension.
+         *
+         * @param d The dimension.
+         * @return The high side of this box in the dimension.
+         */
+        abstract double max(int d);
+
+        /**
+         * Returns the sum of the side lengths of this box. Used instead of the volume, since every entry is flat in
+         * the ImageFile dimension.
+         *
+         * @return The sum of the side lengths of this box.
+         */
+        double margin() {
+            double margin = 0;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                margin += max(d) - min(d);
+            }
+            return margin;
+        }
+
+        /**
+         * Returns how much the margin of this box would grow to include another box.
+         *
+         * @param other Box to include.
+         * @return The growth of the margin of this box.
+         */
+        double growth(Box other) {
+            double growth = 0;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                growth += Math.max(max(d), other.max(d)) - Math.min(min(d), other.min(d)) - (max(d) - min(d));
+            }
+            return growth;
+        }
+
+        /**
+         * Returns true iff this box intersects the box between two corners.
+         *
+         * @param otherMin Low corner of the other box.
+         * @param otherMax High corner of the other box.
+         * @return True iff the boxes intersect.
+         */
+        boolean intersects(double[] otherMin, double[] otherMax) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                if (min(d) > otherMax[d] || max(d) < otherMin[d]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A node of an OverlayRTree. Its box contains the boxes of all its children.
+     */
+    private static class Node extends Box {
+        /**
+         * Whether the children of this node are entries rather than nodes.
+         */
+        final boolean leaf;
+        /**
+         * The children of this node.
+         */
+        final ArrayList<Box> children = new ArrayList<>();
+        /**
+         * The low and high corners of the box of this node.
+         */
+        final double[] min = new double[DIMENSIONS], max = new double[DIMENSIONS];
+
+        /**
+         * Constructs an empty node.
+         *
+         * @param leaf Whether the children of this node are entries rather than nodes.
+         */
+        Node(boolean leaf) {
+            this.leaf = leaf;
+            clear();
+        }
+
+        @Override
+        double min(int d) {
+            return min[d];
+        }
+
+        @Override
+        double max(int d) {
+            return max[d];
+        }
+
+        /**
+         * Adds a child to this node.
+         *
+         * @param child Child to add.
+         */
+        void add(Box child) {
+            children.add(child);
+            include(child);
+        }
+
+        /**
+         * Grows the box of this node to include another box.
+         *
+         * @param other Box to include.
+         */
+        void include(Box other) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                min[d] = Math.min(min[d], other.min(d));
+                max[d] = Math.max(max[d], other.max(d));
+            }
+        }
+
+        /**
+         * Removes every child of this node.
+         */
+        void clear() {
+            children.clear();
+            recomputeBounds();
+        }
+
+        /**
+         * Shrinks the box of this node to the boxes of its children.
+         */
+        void recomputeBounds() {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                min[d] = Double.POSITIVE_INFINITY;
+                max[d] = Double.NEGATIVE_INFINITY;
+            }
+            for (Box child : children) {
+                include(child);
+            }
+        }
+    }
+
+    /**
+     * An entry of an OverlayRTree. The box of an ImageTagOverlay of an ImageFile, kept as the points of the
+     * ImageTagOverlay at the precision an OverlayStore stores them.
+     */
+    static class Entry extends Box {
+        /**
+         * The ImageFile the ImageTagOverlay belongs to.
+         */
+        final ImageFile imageFile;
+        /**
+         * The points of the ImageTagOverlay.
+         */
+        private final float x1, y1, x2, y2;
+        /**
+         * Id of the ImageFile.
+         */
+        private final int imageId;
+
+        /**
+         * Constructs the entry of an ImageTagOverlay of an ImageFile.
+         *
+         * @param imageFile ImageFile the ImageTagOverlay belongs to.
+         * @param imageId   Id of the ImageFile.
+         * @param x1        X coordinate of the first point of the ImageTagOverlay.
+         * @param y1        Y coordinate of the first point of the ImageTagOverlay.
+         * @param x2        X coordinate of the second point of the ImageTagOverlay.
+         * @param y2        Y coordinate of the second point of the ImageTagOverlay.
+         */
+        Entry(ImageFile imageFile, int imageId, float x1, float y1, float x2, float y2) {
+            this.imageFile = imageFile;
+            this.imageId = imageId;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        @Override
+        double min(int d) {
+            return d == 0 ? Math.min(x1, x2) : d == 1 ? Math.min(y1, y2) : imageId;
+        }
+
+        @Override
+        double max(int d) {
+            return d == 0 ? Math.max(x1, x2) : d == 1 ? Math.max(y1, y2) : imageId;
+        }
+
+        /**
+         * Returns the area of the ImageTagOverlay of this entry.
+         *
+         * @return The area of the ImageTagOverlay of this entry.
+         */
+        double area() {
+            return Math.abs((double) x2 - x1) * Math.abs((double) y2 - y1);
+        }
+
+        /**
+         * Returns true iff the ImageTagOverlay of this entry has the points of a specified ImageTagOverlay, at the
+         * stored float precision.
+         *
+         * @param overlay ImageTagOverlay to compare with.
+         * @return True iff the points are the same.
+         */
+        boolean hasPointsOf(ImageTagOverlay overlay) {
+            return x1 == (float) overlay.getX1() && y1 == (float) overlay.getY1() && x2 == (float) overlay.getX2()
+                    && y2 == (float) overlay.getY2();
+        }
+
+        /**
+         * Returns the ImageTagOverlay of this entry.
+         *
+         * @param tagName Tag name of the OverlayRTree this entry is in.
+         * @return A new ImageTagOverlay with the points of this entry, for the tag name.
+         */
+        ImageTagOverlay toOverlay(String tagName) {
+            return new ImageTagOverlay(x1, y1, x2, y2, tagName);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package overlay;
+
+import image.ImageFile;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.function.IntPredicate;
+
+/**
+ * An OverlayStore. Holds the ImageTagOverlays of one ImageFile, any number per tag, in packed primitive columns: four
+ * floats for the points of each ImageTagOverlay and an int naming its tag in a small per-image table of tag names.
+ * An ImageTagOverlay takes 20 bytes instead of a serialized object of its own, and many can be added or removed at
+ * once.
+ */
+public class OverlayStore implements Serializable {
+    /**
+     * Version of the serialized form, pinned so saved catalogs keep loading when methods change.
+     */
+    private static final long serialVersionUID = -3627848644941484255L;
+    /**
+     * Number of floats stored for each ImageTagOverlay.
+     */
+    private static final int COORDINATES_PER_OVERLAY = 4;
+    /**
+     * The points of the stored ImageTagOverlays: x1, y1, x2, y2 for each.
+     */
+    private float[] coordinates = new float[0];
+    /**
+     * The tag id of each stored ImageTagOverlay.
+     */
+    private int[] tagIds = new int[0];
+    /**
+     * The tag names of this OverlayStore. A tag id is an index into this list.
+     */
+    private ArrayList<String> tagNames = new ArrayList<>();
+    /**
+     * Number of ImageTagOverlays stored.
+     */
+    private int size = 0;
+
+    /**
+     * Adds ImageTagOverlays to this OverlayStore. Each ImageTagOverlay is stored for its tag name.
+     *
+     * @param overlays ImageTagOverlays to add.
+     */
+    public void addAll(Collection<ImageTagOverlay> overlays) {
+        ensureCapacity(size + overlays.size());
+        for (ImageTagOverlay overlay : overlays) {
+            int offset = size * COORDINATES_PER_OVERLAY;
+            coordinates[offset] = (float) overlay.getX1();
+            coordinates[offset + 1] = (float) overlay.getY1();
+            coordinates[offset + 2] = (float) overlay.getX2();
+            coordinates[offset + 3] = (float) overlay.getY2();
+            tagIds[size] = tagId(overlay.getTagName());
+            size++;
+        }
+    }
+
+    /**
+     * Removes every ImageTagOverlay stored for any of a collection of tag names.
+     *
+     * @param tagNamesToRemove Tag names whose ImageTagOverlays to remove.
+     * @return The removed ImageTagOverlays.
+     */
+    public ArrayList<ImageTagOverlay> removeTags(Collection<String> tagNamesToRemove) {
+        boolean[] removedTagIds = new boolean[tagNames.size()];
+        for (int id = 0; id < tagNames.size(); id++) {
+            removedTagIds[id] = tagNamesToRemove.contains(tagNames.get(id));
+        }
+        return removeIf(row -> removedTagIds[tagIds[row]]);
+    }
+
+    /**
+     * Removes every stored ImageTagOverlay equal to one of a collection of ImageTagOverlays.
+     *
+     * @param overlays ImageTagOverlays to remove.
+     * @return The removed ImageTagOverlays.
+     */
+    public ArrayList<ImageTagOverlay> removeAll(Collection<ImageTagOverlay> overlays) {
+        HashSet<ImageTagOverlay> toRemove = new HashSet<>(overlays);
+        return removeIf(row -> toRemove.contains(get(row)));
+    }
+
+    /**
+     * Removes every stored ImageTagOverlay with the same points as a specified ImageTagOverlay, whatever its tag.
+     *
+     * @param overlay ImageTagOverlay whose rectangle to remove.
+     * @return The removed ImageTagOverlays.
+     */
+    public ArrayList<ImageTagOverlay> removeRectangle(ImageTagOverlay overlay) {
+        float x1 = (float) overlay.getX1(), y1 = (float) overlay.getY1();
+        float x2 = (float) overlay.getX2(), y2 = (float) overlay.getY2();
+        return removeIf(row -> {
+            int offset = row * COORDINATES_PER_OVERLAY;
+            return coordinates[offset] == x1 && coordinates[offset + 1] == y1
+                    && coordinates[offset + 2] == x2 && coordinates[offset + 3] == y2;
+        });
+    }
+
+    /**
+     * Returns the ImageTagOverlays stored for any of a collection of tag names.
+     *
+     * @param tagNamesToGet Tag names whose ImageTagOverlays to return.
+     * @return The ImageTagOverlays stored for the tag names.
+     */
+    public ArrayList<ImageTagOverlay> getOverlaysForTags(Collection<String> tagNamesToGet) {
+        ArrayList<ImageTagOverlay> overlays = new ArrayList<>();
+        for (int id = 0; id < tagNames.size(); id++) {
+            if (tagNamesToGet.contains(tagNames.get(id))) {
+                for (int row = 0; row < size; row++) {
+                    if (tagIds[row] == id) {
+                        overlays.add(get(row));
+                    }
+                }
+            }
+        }
+        return overlays;
+    }
+
+    /**
+     * Returns every stored ImageTagOverlay.
+     *
+     * @return Every stored ImageTagOverlay.
+     */
+    public ArrayList<ImageTagOverlay> getOverlays() {
+        ArrayList<ImageTagOverlay> overlays = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            overlays.add(get(row));
+        }
+        return overlays;
+    }
+
+    /**
+     * Adds every stored ImageTagOverlay to an OverlayIndex, without creating ImageTagOverlay objects for them.
+     *
+     * @param index     OverlayIndex to add the ImageTagOverlays to.
+     * @param imageFile ImageFile the ImageTagOverlays belong to.
+     */
+    public void addTo(OverlayIndex index, ImageFile imageFile) {
+        for (int row = 0; row < size; row++) {
+            int offset = row * COORDINATES_PER_OVERLAY;
+            index.add(imageFile, coordinates[offset], coordinates[offset + 1], coordinates[offset + 2],
+                    coordinates[offset + 3], tagNames.get(tagIds[row]));
+        }
+    }
+
+    /**
+     * Returns the number of stored ImageTagOverlays.
+     *
+     * @return The number of stored ImageTagOverlays.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ImageTagOverlay stored in a specified row.
+     *
+     * @param row Row of the ImageTagOverlay.
+     * @return The ImageTagOverlay stored in the row.
+     */
+    private ImageTagOverlay get(int row) {
+        int offset = row * COORDINATES_PER_OVERLAY;
+        return new ImageTagOverlay(coordinates[offset], coordinates[offset + 1], coordinates[offset + 2],
+                coordinates[offset + 3], tagNames.get(tagIds[row]));
+    }
+
+    /**
+     * Removes the rows matching a condition, moving the kept rows down in a single pass.
+     *
+     * @param condition Condition on a row index for the row to be removed.
+     * @return The removed ImageTagOverlays.
+     */
+    private ArrayList<ImageTagOverlay> removeIf(IntPredicate condition) {
+        ArrayList<ImageTagOverlay> removed = new ArrayList<>();
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (condition.test(row)) {
+                removed.add(get(row));
+            } else {
+                if (kept != row) {
+                    System.arraycopy(coordinates, row * COORDINATES_PER_OVERLAY, coordinates,
+                            kept * COORDINATES_PER_OVERLAY, COORDINATES_PER_OVERLAY);
+                    tagIds[kept] = tagIds[row];
+                }
+                kept++;
+            }
+        }
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Returns the tag id of a tag name, adding the tag name to this OverlayStore if needed.
+     *
+     * @param tagName Tag name to get the id of.
+     * @return The tag id of the tag name.
+     */
+    private int tagId(String tagName) {
+        int id = tagNames.indexOf(tagName);
+        if (id < 0) {
+            tagNames.add(tagName);
+            id = tagNames.size() - 1;
+        }
+        return id;
+    }
+
+    /**
+     * Returns a copy of this OverlayStore, holding the same ImageTagOverlays in columns of its own.
+     *
+     * @return A copy of this OverlayStore.
+     */
+    public OverlayStore copy() {
+        OverlayStore copy = new OverlayStore();
+        copy.coordinates = Arrays.copyOf(coordinates, size * COORDINATES_PER_OVERLAY);
+        copy.tagIds = Arrays.copyOf(tagIds, size);
+        copy.tagNames.addAll(tagNames);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Grows the columns of this OverlayStore to hold at least a specified number of ImageTagOverlays.
+     *
+     * @param capacity Number of ImageTagOverlays to hold.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > tagIds.length) {
+            int newCapacity = Math.max(capacity, tagIds.length + (tagIds.length >> 1));
+            float[] newCoordinates = new float[newCapacity * COORDINATES_PER_OVERLAY];
+            System.arraycopy(coordinates, 0, newCoordinates, 0, size * COORDINATES_PER_OVERLAY);
+            coordinates = newCoordinates;
+            int[] newTagIds = new int[newCapacity];
+            System.arraycopy(tagIds, 0, newTagIds, 0, size);
+            tagIds = newTagIds;
+        }
+    }
+
+    /**
+     * Trims the columns to the stored ImageTagOverlays before this OverlayStore is serialized, so unused capacity is
+     * not written to the persistence files.
+     *
+     * @param out Stream to serialize this OverlayStore to.
+     * @throws IOException ..
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        if (tagIds.length != size) {
+            float[] trimmedCoordinates = new float[size * COORDINATES_PER_OVERLAY];
+            System.arraycopy(coordinates, 0, trimmedCoordinates, 0, trimmedCoordinates.length);
+            coordinates = trimmedCoordinates;
+            int[] trimmedTagIds = new int[size];
+            System.arraycopy(tagIds, 0, trimmedTagIds, 0, size);
+            tagIds = trimmedTagIds;
+        }
+        out.defaultWriteObject();
+    }
+}
@@ -2,11 +2,25 @@ package tag;
 
 import image.ImageFile;
 
+import utils.CatalogLinks;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 public class Tag implements Serializable {
 
+    /**
+     * Version of the serialized form, as written to the tag persistence file by earlier releases.
+     */
+    private static final long serialVersionUID = 101517526299465332L;
+
     /**
      * The name of this tag.
      */
@@ -40,7 +54,7 @@ public class Tag implements Serializable {
      *
      * @return A list of all ImageFiles that are tagged with this Tag.
      */
-    ArrayList<ImageFile> getTaggedImages() {
+    public ArrayList<ImageFile> getTaggedImages() {
         return this.imagesWithThisTag;
     }
 
@@ -64,6 +78,23 @@ public class Tag implements Serializable {
         }
     }
 
+    /**
+     * Sets a collection of ImageFiles to be associated with this Tag. ImageFiles are compared by identity rather than
+     * equality, so the ImageFiles should be the instances an ImageManager manages; this keeps adding many ImageFiles
+     * linear in their number.
+     *
+     * @param imgs ImageFiles to associate with this Tag.
+     */
+    public void addImagesToTag(Collection<ImageFile> imgs) {
+        Set<ImageFile> present = Collections.newSetFromMap(new IdentityHashMap<>());
+        present.addAll(imagesWithThisTag);
+        for (ImageFile img : imgs) {
+            if (present.add(img)) {
+                imagesWithThisTag.add(img);
+            }
+        }
+    }
+
     /**
      * Removes an ImageFile that is associated with this Tag.
      *
@@ -87,6 +118,40 @@ public class Tag implements Serializable {
         imagesWithThisTag.clear();
     }
 
+    /**
+     * Writes this Tag to a serialization stream. The ImageFiles are not written as the imagesWithThisTag field, which
+     * would recurse through every ImageFile and Tag linked to this one, but by CatalogLinks.
+     *
+     * @param out Stream to write this Tag to.
+     * @throws IOException ..
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("tagName", tagName);
+        fields.put("imagesWithThisTag", null);
+        out.writeFields();
+        CatalogLinks.write(out, this);
+    }
+
+    /**
+     * Restores this Tag from a serialization stream. Catalogs saved by earlier releases store the ImageFiles in the
+     * imagesWithThisTag field; newer catalogs store them with CatalogLinks.
+     *
+     * @param in Stream to restore this Tag from.
+     * @throws IOException            ..
+     * @throws ClassNotFoundException ..
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        tagName = (String) fields.get("tagName", null);
+        imagesWithThisTag = (ArrayList<ImageFile>) fields.get("imagesWithThisTag", null);
+        if (imagesWithThisTag == null) {
+            imagesWithThisTag = new ArrayList<>();
+            CatalogLinks.read(in);
+        }
+    }
+
     /**
      * Returns true iff this Tag is equivalent to a specified Object.
      *
@@ -2,14 +2,17 @@ package tag;
 
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.FXCollections;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.SelectionMode;
 import javafx.util.Callback;
+import utils.ObservableListUpdater;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 //**************************************************************************************
 // *    Title: (adatped from) <JavaFx Documentation - Using JavaFxControls - ListView>
@@ -100,8 +103,28 @@ public class TagListView implements ChangeListener<Tag> {
      * @param tags The list of Tags that this TagListView should display.
      */
     public void setItems(ArrayList<Tag> tags) {
-        tagListView.getItems().clear();
-        tagListView.setItems(FXCollections.observableArrayList(tags));
+        ObservableListUpdater.update(tagListView.getItems(), tags);
+    }
+
+    /**
+     * Adds Tags to the Tags this TagListView displays.
+     *
+     * @param tags Tags to add.
+     */
+    void addItems(ArrayList<Tag> tags) {
+        tagListView.getItems().addAll(tags);
+    }
+
+    /**
+     * Removes Tags from the Tags this TagListView displays. Tags are compared by identity, so removing many Tags does
+     * not compare every displayed Tag with every removed one.
+     *
+     * @param tags Tags to remove.
+     */
+    void removeItems(ArrayList<Tag> tags) {
+        Set<Tag> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        toRemove.addAll(tags);
+        tagListView.getItems().removeAll(toRemove);
     }
 
     /**
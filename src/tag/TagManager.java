@@ -2,11 +2,19 @@ package tag;
 
 import image.ImageFile;
 import image.ImageManager;
+import metrics.CatalogLoadEvent;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import utils.CatalogCopy;
+import utils.ChangeEvent;
+import utils.ChangeEventBus;
 import utils.ConfigurationManager;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 //**************************************************************************************
 // *    Title: (adatped from) <"Serialize Code" from CSC207 Fall 2017 UofT week 5 notes>
@@ -22,6 +30,15 @@ import java.util.HashMap;
  * persistence files.
  */
 public class TagManager {
+    /**
+     * Number of Tags created.
+     */
+    private static final Counter TAGS_ADDED = MetricsRegistry.getInstance().counter("tag.added");
+    /**
+     * Time taken to remove Tags, including removing them from their ImageFiles.
+     */
+    private static final LatencyHistogram REMOVE_LATENCY = MetricsRegistry.getInstance().histogram("tag.remove");
+
     /**
      * Stores all the Tag objects. Tags are accessed by their String name.
      */
@@ -30,19 +47,20 @@ public class TagManager {
      * Collaborator ConfigurationManager for this TagManager.
      */
     private ConfigurationManager configManager;
-    /**
-     * The TagManagerView (View) for this TagManager (controller)
-     */
-    private TagManagerView tagManagerView;
     /**
      * The collaborator ImageManager for this TagManager.
      */
     private ImageManager imageManager;
+    /**
+     * Whether the persistence file exists but could not be loaded, so it must not be saved over.
+     */
+    private boolean loadFailed = false;
 
     /**
      * Constructs an empty TagManager.
      */
     public TagManager() {
+        registerGauges();
     }
 
     /**
@@ -61,9 +79,20 @@ public class TagManager {
             } else {
                 file.createNewFile();
             }
-        } catch (ClassNotFoundException | IOException e) {
+        } catch (ClassNotFoundException e) {
+            loadFailed = true;
+            System.out.print("Tag Manager failed to initialize.");
+        } catch (IOException e) {
             System.out.print("Tag Manager failed to initialize.");
         }
+        registerGauges();
+    }
+
+    /**
+     * Makes the gauges of the TagManager read from this TagManager.
+     */
+    private void registerGauges() {
+        MetricsRegistry.getInstance().gauge("tag.count", this, manager -> manager.tagMap.size());
     }
 
     /**
@@ -120,18 +149,29 @@ public class TagManager {
      * @param tagName Name of Tag to add/create.
      */
     public void addTag(String tagName) {
-        String spaceLessTagName = tagName.replaceAll("\\s+", "");
-        String validTagName = spaceLessTagName.replaceAll("@", "");
+        String validTagName = toValidTagName(tagName);
         if (!tagMap.containsKey(validTagName) && validTagName.length() > 0) {
             Tag new_tag = new Tag(validTagName);
             tagMap.put(validTagName, new_tag);
+            TAGS_ADDED.increment();
             // update view
-            tagManagerView.updateTagList(new ArrayList<>(tagMap.values()));
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.TAG_ADDED, new_tag);
             // save files
             configManager.updatePersistenceFiles();
         }
     }
 
+    /**
+     * Returns a String with the spaces and invalid characters of a tag name removed, as addTag would store it.
+     *
+     * @param tagName Tag name to make valid.
+     * @return The valid tag name; empty if nothing valid is left.
+     */
+    public static String toValidTagName(String tagName) {
+        String spaceLessTagName = tagName.replaceAll("\\s+", "");
+        return spaceLessTagName.replaceAll("@", "");
+    }
+
     /**
      * Removes a Tag of a given String name from this TagManager.
      *
@@ -140,6 +180,7 @@ public class TagManager {
     @SuppressWarnings("unused")
     @Deprecated
     void removeTag(String tagName) {
+        long start = System.nanoTime();
         if (tagMap.containsKey(tagName)) {
 
             // todo : a bit messy; we should use a helper in phase 2?
@@ -152,10 +193,11 @@ public class TagManager {
 
             tagMap.remove(tagName);
             // update view
-            tagManagerView.updateTagList(new ArrayList<>(tagMap.values()));
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.TAG_REMOVED, toRemove);
             // save files
             configManager.updatePersistenceFiles();
         }
+        REMOVE_LATENCY.recordSince(start);
     }
 
     /**
@@ -165,6 +207,7 @@ public class TagManager {
      */
     @SuppressWarnings("all")
     void removeTags(ArrayList<String> tagNames) {
+        long start = System.nanoTime();
         if (!tagNames.isEmpty()) {
             ArrayList<ImageFile> affectedImageFiles = new ArrayList<>();
 
@@ -187,14 +230,15 @@ public class TagManager {
                     Tag toRemove = tagMap.get(tagName);
                     toRemove.clearTag();
                     tagMap.remove(tagName);
+                    // update view
+                    ChangeEventBus.getInstance().publish(ChangeEvent.Type.TAG_REMOVED, toRemove);
                 }
             }
 
-            tagManagerView.updateTagList(new ArrayList<>(tagMap.values()));
             // save files
             configManager.updatePersistenceFiles();
         }
-
+        REMOVE_LATENCY.recordSince(start);
     }
 
     /**
@@ -222,6 +266,36 @@ public class TagManager {
         output.close();
     }
 
+    /**
+     * Returns a copy of the contents of this TagManager that would be saved to a serialization file. Lets the contents
+     * be captured on the JavaFx thread and serialized on another.
+     *
+     * @param copy CatalogCopy to copy the Tags with.
+     * @return A copy of the contents of this TagManager, complete once copy.complete() has been called.
+     */
+    public HashMap<String, Tag> copyContents(CatalogCopy copy) {
+        HashMap<String, Tag> contents = new HashMap<>();
+        for (Map.Entry<String, Tag> entry : tagMap.entrySet()) {
+            contents.put(entry.getKey(), copy.copyOf(entry.getValue()));
+        }
+        return contents;
+    }
+
+    /**
+     * Returns contents captured with copyContents, serialized as they would be saved to a serialization file.
+     *
+     * @param contents Contents of a TagManager, as returned by copyContents.
+     * @return The serialized contents.
+     * @throws IOException ..
+     */
+    public static byte[] serializeToBytes(HashMap<String, Tag> contents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutput output = new ObjectOutputStream(bytes);
+        output.writeObject(contents);
+        output.close();
+        return bytes.toByteArray();
+    }
+
     /**
      * Saves the contents of this TagManager to a serialization files. Only tagged images need to be stored.
      *
@@ -230,7 +304,8 @@ public class TagManager {
      */
     @SuppressWarnings("all")
     public void readFromFile(String path) throws ClassNotFoundException {
-
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
         try {
             InputStream file = new FileInputStream(path);
             InputStream buffer = new BufferedInputStream(file);
@@ -238,18 +313,39 @@ public class TagManager {
             tagMap = (HashMap<String, Tag>) input.readObject();
             input.close();
 
-        } catch (IOException ex) {
+            if (event.shouldCommit()) {
+                event.setPath(path);
+                event.setBytesRead(new File(path).length());
+                event.setItemCount(tagMap.size());
+                event.commit();
+            }
 
+        } catch (EOFException | FileNotFoundException ex) {
+            // persistence files may not yet exist for TagManager
+        } catch (IOException ex) {
+            // for example an InvalidClassException for a catalog saved by an incompatible release
+            loadFailed = true;
+            System.out.println("TagManager failed to load " + path + " (" + ex + ") -- it will not be saved over");
         }
     }
 
     /**
-     * Sets the TagManagerView (View) for this TagManager (controller)
+     * Returns true iff the persistence file of this TagManager exists but could not be loaded. Saving would replace
+     * the Tags in it with none, so it must not be saved over.
+     *
+     * @return True iff the persistence file could not be loaded.
+     */
+    public boolean failedToLoad() {
+        return loadFailed;
+    }
+
+    /**
+     * Sets the TagManagerView (View) for this TagManager (controller). Later changes reach the view through the
+     * ChangeEventBus.
      *
      * @param tagManagerView TagManagerView to set for this TagManager
      */
     public void setView(TagManagerView tagManagerView) {
-        this.tagManagerView = tagManagerView;
         tagManagerView.updateTagList(new ArrayList<>(tagMap.values()));
     }
 
@@ -1,12 +1,15 @@
 package tag;
 
-import image.ImageManagerView;
 import javafx.event.ActionEvent;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import utils.ChangeEvent;
+import utils.ChangeEventBatch;
+import utils.ChangeEventBus;
+import utils.ChangeEventSubscriber;
 import utils.View;
 
 
@@ -26,7 +29,7 @@ import java.util.ArrayList;
 /**
  * TagManagerView. The View for a TagManager.
  */
-public class TagManagerView extends View {
+public class TagManagerView extends View implements ChangeEventSubscriber {
     /**
      * TagListView of this TagManagerView. Displays a list of the currently managed Tags from a TagManager
      */
@@ -55,11 +58,6 @@ public class TagManagerView extends View {
      */
     private GridPane gridPane = new GridPane();
 
-    /**
-     * Collaborator (sibling) imageManagerView of this TagManagerView.
-     */
-    private ImageManagerView imageManagerView;
-
     /**
      * Constructs a TagManagerView (view) for a given TagManager (controller)
      *
@@ -68,6 +66,7 @@ public class TagManagerView extends View {
     public TagManagerView(TagManager tagManager) {
         this.tagManager = tagManager;
         tagManager.setView(this);
+        ChangeEventBus.getInstance().subscribe(this);
         setupGridPane();
         setupInputs();
         setupView();
@@ -79,7 +78,7 @@ public class TagManagerView extends View {
      * @param e ActionEvent to filter and handle.
      */
     @Override
-    public void handle(ActionEvent e) {
+    protected void handleAction(ActionEvent e) {
         Object eventsource = e.getSource();
 
         // event from textField
@@ -130,6 +129,22 @@ public class TagManagerView extends View {
         tagListView.setItems(tagArrayList);
     }
 
+    /**
+     * Adds the Tags created and removes the Tags deleted since the last pulse from the Tags displayed in the program
+     * view.
+     *
+     * @param changes The ChangeEvents published since the last pulse.
+     */
+    @Override
+    public void updateFromChanges(ChangeEventBatch changes) {
+        if (changes.contains(ChangeEvent.Type.TAG_ADDED)) {
+            tagListView.addItems(changes.getSubjects(ChangeEvent.Type.TAG_ADDED, Tag.class));
+        }
+        if (changes.contains(ChangeEvent.Type.TAG_REMOVED)) {
+            tagListView.removeItems(changes.getSubjects(ChangeEvent.Type.TAG_REMOVED, Tag.class));
+        }
+    }
+
     /**
      * Get the Tag that is currently selected in the program view.
      *
@@ -154,15 +169,6 @@ public class TagManagerView extends View {
         return tagListView.getCurrentlySelectedTags();
     }
 
-    /**
-     * Set the sibling (collaborator) ImageManagerView for this TagManagerView
-     *
-     * @param imv The ImageManagerView to associate with this TagManagerView
-     */
-    public void setSiblingImageManagerView(ImageManagerView imv) {
-        this.imageManagerView = imv;
-    }
-
     /**
      * Sets up this TagManagerView in the main program view.
      */
@@ -186,7 +192,6 @@ public class TagManagerView extends View {
         ArrayList<String> tagsToDelete = tagListView.getCurrentlySelectedTags();
         if (!tagsToDelete.isEmpty()) {
             tagManager.removeTags(tagsToDelete);
-            imageManagerView.updateCurrentlySelectedView();
         }
     }
 
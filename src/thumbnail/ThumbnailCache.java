@@ -0,0 +1,132 @@
+package thumbnail;
+
+import image.ImageFile;
+import image.filenamestrategy.FileLocation;
+import image.filenamestrategy.FileUntaggedName;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A ThumbnailCache. Stores pre-generated thumbnails of ImageFiles on disk, so thumbnails do not need to be decoded from
+ * the (possibly very large) original image every time they are shown.
+ */
+public class ThumbnailCache {
+    /**
+     * The maximum width and height of a cached thumbnail.
+     */
+    public static final int THUMBNAIL_SIZE = 128;
+    /**
+     * The directory the singleton instance stores thumbnails in, unless another one is set.
+     */
+    private static final String DEFAULT_DIRECTORY = "thumbnails";
+    /**
+     * The directory thumbnails are stored in.
+     */
+    private File cacheDirectory;
+    /**
+     * Singleton instance for global access to a ThumbnailCache, or null until it is first needed.
+     */
+    private static ThumbnailCache instance;
+
+    /**
+     * Constructs a new ThumbnailCache that stores thumbnails in a specified directory. The directory is created when
+     * the first thumbnail is written.
+     *
+     * @param directoryPath Path of the directory to store thumbnails in.
+     */
+    public ThumbnailCache(String directoryPath) {
+        cacheDirectory = new File(directoryPath);
+    }
+
+    /**
+     * Returns the file a thumbnail for a specified ImageFile is stored in. Thumbnails are identified by the ImageFile's
+     * location and untagged name (the same identity used by ImageFile.equals), so tagging an image does not invalidate
+     * its thumbnail, and by the file's size and modification time, so editing the image does.
+     *
+     * @param imageFile ImageFile for which to get the thumbnail file.
+     * @return The file in which the thumbnail for the ImageFile is stored.
+     */
+    public File getThumbnailFile(ImageFile imageFile) {
+        File file = imageFile.getImageFilePath();
+        String identity = new FileLocation().getName(imageFile) + File.separator
+                + new FileUntaggedName(true).getName(imageFile) + "|" + file.length() + "|" + file.lastModified();
+        return new File(cacheDirectory, hash(identity) + ".png");
+    }
+
+    /**
+     * Returns true iff a thumbnail has been cached for a specified ImageFile.
+     *
+     * @param imageFile ImageFile to check for.
+     * @return True iff a thumbnail has been cached for the ImageFile.
+     */
+    public boolean hasThumbnail(ImageFile imageFile) {
+        return getThumbnailFile(imageFile).exists();
+    }
+
+    /**
+     * Writes the thumbnail for a specified ImageFile to this ThumbnailCache. The thumbnail is written to a temporary
+     * file first, so an interrupted write never leaves a partial thumbnail in the cache.
+     *
+     * @param imageFile ImageFile the thumbnail belongs to.
+     * @param thumbnail The thumbnail to write.
+     * @throws IOException ..
+     */
+    public void writeThumbnail(ImageFile imageFile, BufferedImage thumbnail) throws IOException {
+        File thumbnailFile = getThumbnailFile(imageFile);
+        Files.createDirectories(cacheDirectory.toPath());
+        File temporaryFile = new File(cacheDirectory, thumbnailFile.getName() + ".tmp");
+        ImageIO.write(thumbnail, "png", temporaryFile);
+        Files.move(temporaryFile.toPath(), thumbnailFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the singleton instance of the ThumbnailCache class. Unless setDirectory was called first, it stores
+     * thumbnails in the "thumbnails" directory of the working directory.
+     *
+     * @return The singleton instance of the ThumbnailCache class.
+     */
+    public static synchronized ThumbnailCache getInstance() {
+        if (instance == null) {
+            instance = new ThumbnailCache(DEFAULT_DIRECTORY);
+        }
+        return instance;
+    }
+
+    /**
+     * Makes the singleton instance of the ThumbnailCache class store thumbnails in a specified directory.
+     *
+     * @param directoryPath Path of the directory to store thumbnails in.
+     */
+    public static synchronized void setDirectory(String directoryPath) {
+        instance = new ThumbnailCache(directoryPath);
+    }
+
+    /**
+     * Returns a hexadecimal SHA-1 hash of a specified string.
+     *
+     * @param s String to hash.
+     * @return The hexadecimal hash of the string.
+     */
+    private static String hash(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
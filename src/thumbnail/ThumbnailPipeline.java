@@ -0,0 +1,415 @@
+package thumbnail;
+
+import image.ImageFile;
+import metrics.ThumbnailDecodeEvent;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A ThumbnailPipeline. Generates cached thumbnails for a list of image files on a parallel pipeline of four stages
+ * (read, decode, scale and write) connected by bounded queues, so a slow stage holds back the stages before it instead
+ * of filling up the heap. Images that already have a cached thumbnail are skipped, so an interrupted run resumes where
+ * it stopped.
+ */
+public class ThumbnailPipeline {
+    /**
+     * The number of images that can wait between two stages.
+     */
+    private static final int QUEUE_CAPACITY = 64;
+    /**
+     * How often (in milliseconds) throughput is reported while the pipeline runs.
+     */
+    private static final long REPORT_INTERVAL = 10000;
+    /**
+     * Marks the end of the images in a queue.
+     */
+    private static final WorkItem END = new WorkItem(null);
+
+    /**
+     * The cache thumbnails are written to.
+     */
+    private ThumbnailCache thumbnailCache;
+    /**
+     * Number of threads for each of the decode and scale stages.
+     */
+    private int workerThreads;
+    /**
+     * The stages of this pipeline, in order.
+     */
+    private Stage readStage = new Stage("read");
+    private Stage decodeStage = new Stage("decode");
+    private Stage scaleStage = new Stage("scale");
+    private Stage writeStage = new Stage("write");
+    /**
+     * Number of images skipped because they already have a cached thumbnail.
+     */
+    private AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Constructs a new ThumbnailPipeline that writes to a specified ThumbnailCache.
+     *
+     * @param thumbnailCache The ThumbnailCache to write thumbnails to.
+     * @param workerThreads  The number of threads for each of the decode and scale stages.
+     */
+    public ThumbnailPipeline(ThumbnailCache thumbnailCache, int workerThreads) {
+        this.thumbnailCache = thumbnailCache;
+        this.workerThreads = workerThreads;
+    }
+
+    /**
+     * Generates thumbnails for a list of image files and waits for the pipeline to finish. Throughput of each stage is
+     * reported periodically and when the pipeline finishes.
+     *
+     * @param imageFiles Image files to generate thumbnails for.
+     * @throws InterruptedException ..
+     */
+    public void run(ArrayList<File> imageFiles) throws InterruptedException {
+        BlockingQueue<WorkItem> readToDecode = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<WorkItem> decodeToScale = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<WorkItem> scaleToWrite = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Iterator<File> source = imageFiles.iterator();
+
+        ArrayList<Thread> threads = new ArrayList<>();
+        // reading and writing are bound by the disk, decoding and scaling by the CPU
+        threads.addAll(readStage.start(2, null, readToDecode, item -> read(source)));
+        threads.addAll(decodeStage.start(workerThreads, readToDecode, decodeToScale, this::decode));
+        threads.addAll(scaleStage.start(workerThreads, decodeToScale, scaleToWrite, this::scale));
+        threads.addAll(writeStage.start(2, scaleToWrite, null, this::write));
+
+        long startTime = System.nanoTime();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(REPORT_INTERVAL);
+                if (thread.isAlive()) {
+                    report(startTime);
+                }
+            }
+        }
+        report(startTime);
+    }
+
+    /**
+     * Prints the throughput of every stage since a specified start time.
+     *
+     * @param startTime The time (from System.nanoTime) at which the pipeline started.
+     */
+    private void report(long startTime) {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println(String.format("%.0fs - skipped (already cached): %d", seconds, skipped.get()));
+        for (Stage stage : new Stage[]{readStage, decodeStage, scaleStage, writeStage}) {
+            System.out.println("    " + stage.describe(seconds));
+        }
+    }
+
+    /**
+     * Read stage. Takes the next image file without a cached thumbnail and reads its contents.
+     *
+     * @param source The remaining image files.
+     * @return The contents of the next image file, or END if there are none left.
+     * @throws IOException ..
+     */
+    private WorkItem read(Iterator<File> source) throws IOException {
+        while (true) {
+            ImageFile imageFile;
+            synchronized (source) {
+                if (!source.hasNext()) {
+                    return END;
+                }
+                imageFile = new ImageFile(source.next());
+            }
+            if (thumbnailCache.hasThumbnail(imageFile)) {
+                skipped.incrementAndGet();
+                continue;
+            }
+            WorkItem item = new WorkItem(imageFile);
+            item.bytes = Files.readAllBytes(imageFile.getImageFilePath().toPath());
+            return item;
+        }
+    }
+
+    /**
+     * Decode stage. Decodes an image, subsampling it while decoding so no more than about twice the thumbnail
+     * resolution is ever held in memory.
+     *
+     * @param item The image to decode.
+     * @return The image with its decoded pixels.
+     * @throws IOException ..
+     */
+    private WorkItem decode(WorkItem item) throws IOException {
+        ThumbnailDecodeEvent event = new ThumbnailDecodeEvent();
+        event.begin();
+        byte[] bytes = item.bytes;
+        item.bytes = null;
+        item.image = decodeSubsampled(bytes);
+        if (item.image == null) {
+            throw new IOException("No image reader for " + item.imageFile);
+        }
+        if (event.shouldCommit()) {
+            event.setPath(item.imageFile.getImageFilePath().getPath());
+            event.setWidth(item.image.getWidth());
+            event.setHeight(item.image.getHeight());
+            event.commit();
+        }
+        return item;
+    }
+
+    /**
+     * Scale stage. Scales a decoded image down to thumbnail size, preserving its aspect ratio.
+     *
+     * @param item The decoded image.
+     * @return The image with its pixels replaced by the thumbnail.
+     */
+    private WorkItem scale(WorkItem item) {
+        item.image = scaleToThumbnail(item.image);
+        return item;
+    }
+
+    /**
+     * Decodes an encoded image, subsampling it while decoding so no more than about twice the thumbnail resolution is
+     * ever held in memory.
+     *
+     * @param bytes The encoded image.
+     * @return The decoded image, or null if no ImageReader can read it.
+     * @throws IOException ..
+     */
+    public static BufferedImage decodeSubsampled(byte[] bytes) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes));
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, true);
+            int largestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+            int subsampling = Math.max(1, largestSide / (2 * ThumbnailCache.THUMBNAIL_SIZE));
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+            input.close();
+        }
+    }
+
+    /**
+     * Scales a decoded image down to thumbnail size, preserving its aspect ratio.
+     *
+     * @param image The decoded image.
+     * @return The thumbnail.
+     */
+    public static BufferedImage scaleToThumbnail(BufferedImage image) {
+        double factor = Math.min(1.0, (double) ThumbnailCache.THUMBNAIL_SIZE
+                / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = thumbnail.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return thumbnail;
+    }
+
+    /**
+     * Write stage. Writes a thumbnail to the ThumbnailCache.
+     *
+     * @param item The thumbnail to write.
+     * @return The written thumbnail.
+     * @throws IOException ..
+     */
+    private WorkItem write(WorkItem item) throws IOException {
+        thumbnailCache.writeThumbnail(item.imageFile, item.image);
+        return item;
+    }
+
+    /**
+     * An image moving through the pipeline.
+     */
+    private static class WorkItem {
+        /**
+         * The ImageFile this item is generating a thumbnail for.
+         */
+        private ImageFile imageFile;
+        /**
+         * Contents of the image file, between the read and decode stages.
+         */
+        private byte[] bytes;
+        /**
+         * Decoded pixels, between the decode and scale stages, and the thumbnail, between the scale and write stages.
+         */
+        private BufferedImage image;
+
+        /**
+         * Constructs a new WorkItem for a specified ImageFile.
+         *
+         * @param imageFile ImageFile to generate a thumbnail for.
+         */
+        private WorkItem(ImageFile imageFile) {
+            this.imageFile = imageFile;
+        }
+    }
+
+    /**
+     * The work a stage performs on a single item.
+     */
+    private interface StageTask {
+        WorkItem process(WorkItem item) throws Exception;
+    }
+
+    /**
+     * A stage of the pipeline. Runs a task on a number of threads, taking items from an input queue and putting the
+     * results on an output queue, and keeps count of the items it has processed.
+     */
+    private static class Stage {
+        /**
+         * The name of this stage.
+         */
+        private String name;
+        /**
+         * Number of items this stage has processed successfully.
+         */
+        private AtomicLong processed = new AtomicLong();
+        /**
+         * Number of items this stage has failed to process.
+         */
+        private AtomicLong failed = new AtomicLong();
+        /**
+         * Total time (in nanoseconds) the threads of this stage have spent processing items.
+         */
+        private AtomicLong busyNanos = new AtomicLong();
+
+        /**
+         * Constructs a new Stage with a specified name.
+         *
+         * @param name The name of this stage.
+         */
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Starts the threads of this stage. The stage ends once END is taken from the input queue (or returned by the
+         * task, for the first stage); the last of its threads to finish passes END on to the output queue.
+         *
+         * @param threadCount Number of threads to run this stage on.
+         * @param input       Queue to take items from, or null if the task produces its own items.
+         * @param output      Queue to put processed items on, or null if this is the last stage.
+         * @param task        The work this stage performs on each item.
+         * @return The started threads.
+         */
+        private ArrayList<Thread> start(int threadCount, BlockingQueue<WorkItem> input,
+                                        BlockingQueue<WorkItem> output, StageTask task) {
+            AtomicInteger running = new AtomicInteger(threadCount);
+            ArrayList<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        runWorker(input, output, task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        // also when the thread dies of an Error, so the next stage still ends and run returns
+                        if (running.decrementAndGet() == 0 && output != null) {
+                            putEnd(output);
+                        }
+                    }
+                }, "thumbnail-" + name + "-" + i);
+                thread.start();
+                threads.add(thread);
+            }
+            return threads;
+        }
+
+        /**
+         * Puts END on a queue, waiting for room even if the current thread is interrupted, so the stage after this one
+         * always ends.
+         *
+         * @param output Queue to put END on.
+         */
+        private void putEnd(BlockingQueue<WorkItem> output) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    output.put(END);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Processes items on the current thread until the end of the input is reached.
+         *
+         * @param input  Queue to take items from, or null if the task produces its own items.
+         * @param output Queue to put processed items on, or null if this is the last stage.
+         * @param task   The work to perform on each item.
+         * @throws InterruptedException ..
+         */
+        private void runWorker(BlockingQueue<WorkItem> input, BlockingQueue<WorkItem> output, StageTask task)
+                throws InterruptedException {
+            while (true) {
+                WorkItem item = input == null ? null : input.take();
+                if (item == END) {
+                    // leave END in the queue for the other threads of this stage
+                    input.put(END);
+                    return;
+                }
+
+                long start = System.nanoTime();
+                WorkItem result;
+                try {
+                    result = task.process(item);
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    System.out.println("Thumbnail " + name + " failed: " + (item == null ? e : item.imageFile));
+                    continue;
+                } finally {
+                    busyNanos.addAndGet(System.nanoTime() - start);
+                }
+                if (result == END) {
+                    return;
+                }
+                processed.incrementAndGet();
+                if (output != null) {
+                    output.put(result);
+                }
+            }
+        }
+
+        /**
+         * Returns a description of the throughput of this stage.
+         *
+         * @param seconds Seconds elapsed since the pipeline started.
+         * @return A description of the throughput of this stage.
+         */
+        private String describe(double seconds) {
+            long count = processed.get();
+            double busyMillisPerItem = count == 0 ? 0 : busyNanos.get() / 1e6 / count;
+            return String.format("%-6s %10d done %6d failed %10.1f/s %8.2f ms/image", name, count, failed.get(),
+                    count / Math.max(seconds, 1e-9), busyMillisPerItem);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package utils;
+
+import image.ImageFile;
+import tag.Tag;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * A CatalogCopy. Copies ImageFiles and Tags with the references between them, so the catalog can be serialized on a
+ * worker thread while the originals keep changing on the JavaFx thread. Every ImageFile and Tag is copied once, however
+ * often it is reached; the copies are complete once complete has been called.
+ */
+public class CatalogCopy {
+    /**
+     * The copy of every ImageFile copied so far.
+     */
+    private IdentityHashMap<ImageFile, ImageFile> imageCopies = new IdentityHashMap<>();
+    /**
+     * The copy of every Tag copied so far.
+     */
+    private IdentityHashMap<Tag, Tag> tagCopies = new IdentityHashMap<>();
+    /**
+     * Copied ImageFiles whose copies do not have their Tags yet.
+     */
+    private ArrayDeque<ImageFile> imagesToLink = new ArrayDeque<>();
+    /**
+     * Copied Tags whose copies do not have their ImageFiles yet.
+     */
+    private ArrayDeque<Tag> tagsToLink = new ArrayDeque<>();
+
+    /**
+     * Returns the copy of a specified ImageFile, copying it if it has not been copied yet.
+     *
+     * @param original ImageFile to copy.
+     * @return The copy of the ImageFile.
+     */
+    public ImageFile copyOf(ImageFile original) {
+        ImageFile copy = imageCopies.get(original);
+        if (copy == null) {
+            copy = original.copyWithoutTags();
+            imageCopies.put(original, copy);
+            imagesToLink.add(original);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the copy of a specified Tag, copying it if it has not been copied yet.
+     *
+     * @param original Tag to copy.
+     * @return The copy of the Tag.
+     */
+    public Tag copyOf(Tag original) {
+        Tag copy = tagCopies.get(original);
+        if (copy == null) {
+            copy = new Tag(original.getTagName());
+            tagCopies.put(original, copy);
+            tagsToLink.add(original);
+        }
+        return copy;
+    }
+
+    /**
+     * Completes the copies: gives every copied ImageFile copies of its Tags and every copied Tag copies of its
+     * ImageFiles, copying any ImageFiles and Tags reached only this way.
+     */
+    public void complete() {
+        while (!imagesToLink.isEmpty() || !tagsToLink.isEmpty()) {
+            ImageFile image = imagesToLink.poll();
+            if (image != null) {
+                ArrayList<Tag> tags = imageCopies.get(image).getTagList();
+                for (Tag tag : image.getTagList()) {
+                    tags.add(copyOf(tag));
+                }
+            }
+            Tag tag = tagsToLink.poll();
+            if (tag != null) {
+                ArrayList<ImageFile> images = new ArrayList<>();
+                for (ImageFile taggedImage : tag.getTaggedImages()) {
+                    images.add(copyOf(taggedImage));
+                }
+                tagCopies.get(tag).addImagesToTag(images);
+            }
+        }
+    }
+}
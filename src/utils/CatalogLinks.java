@@ -0,0 +1,157 @@
+package utils;
+
+import image.ImageFile;
+import tag.Tag;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * A CatalogLinks. Serializes the links between ImageFiles and Tags (the Tags of an ImageFile and the ImageFiles of a
+ * Tag) without recursing through them. Left to default serialization, every ImageFile writes its Tags, which write
+ * their ImageFiles, and so on, so the stack grows with the number of linked ImageFiles and overflows on catalogs of a
+ * few thousand tagged images.
+ * <p>
+ * Instead, the first ImageFile or Tag of a group of linked ones that is written writes the whole group: first every
+ * other ImageFile and Tag of the group, which write only their own fields since the group is already being written,
+ * and then the links between them, as references to objects the stream has already written.
+ */
+public final class CatalogLinks {
+    /**
+     * Whether the current thread is writing a group of linked ImageFiles and Tags.
+     */
+    private static final ThreadLocal<Boolean> writingGroup = new ThreadLocal<>();
+
+    /**
+     * Not instantiated.
+     */
+    private CatalogLinks() {
+    }
+
+    /**
+     * Writes the links of an ImageFile or Tag after its own fields. If no group is being written yet, writes the group
+     * the ImageFile or Tag belongs to, with all its links; otherwise the links are written with the group.
+     *
+     * @param out   Stream the ImageFile or Tag is being written to.
+     * @param first ImageFile or Tag being written.
+     * @throws IOException ..
+     */
+    public static void write(ObjectOutputStream out, Object first) throws IOException {
+        if (writingGroup.get() != null) {
+            out.writeBoolean(false);
+            return;
+        }
+        writingGroup.set(Boolean.TRUE);
+        try {
+            out.writeBoolean(true);
+            ArrayList<ImageFile> images = new ArrayList<>();
+            ArrayList<Tag> tags = new ArrayList<>();
+            collectGroup(first, images, tags);
+
+            // every member first, so the links below only refer to objects already written
+            out.writeInt(images.size() + tags.size() - 1);
+            for (ImageFile image : images) {
+                if (image != first) {
+                    out.writeObject(image);
+                }
+            }
+            for (Tag tag : tags) {
+                if (tag != first) {
+                    out.writeObject(tag);
+                }
+            }
+
+            out.writeInt(images.size());
+            for (ImageFile image : images) {
+                out.writeObject(image);
+                out.writeInt(image.getTagList().size());
+                for (Tag tag : image.getTagList()) {
+                    out.writeObject(tag);
+                }
+            }
+            out.writeInt(tags.size());
+            for (Tag tag : tags) {
+                out.writeObject(tag);
+                out.writeInt(tag.getTaggedImages().size());
+                for (ImageFile image : tag.getTaggedImages()) {
+                    out.writeObject(image);
+                }
+            }
+        } finally {
+            writingGroup.remove();
+        }
+    }
+
+    /**
+     * Reads the links written by write for an ImageFile or Tag whose own fields have just been read. The Tags of the
+     * ImageFiles and the ImageFiles of the Tags in the group are added to their (empty) lists.
+     *
+     * @param in Stream the ImageFile or Tag is being read from.
+     * @throws IOException            ..
+     * @throws ClassNotFoundException ..
+     */
+    public static void read(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        if (!in.readBoolean()) {
+            return;
+        }
+        int members = in.readInt();
+        for (int i = 0; i < members; i++) {
+            in.readObject();
+        }
+
+        int images = in.readInt();
+        for (int i = 0; i < images; i++) {
+            ImageFile image = (ImageFile) in.readObject();
+            int tagCount = in.readInt();
+            for (int j = 0; j < tagCount; j++) {
+                image.getTagList().add((Tag) in.readObject());
+            }
+        }
+        int tags = in.readInt();
+        for (int i = 0; i < tags; i++) {
+            Tag tag = (Tag) in.readObject();
+            int imageCount = in.readInt();
+            for (int j = 0; j < imageCount; j++) {
+                tag.getTaggedImages().add((ImageFile) in.readObject());
+            }
+        }
+    }
+
+    /**
+     * Collects every ImageFile and Tag linked to an ImageFile or Tag, directly or through others, without recursion.
+     *
+     * @param first  ImageFile or Tag to start from.
+     * @param images Receives the ImageFiles of the group, in the order they were reached.
+     * @param tags   Receives the Tags of the group, in the order they were reached.
+     */
+    private static void collectGroup(Object first, ArrayList<ImageFile> images, ArrayList<Tag> tags) {
+        Set<Object> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> toVisit = new ArrayDeque<>();
+        reached.add(first);
+        toVisit.add(first);
+        while (!toVisit.isEmpty()) {
+            Object member = toVisit.poll();
+            if (member instanceof ImageFile) {
+                images.add((ImageFile) member);
+                for (Tag tag : ((ImageFile) member).getTagList()) {
+                    if (reached.add(tag)) {
+                        toVisit.add(tag);
+                    }
+                }
+            } else {
+                tags.add((Tag) member);
+                for (ImageFile image : ((Tag) member).getTaggedImages()) {
+                    if (reached.add(image)) {
+                        toVisit.add(image);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package utils;
+
+/**
+ * A ChangeEvent. Published by a manager (controller) to the ChangeEventBus when part of the model changes.
+ */
+public class ChangeEvent {
+    /**
+     * The kinds of change a ChangeEvent can describe.
+     */
+    public enum Type {
+        /**
+         * The list of ImageFiles being managed was replaced. Has no subject.
+         */
+        IMAGE_FILES_SET,
+        /**
+         * An ImageFile was tagged, untagged, renamed or moved. The subject is the ImageFile.
+         */
+        IMAGE_FILE_CHANGED,
+        /**
+         * The ImageTagOverlays of an ImageFile changed. The subject is the ImageFile.
+         */
+        OVERLAYS_CHANGED,
+        /**
+         * A Tag was created. The subject is the Tag.
+         */
+        TAG_ADDED,
+        /**
+         * A Tag was deleted. The subject is the Tag.
+         */
+        TAG_REMOVED
+    }
+
+    /**
+     * The kind of change this ChangeEvent describes.
+     */
+    private Type type;
+    /**
+     * The object that changed, or null if the change has no single subject.
+     */
+    private Object subject;
+
+    /**
+     * Constructs a new ChangeEvent of a specified type for a specified subject.
+     *
+     * @param type    The kind of change.
+     * @param subject The object that changed, or null.
+     */
+    public ChangeEvent(Type type, Object subject) {
+        this.type = type;
+        this.subject = subject;
+    }
+
+    /**
+     * Returns the kind of change this ChangeEvent describes.
+     *
+     * @return The kind of change this ChangeEvent describes.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the object that changed.
+     *
+     * @return The object that changed, or null.
+     */
+    public Object getSubject() {
+        return subject;
+    }
+
+    /**
+     * Returns true iff this ChangeEvent describes the same change to the same object as a specified Object. Subjects
+     * are compared by identity, since the identity of an ImageFile (its name) changes as it is renamed.
+     *
+     * @param other Object with which to check for equality.
+     * @return True iff the Object is an equal ChangeEvent.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof ChangeEvent) {
+            return type == ((ChangeEvent) other).type && subject == ((ChangeEvent) other).subject;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a hash code consistent with equals.
+     *
+     * @return A hash code for this ChangeEvent.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + System.identityHashCode(subject);
+    }
+}
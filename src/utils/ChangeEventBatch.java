@@ -0,0 +1,77 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+/**
+ * A ChangeEventBatch. The ChangeEvents published to the ChangeEventBus during a single JavaFx pulse, in the order they
+ * were first published, with duplicates removed.
+ */
+public class ChangeEventBatch {
+    /**
+     * The ChangeEvents in this batch.
+     */
+    private LinkedHashSet<ChangeEvent> events = new LinkedHashSet<>();
+
+    /**
+     * Adds a ChangeEvent to this batch, unless an equal ChangeEvent is already in it.
+     *
+     * @param event ChangeEvent to add.
+     */
+    void add(ChangeEvent event) {
+        events.add(event);
+    }
+
+    /**
+     * Returns true iff this batch contains no ChangeEvents.
+     *
+     * @return True iff this batch contains no ChangeEvents.
+     */
+    boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    /**
+     * Returns true iff this batch contains a ChangeEvent of a specified type.
+     *
+     * @param type The type of ChangeEvent to check for.
+     * @return True iff this batch contains a ChangeEvent of the type.
+     */
+    public boolean contains(ChangeEvent.Type type) {
+        for (ChangeEvent event : events) {
+            if (event.getType() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true iff this batch contains a ChangeEvent of a specified type for a specified subject.
+     *
+     * @param type    The type of ChangeEvent to check for.
+     * @param subject The subject to check for.
+     * @return True iff this batch contains a ChangeEvent of the type for the subject.
+     */
+    public boolean contains(ChangeEvent.Type type, Object subject) {
+        return events.contains(new ChangeEvent(type, subject));
+    }
+
+    /**
+     * Returns the subjects of all the ChangeEvents of a specified type in this batch.
+     *
+     * @param type         The type of ChangeEvent to get the subjects of.
+     * @param subjectClass The class of the subjects of the type.
+     * @param <T>          The class of the subjects of the type.
+     * @return The subjects of all the ChangeEvents of the type.
+     */
+    public <T> ArrayList<T> getSubjects(ChangeEvent.Type type, Class<T> subjectClass) {
+        ArrayList<T> subjects = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            if (event.getType() == type) {
+                subjects.add(subjectClass.cast(event.getSubject()));
+            }
+        }
+        return subjects;
+    }
+}
@@ -0,0 +1,118 @@
+package utils;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * A ChangeEventBus. Managers (controllers) publish ChangeEvents here instead of calling views directly. Events are
+ * collected and delivered to the subscribed views once per JavaFx pulse, so a bulk operation that changes a thousand
+ * ImageFiles causes a single refresh of each view instead of a thousand.
+ */
+public class ChangeEventBus {
+    /**
+     * Singleton instance for global access to a ChangeEventBus.
+     */
+    private static final ChangeEventBus instance = new ChangeEventBus();
+
+    /**
+     * The views to deliver ChangeEvents to.
+     */
+    private ArrayList<ChangeEventSubscriber> subscribers = new ArrayList<>();
+    /**
+     * The ChangeEvents published since the last delivery.
+     */
+    private ChangeEventBatch pending = new ChangeEventBatch();
+    /**
+     * Whether or not a delivery of the pending ChangeEvents has been scheduled.
+     */
+    private boolean deliveryScheduled = false;
+    /**
+     * Executor that delivers ChangeEvents. The next JavaFx pulse, unless changed for use without JavaFx.
+     */
+    private Executor deliveryExecutor = Platform::runLater;
+
+    /**
+     * Returns the singleton instance of the ChangeEventBus class.
+     *
+     * @return The singleton instance of the ChangeEventBus class.
+     */
+    public static ChangeEventBus getInstance() {
+        return instance;
+    }
+
+    /**
+     * Subscribes a view to the ChangeEvents published to this ChangeEventBus.
+     *
+     * @param subscriber The view to subscribe.
+     */
+    public synchronized void subscribe(ChangeEventSubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Sets the executor ChangeEvents are delivered on. ChangeEvents are delivered on the JavaFx Application Thread by
+     * default; tools that run without JavaFx can use a different executor.
+     *
+     * @param executor Executor to deliver ChangeEvents on.
+     */
+    public void setDeliveryExecutor(Executor executor) {
+        deliveryExecutor = executor;
+    }
+
+    /**
+     * Publishes a ChangeEvent of a specified type with no subject.
+     *
+     * @param type The type of the ChangeEvent.
+     */
+    public void publish(ChangeEvent.Type type) {
+        publish(new ChangeEvent(type, null));
+    }
+
+    /**
+     * Publishes a ChangeEvent of a specified type for a specified subject.
+     *
+     * @param type    The type of the ChangeEvent.
+     * @param subject The object that changed.
+     */
+    public void publish(ChangeEvent.Type type, Object subject) {
+        publish(new ChangeEvent(type, subject));
+    }
+
+    /**
+     * Publishes a ChangeEvent. It is delivered, together with every other ChangeEvent published before the next pulse,
+     * to all subscribers.
+     *
+     * @param event The ChangeEvent to publish.
+     */
+    private void publish(ChangeEvent event) {
+        synchronized (this) {
+            pending.add(event);
+            if (deliveryScheduled) {
+                return;
+            }
+            deliveryScheduled = true;
+        }
+        deliveryExecutor.execute(this::deliver);
+    }
+
+    /**
+     * Delivers the pending ChangeEvents to every subscriber.
+     */
+    private void deliver() {
+        ChangeEventBatch batch;
+        ArrayList<ChangeEventSubscriber> currentSubscribers;
+        synchronized (this) {
+            batch = pending;
+            pending = new ChangeEventBatch();
+            deliveryScheduled = false;
+            currentSubscribers = new ArrayList<>(subscribers);
+        }
+        if (!batch.isEmpty()) {
+            for (ChangeEventSubscriber subscriber : currentSubscribers) {
+                subscriber.updateFromChanges(batch);
+            }
+        }
+    }
+}
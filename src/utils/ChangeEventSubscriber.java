@@ -0,0 +1,14 @@
+package utils;
+
+/**
+ * A ChangeEventSubscriber interface. Can be implemented by views that update from the ChangeEvents published to the
+ * ChangeEventBus.
+ */
+public interface ChangeEventSubscriber {
+    /**
+     * Updates the implementing class from all the ChangeEvents published since the last update.
+     *
+     * @param changes The ChangeEvents published since the last update.
+     */
+    void updateFromChanges(ChangeEventBatch changes);
+}
@@ -1,9 +1,21 @@
 package utils;
 
+import image.ImageFile;
 import image.ImageManager;
+import metrics.CatalogSaveEvent;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import tag.Tag;
 import tag.TagManager;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 
 //**************************************************************************************
 // *    Title: (adatped from) <"Serialize Code" from CSC207 Fall 2017 UofT week 5 notes>
@@ -18,6 +30,32 @@ import java.io.*;
  * A ConfigurationManager. Responsible for updating ConfigurationFiles (persistence for the Manager classes)
  */
 public class ConfigurationManager {
+    /**
+     * Time taken to copy the contents of the managers for an update.
+     */
+    private static final LatencyHistogram COPY_LATENCY = MetricsRegistry.getInstance().histogram("persistence.copy");
+    /**
+     * Time taken to serialize the contents of the managers for a write.
+     */
+    private static final LatencyHistogram SERIALIZE_LATENCY =
+            MetricsRegistry.getInstance().histogram("persistence.serialize");
+    /**
+     * Time taken to write the persistence files.
+     */
+    private static final LatencyHistogram WRITE_LATENCY = MetricsRegistry.getInstance().histogram("persistence.write");
+    /**
+     * Number of updates held back by an open batch.
+     */
+    private static final Counter BATCHED_UPDATES = MetricsRegistry.getInstance().counter("persistence.batched");
+    /**
+     * Number of updates that replaced contents still waiting to be written, instead of queueing a write.
+     */
+    private static final Counter COALESCED_UPDATES = MetricsRegistry.getInstance().counter("persistence.coalesced");
+    /**
+     * Number of bytes written to the persistence files.
+     */
+    private static final Counter BYTES_WRITTEN = MetricsRegistry.getInstance().counter("persistence.bytesWritten");
+
     /**
      * Persistence file for ImageManager
      */
@@ -34,14 +72,40 @@ public class ConfigurationManager {
      * Collaborator TagManager for this ConfigurationManager
      */
     private TagManager tagManager;
+    /**
+     * Copied contents of the ImageManager waiting to be written, or null if none are waiting.
+     */
+    private ArrayList<ImageFile> pendingImages;
+    /**
+     * Copied contents of the TagManager waiting to be written, or null if none are waiting.
+     */
+    private HashMap<String, Tag> pendingTags;
+    /**
+     * Number of batches currently open. While any are open, updates only mark the persistence files as out of date.
+     */
+    private int batchDepth = 0;
+    /**
+     * Whether the persistence files were updated during the open batches.
+     */
+    private boolean batchUpdated = false;
 
     /**
      * Constructs a new ConfigurationManager. loads
      */
     public ConfigurationManager() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new ConfigurationManager whose persistence files are in a specified directory instead of the
+     * working directory.
+     *
+     * @param directory Directory of the persistence files, or null for the working directory.
+     */
+    public ConfigurationManager(File directory) {
         // if configuration don't exist/have been deleted, create config files:
         try {
-            openConfigurationFiles();
+            openConfigurationFiles(directory);
         } catch (IOException e) {
             System.out.println("Fatal Error : Failed to load configuration files");
         }
@@ -70,12 +134,13 @@ public class ConfigurationManager {
     /**
      * Opens all the necessary configuration files for the program.
      *
+     * @param directory Directory of the persistence files, or null for the working directory.
      * @throws IOException ..
      */
     @SuppressWarnings("all")
-    private void openConfigurationFiles() throws IOException {
-        serializedImages = new File("serializedimages.ser");
-        serializedTags = new File("serializedtags.ser");
+    private void openConfigurationFiles(File directory) throws IOException {
+        serializedImages = new File(directory, "serializedimages.ser");
+        serializedTags = new File(directory, "serializedtags.ser");
 
         if (!serializedImages.exists()) {
             serializedImages.createNewFile();
@@ -87,21 +152,120 @@ public class ConfigurationManager {
     }
 
     /**
-     * Updates all the persistence files for the program.
+     * Opens a batch of updates. Until the batch is closed, updates to the persistence files are held back, so a bulk
+     * change made of many smaller changes is saved once. Batches may be nested.
+     */
+    public synchronized void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Closes a batch of updates opened with beginBatch. When the outermost batch is closed, the persistence files are
+     * updated once if anything was updated during it.
+     */
+    public void endBatch() {
+        synchronized (this) {
+            batchDepth--;
+            if (batchDepth > 0 || !batchUpdated) {
+                return;
+            }
+            batchUpdated = false;
+        }
+        updatePersistenceFiles();
+    }
+
+    /**
+     * Updates all the persistence files for the program. The contents of the managers are copied immediately, and are
+     * serialized and written in the background, so the calling (JavaFx) thread does not wait for serialization. If
+     * earlier contents are still waiting to be written, they are replaced, so a burst of updates results in a single
+     * write of the newest contents. Inside a batch, the update is held back until the batch is closed. Nothing is
+     * saved if a persistence file could not be loaded, so a catalog that failed to load is never replaced.
      */
     public void updatePersistenceFiles() {
+        synchronized (this) {
+            if (batchDepth > 0) {
+                batchUpdated = true;
+                BATCHED_UPDATES.increment();
+                return;
+            }
+        }
+        if (imageManager.failedToLoad() || tagManager.failedToLoad()) {
+            System.out.println("Persistence files not saved: they could not be loaded, and would be overwritten");
+            return;
+        }
+        long start = System.nanoTime();
+        CatalogCopy copy = new CatalogCopy();
+        ArrayList<ImageFile> images = imageManager.copyContents(copy);
+        HashMap<String, Tag> tags = tagManager.copyContents(copy);
+        copy.complete();
+        COPY_LATENCY.recordSince(start);
+
+        synchronized (this) {
+            boolean writeQueued = pendingImages != null;
+            pendingImages = images;
+            pendingTags = tags;
+            if (writeQueued) {
+                COALESCED_UPDATES.increment();
+                return;
+            }
+        }
+        IOTaskService.getInstance().submit(this, "Save persistence files", this::writePendingContents, null);
+    }
+
+    /**
+     * Serializes the newest copied contents of the managers and writes them to the persistence files.
+     *
+     * @throws IOException ..
+     */
+    private void writePendingContents() throws IOException {
+        ArrayList<ImageFile> imageContents;
+        HashMap<String, Tag> tagContents;
+        synchronized (this) {
+            imageContents = pendingImages;
+            tagContents = pendingTags;
+            pendingImages = null;
+            pendingTags = null;
+        }
+        CatalogSaveEvent event = new CatalogSaveEvent();
+        event.begin();
+        long serializeStart = System.nanoTime();
+        byte[] images;
+        byte[] tags;
         try {
-            imageManager.saveToFile(serializedImages.getPath());
+            images = ImageManager.serializeToBytes(imageContents);
         } catch (IOException e) {
             System.out.println("Fatal Error in saving persistence files: ImageManager failed to save");
+            throw e;
         }
-
         try {
-            tagManager.saveToFile(serializedTags.getPath());
+            tags = TagManager.serializeToBytes(tagContents);
         } catch (IOException e) {
             System.out.println("Fatal Error in saving persistence files: TagManager failed to save");
-
+            throw e;
         }
+        SERIALIZE_LATENCY.recordSince(serializeStart);
+        event.setSerializeDuration(System.nanoTime() - serializeStart);
+
+        long start = System.nanoTime();
+        writeAtomically(serializedImages, images);
+        writeAtomically(serializedTags, tags);
+        WRITE_LATENCY.recordSince(start);
+        BYTES_WRITTEN.add(images.length + tags.length);
+        event.setBytesWritten(images.length + tags.length);
+        event.commit();
+    }
+
+    /**
+     * Replaces the contents of a file, so that it never holds partially written contents.
+     *
+     * @param file     File to write to.
+     * @param contents Contents to write.
+     * @throws IOException ..
+     */
+    private static void writeAtomically(File file, byte[] contents) throws IOException {
+        Path temporaryFile = Paths.get(file.getPath() + ".tmp");
+        Files.write(temporaryFile, contents);
+        Files.move(temporaryFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
 }
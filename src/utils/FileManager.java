@@ -1,6 +1,10 @@
 package utils;
 
 import image.ImageManager;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import metrics.ScanEvent;
 
 import java.io.File;
 import java.io.FilenameFilter;
@@ -12,6 +16,30 @@ import java.util.ArrayList;
  * A FileManager. Responsible for loading Files from directories into the program.
  */
 public class FileManager {
+    /**
+     * Filter that accepts the image file types the program can display.
+     */
+    public static final FilenameFilter IMAGE_FILE_FILTER = new FilenameFilter() {
+        private String[] imageExtensions = new String[]{"gif", "png", "bmp", "JPG", "jpeg", "jpg"};
+
+        public boolean accept(File f, String name) {
+            for (String extension : imageExtensions) {
+                if (name.endsWith("." + extension)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    };
+    /**
+     * Time taken to list the image files in or under a directory.
+     */
+    private static final LatencyHistogram SCAN_LATENCY = MetricsRegistry.getInstance().histogram("files.scan");
+    /**
+     * Number of image files found by scans.
+     */
+    private static final Counter FILES_SCANNED = MetricsRegistry.getInstance().counter("files.scanned");
     /**
      * The collaborator ImageManager for this FileManager.
      */
@@ -64,13 +92,10 @@ public class FileManager {
      *
      * @param originalfile File to move.
      * @param newdirectory New location of file.
+     * @throws IOException ..
      */
-    public static void moveFile(File originalfile, String newdirectory) {
-        try {
-            Files.move(originalfile.toPath(), new File(newdirectory).toPath());
-        } catch (IOException e) {
-            System.out.println("Move File Failed");
-        }
+    public static void moveFile(File originalfile, String newdirectory) throws IOException {
+        Files.move(originalfile.toPath(), new File(newdirectory).toPath());
     }
 
     /**
@@ -88,33 +113,38 @@ public class FileManager {
      * @param fileToLoadFrom        File/Directory to load image files from.
      * @param listAllUnderDirectory Whether or not to load all image files under a directory.
      */
-    void loadImagesToImageManager(File fileToLoadFrom, boolean listAllUnderDirectory) {
-
-        FilenameFilter filter = new FilenameFilter() {
-            private String[] imageExtensions = new String[]{"gif", "png", "bmp", "JPG", "jpeg", "jpg"};
-
-            public boolean accept(File f, String name) {
-                for (String extension : imageExtensions) {
-                    if (name.endsWith("." + extension)) {
-                        return true;
-                    }
-                }
-
-                return false;
-            }
-        };
-
+    public void loadImagesToImageManager(File fileToLoadFrom, boolean listAllUnderDirectory) {
         if (imageManager != null) {
-            ArrayList<File> imageFiles;
-
-            if (listAllUnderDirectory) {
-                imageFiles = listFilesUnderDirectory(fileToLoadFrom, filter);
-            } else {
-                imageFiles = listFilesInDirectory(fileToLoadFrom, filter);
-            }
+            imageManager.addImageFiles(listImageFiles(fileToLoadFrom, listAllUnderDirectory));
+        }
+    }
 
-            imageManager.addImageFiles(imageFiles);
+    /**
+     * Returns the image files in or under a specified directory.
+     *
+     * @param folderToSearch        Folder/directory to search.
+     * @param listAllUnderDirectory Whether or not to list all image files under the directory.
+     * @return All image files in or under the specified directory.
+     */
+    public ArrayList<File> listImageFiles(File folderToSearch, boolean listAllUnderDirectory) {
+        long start = System.nanoTime();
+        ScanEvent event = new ScanEvent();
+        event.begin();
+        ArrayList<File> files;
+        if (listAllUnderDirectory) {
+            files = listFilesUnderDirectory(folderToSearch, IMAGE_FILE_FILTER);
+        } else {
+            files = listFilesInDirectory(folderToSearch, IMAGE_FILE_FILTER);
+        }
+        SCAN_LATENCY.recordSince(start);
+        FILES_SCANNED.add(files.size());
+        if (event.shouldCommit()) {
+            event.setDirectory(folderToSearch.getPath());
+            event.setRecursive(listAllUnderDirectory);
+            event.setFileCount(files.size());
+            event.commit();
         }
+        return files;
     }
 
 }
@@ -79,7 +79,7 @@ public class FileManagerView extends View {
      * @param e ActionEvent to filter and handle.
      */
     @Override
-    public void handle(ActionEvent e) {
+    protected void handleAction(ActionEvent e) {
         Object eventSource = e.getSource();
 
         // event from open directory button
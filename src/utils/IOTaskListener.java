@@ -0,0 +1,23 @@
+package utils;
+
+/**
+ * An IOTaskListener interface. Can be implemented by classes that display the progress and failures of the file
+ * operations run by an IOTaskService.
+ */
+public interface IOTaskListener {
+    /**
+     * Updates the implementing class when file operations are submitted or finish.
+     *
+     * @param pending  Number of file operations that have not yet finished.
+     * @param finished Number of file operations finished since the last time none were pending.
+     */
+    void ioTasksChanged(int pending, int finished);
+
+    /**
+     * Updates the implementing class when a file operation fails.
+     *
+     * @param description Description of the file operation that failed.
+     * @param e           The cause of the failure.
+     */
+    void ioTaskFailed(String description, Exception e);
+}
@@ -0,0 +1,211 @@
+package utils;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An IOTaskService. Runs file operations (renames, moves and saves) on worker threads so that slow disks do not block
+ * the JavaFx Application Thread. Tasks submitted for the same owner (for example the same ImageFile) run one at a time
+ * in the order they were submitted; tasks for different owners run in parallel. Completion callbacks and listener
+ * notifications run on the JavaFx Application Thread.
+ */
+public class IOTaskService {
+    /**
+     * Number of worker threads.
+     */
+    private static final int WORKER_THREADS = 4;
+    /**
+     * Singleton instance for global access to an IOTaskService.
+     */
+    private static final IOTaskService instance = new IOTaskService();
+
+    /**
+     * Worker threads that run the submitted tasks.
+     */
+    private ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "io-task");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Executor that runs callbacks. The JavaFx Application Thread, unless changed for use without JavaFx.
+     */
+    private Executor callbackExecutor = Platform::runLater;
+    /**
+     * The last task submitted for every owner with unfinished tasks. Owners are compared by identity, since the
+     * identity of an ImageFile (its name) changes as it is renamed.
+     */
+    private final IdentityHashMap<Object, CompletableFuture<Void>> lastTaskForOwner = new IdentityHashMap<>();
+    /**
+     * Listeners notified of progress and failures.
+     */
+    private ArrayList<IOTaskListener> listeners = new ArrayList<>();
+    /**
+     * Number of tasks submitted and not yet finished.
+     */
+    private int pending = 0;
+    /**
+     * Number of tasks finished since the service was last idle.
+     */
+    private int finished = 0;
+    /**
+     * Whether a progress notification is scheduled and has not run yet.
+     */
+    private boolean progressScheduled = false;
+
+    /**
+     * A file operation that may fail.
+     */
+    public interface IOTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * Returns the singleton instance of the IOTaskService class.
+     *
+     * @return The singleton instance of the IOTaskService class.
+     */
+    public static IOTaskService getInstance() {
+        return instance;
+    }
+
+    /**
+     * Adds a listener to be notified of progress and failures.
+     *
+     * @param listener IOTaskListener to add.
+     */
+    public void addListener(IOTaskListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Sets the executor callbacks are run on. Callbacks run on the JavaFx Application Thread by default; tools that
+     * run without JavaFx can use a different executor.
+     *
+     * @param executor Executor to run callbacks on.
+     */
+    public void setCallbackExecutor(Executor executor) {
+        callbackExecutor = executor;
+    }
+
+    /**
+     * Submits a task to run after all the tasks previously submitted for the same owner.
+     *
+     * @param owner       Object the task belongs to. Tasks of the same owner run in submission order.
+     * @param description Description of the task, shown if it fails.
+     * @param task        The file operation to run.
+     * @param onFailure   Callback to run if the task fails, or null.
+     */
+    public void submit(Object owner, String description, IOTask task, Runnable onFailure) {
+        synchronized (lastTaskForOwner) {
+            pending++;
+            CompletableFuture<Void> previous = lastTaskForOwner.get(owner);
+            if (previous == null) {
+                previous = CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> next = previous.thenRunAsync(() -> runTask(description, task, onFailure),
+                    workers);
+            lastTaskForOwner.put(owner, next);
+            next.thenRun(() -> {
+                synchronized (lastTaskForOwner) {
+                    // only forget the owner if no task has been submitted for it since
+                    if (lastTaskForOwner.get(owner) == next) {
+                        lastTaskForOwner.remove(owner);
+                    }
+                }
+            });
+        }
+        notifyProgress();
+    }
+
+    /**
+     * Waits for all submitted tasks to finish. Called when the program closes so no file operation is lost.
+     *
+     * @param timeoutSeconds The longest time to wait, in seconds.
+     */
+    public void awaitIdle(long timeoutSeconds) {
+        CompletableFuture<?>[] unfinished;
+        synchronized (lastTaskForOwner) {
+            unfinished = lastTaskForOwner.values().toArray(new CompletableFuture<?>[0]);
+        }
+        try {
+            CompletableFuture.allOf(unfinished).get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.out.println("File operations did not finish before closing");
+        }
+    }
+
+    /**
+     * Runs a task on a worker thread, and reports its failure, if any.
+     *
+     * @param description Description of the task.
+     * @param task        The file operation to run.
+     * @param onFailure   Callback to run if the task fails, or null.
+     */
+    private void runTask(String description, IOTask task, Runnable onFailure) {
+        Exception failure = null;
+        try {
+            task.run();
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        synchronized (lastTaskForOwner) {
+            pending--;
+            finished++;
+            if (pending == 0) {
+                finished = 0;
+            }
+        }
+
+        if (failure != null) {
+            Exception reportedFailure = failure;
+            callbackExecutor.execute(() -> {
+                if (onFailure != null) {
+                    onFailure.run();
+                }
+                for (IOTaskListener listener : listeners) {
+                    listener.ioTaskFailed(description, reportedFailure);
+                }
+            });
+        }
+        notifyProgress();
+    }
+
+    /**
+     * Notifies listeners of the number of pending and finished tasks. Notifications requested before the scheduled one
+     * has run are coalesced into it, so a burst of submitted or finished tasks results in a single notification of the
+     * newest counts.
+     */
+    private void notifyProgress() {
+        synchronized (lastTaskForOwner) {
+            if (progressScheduled) {
+                return;
+            }
+            progressScheduled = true;
+        }
+        callbackExecutor.execute(this::deliverProgress);
+    }
+
+    /**
+     * Notifies listeners of the current number of pending and finished tasks.
+     */
+    private void deliverProgress() {
+        int pendingNow, finishedNow;
+        synchronized (lastTaskForOwner) {
+            pendingNow = pending;
+            finishedNow = finished;
+            progressScheduled = false;
+        }
+        for (IOTaskListener listener : listeners) {
+            listener.ioTasksChanged(pendingNow, finishedNow);
+        }
+    }
+}
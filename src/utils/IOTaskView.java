@@ -0,0 +1,96 @@
+package utils;
+
+import javafx.event.ActionEvent;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+
+/**
+ * An IOTaskView. Shows the progress of the file operations running in the background, and the last one that failed.
+ */
+public class IOTaskView extends View implements IOTaskListener {
+    /**
+     * Progress of the file operations submitted since the last time none were pending.
+     */
+    private ProgressBar progressBar = new ProgressBar(0);
+    /**
+     * Label describing the pending file operations.
+     */
+    private Label statusLabel = new Label("No pending file operations");
+    /**
+     * Label describing the last file operation that failed.
+     */
+    private Label failureLabel = new Label();
+    /**
+     * Containing HBox for this IOTaskView's GUI elements.
+     */
+    private HBox hb = new HBox(12);
+
+    /**
+     * Constructs an IOTaskView for a given IOTaskService.
+     *
+     * @param ioTaskService IOTaskService whose file operations to show.
+     */
+    public IOTaskView(IOTaskService ioTaskService) {
+        ioTaskService.addListener(this);
+        setupInputs();
+        setupView();
+    }
+
+    /**
+     * An IOTaskView has no inputs, so it has no events to handle.
+     *
+     * @param e ActionEvent to handle.
+     */
+    @Override
+    protected void handleAction(ActionEvent e) {
+    }
+
+    /**
+     * An IOTaskView has no inputs to setup.
+     */
+    @Override
+    public void setupInputs() {
+    }
+
+    /**
+     * Sets up this IOTaskView in the main program view.
+     */
+    @Override
+    public void setupView() {
+        progressBar.setPrefWidth(200);
+        failureLabel.setStyle("-fx-text-fill: red");
+        hb.getChildren().addAll(progressBar, statusLabel, failureLabel);
+        GridPane.setConstraints(hb, 0, 2, 2, 1);
+        this.getProgramView().getMainGridPane().getChildren().add(hb);
+    }
+
+    /**
+     * Updates the progress bar and status when file operations are submitted or finish.
+     *
+     * @param pending  Number of file operations that have not yet finished.
+     * @param finished Number of file operations finished since the last time none were pending.
+     */
+    @Override
+    public void ioTasksChanged(int pending, int finished) {
+        if (pending == 0) {
+            progressBar.setProgress(0);
+            statusLabel.setText("No pending file operations");
+        } else {
+            progressBar.setProgress((double) finished / (pending + finished));
+            statusLabel.setText(pending + " pending file operation(s)");
+        }
+    }
+
+    /**
+     * Shows the last file operation that failed.
+     *
+     * @param description Description of the file operation that failed.
+     * @param e           The cause of the failure.
+     */
+    @Override
+    public void ioTaskFailed(String description, Exception e) {
+        failureLabel.setText("Failed: " + description + " (" + e + ")");
+    }
+}
@@ -0,0 +1,129 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A MappedLogLines. Gives access to the lines of the name log by line number, without reading the log into memory: the
+ * log segments are memory-mapped, and the offset of every line is found by an index built on a background thread.
+ * Lines can be read while the index is being built; only lines already indexed are counted.
+ */
+class MappedLogLines {
+    /**
+     * The mapped log segments, oldest first.
+     */
+    private ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+    /**
+     * Segment number (high 32 bits) and offset in the segment (low 32 bits) of the start of every indexed line.
+     */
+    private volatile long[] lineStarts = new long[4096];
+    /**
+     * Number of indexed lines. Written after lineStarts, so readers that see a count also see its lines.
+     */
+    private volatile int lineCount = 0;
+    /**
+     * Whether every line has been indexed.
+     */
+    private volatile boolean indexed = false;
+    /**
+     * Whether indexing should stop early because the lines are no longer needed.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Maps the contents of a list of log segment files, as they are now.
+     *
+     * @param files Log segment files to map, oldest first.
+     * @throws IOException If a file could not be mapped.
+     */
+    MappedLogLines(ArrayList<File> files) throws IOException {
+        for (File file : files) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+    }
+
+    /**
+     * Indexes the start of every line. Runs on the calling thread, which should be a background thread; the count of
+     * indexed lines grows as it runs.
+     */
+    void buildIndex() {
+        long[] starts = lineStarts;
+        int count = 0;
+        for (int segment = 0; segment < segments.size() && !closed; segment++) {
+            MappedByteBuffer contents = segments.get(segment);
+            int limit = contents.limit();
+            int start = 0;
+            for (int i = 0; i < limit && !closed; i++) {
+                if (contents.get(i) == '\n') {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                        lineStarts = starts;
+                    }
+                    starts[count++] = ((long) segment << 32) | start;
+                    start = i + 1;
+                    // publish in steps, so readers do not wait for the whole log
+                    if ((count & 0xfff) == 0) {
+                        lineCount = count;
+                    }
+                }
+            }
+        }
+        lineCount = count;
+        indexed = true;
+    }
+
+    /**
+     * Returns the number of lines indexed so far.
+     *
+     * @return The number of indexed lines.
+     */
+    int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns whether every line has been indexed.
+     *
+     * @return True iff indexing has finished.
+     */
+    boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Returns an indexed line.
+     *
+     * @param line Number of the line, less than the number of indexed lines.
+     * @return The line, without its line break.
+     */
+    String getLine(int line) {
+        if (line >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + line + " is not indexed");
+        }
+        long start = lineStarts[line];
+        MappedByteBuffer contents = segments.get((int) (start >>> 32));
+        int offset = (int) start;
+        int end = offset;
+        while (end < contents.limit() && contents.get(end) != '\n') {
+            end++;
+        }
+        byte[] bytes = new byte[end - offset];
+        contents.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stops indexing. The lines already indexed can still be read.
+     */
+    void close() {
+        closed = true;
+    }
+}
@@ -1,73 +1,464 @@
 package utils;
 
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
- * A NameLogger. Is responsible for logging all instances where ImageFile's are renamed.
+ * A NameLogger. Is responsible for logging all instances where ImageFile's are renamed. Name changes are put in a
+ * bounded queue and written by a single writer thread to a RenameLog, which keeps the log open and writes the entries
+ * in batches, so logging a burst of renames costs little more than queueing them. The RenameLog indexes every entry by
+ * the file it is about and by its time, so the renames of one image, or in a time range, are found without reading the
+ * whole log.
  */
 public class NameLogger implements Serializable {
     /**
-     * The file to log changes to.
+     * Version of the serialized form, fixed at the value of the original NameLogger.
+     */
+    private static final long serialVersionUID = -3226645840692400866L;
+    /**
+     * Number of entries that can wait to be written. Loggers wait for room when the queue is full.
+     */
+    private static final int QUEUE_CAPACITY = 8192;
+    /**
+     * Longest time (in milliseconds) a logged entry waits in the write buffer before it is written to the file.
+     */
+    private static final long FLUSH_INTERVAL = 500;
+    /**
+     * Longest time (in milliseconds) closing waits for the remaining entries to be written.
+     */
+    private static final long CLOSE_TIMEOUT = 10000;
+    /**
+     * Marks the end of the entries in the queue.
      */
-    private File fileNameLog;
+    private static final Entry CLOSE = new Entry(0, null, null, null, null);
+    /**
+     * Number of name changes logged.
+     */
+    private static final Counter ENTRIES_LOGGED = MetricsRegistry.getInstance().counter("nameLog.entries");
+    /**
+     * Time taken to write a batch of buffered entries to the log.
+     */
+    private static final LatencyHistogram WRITE_LATENCY = MetricsRegistry.getInstance().histogram("nameLog.write");
+
+    /**
+     * The directory to log changes to.
+     */
+    private File logDirectory;
     /**
      * Singleton instance for global access to a NameLogger.
      */
-    private static final NameLogger instance = new NameLogger("nameLog.txt");
+    private static final NameLogger instance = new NameLogger("nameLog");
+    /**
+     * The log the entries are written to, or null until it is first needed.
+     */
+    private transient RenameLog renameLog;
+    /**
+     * Entries waiting to be written, or null until the writer thread is started.
+     */
+    private transient BlockingQueue<Entry> entries;
+    /**
+     * The thread writing the entries, or null until the first entry is logged.
+     */
+    private transient Thread writer;
+    /**
+     * Whether this NameLogger was closed. Name changes logged afterwards are written directly.
+     */
+    private transient boolean closed = false;
+    /**
+     * Whether the writer thread has stopped, because this NameLogger was closed or the thread failed. Name changes
+     * logged afterwards are written directly.
+     */
+    private transient boolean writerStopped = false;
 
     /**
-     * Constructs a new NameLogger for a given filepath to write the log file to.
+     * Constructs a new NameLogger for a given directory to write the log segments to. The directory is created when
+     * the log is first needed.
      *
-     * @param filePath Filepath to write the log file to.
+     * @param directoryPath Path of the directory to write the log segments to.
      */
-    @SuppressWarnings("all")
-    public NameLogger(String filePath) {
-        fileNameLog = new File(filePath);
-        if (!fileNameLog.exists()) {
+    public NameLogger(String directoryPath) {
+        logDirectory = new File(directoryPath);
+    }
+
+    /**
+     * Logs a name change from an old name to a new name. The entry is written to the log in the background; waits
+     * only if too many entries are already waiting to be written.
+     *
+     * @param identity Identity of the renamed file, which stays the same across its renames.
+     * @param oldName  Old name to log.
+     * @param newName  New name to log.
+     */
+    public void logNameChange(String identity, String oldName, String newName) {
+        Entry entry = new Entry(System.currentTimeMillis(), identity, oldName, newName, null);
+        ENTRIES_LOGGED.increment();
+        BlockingQueue<Entry> queue = startWriter();
+        if (queue == null) {
+            appendDirectly(entry);
+            return;
+        }
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            appendDirectly(entry);
+        }
+        if (isWriterStopped()) {
+            // the writer stopped while the entry was being queued
+            drainDirectly();
+        }
+    }
+
+    /**
+     * Waits until every name change logged before this call has been written to the log file, or until the close
+     * timeout has passed.
+     */
+    public void flush() {
+        BlockingQueue<Entry> queue;
+        synchronized (this) {
+            queue = closed || writerStopped ? null : entries;
+        }
+        if (queue != null) {
+            CountDownLatch written = new CountDownLatch(1);
             try {
-                fileNameLog.createNewFile();
+                if (!queue.offer(new Entry(0, null, null, null, written), CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)
+                        || !written.await(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    System.out.println("Timed out waiting for the Name Log to be written");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining name changes and stops the writer thread. Called when the program closes; name changes
+     * logged afterwards are written directly to the log.
+     */
+    public void close() {
+        Thread writerToStop;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writerToStop = writer;
+        }
+        if (writerToStop != null) {
+            try {
+                entries.put(CLOSE);
+                writerToStop.join(CLOSE_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
+    /**
+     * Returns every logged name change of the file with a specified identity, oldest first.
+     *
+     * @param identity Identity of the file.
+     * @return The lines of the log about the file.
+     */
+    public ArrayList<String> getNameChangesOf(String identity) {
+        RenameLog log = openRenameLog();
+        flush();
+        return log == null ? new ArrayList<>() : log.findByIdentity(identity);
+    }
+
+    /**
+     * Returns every logged name change in a specified time range, in time order.
+     *
+     * @param from Start of the range, in milliseconds since the epoch.
+     * @param to   End of the range (inclusive), in milliseconds since the epoch.
+     * @return The lines of the log in the range.
+     */
+    public ArrayList<String> getNameChangesBetween(long from, long to) {
+        RenameLog log = openRenameLog();
+        flush();
+        return log == null ? new ArrayList<>() : log.findBetween(from, to);
+    }
+
+    /**
+     * Returns the log segment file currently being written.
+     *
+     * @return The log segment file being written, or null if the log could not be opened.
+     */
+    public File getCurrentLogFile() {
+        RenameLog log = openRenameLog();
+        return log == null ? null : log.getActiveFile();
+    }
+
+    /**
+     * Returns every log segment file, oldest first, after writing the name changes logged so far.
+     *
+     * @return The log segment files, or an empty list if the log could not be opened.
+     */
+    public ArrayList<File> getLogFiles() {
+        RenameLog log = openRenameLog();
+        flush();
+        return log == null ? new ArrayList<>() : log.getSegmentFiles();
+    }
+
+    /**
+     * Makes this NameLogger write its log to a specified directory instead. Only has an effect before the log is
+     * opened, when the first name change is logged or looked up.
+     *
+     * @param directoryPath Path of the directory to write the log segments to.
+     */
+    public synchronized void setLogDirectory(String directoryPath) {
+        if (renameLog != null) {
+            System.out.println("Name Log is already open in " + logDirectory);
+            return;
+        }
+        logDirectory = new File(directoryPath);
+    }
+
+    /**
+     * Returns the singleton instance of the NameLogger class.
+     *
+     * @return The singleton instance of the NameLogger class.
+     */
+    public static NameLogger getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts the writer thread, if it is not running yet. It is also closed, and its remaining entries written, when
+     * the program exits.
+     *
+     * @return The queue to put entries on, or null if this NameLogger was closed or its log could not be opened.
+     */
+    private synchronized BlockingQueue<Entry> startWriter() {
+        if (closed || writerStopped || openRenameLog() == null) {
+            return null;
+        }
+        if (writer == null) {
+            entries = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            BlockingQueue<Entry> queue = entries;
+            MetricsRegistry.getInstance().gauge("nameLog.queued", queue, BlockingQueue::size);
+            writer = new Thread(this::writeEntries, "name-logger");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close, "name-logger-shutdown"));
+        }
+        return entries;
+    }
+
+    /**
+     * Takes entries from the queue and adds them to the RenameLog until this NameLogger is closed. The RenameLog
+     * buffers the lines; the buffer is written when it is full, when its oldest line has waited for the flush interval,
+     * when a flush is requested, and when this NameLogger is closed. A name change that fails to be logged is reported
+     * and skipped. If the thread stops for any other reason, the entries left in the queue and those logged later are
+     * written directly.
+     */
+    private void writeEntries() {
+        ArrayList<Entry> batch = new ArrayList<>();
+        int handled = 0;
+        long flushDeadline = 0;
+        boolean open = true;
+
+        try {
+            while (open) {
+                if (!renameLog.hasBufferedLines()) {
+                    batch.add(entries.take());
+                } else {
+                    Entry next = entries.poll(Math.max(0, flushDeadline - System.currentTimeMillis()),
+                            TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                entries.drainTo(batch);
+
+                for (handled = 0; handled < batch.size(); handled++) {
+                    Entry entry = batch.get(handled);
+                    try {
+                        if (entry == CLOSE) {
+                            open = false;
+                        } else if (entry.written != null) {
+                            writeBuffer();
+                        } else {
+                            if (!renameLog.hasBufferedLines()) {
+                                flushDeadline = System.currentTimeMillis() + FLUSH_INTERVAL;
+                            }
+                            renameLog.append(entry.time, entry.identity, entry.format());
+                        }
+                    } catch (RuntimeException e) {
+                        System.out.println("Failed to log name change (" + e + ")");
+                    } finally {
+                        if (entry.written != null) {
+                            entry.written.countDown();
+                        }
+                    }
+                }
+                batch.clear();
+                handled = 0;
+
+                if (!open || System.currentTimeMillis() >= flushDeadline) {
+                    try {
+                        writeBuffer();
+                    } catch (RuntimeException e) {
+                        System.out.println("Failed to log name change (" + e + ")");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                writerStopped = true;
+            }
+            // entries taken from the queue but not handled when the thread failed
+            for (Entry entry : batch.subList(handled, batch.size())) {
+                if (entry.written != null) {
+                    entry.written.countDown();
+                } else if (entry != CLOSE) {
+                    appendDirectly(entry);
+                }
+            }
+            drainDirectly();
+            renameLog.close();
+        }
+    }
+
+    /**
+     * Returns whether the writer thread has stopped.
+     *
+     * @return True iff the writer thread has stopped.
+     */
+    private synchronized boolean isWriterStopped() {
+        return writerStopped;
+    }
+
+    /**
+     * Writes the entries left in the queue directly, once the writer thread has stopped, and releases any flush
+     * waiting for them.
+     */
+    private void drainDirectly() {
+        ArrayList<Entry> remaining = new ArrayList<>();
+        entries.drainTo(remaining);
+        for (Entry entry : remaining) {
+            if (entry.written != null) {
+                entry.written.countDown();
+            } else if (entry != CLOSE) {
+                appendDirectly(entry);
+            }
+        }
+    }
+
+    /**
+     * Writes the lines buffered by the RenameLog, if there are any.
+     */
+    private void writeBuffer() {
+        if (renameLog.hasBufferedLines()) {
+            long start = System.nanoTime();
+            renameLog.writeBuffer();
+            WRITE_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Opens the RenameLog, if it is not open yet.
+     *
+     * @return The RenameLog, or null if it could not be opened.
+     */
+    private synchronized RenameLog openRenameLog() {
+        if (renameLog == null) {
+            try {
+                renameLog = new RenameLog(logDirectory);
             } catch (IOException e) {
                 System.out.println("Failed to create Name Log File");
             }
         }
+        return renameLog;
     }
 
     /**
-     * Logs a name change from an old name to a new name.
+     * Writes an entry to the RenameLog without going through the writer thread.
      *
-     * @param oldName Old name to log.
-     * @param newName New name to log.
+     * @param entry Entry to write.
      */
-    public void logNameChange(String oldName, String newName) {
-        // todo : redo format for NameLoggerView
-        try {
-            DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-            Date date = new Date();
-            String message = dateFormat.format(date) + " - Old Name " + oldName + " - New Name: " + newName + "\n";
-            Files.write(Paths.get(fileNameLog.getName()), message.getBytes(), StandardOpenOption.APPEND);
-        } catch (IOException e) {
+    private void appendDirectly(Entry entry) {
+        RenameLog log = openRenameLog();
+        if (log == null) {
             System.out.println("Failed to log name change");
+        } else {
+            log.append(entry.time, entry.identity, entry.format());
+            log.writeBuffer();
         }
-
     }
 
     /**
-     * Returns the singleton instance of the NameLogger class.
+     * Makes every deserialized NameLogger the singleton instance, so that all name changes go through one writer
+     * thread.
      *
      * @return The singleton instance of the NameLogger class.
      */
-    public static NameLogger getInstance() {
+    private Object readResolve() {
         return instance;
     }
 
+    /**
+     * A name change waiting to be written, or a request to be told when everything before it has been written.
+     */
+    private static class Entry {
+        /**
+         * Time of the name change, in milliseconds since the epoch.
+         */
+        private long time;
+        /**
+         * Identity of the renamed file.
+         */
+        private String identity;
+        /**
+         * The old and new names.
+         */
+        private String oldName, newName;
+        /**
+         * Counted down once everything before this entry has been written, or null for a name change.
+         */
+        private CountDownLatch written;
+
+        /**
+         * Constructs a new Entry.
+         *
+         * @param time     Time of the name change, in milliseconds since the epoch.
+         * @param identity Identity of the renamed file.
+         * @param oldName  The old name.
+         * @param newName  The new name.
+         * @param written  Latch to count down once everything before this entry has been written, or null for a name
+         *                 change.
+         */
+        private Entry(long time, String identity, String oldName, String newName, CountDownLatch written) {
+            this.time = time;
+            this.identity = identity;
+            this.oldName = oldName;
+            this.newName = newName;
+            this.written = written;
+        }
+
+        /**
+         * Returns the line of the log file for this name change.
+         *
+         * @return The line, encoded.
+         */
+        private byte[] format() {
+            String message = RenameLog.DATE_FORMAT.format(Instant.ofEpochMilli(time)) + " - Old Name " + oldName
+                    + " - New Name: " + newName + RenameLog.IDENTITY_SEPARATOR + identity + "\n";
+            return message.getBytes(StandardCharsets.UTF_8);
+        }
+    }
 
 }
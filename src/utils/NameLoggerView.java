@@ -1,26 +1,50 @@
 package utils;
 
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
 import javafx.event.ActionEvent;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
 
-import java.awt.*;
-import java.io.File;
 import java.io.IOException;
-
-//**************************************************************************************
-// *    Title: (adapted from) <JavaFX Freeze on Desktop.open(file), Desktop.browse(uri)>
-// *    Author: Alex K
-// *    Date: September 2015
-// *    Code version: N/A
-// *    Date Accessed: November 2017
-// *    Availability: https://stackoverflow.com/questions/23176624/javafx-freeze-on-desktop-openfile-desktop-browseuri
-// ***************************************************************************************/
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 
 /**
- * A NameLoggerView. The View for a NameLogger.
+ * A NameLoggerView. The View for a NameLogger. Shows the name log in a window of its own. The log is memory-mapped and
+ * shown in a virtualized list, which only renders the visible lines, so logs of any size open at once; the lines are
+ * indexed and filtered in the background, and the list grows as results come in.
  */
 public class NameLoggerView extends View {
+    /**
+     * Format of the date at the start of every line of the name log.
+     */
+    private static final DateTimeFormatter LINE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    /**
+     * Length of the date at the start of every line of the name log.
+     */
+    private static final int LINE_DATE_LENGTH = 10;
+    /**
+     * Longest time (in milliseconds) matching lines wait before they are added to the list.
+     */
+    private static final long PUBLISH_INTERVAL = 100;
+    /**
+     * Height of a line in the list. A fixed height lets the list place lines without measuring them.
+     */
+    private static final double LINE_HEIGHT = 24;
+
     /**
      * Button which opens the name log.
      */
@@ -29,6 +53,43 @@ public class NameLoggerView extends View {
      * Grid pane which contains this NameLoggerView's GUI elements.
      */
     private GridPane gridPane = new GridPane();
+    /**
+     * Window showing the name log, or null until it is first opened.
+     */
+    private Stage logStage;
+    /**
+     * Text field for a part of a file name that shown lines must contain.
+     */
+    private TextField nameFilterField = new TextField();
+    /**
+     * Date pickers for the first and last day of the shown lines.
+     */
+    private DatePicker fromDatePicker = new DatePicker(), toDatePicker = new DatePicker();
+    /**
+     * Buttons to apply the filter, clear it, and read the log again.
+     */
+    private Button filterButton = new Button("Filter"), clearButton = new Button("Clear"),
+            reloadButton = new Button("Reload");
+    /**
+     * Label describing the progress of indexing and filtering.
+     */
+    private Label statusLabel = new Label();
+    /**
+     * List of the shown lines.
+     */
+    private ListView<Integer> lineListView = new ListView<>();
+    /**
+     * Numbers of the shown lines.
+     */
+    private LineNumberList shownLines = new LineNumberList();
+    /**
+     * The lines of the name log, or null if it is not open.
+     */
+    private MappedLogLines logLines;
+    /**
+     * Incremented whenever the filter or the log changes, so background filtering of earlier ones stops.
+     */
+    private volatile int filterGeneration = 0;
 
     /**
      * Constructs a NameLoggerView.
@@ -45,10 +106,20 @@ public class NameLoggerView extends View {
      * @param e Event to handle and filter.
      */
     @Override
-    public void handle(ActionEvent e) {
+    protected void handleAction(ActionEvent e) {
         Object eventsource = e.getSource();
         if (eventsource.equals(nameLoggerViewButton)) {
             handleNameLoggerViewButton();
+        } else if (eventsource.equals(filterButton) || eventsource.equals(nameFilterField)
+                || eventsource.equals(fromDatePicker) || eventsource.equals(toDatePicker)) {
+            applyFilter();
+        } else if (eventsource.equals(clearButton)) {
+            nameFilterField.clear();
+            fromDatePicker.setValue(null);
+            toDatePicker.setValue(null);
+            applyFilter();
+        } else if (eventsource.equals(reloadButton)) {
+            openLog();
         }
     }
 
@@ -57,6 +128,12 @@ public class NameLoggerView extends View {
      */
     public void setupInputs() {
         nameLoggerViewButton.setOnAction(this);
+        nameFilterField.setOnAction(this);
+        fromDatePicker.setOnAction(this);
+        toDatePicker.setOnAction(this);
+        filterButton.setOnAction(this);
+        clearButton.setOnAction(this);
+        reloadButton.setOnAction(this);
     }
 
     /**
@@ -79,16 +156,285 @@ public class NameLoggerView extends View {
      * Private handler for events from the button that opens the name log.
      */
     private void handleNameLoggerViewButton() {
-        //this solution borrowed from stack overflow article mentioned above.
-        if (Desktop.isDesktopSupported()) {
-            new Thread(() -> {
+        if (logStage == null) {
+            setupLogStage();
+        }
+        openLog();
+        logStage.show();
+        logStage.toFront();
+    }
+
+    /**
+     * Sets up the window showing the name log.
+     */
+    private void setupLogStage() {
+        nameFilterField.setPromptText("File name contains");
+        nameFilterField.setPrefColumnCount(20);
+        fromDatePicker.setPromptText("From");
+        toDatePicker.setPromptText("To");
+        lineListView.setFixedCellSize(LINE_HEIGHT);
+        lineListView.setCellFactory(listView -> new LogLineCell());
+        lineListView.setItems(shownLines);
+
+        HBox filterBox = new HBox(8, nameFilterField, fromDatePicker, toDatePicker, filterButton, clearButton,
+                reloadButton);
+        VBox logBox = new VBox(8, filterBox, lineListView, statusLabel);
+        logBox.setPadding(new Insets(12, 12, 12, 12));
+        VBox.setVgrow(lineListView, Priority.ALWAYS);
+
+        logStage = new Stage();
+        logStage.setTitle("Name Log");
+        logStage.setScene(new Scene(logBox, 900, 600));
+        logStage.setOnCloseRequest(event -> closeLog());
+    }
+
+    /**
+     * Maps the current contents of the name log, starts indexing its lines in the background, and shows them through
+     * the current filter.
+     */
+    private void openLog() {
+        closeLog();
+        try {
+            MappedLogLines lines = new MappedLogLines(NameLogger.getInstance().getLogFiles());
+            Thread indexer = new Thread(lines::buildIndex, "name-log-index");
+            indexer.setDaemon(true);
+            indexer.start();
+            logLines = lines;
+        } catch (IOException e) {
+            System.out.println("Fatal Error: Failed to open name log.");
+        }
+        applyFilter();
+    }
+
+    /**
+     * Stops indexing and filtering the name log.
+     */
+    private void closeLog() {
+        filterGeneration++;
+        if (logLines != null) {
+            logLines.close();
+            logLines = null;
+        }
+    }
+
+    /**
+     * Replaces the shown lines with the lines matching the current filter, found in the background.
+     */
+    private void applyFilter() {
+        int generation = ++filterGeneration;
+        shownLines = new LineNumberList();
+        lineListView.setItems(shownLines);
+        if (logLines == null) {
+            statusLabel.setText("The name log could not be opened");
+            return;
+        }
+
+        String nameFilter = nameFilterField.getText() == null ? "" : nameFilterField.getText().trim().toLowerCase();
+        LocalDate fromDate = fromDatePicker.getValue();
+        LocalDate toDate = toDatePicker.getValue();
+        LineFilter filter = new LineFilter(nameFilter, fromDate == null ? null : LINE_DATE_FORMAT.format(fromDate),
+                toDate == null ? null : LINE_DATE_FORMAT.format(toDate));
+        MappedLogLines lines = logLines;
+
+        Thread filterThread = new Thread(() -> filterLines(generation, lines, filter), "name-log-filter");
+        filterThread.setDaemon(true);
+        filterThread.start();
+    }
+
+    /**
+     * Finds the lines matching a filter, following the index as it grows, and adds them to the shown lines in steps.
+     * Runs on a background thread until the whole log is filtered or the filter is replaced.
+     *
+     * @param generation Filter generation this run belongs to.
+     * @param lines      The lines of the name log.
+     * @param filter     The filter lines must match.
+     */
+    private void filterLines(int generation, MappedLogLines lines, LineFilter filter) {
+        int[] matches = new int[1024];
+        int matchCount = 0;
+        int next = 0;
+        long lastPublish = System.currentTimeMillis();
+
+        while (generation == filterGeneration) {
+            // read whether indexing is done before the count, so no lines indexed in between are missed
+            boolean indexed = lines.isIndexed();
+            int available = lines.getLineCount();
+            for (; next < available && generation == filterGeneration; next++) {
+                if (filter.matches(lines, next)) {
+                    if (matchCount == matches.length) {
+                        matches = Arrays.copyOf(matches, matchCount * 2);
+                    }
+                    matches[matchCount++] = next;
+                }
+                if (System.currentTimeMillis() - lastPublish >= PUBLISH_INTERVAL) {
+                    publish(generation, Arrays.copyOf(matches, matchCount), next + 1, false);
+                    matchCount = 0;
+                    lastPublish = System.currentTimeMillis();
+                }
+            }
+            if (indexed && next >= available) {
+                publish(generation, Arrays.copyOf(matches, matchCount), next, true);
+                return;
+            }
+            if (next >= available) {
                 try {
-                    Desktop.getDesktop().open(new File("nameLog.txt"));
-                } catch (IOException ioe) {
-                    System.out.println("Fatal Error: Failed to open name log.");
+                    Thread.sleep(PUBLISH_INTERVAL / 2);
+                } catch (InterruptedException e) {
+                    return;
                 }
+            }
+        }
+    }
+
+    /**
+     * Adds matching lines to the shown lines and updates the status, on the JavaFx thread.
+     *
+     * @param generation Filter generation the lines were found by.
+     * @param matches    Numbers of the matching lines.
+     * @param searched   Number of lines searched so far.
+     * @param done       Whether the whole log has been searched.
+     */
+    private void publish(int generation, int[] matches, int searched, boolean done) {
+        Platform.runLater(() -> {
+            if (generation == filterGeneration) {
+                shownLines.addLineNumbers(matches);
+                statusLabel.setText(shownLines.size() + " of " + searched + " lines"
+                        + (done ? "" : " - searching..."));
+            }
+        });
+    }
+
+    /**
+     * A filter on the lines of the name log by file name and date.
+     */
+    private static class LineFilter {
+        /**
+         * Lower case text the names in a line must contain, or empty for any names.
+         */
+        private String nameFilter;
+        /**
+         * First and last date of the lines, formatted as at the start of a line, or null for no limit.
+         */
+        private String fromDate, toDate;
+
+        /**
+         * Constructs a new LineFilter.
+         *
+         * @param nameFilter Lower case text the names in a line must contain, or empty for any names.
+         * @param fromDate   First date of the lines, formatted as at the start of a line, or null for no limit.
+         * @param toDate     Last date of the lines, formatted as at the start of a line, or null for no limit.
+         */
+        private LineFilter(String nameFilter, String fromDate, String toDate) {
+            this.nameFilter = nameFilter;
+            this.fromDate = fromDate;
+            this.toDate = toDate;
+        }
+
+        /**
+         * Returns whether a line of the name log matches this filter. Dates are compared as text, which orders them
+         * correctly since they are written year first.
+         *
+         * @param lines The lines of the name log.
+         * @param line  Number of the line.
+         * @return True iff the line matches.
+         */
+        private boolean matches(MappedLogLines lines, int line) {
+            if (nameFilter.isEmpty() && fromDate == null && toDate == null) {
+                return true;
+            }
+            String text = lines.getLine(line);
+            if (fromDate != null || toDate != null) {
+                if (text.length() < LINE_DATE_LENGTH) {
+                    return false;
+                }
+                String date = text.substring(0, LINE_DATE_LENGTH);
+                if ((fromDate != null && date.compareTo(fromDate) < 0) || (toDate != null && date.compareTo(toDate) > 0)) {
+                    return false;
+                }
+            }
+            return nameFilter.isEmpty() || text.substring(Math.min(LINE_DATE_LENGTH, text.length())).toLowerCase()
+                    .contains(nameFilter);
+        }
+    }
+
+    /**
+     * A cell of the list of shown lines. Reads its line from the mapped log only when it is shown.
+     */
+    private class LogLineCell extends ListCell<Integer> {
+
+        /**
+         * Update method for cell. Sets the text of the line or empties cell.
+         *
+         * @param item  Number of the line to show.
+         * @param empty Whether or not the cell is empty.
+         */
+        @Override
+        public void updateItem(Integer item, boolean empty) {
+            super.updateItem(item, empty);
+            MappedLogLines lines = logLines;
+            if (item == null || empty || lines == null || item >= lines.getLineCount()) {
+                setText(null);
+            } else {
+                setText(lines.getLine(item));
+            }
+        }
+    }
+
+    /**
+     * An observable list of line numbers, stored in an int array rather than as Integer objects, so the list of a
+     * large log stays small. Lines are only ever added.
+     */
+    private static class LineNumberList extends ObservableListBase<Integer> {
+        /**
+         * The line numbers in the list, followed by unused room.
+         */
+        private int[] lineNumbers = new int[1024];
+        /**
+         * Number of line numbers in the list.
+         */
+        private int size = 0;
+
+        /**
+         * Returns the line number at a position in the list.
+         *
+         * @param index Position in the list.
+         * @return The line number.
+         */
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+            }
+            return lineNumbers[index];
+        }
+
+        /**
+         * Returns the number of line numbers in the list.
+         *
+         * @return The size of the list.
+         */
+        @Override
+        public int size() {
+            return size;
+        }
 
-            }).start();
+        /**
+         * Adds line numbers to the end of the list, and tells the list's listeners.
+         *
+         * @param added The line numbers to add.
+         */
+        private void addLineNumbers(int[] added) {
+            if (added.length == 0) {
+                return;
+            }
+            if (size + added.length > lineNumbers.length) {
+                lineNumbers = Arrays.copyOf(lineNumbers, Math.max(lineNumbers.length * 2, size + added.length));
+            }
+            System.arraycopy(added, 0, lineNumbers, size, added.length);
+            size += added.length;
+            beginChange();
+            nextAdd(size - added.length, size);
+            endChange();
         }
     }
 
@@ -0,0 +1,45 @@
+package utils;
+
+import javafx.collections.ObservableList;
+
+import java.util.List;
+
+/**
+ * An ObservableListUpdater. Brings the contents of an ObservableList up to date with a list in place, changing only
+ * the part that differs, so a ListView only re-renders the changed cells and keeps the selection of unchanged items.
+ */
+public class ObservableListUpdater {
+
+    /**
+     * Updates an ObservableList in place to hold the same items as a source list. Items are compared by identity: the
+     * managers keep one object per Tag and ImageFile, and comparing by equals would be far slower for ImageFiles.
+     *
+     * @param target ObservableList to update.
+     * @param source List holding the items the ObservableList should hold.
+     * @param <T>    Type of the items.
+     */
+    public static <T> void update(ObservableList<T> target, List<? extends T> source) {
+        int shorter = Math.min(target.size(), source.size());
+
+        // skip the unchanged items at the start and end of the lists
+        int prefix = 0;
+        while (prefix < shorter && target.get(prefix) == source.get(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < shorter - prefix
+                && target.get(target.size() - 1 - suffix) == source.get(source.size() - 1 - suffix)) {
+            suffix++;
+        }
+
+        // replace only the changed middle
+        int targetEnd = target.size() - suffix;
+        int sourceEnd = source.size() - suffix;
+        if (prefix < targetEnd) {
+            target.remove(prefix, targetEnd);
+        }
+        if (prefix < sourceEnd) {
+            target.addAll(prefix, source.subList(prefix, sourceEnd));
+        }
+    }
+}
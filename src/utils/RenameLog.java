@@ -0,0 +1,747 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A RenameLog. Stores the lines of the name log in numbered segment files of bounded size. When a segment is full it is
+ * sealed: a sidecar index file is written next to it, holding the offset of every line both in time order and in order
+ * of the identity of the file renamed. The renames of one file, or the renames in a time range, are then found by
+ * binary search in the indexes, and only the matching lines are read. The segment being written is indexed in memory.
+ * <p>
+ * The log written by earlier releases, a single text file next to the directory, is copied into the first segment when
+ * the directory is first created. Its lines name no file, so they are found by time only.
+ * <p>
+ * Only the writer thread of the NameLogger appends; lookups may run on any thread.
+ */
+class RenameLog {
+    /**
+     * Size in bytes past which a segment is sealed and a new one started.
+     */
+    static final long SEGMENT_SIZE = 16 * 1024 * 1024;
+    /**
+     * Format of the time at the start of every line.
+     */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    /**
+     * Separator before the identity of the renamed file, at the end of every line.
+     */
+    static final String IDENTITY_SEPARATOR = " - File: ";
+    /**
+     * Size of the buffer lines are collected in before they are written.
+     */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    /**
+     * First int of every index file.
+     */
+    private static final int INDEX_MAGIC = 0x524c4958;
+    /**
+     * Size in bytes of the header of an index file: magic, line count, segment length, earliest and latest time.
+     */
+    private static final int INDEX_HEADER_SIZE = 4 + 4 + 8 + 8 + 8;
+    /**
+     * Names of segment files.
+     */
+    private static final Pattern SEGMENT_NAME = Pattern.compile("nameLog-(\\d+)\\.log");
+
+    /**
+     * Directory holding the segments and their indexes.
+     */
+    private File directory;
+    /**
+     * The sealed segments, oldest first.
+     */
+    private ArrayList<Segment> sealedSegments = new ArrayList<>();
+    /**
+     * Number of the segment being written.
+     */
+    private int activeNumber;
+    /**
+     * The segment being written, open for appending, or null if it could not be opened.
+     */
+    private FileChannel activeChannel;
+    /**
+     * Number of bytes of the segment being written that are on disk.
+     */
+    private long activeLength;
+    /**
+     * Lines waiting to be written to the segment being written.
+     */
+    private ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    /**
+     * Time, identity hash and offset of every line of the segment being written, including buffered ones.
+     */
+    private long[] activeTimes = new long[1024], activeHashes = new long[1024], activeOffsets = new long[1024];
+    /**
+     * Number of lines of the segment being written.
+     */
+    private int activeCount = 0;
+
+    /**
+     * Opens the rename log in a directory. Sealed segments whose index is missing or out of date are indexed again,
+     * and the newest segment is read to index it in memory and continue writing it.
+     *
+     * @param directory Directory holding the segments and their indexes.
+     * @throws IOException If the directory could not be read or created.
+     */
+    RenameLog(File directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory.toPath());
+
+        ArrayList<Integer> numbers = new ArrayList<>();
+        String[] names = directory.list();
+        if (names == null) {
+            throw new IOException("Cannot list " + directory);
+        }
+        for (String name : names) {
+            Matcher matcher = SEGMENT_NAME.matcher(name);
+            if (matcher.matches()) {
+                numbers.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+        numbers.sort(null);
+        if (numbers.isEmpty() && importLegacyLog()) {
+            numbers.add(1);
+        }
+
+        for (int i = 0; i + 1 < numbers.size(); i++) {
+            Segment segment = Segment.read(segmentFile(numbers.get(i)), indexFile(numbers.get(i)));
+            if (segment == null) {
+                scanSegment(segmentFile(numbers.get(i)));
+                segment = writeIndex(numbers.get(i));
+            }
+            sealedSegments.add(segment);
+        }
+
+        activeNumber = numbers.isEmpty() ? 1 : numbers.get(numbers.size() - 1);
+        boolean endsInPartialLine = scanSegment(segmentFile(activeNumber));
+        openActiveSegment();
+        if (endsInPartialLine) {
+            // the last run stopped in the middle of a line: end it, so the next line starts on its own
+            activeLength += activeChannel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+        }
+    }
+
+    /**
+     * Adds a line to the log. The line is buffered; it is on disk once the buffer is written.
+     *
+     * @param time     Time of the rename, in milliseconds since the epoch.
+     * @param identity Identity of the renamed file.
+     * @param line     The line, encoded and ending in a line break.
+     */
+    synchronized void append(long time, String identity, byte[] line) {
+        if (activeCount > 0 && activeLength + buffer.position() + line.length > SEGMENT_SIZE) {
+            rotate();
+        }
+        // keep lines whole within a write, unless one is longer than the buffer
+        if (line.length > buffer.remaining()) {
+            writeBuffer();
+        }
+        addToActiveIndex(time, hash(identity), activeLength + buffer.position());
+        for (int offset = 0; offset < line.length; ) {
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            int length = Math.min(buffer.remaining(), line.length - offset);
+            buffer.put(line, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Returns whether any lines are waiting to be written.
+     *
+     * @return True iff lines are buffered.
+     */
+    synchronized boolean hasBufferedLines() {
+        return buffer.position() > 0;
+    }
+
+    /**
+     * Writes the buffered lines to the segment being written. If they cannot be written, they are dropped and left
+     * out of the index, so that logging can go on.
+     */
+    synchronized void writeBuffer() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            if (activeChannel == null) {
+                openActiveSegment();
+            }
+            while (buffer.hasRemaining()) {
+                activeLength += activeChannel.write(buffer);
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to log name change");
+            while (activeCount > 0 && activeOffsets[activeCount - 1] >= activeLength) {
+                activeCount--;
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered lines and the index of the segment being written, and closes it. The index lets a later run
+     * skip indexing the segment if it is sealed without being written to again.
+     */
+    synchronized void close() {
+        writeBuffer();
+        try {
+            writeIndex(activeNumber);
+            if (activeChannel != null) {
+                activeChannel.close();
+                activeChannel = null;
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to close Name Log File");
+        }
+    }
+
+    /**
+     * Returns the segment file being written.
+     *
+     * @return The segment file being written.
+     */
+    synchronized File getActiveFile() {
+        return segmentFile(activeNumber);
+    }
+
+    /**
+     * Returns every segment file, oldest first, with the segment being written last.
+     *
+     * @return The segment files.
+     */
+    synchronized ArrayList<File> getSegmentFiles() {
+        ArrayList<File> files = new ArrayList<>();
+        for (Segment segment : sealedSegments) {
+            files.add(segment.file);
+        }
+        files.add(segmentFile(activeNumber));
+        return files;
+    }
+
+    /**
+     * Returns every logged line about a file of a specified identity, oldest first.
+     *
+     * @param identity Identity of the file.
+     * @return The lines about the file.
+     */
+    ArrayList<String> findByIdentity(String identity) {
+        long hash = hash(identity);
+        ArrayList<Segment> segments;
+        long[] activeMatches;
+        File activeFile;
+        synchronized (this) {
+            segments = new ArrayList<>(sealedSegments);
+            activeFile = segmentFile(activeNumber);
+            int matches = 0;
+            long[] offsets = new long[16];
+            for (int i = 0; i < activeCount && activeOffsets[i] < activeLength; i++) {
+                if (activeHashes[i] == hash) {
+                    offsets = grow(offsets, matches);
+                    offsets[matches++] = activeOffsets[i];
+                }
+            }
+            activeMatches = Arrays.copyOf(offsets, matches);
+        }
+
+        ArrayList<String> lines = new ArrayList<>();
+        for (Segment segment : segments) {
+            try {
+                addLinesOf(segment.file, segment.findByHash(hash), identity, lines);
+            } catch (IOException e) {
+                System.out.println("Failed to read name log segment " + segment.file);
+            }
+        }
+        try {
+            addLinesOf(activeFile, activeMatches, identity, lines);
+        } catch (IOException e) {
+            System.out.println("Failed to read name log segment " + activeFile);
+        }
+        return lines;
+    }
+
+    /**
+     * Returns every logged line with a time in a specified range, in time order.
+     *
+     * @param from Start of the range, in milliseconds since the epoch.
+     * @param to   End of the range (inclusive), in milliseconds since the epoch.
+     * @return The lines in the range.
+     */
+    ArrayList<String> findBetween(long from, long to) {
+        ArrayList<Segment> segments;
+        long[] activeMatches;
+        File activeFile;
+        synchronized (this) {
+            segments = new ArrayList<>(sealedSegments);
+            activeFile = segmentFile(activeNumber);
+            Integer[] order = activeOrder(true);
+            int matches = 0;
+            long[] offsets = new long[16];
+            for (Integer i : order) {
+                if (activeTimes[i] >= from && activeTimes[i] <= to && activeOffsets[i] < activeLength) {
+                    offsets = grow(offsets, matches);
+                    offsets[matches++] = activeOffsets[i];
+                }
+            }
+            activeMatches = Arrays.copyOf(offsets, matches);
+        }
+
+        ArrayList<String> lines = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.maxTime >= from && segment.minTime <= to) {
+                try {
+                    addLinesOf(segment.file, segment.findBetween(from, to), null, lines);
+                } catch (IOException e) {
+                    System.out.println("Failed to read name log segment " + segment.file);
+                }
+            }
+        }
+        try {
+            addLinesOf(activeFile, activeMatches, null, lines);
+        } catch (IOException e) {
+            System.out.println("Failed to read name log segment " + activeFile);
+        }
+        return lines;
+    }
+
+    /**
+     * Copies the log written by earlier releases into the first segment. The legacy log is the text file next to the
+     * directory named after it (nameLog.txt for the directory nameLog). It is only imported while the directory has
+     * no segments, so it is imported once, and is left in place.
+     *
+     * @return True iff the legacy log was imported.
+     * @throws IOException If the legacy log could not be copied.
+     */
+    private boolean importLegacyLog() throws IOException {
+        File legacyLog = new File(directory.getAbsoluteFile().getParentFile(), directory.getName() + ".txt");
+        if (!legacyLog.isFile() || legacyLog.length() == 0) {
+            return false;
+        }
+        // copied under another name first, so an interrupted import is not mistaken for a finished one
+        File temporaryFile = new File(directory, segmentFile(1).getName() + ".tmp");
+        Files.copy(legacyLog.toPath(), temporaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temporaryFile.toPath(), segmentFile(1).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Returns the identity at the end of a logged line.
+     *
+     * @param line The line.
+     * @return The identity, or null if the line has none.
+     */
+    static String identityOf(String line) {
+        int separator = line.lastIndexOf(IDENTITY_SEPARATOR);
+        return separator < 0 ? null : line.substring(separator + IDENTITY_SEPARATOR.length()).trim();
+    }
+
+    /**
+     * Returns the time at the start of a logged line.
+     *
+     * @param line The line.
+     * @return The time in milliseconds since the epoch, or -1 if the line does not start with one.
+     */
+    static long timeOf(String line) {
+        if (line.length() < 19) {
+            return -1;
+        }
+        try {
+            return LocalDateTime.parse(line.substring(0, 19), DATE_FORMAT).atZone(ZoneId.systemDefault())
+                    .toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Seals the segment being written and starts the next one.
+     */
+    private void rotate() {
+        writeBuffer();
+        try {
+            Segment sealed = writeIndex(activeNumber);
+            if (activeChannel != null) {
+                activeChannel.close();
+            }
+            sealedSegments.add(sealed);
+        } catch (IOException e) {
+            // the next run indexes the segment again
+            System.out.println("Failed to index name log segment " + segmentFile(activeNumber));
+        }
+        activeNumber++;
+        activeCount = 0;
+        activeLength = 0;
+        activeChannel = null;
+        try {
+            openActiveSegment();
+        } catch (IOException e) {
+            System.out.println("Failed to create Name Log File");
+        }
+    }
+
+    /**
+     * Opens the segment being written for appending.
+     *
+     * @throws IOException If it could not be opened.
+     */
+    private void openActiveSegment() throws IOException {
+        activeChannel = FileChannel.open(segmentFile(activeNumber).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeLength = activeChannel.size();
+    }
+
+    /**
+     * Reads a segment file and indexes its lines in memory, as the segment being written.
+     *
+     * @param file Segment file to read.
+     * @return True iff the segment ends in a line without a line break.
+     * @throws IOException If it could not be read.
+     */
+    private boolean scanSegment(File file) throws IOException {
+        activeCount = 0;
+        activeLength = 0;
+        if (!file.exists()) {
+            return false;
+        }
+        byte[] contents = Files.readAllBytes(file.toPath());
+        int start = 0;
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] == '\n') {
+                String line = new String(contents, start, i - start, StandardCharsets.UTF_8);
+                String identity = identityOf(line);
+                long time = timeOf(line);
+                if (time >= 0) {
+                    // lines of the legacy log name no file, and are only found by time
+                    addToActiveIndex(time, hash(identity == null ? "" : identity), start);
+                }
+                start = i + 1;
+            }
+        }
+        activeLength = contents.length;
+        return start < contents.length;
+    }
+
+    /**
+     * Writes the index of the segment being written from the lines indexed in memory.
+     *
+     * @param number Number of the segment.
+     * @return The indexed segment.
+     * @throws IOException If the index could not be written.
+     */
+    private Segment writeIndex(int number) throws IOException {
+        long minTime = Long.MAX_VALUE, maxTime = Long.MIN_VALUE;
+        for (int i = 0; i < activeCount; i++) {
+            minTime = Math.min(minTime, activeTimes[i]);
+            maxTime = Math.max(maxTime, activeTimes[i]);
+        }
+        ByteBuffer index = ByteBuffer.allocate(INDEX_HEADER_SIZE + activeCount * 32);
+        index.putInt(INDEX_MAGIC).putInt(activeCount).putLong(activeLength).putLong(minTime).putLong(maxTime);
+        for (Integer i : activeOrder(true)) {
+            index.putLong(activeTimes[i]).putLong(activeOffsets[i]);
+        }
+        for (Integer i : activeOrder(false)) {
+            index.putLong(activeHashes[i]).putLong(activeOffsets[i]);
+        }
+
+        File indexFile = indexFile(number);
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        Files.write(temporaryFile.toPath(), index.array());
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return new Segment(segmentFile(number), indexFile, activeCount, minTime, maxTime);
+    }
+
+    /**
+     * Returns the positions of the lines of the segment being written, sorted by time or by identity hash, with ties
+     * in log order.
+     *
+     * @param byTime Whether to sort by time rather than by identity hash.
+     * @return The sorted positions.
+     */
+    private Integer[] activeOrder(boolean byTime) {
+        Integer[] order = new Integer[activeCount];
+        for (int i = 0; i < activeCount; i++) {
+            order[i] = i;
+        }
+        long[] keys = byTime ? activeTimes : activeHashes;
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> keys[i]).thenComparingLong(i -> activeOffsets[i]));
+        return order;
+    }
+
+    /**
+     * Adds a line to the in-memory index of the segment being written.
+     *
+     * @param time   Time of the line.
+     * @param hash   Identity hash of the line.
+     * @param offset Offset of the line in the segment.
+     */
+    private void addToActiveIndex(long time, long hash, long offset) {
+        if (activeCount == activeTimes.length) {
+            activeTimes = Arrays.copyOf(activeTimes, activeCount * 2);
+            activeHashes = Arrays.copyOf(activeHashes, activeCount * 2);
+            activeOffsets = Arrays.copyOf(activeOffsets, activeCount * 2);
+        }
+        activeTimes[activeCount] = time;
+        activeHashes[activeCount] = hash;
+        activeOffsets[activeCount] = offset;
+        activeCount++;
+    }
+
+    /**
+     * Returns the segment file with a specified number.
+     *
+     * @param number Number of the segment.
+     * @return The segment file.
+     */
+    private File segmentFile(int number) {
+        return new File(directory, String.format("nameLog-%06d.log", number));
+    }
+
+    /**
+     * Returns the index file of the segment with a specified number.
+     *
+     * @param number Number of the segment.
+     * @return The index file.
+     */
+    private File indexFile(int number) {
+        return new File(directory, String.format("nameLog-%06d.idx", number));
+    }
+
+    /**
+     * Reads the lines at specified offsets of a segment file and adds them to a list, optionally only those about a
+     * file of a specified identity.
+     *
+     * @param file     Segment file to read.
+     * @param offsets  Offsets of the lines.
+     * @param identity Identity the lines must be about, or null to add every line.
+     * @param lines    List to add the lines to.
+     * @throws IOException If the segment could not be read.
+     */
+    private static void addLinesOf(File file, long[] offsets, String identity, ArrayList<String> lines)
+            throws IOException {
+        if (offsets.length == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer lineBuffer = ByteBuffer.allocate(512);
+            for (long offset : offsets) {
+                lineBuffer.clear();
+                int end = -1;
+                while (end < 0) {
+                    if (!lineBuffer.hasRemaining()) {
+                        ByteBuffer grown = ByteBuffer.allocate(lineBuffer.capacity() * 2);
+                        lineBuffer.flip();
+                        grown.put(lineBuffer);
+                        lineBuffer = grown;
+                    }
+                    int from = lineBuffer.position();
+                    if (channel.read(lineBuffer, offset + from) < 0) {
+                        end = lineBuffer.position();
+                    }
+                    for (int i = from; i < lineBuffer.position() && end < 0; i++) {
+                        if (lineBuffer.get(i) == '\n') {
+                            end = i;
+                        }
+                    }
+                }
+                String line = new String(lineBuffer.array(), 0, end, StandardCharsets.UTF_8);
+                // identity hashes may collide
+                if (identity == null || identity.equals(identityOf(line))) {
+                    lines.add(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an array with room for at least one more value after a specified count.
+     *
+     * @param values The array.
+     * @param count  Number of values in use.
+     * @return The array, or a larger copy.
+     */
+    private static long[] grow(long[] values, int count) {
+        return count < values.length ? values : Arrays.copyOf(values, values.length * 2);
+    }
+
+    /**
+     * Returns the 64 bit FNV-1a hash of an identity.
+     *
+     * @param identity The identity.
+     * @return Its hash.
+     */
+    private static long hash(String identity) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < identity.length(); i++) {
+            hash ^= identity.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * A sealed segment and its index.
+     */
+    private static class Segment {
+        /**
+         * The segment file and its index file.
+         */
+        private File file, indexFile;
+        /**
+         * Number of indexed lines.
+         */
+        private int count;
+        /**
+         * Earliest and latest time of the indexed lines.
+         */
+        private long minTime, maxTime;
+
+        /**
+         * Constructs a new Segment.
+         *
+         * @param file      The segment file.
+         * @param indexFile The index file.
+         * @param count     Number of indexed lines.
+         * @param minTime   Earliest time of the indexed lines.
+         * @param maxTime   Latest time of the indexed lines.
+         */
+        private Segment(File file, File indexFile, int count, long minTime, long maxTime) {
+            this.file = file;
+            this.indexFile = indexFile;
+            this.count = count;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+        }
+
+        /**
+         * Returns the Segment of a segment file from the header of its index file.
+         *
+         * @param file      The segment file.
+         * @param indexFile The index file.
+         * @return The Segment, or null if the index is missing, damaged, or does not cover the whole segment.
+         */
+        private static Segment read(File file, File indexFile) {
+            if (!indexFile.exists()) {
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+                while (header.hasRemaining()) {
+                    if (channel.read(header) < 0) {
+                        break;
+                    }
+                }
+                header.flip();
+                if (header.remaining() < INDEX_HEADER_SIZE || header.getInt() != INDEX_MAGIC) {
+                    return null;
+                }
+                int count = header.getInt();
+                long length = header.getLong();
+                if (length != file.length() || channel.size() != INDEX_HEADER_SIZE + count * 32L) {
+                    return null;
+                }
+                return new Segment(file, indexFile, count, header.getLong(), header.getLong());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Returns the offsets of the lines with a specified identity hash, in log order.
+         *
+         * @param hash The identity hash.
+         * @return The offsets.
+         * @throws IOException If the index could not be read.
+         */
+        private long[] findByHash(long hash) throws IOException {
+            MappedByteBuffer index = map();
+            int base = INDEX_HEADER_SIZE + count * 16;
+            int first = lowerBound(index, base, hash);
+            int last = first;
+            while (last < count && index.getLong(base + last * 16) == hash) {
+                last++;
+            }
+            long[] offsets = new long[last - first];
+            for (int i = first; i < last; i++) {
+                offsets[i - first] = index.getLong(base + i * 16 + 8);
+            }
+            return offsets;
+        }
+
+        /**
+         * Returns the offsets of the lines with a time in a specified range, in time order.
+         *
+         * @param from Start of the range.
+         * @param to   End of the range (inclusive).
+         * @return The offsets.
+         * @throws IOException If the index could not be read.
+         */
+        private long[] findBetween(long from, long to) throws IOException {
+            MappedByteBuffer index = map();
+            int first = lowerBound(index, INDEX_HEADER_SIZE, from);
+            int last = first;
+            while (last < count && index.getLong(INDEX_HEADER_SIZE + last * 16) <= to) {
+                last++;
+            }
+            long[] offsets = new long[last - first];
+            for (int i = first; i < last; i++) {
+                offsets[i - first] = index.getLong(INDEX_HEADER_SIZE + i * 16 + 8);
+            }
+            return offsets;
+        }
+
+        /**
+         * Maps the index file into memory.
+         *
+         * @return The mapped index file.
+         * @throws IOException If it could not be mapped.
+         */
+        private MappedByteBuffer map() throws IOException {
+            try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        /**
+         * Returns the position of the first entry of a sorted section of the index whose key is not less than a
+         * specified key.
+         *
+         * @param index The mapped index file.
+         * @param base  Offset of the section.
+         * @param key   The key.
+         * @return The position of the entry, or the line count if there is none.
+         */
+        private int lowerBound(MappedByteBuffer index, int base, long key) {
+            int low = 0, high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (index.getLong(base + middle * 16) < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
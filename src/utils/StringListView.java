@@ -2,7 +2,6 @@ package utils;
 
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.FXCollections;
 import javafx.scene.control.ListView;
 
 import java.util.ArrayList;
@@ -56,8 +55,7 @@ public class StringListView implements ChangeListener<String> {
      * @param stringList List of strings that this StringListView should display.
      */
     public void setItems(ArrayList<String> stringList) {
-        stringViewList.getItems().clear();
-        stringViewList.setItems(FXCollections.observableArrayList(stringList));
+        ObservableListUpdater.update(stringViewList.getItems(), stringList);
     }
 
     /**
@@ -2,9 +2,16 @@ package utils;
 
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.scene.control.Labeled;
+import metrics.LatencyHistogram;
+import metrics.LongTaskDetector;
+import metrics.MetricsRegistry;
+
+import java.util.IdentityHashMap;
 
 /**
- * A View in the program.
+ * A View in the program. Every event it handles is timed per GUI element it came from, and watched by the
+ * LongTaskDetector.
  */
 @SuppressWarnings("all")
 public abstract class View implements EventHandler<ActionEvent> {
@@ -12,6 +19,10 @@ public abstract class View implements EventHandler<ActionEvent> {
      * The Singleton instance of MainView that is available to all Views.
      */
     MainView programView = MainView.getInstance();
+    /**
+     * Name and latency histogram of the handler for each GUI element this View has handled events from.
+     */
+    private IdentityHashMap<Object, Handler> handlers = new IdentityHashMap<>();
 
     /**
      * Sets up this View in the main program.
@@ -23,6 +34,35 @@ public abstract class View implements EventHandler<ActionEvent> {
      */
     public abstract void setupInputs();
 
+    /**
+     * Filters and handles events from the GUI elements associated with this View.
+     *
+     * @param e ActionEvent to filter and handle.
+     */
+    protected abstract void handleAction(ActionEvent e);
+
+    /**
+     * Handles an event from a GUI element associated with this View, recording how long it took.
+     *
+     * @param e ActionEvent to handle.
+     */
+    @Override
+    public final void handle(ActionEvent e) {
+        Handler handler = handlers.get(e.getSource());
+        if (handler == null) {
+            handler = new Handler(getClass().getSimpleName() + "." + describe(e.getSource()));
+            handlers.put(e.getSource(), handler);
+        }
+        long start = System.nanoTime();
+        LongTaskDetector.getInstance().taskStarted(handler.name);
+        try {
+            handleAction(e);
+        } finally {
+            LongTaskDetector.getInstance().taskFinished();
+            handler.latency.recordSince(start);
+        }
+    }
+
     /**
      * Returns the MainView associated with this View.
      *
@@ -32,4 +72,42 @@ public abstract class View implements EventHandler<ActionEvent> {
         return programView;
     }
 
-}
\ No newline at end of file
+    /**
+     * Returns a name for the GUI element an event came from: its text, or its class if it has none.
+     *
+     * @param source GUI element an event came from.
+     * @return The name of the GUI element.
+     */
+    private static String describe(Object source) {
+        if (source instanceof Labeled && ((Labeled) source).getText() != null
+                && !((Labeled) source).getText().isEmpty()) {
+            return ((Labeled) source).getText();
+        }
+        return source.getClass().getSimpleName();
+    }
+
+    /**
+     * The handler of the events from one GUI element.
+     */
+    private static class Handler {
+        /**
+         * Name of the handler, as the View and GUI element it handles.
+         */
+        private String name;
+        /**
+         * Time taken to handle an event.
+         */
+        private LatencyHistogram latency;
+
+        /**
+         * Constructs a new Handler.
+         *
+         * @param name Name of the handler.
+         */
+        private Handler(String name) {
+            this.name = name;
+            latency = MetricsRegistry.getInstance().histogram("handler." + name);
+        }
+    }
+
+}